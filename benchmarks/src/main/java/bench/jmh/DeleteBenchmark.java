@@ -0,0 +1,49 @@
+/*
+ * DeleteBenchmark v1.0
+ *
+ * database contributors
+ * Oct 16, 2026
+ */
+
+package bench.jmh;
+
+import engine.db.Database;
+import engine.sql.Token;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how long a single `DELETE ... WHERE id < bound` takes to remove the given fraction of the rows of a table,
+ * with or without an index over `id`. Rows cannot be deleted twice, so the table is created again for every call, which
+ * also means that the row versions a delete leaves behind never slow down the next one.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class DeleteBenchmark {
+    @Param({"10000", "100000"})
+    public int rows;
+
+    @Param({"0.01", "0.5"})
+    public double selectivity;
+
+    @Param({"NONE", "BTREE"})
+    public String index;
+
+    private Database database;
+
+    @Setup(Level.Invocation)
+    public void setUp() {
+        database = Workloads.createDatabase(rows, Workloads.ColumnType.INTEGER, index.equals("NONE") ? null : Token.IndexTypeType.valueOf(index));
+    }
+
+    @Benchmark
+    public Database delete() {
+        Workloads.execute(database, String.format("DELETE FROM %s WHERE id < %d;", Workloads.TABLE, (int) (rows * selectivity)));
+        return database;
+    }
+}
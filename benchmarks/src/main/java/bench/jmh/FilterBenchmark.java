@@ -0,0 +1,103 @@
+/*
+ * FilterBenchmark v1.0
+ *
+ * database contributors
+ * Oct 17, 2026
+ */
+
+package bench.jmh;
+
+import engine.db.Column;
+import engine.db.FilterCompiler;
+import engine.db.Table;
+import engine.sql.Expression;
+import engine.sql.Parser;
+import engine.sql.Query;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntPredicate;
+import java.util.stream.IntStream;
+
+/**
+ * Measures how long it takes to test every row of a table against a filter, either with the predicate built by
+ * {@link FilterCompiler} or by walking the expression tree for every row, which is how filters used to be evaluated.
+ * The predicate is built inside the measured call, so that compiling the filter is counted.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FilterBenchmark {
+    @Param({"1000000"})
+    public int rows;
+
+    @Param({"RANGE", "CONJUNCTION", "DISJUNCTION", "MIXED"})
+    public String filter;
+
+    @Param({"INTERPRETED", "COMPILED"})
+    public String evaluation;
+
+    private Table table;
+    private Expression predicate;
+
+    @Setup
+    public void setUp() {
+        table = Workloads
+            .createDatabase(rows, Workloads.ColumnType.INTEGER, null)
+            .getTables()
+            .iterator()
+            .next();
+
+        String condition = switch (filter) {
+            case "RANGE"       -> String.format("id < %d", rows / 2);
+            case "CONJUNCTION" -> "id >= 1000 AND active = true";
+            case "DISJUNCTION" -> String.format("name = '%s' OR id > %d", Workloads.name(42), rows - 1000);
+            default            -> String.format("name > '%s' AND active = false AND id != 7", Workloads.name(rows / 2));
+        };
+
+        predicate = ((Query.Select) Parser.parse(String.format("SELECT * FROM %s WHERE %s;", Workloads.TABLE, condition)).get(0)).filter();
+    }
+
+    @Benchmark
+    public long filter() {
+        IntPredicate rows = evaluation.equals("COMPILED")
+            ? FilterCompiler.compile(table, predicate)
+            : (row) -> interpret(table, row, predicate);
+
+        return IntStream.range(0, table.getRowCount()).filter(rows).count();
+    }
+
+    /**
+     * Walks the expression tree for a row, resolving the column by name and dispatching on the operator and the type
+     * of the literal every time.
+     */
+    private static boolean interpret(Table table, int row, Expression filter) {
+        return switch (filter) {
+            case Expression.Comparison comparison -> {
+                Column column = table.getColumn(table.getColumnIndex(comparison.ident().ident()));
+
+                if (column.isNull(row)) {
+                    yield false;
+                }
+
+                int order = column.compare(row, comparison.value());
+
+                yield switch (comparison.op().type()) {
+                    case ASSIGN, EQUAL -> order == 0;
+                    case NOT_EQUAL     -> order != 0;
+                    case LESS          -> order < 0;
+                    case LESS_EQUAL    -> order <= 0;
+                    case GREATER       -> order > 0;
+                    case GREATER_EQUAL -> order >= 0;
+                };
+            }
+            case Expression.Binary binary -> switch (binary.op().type()) {
+                case AND -> interpret(table, row, binary.lhs()) && interpret(table, row, binary.rhs());
+                case OR  -> interpret(table, row, binary.lhs()) || interpret(table, row, binary.rhs());
+            };
+        };
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * InsertBenchmark v1.0
+ *
+ * database contributors
+ * Oct 16, 2026
+ */
+
+package bench.jmh;
+
+import engine.db.Database;
+import engine.sql.Query;
+import engine.sql.Token;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how long it takes to insert the given number of rows into an empty table, one `INSERT` statement at a time
+ * with the given number of rows each, and with or without an index to keep up to date. The insert rate in rows per
+ * second is the number of rows divided by the score.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class InsertBenchmark {
+    @Param({"10000", "100000"})
+    public int rows;
+
+    @Param({"1", "100"})
+    public int rowsPerStatement;
+
+    @Param({"NONE", "HASH", "BTREE"})
+    public String index;
+
+    private List<Query> statements;
+    private Database database;
+
+    @Setup(Level.Trial)
+    public void createStatements() {
+        int[] ids = Workloads.shuffledIds(rows);
+        statements = new ArrayList<>();
+
+        for (int from = 0; from < rows; from += rowsPerStatement) {
+            List<List<Token.Literal>> batch = new ArrayList<>(rowsPerStatement);
+
+            for (int i = from; i < Math.min(rows, from + rowsPerStatement); i++) {
+                batch.add(Workloads.row(ids[i]));
+            }
+
+            statements.add(new Query.InsertInto(new Token.Identifier(Workloads.TABLE), null, batch));
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void createTable() {
+        database = Workloads.createDatabase(0, Workloads.ColumnType.INTEGER, index.equals("NONE") ? null : Token.IndexTypeType.valueOf(index));
+    }
+
+    @Benchmark
+    public Database insert() {
+        for (Query statement : statements) {
+            database.executeQuery(statement);
+        }
+
+        return database;
+    }
+}
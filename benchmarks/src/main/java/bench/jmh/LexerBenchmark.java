@@ -0,0 +1,49 @@
+/*
+ * LexerBenchmark v1.0
+ *
+ * database contributors
+ * Oct 16, 2026
+ */
+
+package bench.jmh;
+
+import engine.sql.Token;
+import engine.sql.Tokenizer;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how fast {@link Tokenizer#tokenize} lexes a dump script, against the regex-based tokenizer it replaced. The
+ * score is in scripts per second, so the throughput in MB/s is the score times the script size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LexerBenchmark {
+    @Param({"16", "1024", "16384"})
+    public int scriptKilobytes;
+
+    @Param({"REGEX", "SINGLE_PASS"})
+    public String lexer;
+
+    private String script;
+
+    @Setup
+    public void setUp() {
+        script = Workloads.generateDump(scriptKilobytes * 1024);
+
+        if (!RegexTokenizer.tokenize(script).equals(Tokenizer.tokenize(script))) {
+            throw new IllegalStateException("Tokenizers disagree on the generated script.");
+        }
+    }
+
+    @Benchmark
+    public List<Token> tokenize() {
+        return lexer.equals("REGEX") ? RegexTokenizer.tokenize(script) : Tokenizer.tokenize(script);
+    }
+}
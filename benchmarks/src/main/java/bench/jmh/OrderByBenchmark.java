@@ -0,0 +1,57 @@
+/*
+ * OrderByBenchmark v1.0
+ *
+ * database contributors
+ * Oct 16, 2026
+ */
+
+package bench.jmh;
+
+import engine.db.PreparedQuery;
+import engine.sql.Token;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures `SELECT * ... ORDER BY column, id`, either reading the whole sorted table or only the first rows of it,
+ * with and without an ordered index over the column.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OrderByBenchmark {
+    @Param({"10000", "1000000"})
+    public int rows;
+
+    @Param({"INTEGER", "VARCHAR", "BOOLEAN"})
+    public String columnType;
+
+    /**
+     * Number of rows to read, or 0 to read all of them.
+     */
+    @Param({"10", "0"})
+    public int limit;
+
+    @Param({"NONE", "BTREE"})
+    public String index;
+
+    private PreparedQuery query;
+
+    @Setup
+    public void setUp() {
+        Workloads.ColumnType column = Workloads.ColumnType.valueOf(columnType);
+        query = Workloads
+            .createDatabase(rows, column, index.equals("NONE") ? null : Token.IndexTypeType.valueOf(index))
+            .prepare(String.format("SELECT * FROM %s ORDER BY %s DESC, id%s;", Workloads.TABLE, column.column, limit == 0 ? "" : " LIMIT " + limit));
+    }
+
+    @Benchmark
+    public void sort(Blackhole blackhole) {
+        Workloads.consume(query.execute(), blackhole);
+    }
+}
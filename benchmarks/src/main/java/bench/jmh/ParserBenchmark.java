@@ -0,0 +1,48 @@
+/*
+ * ParserBenchmark v1.0
+ *
+ * database contributors
+ * Oct 16, 2026
+ */
+
+package bench.jmh;
+
+import engine.sql.Parser;
+import engine.sql.Query;
+import engine.sql.Token;
+import engine.sql.Tokenizer;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how fast {@link Parser#parse(List)} turns tokens into queries, apart from lexing. Scripts are either a dump
+ * of `INSERT` statements or a mix of `SELECT` statements with filters, sorting, limits and aggregates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParserBenchmark {
+    @Param({"INSERT", "SELECT"})
+    public String statements;
+
+    @Param({"16", "1024"})
+    public int scriptKilobytes;
+
+    private List<Token> tokens;
+
+    @Setup
+    public void setUp() {
+        int size = scriptKilobytes * 1024;
+        tokens = Tokenizer.tokenize(statements.equals("INSERT") ? Workloads.generateDump(size) : Workloads.generateSelects(size));
+    }
+
+    @Benchmark
+    public List<Query> parse() {
+        return Parser.parse(tokens);
+    }
+}
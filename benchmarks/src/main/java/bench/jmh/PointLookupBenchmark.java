@@ -0,0 +1,54 @@
+/*
+ * PointLookupBenchmark v1.0
+ *
+ * database contributors
+ * Oct 16, 2026
+ */
+
+package bench.jmh;
+
+import engine.db.PreparedQuery;
+import engine.sql.Token;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures `SELECT * ... WHERE column == value` for a random row, with and without an index over the column.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PointLookupBenchmark {
+    @Param({"10000", "1000000"})
+    public int rows;
+
+    @Param({"INTEGER", "VARCHAR"})
+    public String columnType;
+
+    @Param({"NONE", "HASH", "BTREE"})
+    public String index;
+
+    private Workloads.ColumnType column;
+    private PreparedQuery query;
+    private SplittableRandom random;
+
+    @Setup
+    public void setUp() {
+        column = Workloads.ColumnType.valueOf(columnType);
+        query = Workloads
+            .createDatabase(rows, column, index.equals("NONE") ? null : Token.IndexTypeType.valueOf(index))
+            .prepare(String.format("SELECT * FROM %s WHERE %s == ?;", Workloads.TABLE, column.column));
+        random = new SplittableRandom(rows);
+    }
+
+    @Benchmark
+    public void lookup(Blackhole blackhole) {
+        Workloads.consume(query.execute(column.value(random.nextInt(rows))), blackhole);
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * RangeScanBenchmark v1.0
+ *
+ * database contributors
+ * Oct 16, 2026
+ */
+
+package bench.jmh;
+
+import engine.db.PreparedQuery;
+import engine.sql.Token;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures `SELECT id ... WHERE column >= low AND column < high` over a random range that holds the given fraction of
+ * the rows, with and without an ordered index over the column.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RangeScanBenchmark {
+    @Param({"10000", "1000000"})
+    public int rows;
+
+    @Param({"INTEGER", "VARCHAR"})
+    public String columnType;
+
+    @Param({"0.001", "0.01", "0.1", "0.5"})
+    public double selectivity;
+
+    @Param({"NONE", "BTREE"})
+    public String index;
+
+    private Workloads.ColumnType column;
+    private PreparedQuery query;
+    private SplittableRandom random;
+    private int width;
+
+    @Setup
+    public void setUp() {
+        column = Workloads.ColumnType.valueOf(columnType);
+        query = Workloads
+            .createDatabase(rows, column, index.equals("NONE") ? null : Token.IndexTypeType.valueOf(index))
+            .prepare(String.format("SELECT id FROM %s WHERE %s >= ? AND %s < ?;", Workloads.TABLE, column.column, column.column));
+        random = new SplittableRandom(rows);
+        width = Math.max(1, (int) (rows * selectivity));
+    }
+
+    @Benchmark
+    public void scan(Blackhole blackhole) {
+        int low = random.nextInt(rows - width + 1);
+        Workloads.consume(query.execute(column.value(low), column.value(low + width)), blackhole);
+    }
+}
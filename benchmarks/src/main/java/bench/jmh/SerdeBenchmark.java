@@ -0,0 +1,58 @@
+/*
+ * SerdeBenchmark v1.0
+ *
+ * database contributors
+ * Oct 16, 2026
+ */
+
+package bench.jmh;
+
+import engine.db.Database;
+import engine.io.Serde;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.BufferedWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how long it takes to dump a table to a SQL script with {@link Serde#serialize}, and to restore it from that
+ * script with {@link Serde#deserialize(String)}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerdeBenchmark {
+    @Param({"10000", "100000"})
+    public int rows;
+
+    private Database database;
+    private String dump;
+
+    @Setup
+    public void setUp() {
+        database = Workloads.createDatabase(rows, Workloads.ColumnType.INTEGER, null);
+
+        StringWriter script = new StringWriter();
+        try (BufferedWriter out = new BufferedWriter(script)) {
+            Serde.serialize(out, database);
+        } catch (Exception err) {
+            throw new IllegalStateException(err);
+        }
+        dump = script.toString();
+    }
+
+    @Benchmark
+    public void dump() {
+        Serde.serialize(new BufferedWriter(Writer.nullWriter()), database);
+    }
+
+    @Benchmark
+    public Database restore() {
+        return Serde.deserialize(dump);
+    }
+}
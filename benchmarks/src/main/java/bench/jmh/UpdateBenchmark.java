@@ -0,0 +1,64 @@
+/*
+ * UpdateBenchmark v1.0
+ *
+ * database contributors
+ * Oct 16, 2026
+ */
+
+package bench.jmh;
+
+import engine.db.Database;
+import engine.db.PreparedQuery;
+import engine.sql.Token;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures `UPDATE ... SET active = ... WHERE id >= low AND id < high` over a random range that holds the given
+ * fraction of the rows, with or without an index over `id` to find them. Every update leaves old row versions behind,
+ * which every later update and index lookup has to skip, so the table is vacuumed before every call. Vacuum only runs
+ * once enough dead versions have piled up, so calls see at most that many, instead of slowing down over the iteration.
+ * The table is still created again for every iteration, so that iterations start from the same state.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UpdateBenchmark {
+    @Param({"10000", "100000"})
+    public int rows;
+
+    @Param({"0.0001", "0.01"})
+    public double selectivity;
+
+    @Param({"NONE", "BTREE"})
+    public String index;
+
+    private Database database;
+    private PreparedQuery query;
+    private SplittableRandom random;
+    private int width;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        database = Workloads.createDatabase(rows, Workloads.ColumnType.INTEGER, index.equals("NONE") ? null : Token.IndexTypeType.valueOf(index));
+        query = database.prepare(String.format("UPDATE %s SET active = ? WHERE id >= ? AND id < ?;", Workloads.TABLE));
+        random = new SplittableRandom(rows);
+        width = Math.max(1, (int) (rows * selectivity));
+    }
+
+    @Setup(Level.Invocation)
+    public void vacuum() {
+        database.vacuum();
+    }
+
+    @Benchmark
+    public void update() {
+        int low = random.nextInt(rows - width + 1);
+        query.execute(random.nextBoolean(), low, low + width);
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ * Workloads v1.0
+ *
+ * database contributors
+ * Oct 16, 2026
+ */
+
+package bench.jmh;
+
+import engine.db.Database;
+import engine.db.ResultSet;
+import engine.sql.Parser;
+import engine.sql.Query;
+import engine.sql.Token;
+import org.openjdk.jmh.infra.Blackhole;
+
+import javax.swing.table.TableModel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Builds the tables and scripts the benchmarks run against. Everything is generated from a fixed seed, so that every
+ * run, and every commit, measures the same work.
+ */
+final class Workloads {
+    static final String TABLE = "bench";
+
+    private static final long SEED = 42;
+    private static final int ROWS_PER_INSERT = 1000;
+
+    /**
+     * Type of the column a benchmark filters or sorts on, which picks one of the columns of {@link #createDatabase}.
+     */
+    enum ColumnType {
+        INTEGER("id"),
+        VARCHAR("name"),
+        BOOLEAN("active");
+
+        final String column;
+
+        ColumnType(String column) {
+            this.column = column;
+        }
+
+        /**
+         * Returns the value of this column in the row with the given id, in the form {@link engine.db.PreparedQuery}
+         * binds parameters.
+         */
+        Object value(int id) {
+            return switch (this) {
+                case INTEGER -> id;
+                case VARCHAR -> Workloads.name(id);
+                case BOOLEAN -> id % 2 == 0;
+            };
+        }
+    }
+
+    private Workloads() {}
+
+    /**
+     * Creates a database with a single table of the given number of rows, inserted in random order:
+     *  - id      int          every number from 0 up to the number of rows, once
+     *  - name    varchar(16)  the id padded with zeros, e.g. `k000000042`, so names sort like ids
+     *  - active  bool         true for even ids
+     * @param index index type to create over the column, or null for none
+     */
+    static Database createDatabase(int rows, ColumnType column, Token.IndexTypeType index) {
+        Database database = new Database();
+        execute(database, String.format("CREATE TABLE %s (id int, name varchar(16), active bool);", TABLE));
+
+        int[] ids = shuffledIds(rows);
+        database.startBulkLoad();
+
+        for (int from = 0; from < rows; from += ROWS_PER_INSERT) {
+            List<List<Token.Literal>> batch = new ArrayList<>(ROWS_PER_INSERT);
+
+            for (int i = from; i < Math.min(rows, from + ROWS_PER_INSERT); i++) {
+                batch.add(row(ids[i]));
+            }
+
+            database.executeQuery(new Query.InsertInto(new Token.Identifier(TABLE), null, batch));
+        }
+
+        database.finishBulkLoad();
+
+        if (index != null) {
+            execute(database, String.format("CREATE INDEX %s_%s ON %s USING %s (%s);", TABLE, column.column, TABLE, index, column.column));
+        }
+
+        return database;
+    }
+
+    /**
+     * Returns the values of the row with the given id.
+     */
+    static List<Token.Literal> row(int id) {
+        return List.of(
+            new Token.Literal.Integer(id),
+            new Token.Literal.String(name(id)),
+            new Token.Literal.Boolean(id % 2 == 0)
+        );
+    }
+
+    static String name(int id) {
+        return String.format("k%09d", id);
+    }
+
+    /**
+     * Returns every id from 0 up to the given number, in random order.
+     */
+    static int[] shuffledIds(int rows) {
+        int[] ids = new int[rows];
+        Random random = new Random(SEED);
+
+        for (int i = 0; i < rows; i++) {
+            int j = random.nextInt(i + 1);
+            ids[i] = ids[j];
+            ids[j] = i;
+        }
+
+        return ids;
+    }
+
+    /**
+     * Generates a script of roughly the given size in the shape of a dump written by {@link engine.io.Serde#serialize}.
+     */
+    static String generateDump(int size) {
+        StringBuilder script = new StringBuilder(size + 256);
+        Random random = new Random(SEED);
+
+        script.append(String.format("CREATE TABLE %s (\n\tid int,\n\tname varchar(16),\n\tactive bool,\n);\n\n", TABLE));
+
+        for (int id = 0; script.length() < size; id++) {
+            script.append(id % ROWS_PER_INSERT == 0 ? String.format("INSERT INTO %s VALUES\n\t(", TABLE) : ",\n\t(");
+            script.append(random.nextInt(1_000_000_000)).append(", '").append(name(id)).append("', ").append(id % 2 == 0).append(')');
+
+            if (id % ROWS_PER_INSERT == ROWS_PER_INSERT - 1) {
+                script.append(";\n");
+            }
+        }
+
+        return script.append(";\n").toString();
+    }
+
+    /**
+     * Generates a script of roughly the given size made of queries with filters, sorting and limits.
+     */
+    static String generateSelects(int size) {
+        StringBuilder script = new StringBuilder(size + 256);
+        Random random = new Random(SEED);
+
+        while (script.length() < size) {
+            int id = random.nextInt(1_000_000);
+
+            script.append(switch (random.nextInt(4)) {
+                case 0 -> String.format("SELECT * FROM %s WHERE id == %d;\n", TABLE, id);
+                case 1 -> String.format("SELECT id, name FROM %s WHERE id >= %d AND id < %d ORDER BY name DESC;\n", TABLE, id, id + 100);
+                case 2 -> String.format("SELECT name FROM %s WHERE active = true OR name > '%s' LIMIT 10 OFFSET %d;\n", TABLE, name(id), id % 100);
+                default -> String.format("SELECT active, COUNT(*), MAX(id) FROM %s WHERE id != %d GROUP BY active;\n", TABLE, id);
+            });
+        }
+
+        return script.toString();
+    }
+
+    static void execute(Database database, String sql) {
+        for (Query query : Parser.parse(sql)) {
+            database.executeQuery(query);
+        }
+    }
+
+    /**
+     * Reads every row of a result, since large results are only read from the table as their rows are asked for.
+     */
+    static void consume(TableModel result, Blackhole blackhole) {
+        try (ResultSet rows = (ResultSet) result) {
+            for (int row = 0; row < rows.getRowCount(); row++) {
+                blackhole.consume(rows.getRow(row));
+            }
+        }
+    }
+}
@@ -1,14 +1,192 @@
 import com.formdev.flatlaf.themes.FlatMacDarkLaf;
 import engine.db.Database;
+import engine.io.Storage;
+import engine.io.WriteAheadLog;
 import gui.App;
+import server.PgServer;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.nio.file.Path;
 
 public class Main {
-    public static void main(String[] args) {
-        // Configures a better looking "look and feel" for us.
-        FlatMacDarkLaf.setup();
+    private static final long VACUUM_INTERVAL_MILLIS = 10_000;
+    private static final int DEFAULT_RESULT_CACHE_ENTRIES = 128;
+    private static final int DEFAULT_MAX_CONNECTIONS = 100;
+    private static final long DEFAULT_CHECKPOINT_MEGABYTES = 64;
+    private static final String USAGE = "Usage: Main [--data-dir <directory>] [--sync every-commit|os|<milliseconds>ms] [--checkpoint-size <megabytes>] [--result-cache <cells> [--result-cache-entries <entries>]] [--sort-memory <megabytes>] [--join-memory <megabytes>] [--parallelism <threads>] [--server <port> [--listen <address>] [--max-connections <clients>]]";
+
+    /**
+     * {@value #USAGE}
+     * Without a data directory, the database only lives in memory. Otherwise, a checkpoint is taken whenever the
+     * write-ahead log grows past the checkpoint size, 64 MB unless given, and on shutdown. Without a result cache size,
+     * results of `SELECT`s are not cached, and with one, at most 128 results are kept unless another number of entries
+     * is given. Scans over large tables use one thread per core unless the parallelism is given.
+     * With a port, no window is opened, and the database is served to PostgreSQL clients instead, on the loopback
+     * address unless another one is given, until the process is stopped.
+     * Invalid arguments are reported along with the usage, and the process exits with status 2.
+     */
+    public static void main(String[] args) throws IOException {
+        Path dataDirectory = null;
+        WriteAheadLog.SyncMode syncMode = WriteAheadLog.SyncMode.EVERY_COMMIT;
+        long syncInterval = 0;
+        long checkpointMegabytes = DEFAULT_CHECKPOINT_MEGABYTES;
+        long resultCacheCells = 0;
+        int resultCacheEntries = DEFAULT_RESULT_CACHE_ENTRIES;
+        long sortMemoryMegabytes = 0;
+        long joinMemoryMegabytes = 0;
+        int parallelism = 0;
+        int serverPort = -1;
+        InetAddress listenAddress = InetAddress.getLoopbackAddress();
+        int maxConnections = DEFAULT_MAX_CONNECTIONS;
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--data-dir" -> dataDirectory = Path.of(value(args, ++i));
+                    case "--sync" -> {
+                        String mode = value(args, ++i);
+
+                        if (mode.equals("every-commit")) {
+                            syncMode = WriteAheadLog.SyncMode.EVERY_COMMIT;
+                        } else if (mode.equals("os")) {
+                            syncMode = WriteAheadLog.SyncMode.OS;
+                        } else if (mode.endsWith("ms")) {
+                            syncMode = WriteAheadLog.SyncMode.INTERVAL;
+                            syncInterval = number(args[i - 1], mode.substring(0, mode.length() - 2), 1, Long.MAX_VALUE);
+                        } else {
+                            throw new IllegalArgumentException(String.format("Unknown sync mode '%s'.", mode));
+                        }
+                    }
+                    case "--checkpoint-size" -> checkpointMegabytes = number(args, ++i, 0, Long.MAX_VALUE / (1024 * 1024));
+                    case "--result-cache" -> resultCacheCells = number(args, ++i, 0, Long.MAX_VALUE);
+                    case "--result-cache-entries" -> resultCacheEntries = (int) number(args, ++i, 1, Integer.MAX_VALUE);
+                    case "--sort-memory" -> sortMemoryMegabytes = number(args, ++i, 1, Long.MAX_VALUE / (1024 * 1024));
+                    case "--join-memory" -> joinMemoryMegabytes = number(args, ++i, 1, Long.MAX_VALUE / (1024 * 1024));
+                    case "--parallelism" -> parallelism = (int) number(args, ++i, 1, Integer.MAX_VALUE);
+                    case "--server" -> serverPort = (int) number(args, ++i, 0, 65535);
+                    case "--listen" -> {
+                        String address = value(args, ++i);
+
+                        try {
+                            listenAddress = InetAddress.getByName(address);
+                        } catch (UnknownHostException err) {
+                            throw new IllegalArgumentException(String.format("Unknown address '%s'.", address));
+                        }
+                    }
+                    case "--max-connections" -> maxConnections = (int) number(args, ++i, 1, Integer.MAX_VALUE);
+                    default -> throw new IllegalArgumentException(String.format("Unknown argument '%s'.", args[i]));
+                }
+            }
+        } catch (IllegalArgumentException err) {
+            System.err.println(err.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+            return;
+        }
+
+        Storage storage = null;
+        Database database;
+
+        if (dataDirectory != null) {
+            // Recover the database from disk.
+            storage = Storage.open(dataDirectory, syncMode, syncInterval);
+            storage.setCheckpointSize(checkpointMegabytes * 1024 * 1024);
+            database = storage.getDatabase();
+        } else {
+            // Initialize fresh database.
+            database = new Database();
+        }
+
+        if (resultCacheCells > 0) {
+            database.setResultCache(resultCacheEntries, resultCacheCells);
+        }
+        if (sortMemoryMegabytes > 0) {
+            database.setSettings(database.getSettings().withSortMemory(sortMemoryMegabytes * 1024 * 1024));
+        }
+        if (joinMemoryMegabytes > 0) {
+            database.setSettings(database.getSettings().withJoinMemory(joinMemoryMegabytes * 1024 * 1024));
+        }
+        if (parallelism > 0) {
+            database.setSettings(database.getSettings().withParallelism(parallelism));
+        }
+
+        // Reclaim the row versions left behind by updates and deletes once no query can see them any more.
+        database.startVacuum(VACUUM_INTERVAL_MILLIS);
+
+        PgServer server = null;
+
+        if (serverPort >= 0) {
+            server = new PgServer(database, new InetSocketAddress(listenAddress, serverPort), maxConnections);
+            System.out.println("Listening on " + server.getAddress());
+        } else {
+            // Configures a better looking "look and feel" for us.
+            FlatMacDarkLaf.setup();
+
+            new App(database);
+        }
+
+        // Let clients finish what they are doing, then make sure every change is written out before we exit.
+        PgServer stoppedServer = server;
+        Storage closedStorage = storage;
+
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            if (stoppedServer != null) {
+                stoppedServer.close();
+            }
+
+            if (closedStorage != null) {
+                // The next start then loads the snapshot without having to replay anything.
+                try {
+                    closedStorage.checkpoint();
+                } catch (RuntimeException err) {
+                    System.err.println(err.getMessage());
+                }
+
+                try {
+                    closedStorage.close();
+                } catch (IOException err) {
+                    System.err.println("Unable to close the write-ahead log: " + err.getMessage());
+                }
+            }
+        }));
+    }
+
+    /**
+     * Returns the value given to the argument before it.
+     * @throws IllegalArgumentException if the arguments end without a value.
+     */
+    private static String value(String[] args, int i) throws IllegalArgumentException {
+        if (i >= args.length) {
+            throw new IllegalArgumentException(String.format("Missing value for '%s'.", args[i - 1]));
+        }
+
+        return args[i];
+    }
+
+    /**
+     * Returns the number given to the argument before it.
+     * @throws IllegalArgumentException if the arguments end without a value, or it is not a number in the given range.
+     */
+    private static long number(String[] args, int i, long min, long max) throws IllegalArgumentException {
+        return number(args[i - 1], value(args, i), min, max);
+    }
+
+    private static long number(String name, String value, long min, long max) throws IllegalArgumentException {
+        long number;
+
+        try {
+            number = Long.parseLong(value);
+        } catch (NumberFormatException err) {
+            throw new IllegalArgumentException(String.format("Value for '%s' must be a number, not '%s'.", name, value));
+        }
+
+        if (number < min || number > max) {
+            throw new IllegalArgumentException(String.format("Value for '%s' must be between %d and %d, not %d.", name, min, max, number));
+        }
 
-        // Initialize fresh database and create JFrame app.
-        Database database = new Database();
-        new App(database);
+        return number;
     }
 }
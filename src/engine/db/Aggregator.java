@@ -0,0 +1,229 @@
+/*
+ * Aggregator v1.0
+ *
+ * database contributors
+ * Oct 16, 2026
+ */
+
+package engine.db;
+
+import engine.sql.Query;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Computes aggregates over groups of rows. The state of each aggregate is kept in primitive arrays indexed by group
+ * number, e.g. a `long[]` of running sums, so adding a row to a group only reads the columns and bumps a few numbers.
+ * Null values are skipped by every aggregate except `COUNT(*)`, and an aggregate over a group without any non-null
+ * values is null, except for counts, which are 0.
+ */
+final class Aggregator {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final Accumulator[] accumulators;
+    private int capacity;
+
+    /**
+     * @throws IllegalArgumentException if a column does not exist, or cannot be summed or averaged.
+     */
+    Aggregator(Table table, List<Query.Aggregate> aggregates) throws IllegalArgumentException {
+        this.accumulators = new Accumulator[aggregates.size()];
+        this.capacity = INITIAL_CAPACITY;
+
+        for (int i = 0; i < aggregates.size(); i++) {
+            Query.Aggregate aggregate = aggregates.get(i);
+
+            if (aggregate.column().ident().equals("*")) {
+                this.accumulators[i] = new CountAll(capacity);
+                continue;
+            }
+
+            Column column = table.getColumn(table.getColumnIndex(aggregate.column().ident()));
+
+            this.accumulators[i] = switch (aggregate.function()) {
+                case COUNT -> new Count(column, capacity);
+                case SUM, AVG -> {
+                    if (!(column instanceof Column.IntegerColumn integers)) {
+                        throw new IllegalArgumentException(String.format("Cannot compute %s of non-integer column '%s'.", aggregate.function(), aggregate.column().ident()));
+                    }
+                    yield new Sum(integers, aggregate.function() == Query.AggregateFunction.AVG, capacity);
+                }
+                case MIN -> new Extreme(column, false, capacity);
+                case MAX -> new Extreme(column, true, capacity);
+            };
+        }
+    }
+
+    /**
+     * Adds a row to a group. Groups are numbered from 0, and may be added in any order.
+     */
+    void add(int group, int row) {
+        if (group >= capacity) {
+            capacity = Math.max(group + 1, capacity * 2);
+
+            for (Accumulator accumulator : accumulators) {
+                accumulator.grow(capacity);
+            }
+        }
+
+        for (Accumulator accumulator : accumulators) {
+            accumulator.add(group, row);
+        }
+    }
+
+    /**
+     * Returns the value of an aggregate for a group, which may not have had any rows added to it.
+     * @param aggregate position of the aggregate in the list the aggregator was created with
+     */
+    Value result(int aggregate, int group) {
+        return group < capacity ? accumulators[aggregate].result(group) : accumulators[aggregate].empty();
+    }
+
+    private abstract static class Accumulator {
+        abstract void add(int group, int row);
+
+        abstract Value result(int group);
+
+        /**
+         * Returns the value of the aggregate for a group without any rows.
+         */
+        Value empty() {
+            return null;
+        }
+
+        abstract void grow(int capacity);
+    }
+
+    private static final class CountAll extends Accumulator {
+        private int[] counts;
+
+        CountAll(int capacity) {
+            this.counts = new int[capacity];
+        }
+
+        void add(int group, int row) {
+            counts[group]++;
+        }
+
+        Value result(int group) {
+            return new Value.Integer(counts[group]);
+        }
+
+        @Override
+        Value empty() {
+            return new Value.Integer(0);
+        }
+
+        void grow(int capacity) {
+            counts = Arrays.copyOf(counts, capacity);
+        }
+    }
+
+    private static final class Count extends Accumulator {
+        private final Column column;
+        private int[] counts;
+
+        Count(Column column, int capacity) {
+            this.column = column;
+            this.counts = new int[capacity];
+        }
+
+        void add(int group, int row) {
+            if (!column.isNull(row)) {
+                counts[group]++;
+            }
+        }
+
+        Value result(int group) {
+            return new Value.Integer(counts[group]);
+        }
+
+        @Override
+        Value empty() {
+            return new Value.Integer(0);
+        }
+
+        void grow(int capacity) {
+            counts = Arrays.copyOf(counts, capacity);
+        }
+    }
+
+    private static final class Sum extends Accumulator {
+        private final Column.IntegerColumn column;
+        private final boolean average;
+        // A group holds at most 2^31 rows of 32-bit values, so a 64-bit sum cannot overflow.
+        private long[] sums;
+        private int[] counts;
+
+        Sum(Column.IntegerColumn column, boolean average, int capacity) {
+            this.column = column;
+            this.average = average;
+            this.sums = new long[capacity];
+            this.counts = new int[capacity];
+        }
+
+        void add(int group, int row) {
+            if (!column.isNull(row)) {
+                sums[group] += column.getInt(row);
+                counts[group]++;
+            }
+        }
+
+        Value result(int group) {
+            if (counts[group] == 0) {
+                return null;
+            }
+
+            BigDecimal sum = BigDecimal.valueOf(sums[group]);
+
+            return new Value.Numeric(average
+                ? sum.divide(BigDecimal.valueOf(counts[group]), MathContext.DECIMAL64).stripTrailingZeros()
+                : sum
+            );
+        }
+
+        void grow(int capacity) {
+            sums = Arrays.copyOf(sums, capacity);
+            counts = Arrays.copyOf(counts, capacity);
+        }
+    }
+
+    private static final class Extreme extends Accumulator {
+        private final Column column;
+        private final boolean max;
+        // Row that holds the smallest or largest value of each group so far, or -1 if there is none yet
+        private int[] rows;
+
+        Extreme(Column column, boolean max, int capacity) {
+            this.column = column;
+            this.max = max;
+            this.rows = new int[capacity];
+            Arrays.fill(this.rows, -1);
+        }
+
+        void add(int group, int row) {
+            if (column.isNull(row)) {
+                return;
+            }
+
+            int best = rows[group];
+
+            if (best < 0 || (max ? column.compareRows(row, best) > 0 : column.compareRows(row, best) < 0)) {
+                rows[group] = row;
+            }
+        }
+
+        Value result(int group) {
+            return rows[group] < 0 ? null : column.get(rows[group]);
+        }
+
+        void grow(int capacity) {
+            int previous = rows.length;
+            rows = Arrays.copyOf(rows, capacity);
+            Arrays.fill(rows, previous, capacity, -1);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Bitmap v1.0
+ *
+ * database contributors
+ * Oct 16, 2026
+ */
+
+package engine.db;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.stream.IntStream;
+
+/**
+ * Growable set of bits that any number of threads can read while a single thread writes to it.
+ * A {@link BitSet} can be caught halfway through growing by a concurrent reader; this bitmap publishes a fully copied
+ * word array before it is used, so readers always see either the old or the new one, and bits past the end read as 0.
+ */
+final class Bitmap {
+    private volatile long[] words;
+
+    Bitmap() {
+        this.words = new long[0];
+    }
+
+    boolean get(int bit) {
+        long[] words = this.words;
+        int word = bit >>> 6;
+
+        return word < words.length && (words[word] & (1L << bit)) != 0;
+    }
+
+    void set(int bit) {
+        int word = bit >>> 6;
+        ensureCapacity(word + 1);
+        words[word] |= 1L << bit;
+    }
+
+    void set(int bit, boolean value) {
+        if (value) {
+            set(bit);
+        } else {
+            clear(bit);
+        }
+    }
+
+    void clear(int bit) {
+        long[] words = this.words;
+        int word = bit >>> 6;
+
+        if (word < words.length) {
+            words[word] &= ~(1L << bit);
+        }
+    }
+
+    /**
+     * Clears every bit from `from` (inclusive) onwards.
+     */
+    void clearFrom(int from) {
+        long[] words = this.words;
+        int word = from >>> 6;
+
+        if (word < words.length) {
+            words[word] &= ~(-1L << from);
+            Arrays.fill(words, word + 1, words.length, 0);
+        }
+    }
+
+    /**
+     * Replaces every bit with the bits of a bitset.
+     */
+    void copyFrom(BitSet bits) {
+        this.words = bits.toLongArray();
+    }
+
+    BitSet toBitSet() {
+        return BitSet.valueOf(words);
+    }
+
+    /**
+     * Returns the indices of all set bits, in ascending order.
+     */
+    IntStream stream() {
+        return toBitSet().stream();
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > words.length) {
+            words = Arrays.copyOf(words, Math.max(capacity, words.length * 2));
+        }
+    }
+}
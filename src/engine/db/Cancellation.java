@@ -0,0 +1,135 @@
+/*
+ * Cancellation v1.0
+ *
+ * database contributors
+ * Oct 16, 2026
+ */
+
+package engine.db;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntPredicate;
+
+/**
+ * Lets work that is running on one thread, e.g. a query, be cancelled from another. The work runs with the token
+ * bound to its thread through {@link #call(Callable)}, and long loops call {@link #check()} every so often, which
+ * throws a {@link CancellationException} once the token has been cancelled. Changes that are cancelled are rolled
+ * back like any other failed change. Threads are never interrupted, since an interrupt closes any file channel the
+ * thread is writing to, e.g. the write-ahead log.
+ * Tokens also count the rows scanned by the work so far, which can be shown as progress while it runs.
+ */
+public final class Cancellation {
+    // Rows scanned between two checks. Must be a power of two.
+    private static final int CHECK_INTERVAL = 1024;
+
+    private static final ThreadLocal<Cancellation> current = new ThreadLocal<>();
+
+    private volatile boolean cancelled;
+    private final LongAdder scannedRows;
+
+    public Cancellation() {
+        this.scannedRows = new LongAdder();
+    }
+
+    /**
+     * Asks the work to stop at its next check.
+     */
+    public void cancel() {
+        this.cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Returns roughly how many rows the work has scanned so far.
+     */
+    public long getScannedRows() {
+        return scannedRows.sum();
+    }
+
+    /**
+     * Runs work on the calling thread with this token bound to it.
+     */
+    public <T> T call(Callable<T> work) throws Exception {
+        Cancellation previous = current.get();
+        current.set(this);
+
+        try {
+            return work.call();
+        } finally {
+            current.set(previous);
+        }
+    }
+
+    /**
+     * Runs an action that must not be cancelled half way through, e.g. one that writes a checkpoint, even if the
+     * work it is part of is cancelled in the meantime.
+     */
+    public static void shield(Runnable action) {
+        Cancellation previous = current.get();
+        current.remove();
+
+        try {
+            action.run();
+        } finally {
+            current.set(previous);
+        }
+    }
+
+    /**
+     * Throws if the work running on the calling thread has been cancelled.
+     * @throws CancellationException if it has.
+     */
+    public static void check() throws CancellationException {
+        Cancellation cancellation = current.get();
+
+        if (cancellation != null) {
+            check(cancellation);
+        }
+    }
+
+    /**
+     * Wraps the predicate that decides which rows a scan yields, so that the scan counts the rows it goes through and
+     * checks for cancellation every so often. The token is looked up once, so the predicate may be used on any thread.
+     */
+    public static IntPredicate checking(IntPredicate rows) {
+        Cancellation cancellation = current.get();
+
+        if (cancellation == null) {
+            return rows;
+        }
+
+        return (row) -> {
+            if ((row & (CHECK_INTERVAL - 1)) == 0) {
+                cancellation.scannedRows.add(CHECK_INTERVAL);
+                check(cancellation);
+            }
+            return rows.test(row);
+        };
+    }
+
+    /**
+     * Checks for cancellation from a loop over rows, once every so many rows.
+     * @throws CancellationException if the work running on the calling thread has been cancelled.
+     */
+    public static void checkRow(int row) throws CancellationException {
+        if ((row & (CHECK_INTERVAL - 1)) == 0) {
+            Cancellation cancellation = current.get();
+
+            if (cancellation != null) {
+                cancellation.scannedRows.add(CHECK_INTERVAL);
+                check(cancellation);
+            }
+        }
+    }
+
+    private static void check(Cancellation cancellation) throws CancellationException {
+        if (cancellation.cancelled) {
+            throw new CancellationException("The query was cancelled.");
+        }
+    }
+}
@@ -0,0 +1,899 @@
+/*
+ * Column v1.0
+ *
+ * database contributors
+ * Oct 16, 2026
+ */
+
+package engine.db;
+
+import engine.sql.DataType;
+import engine.sql.Query;
+import engine.sql.Token;
+
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntFunction;
+import java.util.stream.IntStream;
+
+/**
+ * Growable vector that stores every datum of a single table column in a primitive, columnar layout.
+ * Has the following variants:
+ *  - IntegerColumn  Stores values in an `int[]`.
+ *  - BooleanColumn  Stores values in a bitset.
+ *  - VarCharColumn  Stores dictionary codes in an `int[]` that point into a table of distinct strings, or, when most
+ *                   strings are distinct, the characters of every string in a single `char[]`.
+ * Null values are tracked by a separate bitmap, so the vectors themselves never hold boxed objects.
+ * Any number of threads may read rows that have already been published by the owning {@link Table} while a single
+ * thread appends new rows.
+ */
+public abstract sealed class Column permits Column.IntegerColumn, Column.BooleanColumn, Column.VarCharColumn {
+    private static final int INITIAL_CAPACITY = 16;
+
+    protected final Query.ColumnDefinition definition;
+    protected final Bitmap nulls;
+    protected int size;
+
+    protected Column(Query.ColumnDefinition definition) {
+        this.definition = definition;
+        this.nulls = new Bitmap();
+        this.size = 0;
+    }
+
+    /**
+     * Creates an empty column vector that matches the type of the column definition.
+     * @param definition name and type of the column
+     */
+    public static Column create(Query.ColumnDefinition definition) {
+        return switch (definition.type()) {
+            case DataType.Integer() -> new IntegerColumn(definition);
+            case DataType.Boolean() -> new BooleanColumn(definition);
+            case DataType.VarChar ignored -> new VarCharColumn(definition);
+        };
+    }
+
+    public Query.ColumnDefinition getDefinition() {
+        return definition;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isNull(int row) {
+        return nulls.get(row);
+    }
+
+    /**
+     * Returns a copy of the null bitmap, where bit `i` is set if row `i` holds a null value.
+     */
+    public BitSet getNulls() {
+        return nulls.toBitSet();
+    }
+
+    /**
+     * Replaces the null bitmap and size of a freshly created column with previously saved ones.
+     */
+    protected void restore(BitSet nulls, int size) {
+        this.nulls.copyFrom(nulls);
+        this.size = size;
+    }
+
+    /**
+     * Returns the indices of all rows that hold a null value, in ascending order.
+     */
+    public IntStream nullRows() {
+        return nulls.stream();
+    }
+
+    /**
+     * Makes sure a literal can be written to this column.
+     * @throws IllegalArgumentException if the literal does not match the column type
+     */
+    public abstract void validate(Token.Literal literal) throws IllegalArgumentException;
+
+    /**
+     * Appends a literal to the end of the column, or a null value if the literal is null.
+     * @throws IllegalArgumentException if the literal does not match the column type
+     */
+    public void append(Token.Literal literal) throws IllegalArgumentException {
+        if (literal != null) {
+            validate(literal);
+        }
+
+        ensureCapacity(size + 1);
+        int row = size++;
+
+        if (literal == null) {
+            nulls.set(row);
+        }
+        store(row, literal);
+    }
+
+    /**
+     * Appends a copy of the datum at the given row to the end of the column, e.g. to create a new version of a row.
+     */
+    public void appendCopy(int row) {
+        ensureCapacity(size + 1);
+        int copy = size++;
+
+        nulls.set(copy, isNull(row));
+        move(row, copy);
+    }
+
+    /**
+     * Creates an independent copy of the column, which can be changed without affecting this one.
+     */
+    public abstract Column copy();
+
+    /**
+     * Overwrites the datum at the given row with a literal, or a null value if the literal is null.
+     * @throws IllegalArgumentException if the literal does not match the column type
+     */
+    public void set(int row, Token.Literal literal) throws IllegalArgumentException {
+        if (literal == null) {
+            nulls.set(row);
+            store(row, null);
+        } else {
+            validate(literal);
+            nulls.clear(row);
+            store(row, literal);
+        }
+    }
+
+    /**
+     * Boxes the datum at the given row into a {@link Value}. This should only be used when data leaves the engine.
+     * @return value at the given row, or null if the datum is null.
+     */
+    public Value get(int row) {
+        return isNull(row) ? null : load(row);
+    }
+
+    /**
+     * Returns a relative order between the datum at the given row and a literal, with the same contract as
+     * {@link Value#compareTo(Value)}. The datum must not be null.
+     * @throws IllegalArgumentException if the types of the column and literal do not match.
+     */
+    public abstract int compare(int row, Token.Literal rhs) throws IllegalArgumentException;
+
+    /**
+     * Boxes the datum at the given row into a key that can be stored in an {@link Index}. The datum must not be null.
+     */
+    public abstract Object getKey(int row);
+
+    /**
+     * Converts a literal into a key that can be compared against the keys returned by {@link #getKey(int)}.
+     * @throws IllegalArgumentException if the types of the column and literal do not match.
+     */
+    public abstract Object toKey(Token.Literal literal) throws IllegalArgumentException;
+
+    /**
+     * Returns a relative order between the data in two rows of this column. Null values are ordered first.
+     */
+    public int compareRows(int a, int b) {
+        boolean aNull = isNull(a);
+        boolean bNull = isNull(b);
+
+        if (aNull || bNull) {
+            return Boolean.compare(!aNull, !bNull);
+        }
+
+        return compareNonNull(a, b);
+    }
+
+    /**
+     * Removes the given rows from the column and shifts the remaining rows down to keep the vector dense.
+     * @param removed set of row indices to remove
+     */
+    public void delete(BitSet removed) {
+        int write = 0;
+
+        for (int read = 0; read < size; read++) {
+            if (removed.get(read)) {
+                continue;
+            }
+
+            if (write != read) {
+                move(read, write);
+                nulls.set(write, nulls.get(read));
+            }
+            write++;
+        }
+
+        nulls.clearFrom(write);
+        size = write;
+        shrink(size);
+        compact();
+    }
+
+    /**
+     * Returns true if {@link #compact()} would reclaim memory or store the data more compactly, even if no rows are
+     * deleted.
+     */
+    public boolean needsCompaction() {
+        return false;
+    }
+
+    /**
+     * Reclaims the memory held for data that no row refers to any more. Runs after rows are deleted, and must only be
+     * called while no one reads the column.
+     */
+    public void compact() {
+    }
+
+    protected abstract void ensureCapacity(int capacity);
+
+    protected abstract void store(int row, Token.Literal literal);
+
+    protected abstract Value load(int row);
+
+    protected abstract int compareNonNull(int a, int b);
+
+    protected abstract void move(int from, int to);
+
+    protected abstract void shrink(int size);
+
+    protected IllegalArgumentException writeError(String literalType, String columnType) {
+        return new IllegalArgumentException(String.format("Attempted to write %s value to %s column '%s'", literalType, columnType, definition.name()));
+    }
+
+    protected static int grow(int current, int capacity) {
+        return Math.max(capacity, Math.max(INITIAL_CAPACITY, current + (current >> 1)));
+    }
+
+    public static final class IntegerColumn extends Column {
+        // Volatile so that concurrent readers never see a grown array before its contents have been copied
+        private volatile int[] values;
+
+        IntegerColumn(Query.ColumnDefinition definition) {
+            super(definition);
+            this.values = new int[0];
+        }
+
+        /**
+         * Creates a column around existing data, e.g. when loading a snapshot.
+         * @param values array that holds at least `size` values, which the column takes ownership of
+         */
+        public static IntegerColumn of(Query.ColumnDefinition definition, int[] values, int size, BitSet nulls) {
+            IntegerColumn column = new IntegerColumn(definition);
+            column.values = values;
+            column.restore(nulls, size);
+            return column;
+        }
+
+        public int getInt(int row) {
+            return values[row];
+        }
+
+        /**
+         * Returns a read-only view of every value in the column, without copying.
+         */
+        public IntBuffer getValues() {
+            return IntBuffer.wrap(values, 0, size).asReadOnlyBuffer();
+        }
+
+        @Override
+        public Column copy() {
+            return of(definition, Arrays.copyOf(values, size), size, getNulls());
+        }
+
+        @Override
+        public void validate(Token.Literal literal) throws IllegalArgumentException {
+            switch (literal) {
+                case Token.Literal.Integer ignored -> {}
+                case Token.Literal.String ignored -> throw writeError("string", "integer");
+                case Token.Literal.Boolean ignored -> throw writeError("boolean", "integer");
+                case Token.Parameter p -> throw p.unbound();
+            }
+        }
+
+        @Override
+        protected void ensureCapacity(int capacity) {
+            if (capacity > values.length) {
+                values = Arrays.copyOf(values, grow(values.length, capacity));
+            }
+        }
+
+        @Override
+        protected void store(int row, Token.Literal literal) {
+            values[row] = literal instanceof Token.Literal.Integer(var v) ? v : 0;
+        }
+
+        @Override
+        protected Value load(int row) {
+            return new Value.Integer(values[row]);
+        }
+
+        @Override
+        public int compare(int row, Token.Literal rhs) throws IllegalArgumentException {
+            return switch (rhs) {
+                case Token.Literal.Integer(var v) -> Integer.compare(values[row], v);
+                case Token.Literal.String ignored -> throw new IllegalArgumentException("Attempted to compare integer column to string");
+                case Token.Literal.Boolean ignored -> throw new IllegalArgumentException("Attempted to compare integer column to boolean");
+                case Token.Parameter p -> throw p.unbound();
+            };
+        }
+
+        @Override
+        public Object getKey(int row) {
+            return values[row];
+        }
+
+        @Override
+        public Object toKey(Token.Literal literal) throws IllegalArgumentException {
+            return switch (literal) {
+                case Token.Literal.Integer(var v) -> v;
+                case Token.Literal.String ignored -> throw new IllegalArgumentException("Attempted to compare integer column to string");
+                case Token.Literal.Boolean ignored -> throw new IllegalArgumentException("Attempted to compare integer column to boolean");
+                case Token.Parameter p -> throw p.unbound();
+            };
+        }
+
+        @Override
+        protected int compareNonNull(int a, int b) {
+            return Integer.compare(values[a], values[b]);
+        }
+
+        @Override
+        protected void move(int from, int to) {
+            values[to] = values[from];
+        }
+
+        @Override
+        protected void shrink(int size) {
+            if (size < values.length / 4) {
+                values = Arrays.copyOf(values, Math.max(size, INITIAL_CAPACITY));
+            }
+        }
+    }
+
+    public static final class BooleanColumn extends Column {
+        private final Bitmap values;
+
+        BooleanColumn(Query.ColumnDefinition definition) {
+            super(definition);
+            this.values = new Bitmap();
+        }
+
+        /**
+         * Creates a column around existing data, e.g. when loading a snapshot.
+         */
+        public static BooleanColumn of(Query.ColumnDefinition definition, BitSet values, int size, BitSet nulls) {
+            BooleanColumn column = new BooleanColumn(definition);
+            column.values.copyFrom(values);
+            column.restore(nulls, size);
+            return column;
+        }
+
+        public boolean getBoolean(int row) {
+            return values.get(row);
+        }
+
+        /**
+         * Returns a copy of the values as a bitset, where bit `i` is set if row `i` is true.
+         */
+        public BitSet getValues() {
+            return values.toBitSet();
+        }
+
+        @Override
+        public Column copy() {
+            return of(definition, getValues(), size, getNulls());
+        }
+
+        @Override
+        public void validate(Token.Literal literal) throws IllegalArgumentException {
+            switch (literal) {
+                case Token.Literal.Boolean ignored -> {}
+                case Token.Literal.String ignored -> throw writeError("string", "boolean");
+                case Token.Literal.Integer ignored -> throw writeError("integer", "boolean");
+                case Token.Parameter p -> throw p.unbound();
+            }
+        }
+
+        @Override
+        protected void ensureCapacity(int capacity) {
+            // Bitsets grow on their own.
+        }
+
+        @Override
+        protected void store(int row, Token.Literal literal) {
+            values.set(row, literal instanceof Token.Literal.Boolean(var b) && b);
+        }
+
+        @Override
+        protected Value load(int row) {
+            return new Value.Boolean(values.get(row));
+        }
+
+        @Override
+        public int compare(int row, Token.Literal rhs) throws IllegalArgumentException {
+            return switch (rhs) {
+                case Token.Literal.Boolean(var v) -> Boolean.compare(values.get(row), v);
+                case Token.Literal.String ignored -> throw new IllegalArgumentException("Attempted to compare boolean column to string");
+                case Token.Literal.Integer ignored -> throw new IllegalArgumentException("Attempted to compare boolean column to integer");
+                case Token.Parameter p -> throw p.unbound();
+            };
+        }
+
+        @Override
+        public Object getKey(int row) {
+            return values.get(row);
+        }
+
+        @Override
+        public Object toKey(Token.Literal literal) throws IllegalArgumentException {
+            return switch (literal) {
+                case Token.Literal.Boolean(var v) -> v;
+                case Token.Literal.String ignored -> throw new IllegalArgumentException("Attempted to compare boolean column to string");
+                case Token.Literal.Integer ignored -> throw new IllegalArgumentException("Attempted to compare boolean column to integer");
+                case Token.Parameter p -> throw p.unbound();
+            };
+        }
+
+        @Override
+        protected int compareNonNull(int a, int b) {
+            return Boolean.compare(values.get(a), values.get(b));
+        }
+
+        @Override
+        protected void move(int from, int to) {
+            values.set(to, values.get(from));
+        }
+
+        @Override
+        protected void shrink(int size) {
+            values.clearFrom(size);
+        }
+    }
+
+    public static final class VarCharColumn extends Column {
+        // Columns with fewer rows always keep a dictionary, which cannot grow large
+        private static final int MIN_INLINE_ROWS = 1024;
+        // Share of distinct strings among the rows above which a dictionary costs more than it saves, so strings are
+        // stored inline instead, and the share below which inline strings go back into a dictionary
+        private static final double INLINE_FRACTION = 0.5;
+        private static final double DICTIONARY_FRACTION = 0.25;
+
+        private final int maxLength;
+
+        // Strings are either kept in a dictionary or stored inline, which only changes while the column is compacted.
+        // Arrays are volatile so that concurrent readers never see a grown array before its contents have been copied.
+        private volatile boolean inline;
+
+        // Dictionary encoding: each distinct string is stored once; rows only hold an index into the dictionary.
+        private volatile String[] dictionary;
+        private volatile int dictionarySize;
+        private volatile Map<String, Integer> dictionaryCodes;
+        private volatile int[] codes;
+
+        // Inline encoding: the characters of every string are appended to a single array, and each row holds the
+        // offset of its string in the upper half of a long and the length in the lower half.
+        private volatile char[] chars;
+        private int charCount;
+        private volatile long[] spans;
+
+        VarCharColumn(Query.ColumnDefinition definition) {
+            super(definition);
+            this.maxLength = ((DataType.VarChar) definition.type()).length();
+            this.inline = false;
+            this.dictionary = new String[0];
+            this.dictionarySize = 0;
+            this.dictionaryCodes = new ConcurrentHashMap<>();
+            this.codes = new int[0];
+            this.chars = new char[0];
+            this.charCount = 0;
+            this.spans = new long[0];
+        }
+
+        /**
+         * Creates a column around existing data, e.g. when loading a snapshot. The dictionary may hold a string more
+         * than once, and the column picks whichever encoding suits the number of distinct strings.
+         * @param dictionary strings, indexed by their code
+         * @param codes array that holds at least `size` dictionary codes
+         */
+        public static VarCharColumn of(Query.ColumnDefinition definition, String[] dictionary, int[] codes, int size, BitSet nulls) {
+            VarCharColumn column = new VarCharColumn(definition);
+            column.dictionary = dictionary;
+            column.dictionarySize = dictionary.length;
+            column.codes = codes;
+            column.restore(nulls, size);
+            column.compact();
+            return column;
+        }
+
+        /**
+         * Returns true if rows hold codes into a dictionary of distinct strings, or false if they hold their strings
+         * inline, in which case the methods that deal with codes must not be used.
+         */
+        public boolean isDictionaryEncoded() {
+            return !inline;
+        }
+
+        public String getString(int row) {
+            if (inline) {
+                long span = spans[row];
+                return new String(chars, offset(span), length(span));
+            }
+
+            return dictionary[codes[row]];
+        }
+
+        /**
+         * Returns a read-only view of the dictionary code of every row, without copying.
+         * @throws IllegalStateException if the column stores its strings inline.
+         */
+        public IntBuffer getCodes() throws IllegalStateException {
+            requireDictionary();
+            return IntBuffer.wrap(codes, 0, size).asReadOnlyBuffer();
+        }
+
+        /**
+         * Returns the dictionary code of the given string, or -1 if no row holds it.
+         * @throws IllegalStateException if the column stores its strings inline.
+         */
+        public int getCode(String value) throws IllegalStateException {
+            requireDictionary();
+            return dictionaryCodes.getOrDefault(value, -1);
+        }
+
+        /**
+         * Returns the dictionary code of the string at the given row. Must only be used on dictionary-encoded columns.
+         */
+        public int getCode(int row) {
+            return codes[row];
+        }
+
+        /**
+         * Returns the number of strings in the dictionary, which are coded 0 up to the size.
+         * @throws IllegalStateException if the column stores its strings inline.
+         */
+        public int getDictionarySize() throws IllegalStateException {
+            requireDictionary();
+            return dictionarySize;
+        }
+
+        /**
+         * Returns the string with the given dictionary code. Must only be used on dictionary-encoded columns.
+         */
+        public String getDictionaryEntry(int code) {
+            return dictionary[code];
+        }
+
+        @Override
+        public Column copy() {
+            VarCharColumn copy = new VarCharColumn(definition);
+            copy.restore(getNulls(), size);
+
+            if (inline) {
+                copy.inline = true;
+                copy.chars = Arrays.copyOf(chars, charCount);
+                copy.charCount = charCount;
+                copy.spans = Arrays.copyOf(spans, size);
+            } else {
+                copy.dictionary = Arrays.copyOf(dictionary, dictionarySize);
+                copy.dictionarySize = dictionarySize;
+                copy.dictionaryCodes.putAll(dictionaryCodes);
+                copy.codes = Arrays.copyOf(codes, size);
+            }
+
+            return copy;
+        }
+
+        @Override
+        public void validate(Token.Literal literal) throws IllegalArgumentException {
+            switch (literal) {
+                case Token.Literal.String(var s) -> {
+                    if (s.length() > maxLength) {
+                        throw new IllegalArgumentException(String.format("String exceeds maximum field length (%s > %s)", s.length(), maxLength));
+                    }
+                }
+                case Token.Literal.Integer ignored -> throw writeError("integer", "varchar");
+                case Token.Literal.Boolean ignored -> throw writeError("boolean", "varchar");
+                case Token.Parameter p -> throw p.unbound();
+            }
+        }
+
+        @Override
+        protected void ensureCapacity(int capacity) {
+            if (inline) {
+                if (capacity > spans.length) {
+                    spans = Arrays.copyOf(spans, grow(spans.length, capacity));
+                }
+            } else if (capacity > codes.length) {
+                codes = Arrays.copyOf(codes, grow(codes.length, capacity));
+            }
+        }
+
+        @Override
+        protected void store(int row, Token.Literal literal) {
+            if (inline) {
+                spans[row] = literal instanceof Token.Literal.String(var s) ? append(s) : 0;
+            } else {
+                codes[row] = literal instanceof Token.Literal.String(var s) ? intern(s) : 0;
+            }
+        }
+
+        private int intern(String value) {
+            Integer code = dictionaryCodes.get(value);
+
+            if (code == null) {
+                if (dictionarySize == dictionary.length) {
+                    dictionary = Arrays.copyOf(dictionary, grow(dictionary.length, dictionarySize + 1));
+                }
+
+                // Store the entry before publishing the new size, so readers never see an empty slot.
+                code = dictionarySize;
+                dictionary[code] = value;
+                dictionarySize = code + 1;
+                dictionaryCodes.put(value, code);
+            }
+
+            return code;
+        }
+
+        /**
+         * Appends the characters of a string to the inline storage.
+         * @return offset and length of the string, packed into a long
+         */
+        private long append(String value) {
+            if (charCount + value.length() > chars.length) {
+                chars = Arrays.copyOf(chars, grow(chars.length, charCount + value.length()));
+            }
+
+            value.getChars(0, value.length(), chars, charCount);
+            long span = span(charCount, value.length());
+            charCount += value.length();
+
+            return span;
+        }
+
+        @Override
+        protected Value load(int row) {
+            return new Value.VarChar(getString(row));
+        }
+
+        @Override
+        public int compare(int row, Token.Literal rhs) throws IllegalArgumentException {
+            return switch (rhs) {
+                case Token.Literal.String(var v) -> inline ? compareInline(row, v) : dictionary[codes[row]].compareTo(v);
+                case Token.Literal.Integer ignored -> throw new IllegalArgumentException("Attempted to compare varchar column to integer");
+                case Token.Literal.Boolean ignored -> throw new IllegalArgumentException("Attempted to compare varchar column to boolean");
+                case Token.Parameter p -> throw p.unbound();
+            };
+        }
+
+        /**
+         * Compares an inline string with another one in the same way as {@link String#compareTo(String)}, without
+         * creating a string for the row.
+         */
+        private int compareInline(int row, String value) {
+            long span = spans[row];
+            char[] chars = this.chars;
+            int offset = offset(span);
+            int length = length(span);
+
+            for (int i = 0; i < Math.min(length, value.length()); i++) {
+                if (chars[offset + i] != value.charAt(i)) {
+                    return chars[offset + i] - value.charAt(i);
+                }
+            }
+
+            return length - value.length();
+        }
+
+        @Override
+        public Object getKey(int row) {
+            return getString(row);
+        }
+
+        @Override
+        public Object toKey(Token.Literal literal) throws IllegalArgumentException {
+            return switch (literal) {
+                case Token.Literal.String(var v) -> v;
+                case Token.Literal.Integer ignored -> throw new IllegalArgumentException("Attempted to compare varchar column to integer");
+                case Token.Literal.Boolean ignored -> throw new IllegalArgumentException("Attempted to compare varchar column to boolean");
+                case Token.Parameter p -> throw p.unbound();
+            };
+        }
+
+        @Override
+        protected int compareNonNull(int a, int b) {
+            if (inline) {
+                long spanA = spans[a];
+                long spanB = spans[b];
+                char[] chars = this.chars;
+
+                return Arrays.compare(
+                    chars, offset(spanA), offset(spanA) + length(spanA),
+                    chars, offset(spanB), offset(spanB) + length(spanB)
+                );
+            }
+
+            return codes[a] == codes[b] ? 0 : dictionary[codes[a]].compareTo(dictionary[codes[b]]);
+        }
+
+        @Override
+        protected void move(int from, int to) {
+            if (inline) {
+                spans[to] = spans[from];
+            } else {
+                codes[to] = codes[from];
+            }
+        }
+
+        @Override
+        protected void shrink(int size) {
+            if (inline) {
+                if (size < spans.length / 4) {
+                    spans = Arrays.copyOf(spans, Math.max(size, INITIAL_CAPACITY));
+                }
+            } else if (size < codes.length / 4) {
+                codes = Arrays.copyOf(codes, Math.max(size, INITIAL_CAPACITY));
+            }
+        }
+
+        /**
+         * A dictionary that holds about as many strings as there are rows, e.g. after loading distinct strings, or
+         * strings that no row holds any more, is worth rebuilding even if no rows are deleted.
+         */
+        @Override
+        public boolean needsCompaction() {
+            return !inline && dictionarySize >= MIN_INLINE_ROWS && dictionarySize > size * INLINE_FRACTION;
+        }
+
+        /**
+         * Drops the strings that no row holds any more, and stores the rest in a dictionary or inline, depending on how
+         * many distinct strings there are compared to rows. Rows keep their numbers, but dictionary codes change.
+         */
+        @Override
+        public void compact() {
+            if (inline) {
+                compactInline();
+            } else {
+                compactDictionary();
+            }
+        }
+
+        private void compactDictionary() {
+            BitSet used = new BitSet(dictionarySize);
+
+            for (int row = 0; row < size; row++) {
+                if (!isNull(row)) {
+                    used.set(codes[row]);
+                }
+            }
+
+            String[] dictionary = this.dictionary;
+            int[] codes = this.codes;
+
+            if (size >= MIN_INLINE_ROWS && used.cardinality() > size * INLINE_FRACTION) {
+                encodeInline((row) -> dictionary[codes[row]]);
+            } else {
+                encodeDictionary((row) -> dictionary[codes[row]]);
+            }
+        }
+
+        private void compactInline() {
+            // Only count distinct strings as far as it takes to tell that a dictionary would not pay off.
+            Set<String> distinct = new HashSet<>();
+            int limit = (int) (size * DICTIONARY_FRACTION);
+
+            for (int row = 0; row < size && distinct.size() <= limit; row++) {
+                if (!isNull(row)) {
+                    distinct.add(getString(row));
+                }
+            }
+
+            if (size < MIN_INLINE_ROWS || distinct.size() <= limit) {
+                encodeDictionary(this::getString);
+                return;
+            }
+
+            // Copy the strings of the remaining rows next to each other, leaving out those of deleted rows.
+            long liveChars = 0;
+            for (int row = 0; row < size; row++) {
+                liveChars += isNull(row) ? 0 : length(spans[row]);
+            }
+
+            char[] compacted = new char[(int) liveChars];
+            int position = 0;
+
+            for (int row = 0; row < size; row++) {
+                if (isNull(row)) {
+                    spans[row] = 0;
+                    continue;
+                }
+
+                int length = length(spans[row]);
+                System.arraycopy(chars, offset(spans[row]), compacted, position, length);
+                spans[row] = span(position, length);
+                position += length;
+            }
+
+            this.chars = compacted;
+            this.charCount = position;
+        }
+
+        /**
+         * Stores the strings of every row in a fresh dictionary, coded in the order they are first seen.
+         */
+        private void encodeDictionary(IntFunction<String> strings) {
+            Map<String, Integer> dictionaryCodes = new ConcurrentHashMap<>();
+            String[] dictionary = new String[INITIAL_CAPACITY];
+            int[] codes = new int[Math.max(size, INITIAL_CAPACITY)];
+            int count = 0;
+
+            for (int row = 0; row < size; row++) {
+                if (isNull(row)) {
+                    continue;
+                }
+
+                String value = strings.apply(row);
+                Integer code = dictionaryCodes.putIfAbsent(value, count);
+
+                if (code == null) {
+                    if (count == dictionary.length) {
+                        dictionary = Arrays.copyOf(dictionary, count * 2);
+                    }
+                    dictionary[count] = value;
+                    code = count++;
+                }
+
+                codes[row] = code;
+            }
+
+            this.dictionary = dictionary;
+            this.dictionarySize = count;
+            this.dictionaryCodes = dictionaryCodes;
+            this.codes = codes;
+            this.chars = new char[0];
+            this.charCount = 0;
+            this.spans = new long[0];
+            this.inline = false;
+        }
+
+        /**
+         * Stores the strings of every row inline.
+         */
+        private void encodeInline(IntFunction<String> strings) {
+            long[] spans = new long[Math.max(size, INITIAL_CAPACITY)];
+            this.chars = new char[0];
+            this.charCount = 0;
+
+            for (int row = 0; row < size; row++) {
+                spans[row] = isNull(row) ? 0 : append(strings.apply(row));
+            }
+
+            this.spans = spans;
+            this.dictionary = new String[0];
+            this.dictionarySize = 0;
+            this.dictionaryCodes = new ConcurrentHashMap<>();
+            this.codes = new int[0];
+            this.inline = true;
+        }
+
+        private void requireDictionary() throws IllegalStateException {
+            if (inline) {
+                throw new IllegalStateException(String.format("Column '%s' stores its strings inline.", definition.name()));
+            }
+        }
+
+        private static long span(int offset, int length) {
+            return (long) offset << 32 | length;
+        }
+
+        private static int offset(long span) {
+            return (int) (span >>> 32);
+        }
+
+        private static int length(long span) {
+            return (int) span;
+        }
+    }
+}
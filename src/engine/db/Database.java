@@ -7,24 +7,102 @@
 
 package engine.db;
 
+import engine.sql.Parser;
 import engine.sql.Query;
 import engine.sql.Token;
 
 import javax.swing.table.DefaultTableModel;
 import javax.swing.table.TableModel;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.NoSuchElementException;
+import java.util.*;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.IntPredicate;
+import java.util.function.ObjLongConsumer;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 /**
  * Represents the current state of the database and provides an interface for queries to be made through.
+ * Queries can be executed from any number of threads at once. Tables are looked up in a concurrent map, and each
+ * table has its own write lock, so writers of a table take turns. Every change runs in its own transaction, and every
+ * `SELECT` reads through a {@link ReadView} taken when it starts, so readers never wait for writers and never see a
+ * change that committed after they started. Row versions that no reader can see any more are reclaimed by
+ * {@link #vacuum()}, which can be run periodically in the background with {@link #startVacuum(long)}.
+ * Queries run here commit as soon as they finish; a {@link Session} groups several of them into one transaction.
+ * Results of `SELECT`s can optionally be cached with {@link #setResultCache(int, long)}, and are served from the cache
+ * for as long as the table they read has not changed.
+ * Changes to the set of tables or indexes are serialized by a separate schema lock, which is always taken before
+ * any table lock.
+ * The stats of recent queries, as measured by a {@link QueryProfile}, can be recorded with
+ * {@link #recordQueryStats(QueryStats)}, and read like any other table as `sys_query_stats`, which cannot be changed.
  */
 public class Database {
-    private List<Table> tables;
+    // Vacuum a table once at least this many row versions, and this fraction of all row versions, are dead
+    private static final int VACUUM_THRESHOLD = 1000;
+    private static final double VACUUM_FRACTION = 0.2;
+    // Number of prepared queries to keep around for reuse
+    private static final int PREPARED_QUERY_CACHE_SIZE = 256;
+    // Number of queries whose stats are kept for `sys_query_stats`
+    private static final int QUERY_STATS_HISTORY = 1000;
+
+    public static final String QUERY_STATS_TABLE = "sys_query_stats";
+
+    // Columns of the results of `SHOW TABLES` and `EXPLAIN`, which hold strings
+    private static final List<ResultColumn> SHOW_TABLES_COLUMNS = List.of(new ResultColumn("tables", Value.VarChar.class));
+    private static final List<ResultColumn> EXPLAIN_COLUMNS = List.of(
+        new ResultColumn("operator", Value.VarChar.class),
+        new ResultColumn("estimated rows", Value.VarChar.class)
+    );
+
+    // Sorted by name, so that tables are listed and locked in a consistent order
+    private volatile ConcurrentNavigableMap<String, Table> tables;
+    // Replaced along with the tables, since row versions are stamped with ids handed out by it
+    private volatile Transactions transactions;
+    private final ReentrantLock schemaLock;
+    private volatile Journal journal;
+    private ScheduledExecutorService vacuumer;
+    // Keyed by normalized SQL text
+    private final LruCache<String, PreparedQuery> preparedQueries;
+    // Keyed by the query itself, since records compare by value. Null while result caching is turned off.
+    private volatile LruCache<Query.Select, CachedResult> resultCache;
+    private volatile ExecutionSettings settings;
+    // True between startBulkLoad and finishBulkLoad, during which tables do not keep their indexes up to date
+    private volatile boolean bulkLoading;
+    // Stats of the most recent queries, oldest first, and the number of queries recorded so far
+    private final ArrayDeque<QueryStats> queryStats;
+    private long recordedQueries;
+
+    /**
+     * Result of a `SELECT`, along with the table it was read from and the version of that table when it was read.
+     */
+    private record CachedResult(Table table, long version, ResultSet result) {}
 
     public Database() {
-        this.tables = new ArrayList<>(1);
+        this.tables = new ConcurrentSkipListMap<>();
+        this.transactions = new Transactions();
+        this.schemaLock = new ReentrantLock();
+        this.preparedQueries = new LruCache<>(PREPARED_QUERY_CACHE_SIZE);
+        this.settings = ExecutionSettings.DEFAULT;
+        this.queryStats = new ArrayDeque<>();
+    }
+
+    public ExecutionSettings getSettings() {
+        return settings;
+    }
+
+    /**
+     * Changes how queries that start from now on are executed, e.g. how much memory a sort may use before it spills.
+     * Sessions with settings of their own keep using those instead.
+     */
+    public void setSettings(ExecutionSettings settings) {
+        this.settings = settings;
     }
 
     /**
@@ -32,7 +110,184 @@ public class Database {
      * @param other database to copy tables from.
      */
     public void copyFrom(Database other) {
-        this.tables = other.tables;
+        // Once the tables have been swapped, the checkpoint has to be written no matter what.
+        Cancellation.shield(() -> whileFrozen(() -> {
+            this.tables = other.tables;
+            this.transactions = other.transactions;
+            this.preparedQueries.clear();
+
+            LruCache<Query.Select, CachedResult> resultCache = this.resultCache;
+            if (resultCache != null) {
+                resultCache.clear();
+            }
+
+            // None of the copied tables went through the journal, so it has to record them all at once.
+            if (this.journal != null) {
+                this.journal.checkpoint(this);
+            }
+        }));
+    }
+
+    /**
+     * Attaches a journal that records every change made to the database from now on.
+     * @param journal journal to attach, or null to stop recording changes.
+     */
+    public void setJournal(Journal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Starts loading a large amount of data, e.g. a dump. Until {@link #finishBulkLoad()} is called, every table,
+     * including those created in the meantime, stops keeping its indexes up to date as rows are inserted, and queries
+     * do not use indexes. Intended for a database that nobody else is using yet.
+     */
+    public void startBulkLoad() {
+        schemaLock.lock();
+        try {
+            this.bulkLoading = true;
+
+            for (Table table : this.tables.values()) {
+                write(table.getName(), (t) -> {
+                    t.deferIndexes();
+                    return null;
+                });
+            }
+        } finally {
+            schemaLock.unlock();
+        }
+    }
+
+    /**
+     * Builds the indexes of every table from the rows loaded since {@link #startBulkLoad()}, and goes back to keeping
+     * indexes up to date with every change.
+     */
+    public void finishBulkLoad() {
+        schemaLock.lock();
+        try {
+            this.bulkLoading = false;
+
+            for (Table table : this.tables.values()) {
+                write(table.getName(), (t) -> {
+                    t.buildIndexes();
+                    return null;
+                });
+            }
+        } finally {
+            schemaLock.unlock();
+        }
+    }
+
+    /**
+     * Runs an action while no query can change the database, e.g. to save a consistent copy of every table.
+     * Queries that only read the database keep running in the meantime.
+     */
+    public void whileFrozen(Runnable action) {
+        schemaLock.lock();
+        List<Lock> locked = new ArrayList<>();
+
+        try {
+            for (Table table : this.tables.values()) {
+                Lock lock = table.getLock().readLock();
+                lock.lock();
+                locked.add(lock);
+            }
+
+            action.run();
+        } finally {
+            for (Lock lock : locked) {
+                lock.unlock();
+            }
+            schemaLock.unlock();
+        }
+    }
+
+    /**
+     * Prepares queries that may contain `?` / `$1` parameters, so that they can be executed many times without being
+     * tokenized and parsed again. Prepared queries are cached by their SQL text, so preparing the same text twice
+     * returns the same object until a table it refers to is created or dropped.
+     * @param sql one or more queries
+     * @throws IllegalArgumentException if the queries cannot be parsed.
+     * @throws NoSuchElementException if a query refers to a table or column that does not exist.
+     */
+    public PreparedQuery prepare(String sql) throws IllegalArgumentException, NoSuchElementException {
+        String key = normalize(sql);
+        PreparedQuery prepared = this.preparedQueries.get(key);
+
+        if (prepared == null) {
+            prepared = new PreparedQuery(this, Parser.parse(sql));
+            this.preparedQueries.put(key, prepared);
+        }
+
+        return prepared;
+    }
+
+    /**
+     * Returns the cache of prepared queries, e.g. to look at its hit rate.
+     */
+    public LruCache<String, PreparedQuery> getPreparedQueries() {
+        return preparedQueries;
+    }
+
+    /**
+     * Turns caching of `SELECT` results on or off. Cached results are dropped as soon as the table they were read from
+     * changes, and the least recently used results are evicted once the cache is full.
+     * @param maxEntries maximum number of results to keep, or 0 to turn caching off
+     * @param maxCells maximum total number of cells in the kept results
+     */
+    public void setResultCache(int maxEntries, long maxCells) {
+        this.resultCache = maxEntries <= 0 ? null : new LruCache<>(maxEntries, maxCells, (cached) -> cached.result().getCellCount());
+    }
+
+    /**
+     * Returns the cache of `SELECT` results, e.g. to look at its hit rate, or null if result caching is turned off.
+     */
+    public LruCache<Query.Select, ?> getResultCache() {
+        return resultCache;
+    }
+
+    /**
+     * Collapses every run of whitespace outside of string literals into a single space and drops comments, so that
+     * queries that only differ in formatting share a cache entry.
+     */
+    private static String normalize(String sql) {
+        StringBuilder normalized = new StringBuilder(sql.length());
+        boolean quoted = false;
+        boolean space = false;
+
+        for (int i = 0; i < sql.length(); i++) {
+            char c = sql.charAt(i);
+
+            if (!quoted && Character.isWhitespace(c)) {
+                space = true;
+                continue;
+            }
+
+            // Comments run to the end of the line, which is why they cannot simply be collapsed like whitespace.
+            if (!quoted && c == '-' && i + 1 < sql.length() && sql.charAt(i + 1) == '-') {
+                while (i < sql.length() && sql.charAt(i) != '\n') {
+                    i++;
+                }
+                space = true;
+                continue;
+            }
+
+            if (space && !normalized.isEmpty()) {
+                normalized.append(' ');
+            }
+
+            space = false;
+            quoted ^= c == '\'';
+            normalized.append(c);
+        }
+
+        return normalized.toString();
+    }
+
+    /**
+     * Forgets prepared queries that were checked against a table that has since been created or dropped.
+     */
+    private void invalidatePreparedQueries(String tableName) {
+        this.preparedQueries.removeIf((sql, prepared) -> prepared.references(tableName));
     }
 
     /**
@@ -40,16 +295,406 @@ public class Database {
      * @param tableName name of table to retrieve.
      * @throws NoSuchElementException if the table does not exist.
      */
-    private Table getTable(String tableName) throws NoSuchElementException {
-        return this.tables
-            .stream()
-            .filter((t) -> t.getName().equals(tableName))
-            .findFirst()
-            .orElseThrow(() -> new NoSuchElementException(String.format("Table with name '%s' does not exist.", tableName)));
+    Table getTable(String tableName) throws NoSuchElementException {
+        if (tableName.equals(QUERY_STATS_TABLE)) {
+            return queryStatsTable();
+        }
+
+        Table table = this.tables.get(tableName);
+
+        if (table == null) {
+            throw new NoSuchElementException(String.format("Table with name '%s' does not exist.", tableName));
+        }
+
+        return table;
+    }
+
+    /**
+     * Keeps the stats of a query that has finished, to be shown in `sys_query_stats`. Only the most recent queries
+     * are kept.
+     */
+    public void recordQueryStats(QueryStats stats) {
+        synchronized (queryStats) {
+            if (queryStats.size() == QUERY_STATS_HISTORY) {
+                queryStats.removeFirst();
+            }
+
+            queryStats.addLast(stats);
+            recordedQueries++;
+        }
+    }
+
+    /**
+     * Builds `sys_query_stats` from the stats recorded so far. The table is built anew every time it is read, and
+     * its rows are frozen, so that every snapshot sees all of them.
+     */
+    private Table queryStatsTable() {
+        Table table = new Table(QUERY_STATS_TABLE, QueryStats.COLUMNS);
+        List<List<Token.Literal>> rows = new ArrayList<>(QUERY_STATS_HISTORY);
+
+        synchronized (queryStats) {
+            long id = recordedQueries - queryStats.size();
+
+            for (QueryStats stats : queryStats) {
+                rows.add(stats.toRow(++id));
+            }
+        }
+
+        table.insertRows(null, rows, Transactions.FROZEN);
+        return table;
+    }
+
+    /**
+     * Rejects a change to a table that is built by the database itself.
+     * @throws IllegalArgumentException if the table is such a table.
+     */
+    static void requireWritable(String tableName) throws IllegalArgumentException {
+        if (tableName.equals(QUERY_STATS_TABLE)) {
+            throw new IllegalArgumentException(String.format("Table '%s' is read-only.", tableName));
+        }
+    }
+
+    /**
+     * Returns every table in the database, ordered by name.
+     */
+    public Collection<Table> getTables() {
+        return tables.values();
+    }
+
+    /**
+     * Adds an existing table to the database.
+     * @throws RuntimeException if a table with the same name already exists.
+     */
+    public void addTable(Table table) throws RuntimeException {
+        if (this.tables.putIfAbsent(table.getName(), table) != null) {
+            throw new RuntimeException(String.format("Table with name '%s' already exists.", table.getName()));
+        }
+    }
+
+    /**
+     * Takes a snapshot of the transactions that have committed so far, which must be closed once it is no longer used.
+     */
+    ReadView snapshot() {
+        return this.transactions.snapshot();
+    }
+
+    /**
+     * Runs an action against a consistent snapshot of a table, without waiting for writers. The action is given a
+     * predicate that accepts the row versions in the snapshot, and vacuum is kept out of the table until it returns.
+     * @param view snapshot to read, or null to take a new one for just this action
+     * @throws NoSuchElementException if the table does not exist.
+     */
+    private <T> T read(String tableName, ReadView view, BiFunction<Table, IntPredicate, T> action) throws NoSuchElementException {
+        Table table = getTable(tableName);
+        Lock lock = table.getVacuumLock().readLock();
+
+        lock.lock();
+        try {
+            if (view != null) {
+                return action.apply(table, table.visibleTo(view));
+            }
+
+            try (ReadView snapshot = snapshot()) {
+                return action.apply(table, table.visibleTo(snapshot));
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Plans a query that joins two tables against one consistent snapshot of both, and runs an action on the plan while
+     * vacuum is kept out of both tables.
+     * @param view snapshot to read, or null to take a new one for just this action
+     * @param settings how much memory and how many threads the plan may use
+     * @throws NoSuchElementException if either table does not exist.
+     */
+    private <T> T readJoin(Query.Select query, ReadView view, ExecutionSettings settings, Function<Plan.JoinProject, T> action) throws NoSuchElementException {
+        Table left = getTable(query.tableName().ident());
+        Table right = getTable(query.join().tableName().ident());
+        Lock leftLock = left.getVacuumLock().readLock();
+        Lock rightLock = right.getVacuumLock().readLock();
+
+        leftLock.lock();
+        rightLock.lock();
+        try {
+            if (view != null) {
+                return action.apply(planJoin(left, left.visibleTo(view), right, right.visibleTo(view), query, settings));
+            }
+
+            try (ReadView snapshot = snapshot()) {
+                return action.apply(planJoin(left, left.visibleTo(snapshot), right, right.visibleTo(snapshot), query, settings));
+            }
+        } finally {
+            rightLock.unlock();
+            leftLock.unlock();
+        }
     }
 
-    public List<Table> getTables() {
-        return tables;
+    private Plan.JoinProject planJoin(Table left, IntPredicate leftVisible, Table right, IntPredicate rightVisible, Query.Select query, ExecutionSettings settings) {
+        return QueryProfile.measure(QueryProfile.Phase.PLAN, () -> Planner.planJoin(left, leftVisible, right, rightVisible, query, settings));
+    }
+
+    /**
+     * Runs an action while holding the write lock of a table.
+     * @throws NoSuchElementException if the table does not exist.
+     */
+    private <T> T write(String tableName, Function<Table, T> action) throws NoSuchElementException {
+        requireWritable(tableName);
+
+        while (true) {
+            Table table = getTable(tableName);
+            Lock lock = table.getLock().writeLock();
+
+            lock.lock();
+            try {
+                // The table may have been dropped or replaced while we were waiting for the lock.
+                if (this.tables.get(tableName) == table) {
+                    return action.apply(table);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Runs a change to the rows of a table in a new transaction, and records it in the journal. If the change or the
+     * record fails, whatever the transaction did to the table is rolled back before the error is rethrown.
+     * @return position to pass to {@link #commit(long)}
+     * @throws NoSuchElementException if the table does not exist.
+     */
+    private long change(String tableName, Query query, ObjLongConsumer<Table> change) throws NoSuchElementException {
+        return write(tableName, (table) -> {
+            Transactions transactions = this.transactions;
+            long transaction = transactions.begin();
+            int firstRow = table.getRowCount();
+
+            try {
+                change.accept(table, transaction);
+                return record(query);
+            } catch (RuntimeException err) {
+                table.rollback(transaction, firstRow);
+                throw err;
+            } finally {
+                transactions.end(transaction);
+            }
+        });
+    }
+
+    /**
+     * Applies the changes buffered by a transaction in one batch. The write locks of every table they touch or read
+     * are held for the whole batch, so readers see either all of the changes or none of them, and the journal records
+     * them as a single unit that is made durable with a single commit. Consecutive inserts into the same table are
+     * appended and indexed together. If any change fails, every change is rolled back before the error is rethrown.
+     *
+     * Every change runs against the snapshot the transaction started from, together with the effects of the changes
+     * before it, which is also what the queries of `INSERT ... SELECT` read. The rows an `UPDATE` or `DELETE` changes
+     * must not have been changed by another transaction since the snapshot was taken, so of two transactions that
+     * change the same row, the one that commits first wins and the other one is rolled back.
+     * @param changes `INSERT`, `UPDATE` and `DELETE` queries, in the order they were made
+     * @param view snapshot the transaction started from, or null to apply the changes to the latest state
+     * @param settings how much memory and how many threads the changes may use
+     * @throws NoSuchElementException if a table does not exist.
+     * @throws ConcurrentModificationException if a row was changed by another transaction after the snapshot was taken.
+     */
+    void applyBatch(List<Query> changes, ReadView view, ExecutionSettings settings) throws NoSuchElementException, ConcurrentModificationException {
+        if (changes.isEmpty()) {
+            return;
+        }
+
+        // Lock tables in name order, the same as every other query that locks more than one table.
+        SortedSet<String> tableNames = new TreeSet<>();
+        for (Query change : changes) {
+            tableNames.add(tableNameOf(change));
+
+            // Tables that are only read are locked too, so that they cannot change while the batch reads them.
+            if (change instanceof Query.InsertSelect q) {
+                tableNames.add(q.source().tableName().ident());
+                if (q.source().join() != null) {
+                    tableNames.add(q.source().join().tableName().ident());
+                }
+            }
+        }
+
+        Map<String, Table> tables = new HashMap<>();
+        List<Lock> locked = new ArrayList<>();
+        long position;
+
+        try {
+            for (String tableName : tableNames) {
+                requireWritable(tableName);
+                Table table = getTable(tableName);
+                Lock lock = table.getLock().writeLock();
+                lock.lock();
+                locked.add(lock);
+                tables.put(tableName, table);
+            }
+
+            // A table may have been dropped or replaced while we were waiting for its lock.
+            for (Map.Entry<String, Table> entry : tables.entrySet()) {
+                if (this.tables.get(entry.getKey()) != entry.getValue()) {
+                    throw new NoSuchElementException(String.format("Table with name '%s' was dropped while the transaction was committing.", entry.getKey()));
+                }
+            }
+
+            position = applyLocked(changes, tables, view, settings);
+        } finally {
+            for (Lock lock : locked) {
+                lock.unlock();
+            }
+        }
+
+        commit(position);
+    }
+
+    /**
+     * Applies a batch of changes to tables whose write locks are held, and records it in the journal. Which rows an
+     * `UPDATE` or `DELETE` changes depends on the snapshot it runs against, which recovery cannot reproduce, so they are
+     * recorded as the rows they deleted and appended rather than as queries.
+     * @param view snapshot the changes run against, or null to run them against the latest state
+     * @param settings how much memory and how many threads the changes may use
+     * @return position to pass to {@link #commit(long)}
+     */
+    private long applyLocked(List<Query> changes, Map<String, Table> tables, ReadView view, ExecutionSettings settings) {
+        Transactions transactions = this.transactions;
+        long transaction = transactions.begin();
+        // Changes as they are recorded in the journal, with the query of every `INSERT ... SELECT` already run
+        List<Query> applied = new ArrayList<>(changes.size());
+
+        Map<Table, Integer> firstRows = new HashMap<>();
+        for (Table table : tables.values()) {
+            firstRows.put(table, table.getRowCount());
+        }
+
+        try {
+            int i = 0;
+
+            while (i < changes.size()) {
+                Table table = tables.get(tableNameOf(changes.get(i)));
+
+                switch (changes.get(i)) {
+                    case Query.InsertInto insert -> {
+                        // Gather every following insert into the same columns of the same table.
+                        List<List<Token.Literal>> rows = new ArrayList<>();
+
+                        while (i < changes.size()
+                            && changes.get(i) instanceof Query.InsertInto next
+                            && next.tableName().equals(insert.tableName())
+                            && Objects.equals(next.columns(), insert.columns())
+                        ) {
+                            rows.addAll(next.rows());
+                            applied.add(next);
+                            i++;
+                        }
+
+                        table.insertRows(insert.columns(), rows, transaction);
+                        continue;
+                    }
+                    case Query.InsertSelect q -> {
+                        Query.Select source = q.source();
+                        Table from = tables.get(source.tableName().ident());
+                        List<List<Token.Literal>> rows;
+
+                        if (source.join() != null) {
+                            Table to = tables.get(source.join().tableName().ident());
+                            rows = planJoin(from, visibleTo(from, view, transaction), to, visibleTo(to, view, transaction), source, settings)
+                                .materialize()
+                                .map(Database::toLiterals)
+                                .toList();
+                        } else {
+                            rows = selectLiterals(source, from, visibleTo(from, view, transaction), settings);
+                        }
+
+                        if (!rows.isEmpty()) {
+                            table.insertRows(q.columns(), rows, transaction);
+                            applied.add(new Query.InsertInto(q.tableName(), q.columns(), rows));
+                        }
+                    }
+                    case Query.DeleteFrom q -> {
+                        int[] rows = table.selectRows(q.filter(), visibleTo(table, view, transaction), settings);
+                        table.deleteRows(rows, transaction);
+
+                        if (rows.length > 0) {
+                            applied.add(new Query.DeleteRows(q.tableName(), literalsOf(table, IntStream.of(rows))));
+                        }
+                    }
+                    case Query.DeleteRows q -> {
+                        table.deleteRows(table.findRows(q.rows(), visibleTo(table, view, transaction)), transaction);
+                        applied.add(q);
+                    }
+                    case Query.UpdateSet q -> {
+                        int[] rows = table.selectRows(q.filter(), visibleTo(table, view, transaction), settings);
+                        int firstVersion = table.getRowCount();
+                        table.updateRows(q.columns(), q.values(), rows, transaction);
+
+                        // Recorded as the old versions it deleted and the new ones it appended, in the same order.
+                        if (rows.length > 0) {
+                            applied.add(new Query.DeleteRows(q.tableName(), literalsOf(table, IntStream.of(rows))));
+                            applied.add(new Query.InsertInto(q.tableName(), null, literalsOf(table, IntStream.range(firstVersion, table.getRowCount()))));
+                        }
+                    }
+                    default -> throw new IllegalArgumentException(String.format("%s queries cannot be applied in a batch.", changes.get(i).getClass().getSimpleName()));
+                }
+
+                i++;
+            }
+
+            Journal journal = this.journal;
+            return journal == null || applied.isEmpty() ? 0 : journal.record(applied);
+        } catch (RuntimeException err) {
+            for (Map.Entry<Table, Integer> entry : firstRows.entrySet()) {
+                entry.getKey().rollback(transaction, entry.getValue());
+            }
+            throw err;
+        } finally {
+            transactions.end(transaction);
+        }
+    }
+
+    /**
+     * Returns the values of the given row versions of a table, e.g. to record the rows a change deleted.
+     */
+    private static List<List<Token.Literal>> literalsOf(Table table, IntStream rows) {
+        return rows.mapToObj(table::getLiterals).toList();
+    }
+
+    /**
+     * Returns a predicate that accepts the row versions a change in a batch sees: those in the snapshot together with
+     * the effects of the batch so far, or the latest state of the table if there is no snapshot.
+     */
+    private static IntPredicate visibleTo(Table table, ReadView view, long transaction) {
+        return view == null ? table.liveRows() : table.visibleTo(view, transaction);
+    }
+
+    private static String tableNameOf(Query change) {
+        return switch (change) {
+            case Query.InsertInto q -> q.tableName().ident();
+            case Query.InsertSelect q -> q.tableName().ident();
+            case Query.DeleteFrom q -> q.tableName().ident();
+            case Query.DeleteRows q -> q.tableName().ident();
+            case Query.UpdateSet q -> q.tableName().ident();
+            default -> throw new IllegalArgumentException(String.format("%s queries cannot be applied in a batch.", change.getClass().getSimpleName()));
+        };
+    }
+
+    /**
+     * Records a change in the journal. Must be called while the tables it touched are still locked.
+     * @return position to pass to {@link #commit(long)}
+     */
+    private long record(Query query) {
+        Journal journal = this.journal;
+        return journal == null ? 0 : journal.record(query);
+    }
+
+    /**
+     * Waits until a recorded change is durable. Should be called after every lock has been released.
+     */
+    private void commit(long position) {
+        Journal journal = this.journal;
+        if (journal != null) {
+            journal.commit(position);
+        }
     }
 
     /**
@@ -59,10 +704,11 @@ public class Database {
     private TableModel showTables() {
         return new DefaultTableModel(
             this.tables
+                .keySet()
                 .stream()
-                .map((table) -> new String[]{ table.getName() })
+                .map((name) -> new String[]{ name })
                 .toArray(String[][]::new),
-            new String[]{"tables"}
+            SHOW_TABLES_COLUMNS.stream().map(ResultColumn::name).toArray()
         );
     }
 
@@ -71,23 +717,29 @@ public class Database {
      * @return empty result set.
      */
     private TableModel createTable(Query.CreateTable query) throws RuntimeException {
-        String tableName = query.tableName().ident();
+        long position;
 
-        if (this.tables
-                .stream()
-                .anyMatch((table) -> table.getName().equals(tableName))
-        ) {
-            throw new RuntimeException(String.format("Table with name '%s' already exists.", tableName));
-        }
+        requireWritable(query.tableName().ident());
 
-        this.tables.add(
-            new Table(
+        schemaLock.lock();
+        try {
+            Table table = new Table(
                 query.tableName().ident(),
-                query.columns(),
-                new ArrayList<>()
-            )
-        );
+                query.columns()
+            );
+
+            if (this.bulkLoading) {
+                table.deferIndexes();
+            }
 
+            addTable(table);
+            position = record(query);
+        } finally {
+            schemaLock.unlock();
+        }
+
+        invalidatePreparedQueries(query.tableName().ident());
+        commit(position);
         return null;
     }
 
@@ -96,97 +748,443 @@ public class Database {
      * @return empty result set.
      */
     private TableModel dropTable(Query.DropTable query) throws NoSuchElementException {
-        Table table = getTable(query.tableName().ident());
-        this.tables.remove(table);
+        long position;
 
+        schemaLock.lock();
+        try {
+            // Wait for queries that are still using the table to finish.
+            position = write(query.tableName().ident(), (table) -> {
+                this.tables.remove(table.getName());
+                return record(query);
+            });
+        } finally {
+            schemaLock.unlock();
+        }
+
+        invalidatePreparedQueries(query.tableName().ident());
+        invalidateResults(query.tableName().ident());
+        commit(position);
         return null;
     }
 
     /**
-     * Used to make queries with {@link Query.InsertInto}.
-     * @return empty result set.
+     * Forgets cached results that were read from a table that has since been dropped. They could never be served
+     * again anyway, since a new table with the same name is a different table.
      */
-    private TableModel insertInto(Query.InsertInto query) throws NoSuchElementException {
-        Table table = getTable(query.tableName().ident());
-        table.insertRow(query.columns(), query.values());
+    private void invalidateResults(String tableName) {
+        LruCache<Query.Select, CachedResult> resultCache = this.resultCache;
 
-        return null;
+        if (resultCache != null) {
+            resultCache.removeIf((query, cached) -> cached.table().getName().equals(tableName));
+        }
+    }
+
+    /**
+     * Used to make queries with {@link Query.InsertInto}. Every row is appended in a single batch.
+     * @return number of rows inserted
+     */
+    private int insertInto(Query.InsertInto query) throws NoSuchElementException {
+        commit(change(query.tableName().ident(), query, (table, transaction) ->
+            table.insertRows(query.columns(), query.rows(), transaction)
+        ));
+
+        return query.rows().size();
+    }
+
+    /**
+     * Used to make queries with {@link Query.InsertSelect}.
+     * @return number of rows inserted
+     */
+    private int insertSelect(Query.InsertSelect query, ExecutionSettings settings) throws NoSuchElementException {
+        Query.InsertInto insert = resolve(query, settings);
+        return insert.rows().isEmpty() ? 0 : insertInto(insert);
+    }
+
+    /**
+     * Runs the query of an {@link Query.InsertSelect} and turns its result into the rows of an {@link Query.InsertInto}.
+     * That is what gets applied and recorded in the journal, so replaying the journal never runs the query again.
+     * The query reads the latest committed state.
+     * @throws NoSuchElementException if a table does not exist.
+     * @throws IllegalArgumentException if a column does not exist or an aggregate is not a 32-bit integer.
+     */
+    private Query.InsertInto resolve(Query.InsertSelect query, ExecutionSettings settings) throws NoSuchElementException, IllegalArgumentException {
+        Query.Select source = query.source();
+
+        List<List<Token.Literal>> rows = source.join() != null
+            ? readJoin(source, null, settings, (plan) -> plan.materialize().map(Database::toLiterals).toList())
+            : read(source.tableName().ident(), null, (table, visible) -> selectLiterals(source, table, visible, settings));
+
+        return new Query.InsertInto(query.tableName(), query.columns(), rows);
+    }
+
+    /**
+     * Runs a query against the given row versions of a single table, and turns its result into rows to insert.
+     * @throws IllegalArgumentException if a column does not exist or an aggregate is not a 32-bit integer.
+     */
+    private List<List<Token.Literal>> selectLiterals(Query.Select source, Table table, IntPredicate visible, ExecutionSettings settings) throws IllegalArgumentException {
+        Stream<List<Value>> values = Planner.isAggregate(source)
+            ? QueryProfile.measure(QueryProfile.Phase.PLAN, () -> Planner.planAggregate(table, visible, -1, source, settings)).materialize()
+            : QueryProfile.measure(QueryProfile.Phase.PLAN, () -> Planner.plan(table, visible, source.columns(), source.filter(), source.order(), source.limit(), settings)).materialize();
+
+        return values.map(Database::toLiterals).toList();
+    }
+
+    private static List<Token.Literal> toLiterals(List<Value> values) throws IllegalArgumentException {
+        // Values may be null, which Stream.toList allows but List.copyOf does not.
+        List<Token.Literal> literals = new ArrayList<>(values.size());
+
+        for (Value value : values) {
+            literals.add(switch (value) {
+                case null -> null;
+                case Value.Integer(var v) -> new Token.Literal.Integer(v);
+                case Value.VarChar(var v) -> new Token.Literal.String(v);
+                case Value.Boolean(var v) -> new Token.Literal.Boolean(v);
+                case Value.Numeric(var v) -> {
+                    try {
+                        yield new Token.Literal.Integer(v.intValueExact());
+                    } catch (ArithmeticException err) {
+                        throw new IllegalArgumentException(String.format("Cannot insert %s, which is not a 32-bit integer.", v.toPlainString()));
+                    }
+                }
+            });
+        }
+
+        return literals;
     }
 
     /**
      * Used to make queries with {@link Query.Select}.
+     * @param view snapshot to read, or null to read the latest committed state
+     * @param settings how much memory and how many threads the query may use
      * @return result set with requested columns and (optionally filtered & ordered) data.
      */
-    private TableModel select(Query.Select query) throws NoSuchElementException {
+    private TableModel select(Query.Select query, ReadView view, ExecutionSettings settings) throws NoSuchElementException {
+        // Joined rows come from two tables, so they are computed in full while the snapshot is open, and never cached.
+        if (query.join() != null) {
+            return readJoin(query, view, settings, (plan) -> new ResultSet(plan.columnNames(), plan.materialize().toList()));
+        }
+
         Table table = getTable(query.tableName().ident());
+        LruCache<Query.Select, CachedResult> resultCache = this.resultCache;
 
-        Stream<List<Value>> filteredData = table.filterData(
-            query.columns(),
-            query.filter(),
-            query.order()
-        );
+        // Transactions read an older snapshot than the one cached results were computed from, and query stats are
+        // built anew every time they are read.
+        if (resultCache == null || view != null || table.getName().equals(QUERY_STATS_TABLE)) {
+            return select(query, table, view, settings);
+        }
 
-        // Determines which column names should be returned in the result set
-        Stream<String> columnNames;
-        if (query.columns().contains(new Token.Identifier("*"))) {
-            columnNames = table.getColumnNames();
-        } else {
-            columnNames = query.columns()
-                .stream()
-                .map(Token.Identifier::ident);
+        // The version has to be read before the snapshot is taken, so that the result reflects at least that version.
+        long version = table.getVersion();
+
+        if (version < 0) {
+            return select(query, table, null, settings);
         }
 
-        return new DefaultTableModel(
-            filteredData
-                // Calls .toString() on each datum and casts row to String array
-                .map(row -> row.stream().map(Object::toString).toArray(String[]::new))
-                // Collects each row into an array of String arrays
-                .toArray(String[][]::new),
-            columnNames.toArray(String[]::new)
-        );
+        CachedResult cached = resultCache.get(query, (entry) -> entry.table() == table && entry.version() == version);
+        if (cached != null) {
+            return cached.result();
+        }
+
+        ResultSet result = select(query, table, null, settings);
+
+        // Results that are still being read from a cursor keep a snapshot open, and are too large to be worth caching.
+        if (result.isComplete()) {
+            resultCache.put(query, new CachedResult(table, version, result));
+        }
+
+        return result;
+    }
+
+    private ResultSet select(Query.Select query, Table table, ReadView view, ExecutionSettings settings) {
+        // Aggregates hold one row per group, so they are computed in full while the snapshot is open.
+        if (Planner.isAggregate(query)) {
+            // Read before the snapshot is taken, so that a matching version afterwards means the snapshot sees it all.
+            long version = view == null ? table.getVersion() : -1;
+
+            return read(query.tableName().ident(), view, (t, visible) -> {
+                Plan.Aggregation plan = QueryProfile.measure(QueryProfile.Phase.PLAN, () -> Planner.planAggregate(t, visible, t == table ? version : -1, query, settings));
+                return new ResultSet(plan.columnNames(), plan.materialize().toList());
+            });
+        }
+
+        // The result may be read long after this query returns, so it keeps a snapshot of its own open until then.
+        return new ResultSet(new ResultCursor(table, query, settings, view == null ? snapshot() : view.share()));
     }
 
     /**
      * Used to make queries with {@link Query.DeleteFrom}.
+     * @return number of rows deleted
+     */
+    private int deleteFrom(Query.DeleteFrom query, ExecutionSettings settings) throws NoSuchElementException {
+        int[] deleted = new int[1];
+
+        commit(change(query.tableName().ident(), query, (table, transaction) ->
+            deleted[0] = table.deleteRows(query.filter(), settings, transaction)
+        ));
+
+        return deleted[0];
+    }
+
+    /**
+     * Used to make queries with {@link Query.DeleteRows}, e.g. when a transaction is recovered from the journal.
+     * @return number of rows deleted
+     */
+    private int deleteRows(Query.DeleteRows query) throws NoSuchElementException {
+        commit(change(query.tableName().ident(), query, (table, transaction) ->
+            table.deleteRows(table.findRows(query.rows(), table.liveRows()), transaction)
+        ));
+
+        return query.rows().size();
+    }
+
+    /**
+     * Used to make queries with {@link Query.UpdateSet}.
+     * @return number of rows updated
+     */
+    private int updateSet(Query.UpdateSet query, ExecutionSettings settings) throws NoSuchElementException {
+        int[] updated = new int[1];
+
+        commit(change(query.tableName().ident(), query, (table, transaction) ->
+            updated[0] = table.updateRows(
+                query.columns(),
+                query.values(),
+                query.filter(),
+                settings,
+                transaction
+            )
+        ));
+
+        return updated[0];
+    }
+
+    /**
+     * Used to make queries with {@link Query.CreateIndex}.
      * @return empty result set.
      */
-    private TableModel deleteFrom(Query.DeleteFrom query) throws NoSuchElementException {
-        Table table = getTable(query.tableName().ident());
-        table.deleteRows(query.filter());
+    private TableModel createIndex(Query.CreateIndex query) throws RuntimeException {
+        String indexName = query.indexName().ident();
+        long position;
+
+        // Index names are unique across tables, so no other index may be created while we check.
+        schemaLock.lock();
+        try {
+            if (this.tables
+                    .values()
+                    .stream()
+                    .anyMatch((table) -> table.hasIndex(indexName))
+            ) {
+                throw new RuntimeException(String.format("Index with name '%s' already exists.", indexName));
+            }
 
+            position = write(query.tableName().ident(), (table) -> {
+                table.createIndex(indexName, query.column().ident(), query.indexType().type());
+                return record(query);
+            });
+        } finally {
+            schemaLock.unlock();
+        }
+
+        commit(position);
         return null;
     }
 
     /**
-     * Used to make queries with {@link Query.UpdateSet}.
+     * Used to make queries with {@link Query.DropIndex}.
      * @return empty result set.
      */
-    private TableModel updateSet(Query.UpdateSet query) throws NoSuchElementException {
-        Table table = getTable(query.tableName().ident());
-        table.updateRows(
-            query.columns(),
-            query.values(),
-            query.filter()
-        );
+    private TableModel dropIndex(Query.DropIndex query) throws NoSuchElementException {
+        String indexName = query.indexName().ident();
+        long position;
 
+        schemaLock.lock();
+        try {
+            Table table = this.tables
+                .values()
+                .stream()
+                .filter((t) -> t.hasIndex(indexName))
+                .findFirst()
+                .orElseThrow(() -> new NoSuchElementException(String.format("Index with name '%s' does not exist.", indexName)));
+
+            position = write(table.getName(), (t) -> {
+                t.dropIndex(indexName);
+                return record(query);
+            });
+        } finally {
+            schemaLock.unlock();
+        }
+
+        commit(position);
         return null;
     }
 
+    /**
+     * Works out the columns of the result of a query without running it, e.g. to describe a prepared query to a client
+     * before its parameters are bound. A `SELECT` is planned against the latest state of its tables for that, which
+     * does not depend on its filter or limit, so those are left out.
+     * @return columns of the result, or an empty list if the query does not return rows
+     * @throws NoSuchElementException if a table does not exist.
+     * @throws IllegalArgumentException if a column does not exist.
+     */
+    public List<ResultColumn> describe(Query query) throws NoSuchElementException, IllegalArgumentException {
+        return switch (query) {
+            case Query.ShowTables q -> SHOW_TABLES_COLUMNS;
+            case Query.Explain q -> EXPLAIN_COLUMNS;
+            case Query.Select q -> {
+                Query.Select columns = new Query.Select(q.tableName(), q.join(), q.columns(), null, q.groupBy(), q.order(), null);
+
+                if (columns.join() != null) {
+                    yield readJoin(columns, null, this.settings, Plan.JoinProject::resultColumns);
+                }
+
+                yield read(columns.tableName().ident(), null, (table, visible) -> Planner.isAggregate(columns)
+                    ? Planner.planAggregate(table, visible, -1, columns, this.settings).resultColumns()
+                    : Planner.plan(table, visible, columns.columns(), null, columns.order(), null, this.settings).resultColumns()
+                );
+            }
+            default -> List.of();
+        };
+    }
+
+    /**
+     * Used to make queries with {@link Query.Explain}.
+     * @param view snapshot to read, or null to read the latest committed state
+     * @param settings how much memory and how many threads the query would use, which decide some of the operators
+     * @return result set with one row per operator in the plan that would be used to run the query.
+     */
+    private TableModel explain(Query.Explain query, ReadView view, ExecutionSettings settings) throws NoSuchElementException {
+        String[][] rows = switch (query.query()) {
+            case Query.Select q when q.join() != null -> readJoin(q, view, settings, Planner::describe);
+            case Query.Select q when Planner.isAggregate(q) -> read(q.tableName().ident(), view, (table, visible) -> Planner.describe(Planner.planAggregate(table, visible, -1, q, settings)));
+            case Query.Select q -> read(q.tableName().ident(), view, (table, visible) -> Planner.describe(Planner.plan(table, visible, q.columns(), q.filter(), q.order(), q.limit(), settings)));
+            case Query.DeleteFrom q -> read(q.tableName().ident(), view, (table, visible) -> Planner.describe(Planner.planRows(table, visible, q.filter(), settings)));
+            case Query.UpdateSet q -> read(q.tableName().ident(), view, (table, visible) -> Planner.describe(Planner.planRows(table, visible, q.filter(), settings)));
+            // Queries that do not read rows out of a table do not have a plan worth showing.
+            default -> new String[][]{ { query.query().getClass().getSimpleName(), "" } };
+        };
+
+        return new DefaultTableModel(rows, EXPLAIN_COLUMNS.stream().map(ResultColumn::name).toArray());
+    }
+
+    /**
+     * Reclaims the row versions that no running query can see any more, in every table where enough of them have
+     * piled up. Writers of a table wait while it is vacuumed, and so do readers that start scanning it.
+     * @return number of row versions that were removed
+     */
+    public int vacuum() {
+        int removed = 0;
+
+        for (Table table : this.tables.values()) {
+            if (table.getDeadRowCount() < Math.max(VACUUM_THRESHOLD, table.getRowCount() * VACUUM_FRACTION) && !table.needsCompaction()) {
+                continue;
+            }
+
+            Lock lock = table.getLock().writeLock();
+            Lock vacuumLock = table.getVacuumLock().writeLock();
+
+            lock.lock();
+            vacuumLock.lock();
+            try {
+                removed += table.vacuum(this.transactions.oldestVisible());
+            } finally {
+                vacuumLock.unlock();
+                lock.unlock();
+            }
+        }
+
+        return removed;
+    }
+
+    /**
+     * Starts vacuuming the database periodically on a background thread, which does not keep the JVM alive.
+     * @param intervalMillis time between runs
+     */
+    public synchronized void startVacuum(long intervalMillis) {
+        if (this.vacuumer != null) {
+            return;
+        }
+
+        this.vacuumer = Executors.newSingleThreadScheduledExecutor((runnable) -> {
+            Thread thread = new Thread(runnable, "vacuum");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.vacuumer.scheduleWithFixedDelay(this::vacuum, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the background vacuum, if it is running.
+     */
+    public synchronized void stopVacuum() {
+        if (this.vacuumer != null) {
+            this.vacuumer.shutdownNow();
+            this.vacuumer = null;
+        }
+    }
+
     /**
      * Entrypoint for making queries to the database. Performs pattern matching on the {@link Query} record interface.
+     * Every query commits as soon as it finishes; use a {@link Session} to run several queries in one transaction.
      * @param query query to be made
      * @return result set to be displayed on the UI
      * @throws NoSuchElementException if a query had invalid arguments
+     * @throws IllegalStateException if the query starts or ends a transaction
+     */
+    public TableModel executeQuery(Query query) throws NoSuchElementException, IllegalStateException {
+        return executeQuery(query, null, this.settings);
+    }
+
+    /**
+     * Makes a query that reads through the given snapshot, e.g. the one taken when a transaction began.
+     * @param view snapshot to read, or null to read the latest committed state
+     * @param settings how much memory and how many threads the query may use, e.g. those of a session
+     */
+    TableModel executeQuery(Query query, ReadView view, ExecutionSettings settings) throws NoSuchElementException, IllegalStateException {
+        return switch (query) {
+            case Query.ShowTables   q -> showTables();
+            case Query.CreateTable  q -> createTable(q);
+            case Query.DropTable    q -> dropTable(q);
+            case Query.InsertInto   q -> modify(q, settings);
+            case Query.InsertSelect q -> modify(q, settings);
+            case Query.Select       q -> select(q, view, settings);
+            case Query.DeleteFrom   q -> modify(q, settings);
+            case Query.DeleteRows   q -> modify(q, settings);
+            case Query.UpdateSet    q -> modify(q, settings);
+            case Query.CreateIndex  q -> createIndex(q);
+            case Query.DropIndex    q -> dropIndex(q);
+            case Query.Explain      q -> explain(q, view, settings);
+            case Query.Begin        q -> throw outsideSession(q);
+            case Query.Commit       q -> throw outsideSession(q);
+            case Query.Rollback     q -> throw outsideSession(q);
+        };
+    }
+
+    /**
+     * Makes a query that inserts, updates or deletes rows, which commits as soon as it finishes.
+     * @param settings how much memory and how many threads the query may use
+     * @return number of rows the query inserted, updated or deleted
+     * @throws NoSuchElementException if a query had invalid arguments
+     * @throws IllegalArgumentException if the query does not change rows
      */
-    public TableModel executeQuery(Query query) throws NoSuchElementException {
+    int executeChange(Query query, ExecutionSettings settings) throws NoSuchElementException, IllegalArgumentException {
         return switch (query) {
-            case Query.ShowTables  q -> showTables();
-            case Query.CreateTable q -> createTable(q);
-            case Query.DropTable   q -> dropTable(q);
-            case Query.InsertInto  q -> insertInto(q);
-            case Query.Select      q -> select(q);
-            case Query.DeleteFrom  q -> deleteFrom(q);
-            case Query.UpdateSet   q -> updateSet(q);
+            case Query.InsertInto   q -> insertInto(q);
+            case Query.InsertSelect q -> insertSelect(q, settings);
+            case Query.DeleteFrom   q -> deleteFrom(q, settings);
+            case Query.DeleteRows   q -> deleteRows(q);
+            case Query.UpdateSet    q -> updateSet(q, settings);
+            default -> throw new IllegalArgumentException(String.format("%s queries do not change rows.", query.getClass().getSimpleName()));
         };
     }
+
+    /**
+     * Makes a query that changes rows, which has no result set to show.
+     */
+    private TableModel modify(Query query, ExecutionSettings settings) throws NoSuchElementException {
+        executeChange(query, settings);
+        return null;
+    }
+
+    private static IllegalStateException outsideSession(Query query) {
+        return new IllegalStateException(String.format("%s can only be used through a session.", query.getClass().getSimpleName().toUpperCase()));
+    }
 }
@@ -0,0 +1,43 @@
+/*
+ * ExecutionSettings v1.0
+ *
+ * database contributors
+ * Oct 16, 2026
+ */
+
+package engine.db;
+
+/**
+ * Settings that control how queries are executed, as opposed to what they return.
+ * @param sortMemory bytes of memory a sort may use before it writes sorted runs out to temporary files
+ * @param joinMemory bytes of memory the hash table of a join may use before the join partitions its inputs into
+ *                   temporary files
+ * @param parallelism number of threads a scan over a large table may use, or 1 to always scan sequentially
+ */
+public record ExecutionSettings(long sortMemory, long joinMemory, int parallelism) {
+    public static final ExecutionSettings DEFAULT = new ExecutionSettings(64L * 1024 * 1024, 64L * 1024 * 1024, Runtime.getRuntime().availableProcessors());
+
+    public ExecutionSettings {
+        if (sortMemory <= 0) {
+            throw new IllegalArgumentException("Sort memory must be positive.");
+        }
+        if (joinMemory <= 0) {
+            throw new IllegalArgumentException("Join memory must be positive.");
+        }
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1.");
+        }
+    }
+
+    public ExecutionSettings withSortMemory(long sortMemory) {
+        return new ExecutionSettings(sortMemory, joinMemory, parallelism);
+    }
+
+    public ExecutionSettings withJoinMemory(long joinMemory) {
+        return new ExecutionSettings(sortMemory, joinMemory, parallelism);
+    }
+
+    public ExecutionSettings withParallelism(int parallelism) {
+        return new ExecutionSettings(sortMemory, joinMemory, parallelism);
+    }
+}
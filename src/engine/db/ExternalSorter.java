@@ -0,0 +1,232 @@
+/*
+ * ExternalSorter v1.0
+ *
+ * database contributors
+ * Oct 16, 2026
+ */
+
+package engine.db;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.*;
+
+/**
+ * Sorts any number of records within a fixed memory budget. Records are gathered in memory until the budget is used
+ * up, then sorted and written out to a {@link SpillFile} as a run. Once every record has been added, the runs are
+ * merged by a priority queue that holds the next record of each run, in several passes if there are too many runs to
+ * open at once. If every record fits in the budget, nothing is written to disk at all.
+ */
+public final class ExternalSorter<T> implements AutoCloseable {
+    /**
+     * Encodes records into a compact binary format for spilling.
+     */
+    public interface Codec<T> {
+        void write(DataOutput out, T record) throws IOException;
+
+        T read(DataInput in) throws IOException;
+
+        /**
+         * Returns roughly how many bytes of memory the record takes up.
+         */
+        long size(T record);
+    }
+
+    // Number of runs merged at once, which bounds the number of open files
+    private static final int MAX_FAN_IN = 64;
+
+    private record Run(SpillFile file, long count) {}
+
+    private final Comparator<T> comparator;
+    private final Codec<T> codec;
+    private final long memoryBudget;
+
+    private final List<T> buffer;
+    private long bufferedBytes;
+    private final List<Run> runs;
+
+    /**
+     * @param memoryBudget bytes of memory records may take up before they are written out
+     */
+    public ExternalSorter(Comparator<T> comparator, Codec<T> codec, long memoryBudget) {
+        this.comparator = comparator;
+        this.codec = codec;
+        this.memoryBudget = memoryBudget;
+        this.buffer = new ArrayList<>();
+        this.runs = new ArrayList<>();
+    }
+
+    /**
+     * Adds a record to be sorted.
+     * @throws UncheckedIOException if a run cannot be written out.
+     */
+    public void add(T record) throws UncheckedIOException {
+        buffer.add(record);
+        bufferedBytes += codec.size(record);
+
+        if (bufferedBytes >= memoryBudget) {
+            spill();
+        }
+    }
+
+    /**
+     * Returns the number of runs that have been written out so far.
+     */
+    public int getRunCount() {
+        return runs.size();
+    }
+
+    /**
+     * Returns every record added so far in sorted order. Records that compare equal come out in no particular order.
+     * May only be called once, after the last record has been added.
+     * @throws UncheckedIOException if a run cannot be read or written.
+     */
+    public Iterator<T> sorted() throws UncheckedIOException {
+        if (runs.isEmpty()) {
+            buffer.sort(comparator);
+            return buffer.iterator();
+        }
+
+        spill();
+
+        // Merge groups of runs into longer runs until they can all be merged at once.
+        while (runs.size() > MAX_FAN_IN) {
+            List<Run> group = new ArrayList<>(runs.subList(0, MAX_FAN_IN));
+            runs.subList(0, MAX_FAN_IN).clear();
+            runs.add(mergeRuns(group));
+        }
+
+        return merge(runs.stream().map(this::open).toList());
+    }
+
+    /**
+     * Sorts the buffered records and writes them out as a new run.
+     */
+    private void spill() throws UncheckedIOException {
+        if (buffer.isEmpty()) {
+            return;
+        }
+
+        buffer.sort(comparator);
+
+        SpillFile file = new SpillFile();
+        runs.add(new Run(file, buffer.size()));
+
+        try {
+            for (T record : buffer) {
+                codec.write(file.getOutput(), record);
+            }
+        } catch (IOException err) {
+            throw new UncheckedIOException("Unable to write a sorted run.", err);
+        }
+
+        buffer.clear();
+        bufferedBytes = 0;
+    }
+
+    /**
+     * Merges runs into a single run, and deletes them.
+     */
+    private Run mergeRuns(List<Run> group) throws UncheckedIOException {
+        SpillFile file = new SpillFile();
+        long count = 0;
+        boolean merged = false;
+
+        try {
+            Iterator<T> records = merge(group.stream().map(this::open).toList());
+
+            while (records.hasNext()) {
+                Cancellation.check();
+                codec.write(file.getOutput(), records.next());
+                count++;
+            }
+            merged = true;
+        } catch (IOException err) {
+            throw new UncheckedIOException("Unable to write a merged run.", err);
+        } finally {
+            for (Run run : group) {
+                run.file().close();
+            }
+            if (!merged) {
+                file.close();
+            }
+        }
+
+        return new Run(file, count);
+    }
+
+    /**
+     * Reads a run back in the order it was written.
+     */
+    private Iterator<T> open(Run run) {
+        DataInput in = run.file().read();
+
+        return new Iterator<>() {
+            private long remaining = run.count();
+
+            public boolean hasNext() {
+                return remaining > 0;
+            }
+
+            public T next() {
+                if (remaining == 0) {
+                    throw new NoSuchElementException();
+                }
+
+                remaining--;
+                try {
+                    return codec.read(in);
+                } catch (IOException err) {
+                    throw new UncheckedIOException("Unable to read a sorted run.", err);
+                }
+            }
+        };
+    }
+
+    /**
+     * Merges sorted iterators with a priority queue that holds the next record of each one.
+     */
+    private Iterator<T> merge(List<Iterator<T>> sources) {
+        record Head<T>(T record, Iterator<T> source) {}
+
+        PriorityQueue<Head<T>> heads = new PriorityQueue<>(Math.max(1, sources.size()), (a, b) -> comparator.compare(a.record(), b.record()));
+        for (Iterator<T> source : sources) {
+            if (source.hasNext()) {
+                heads.add(new Head<>(source.next(), source));
+            }
+        }
+
+        return new Iterator<>() {
+            public boolean hasNext() {
+                return !heads.isEmpty();
+            }
+
+            public T next() {
+                Head<T> head = heads.poll();
+                if (head == null) {
+                    throw new NoSuchElementException();
+                }
+
+                if (head.source().hasNext()) {
+                    heads.add(new Head<>(head.source().next(), head.source()));
+                }
+
+                return head.record();
+            }
+        };
+    }
+
+    /**
+     * Deletes every run that has been written out.
+     */
+    @Override
+    public void close() {
+        for (Run run : runs) {
+            run.file().close();
+        }
+        runs.clear();
+        buffer.clear();
+    }
+}
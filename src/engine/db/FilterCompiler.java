@@ -0,0 +1,128 @@
+/*
+ * FilterCompiler v1.0
+ *
+ * database contributors
+ * Oct 16, 2026
+ */
+
+package engine.db;
+
+import engine.sql.Expression;
+import engine.sql.Token;
+
+import java.util.BitSet;
+import java.util.function.IntPredicate;
+
+/**
+ * Compiles a filter {@link Expression} into a tree of specialized row predicates once per query.
+ * Column vectors, operators and literal values are all resolved up front, so testing a row only reads primitive data
+ * and never allocates, looks up a column by name or switches on a type.
+ */
+public class FilterCompiler {
+    private static final IntPredicate NEVER = (row) -> false;
+
+    /**
+     * Compiles a filter against the columns of a table.
+     * @param table table whose rows will be tested
+     * @param filter expression to compile
+     * @return predicate that takes a row index and returns true if the row satisfies the filter
+     * @throws IllegalArgumentException if a column does not exist or a literal does not match its column type.
+     */
+    public static IntPredicate compile(Table table, Expression filter) throws IllegalArgumentException {
+        return switch (filter) {
+            case Expression.Comparison comparison -> compileComparison(
+                table.getColumn(table.getColumnIndex(comparison.ident().ident())),
+                comparison.op().type(),
+                comparison.value()
+            );
+            case Expression.Binary binary -> {
+                IntPredicate lhs = compile(table, binary.lhs());
+                IntPredicate rhs = compile(table, binary.rhs());
+
+                yield switch (binary.op().type()) {
+                    case AND -> (row) -> lhs.test(row) && rhs.test(row);
+                    case OR  -> (row) -> lhs.test(row) || rhs.test(row);
+                };
+            }
+        };
+    }
+
+    private static IntPredicate compileComparison(Column column, Token.OperatorType op, Token.Literal value) throws IllegalArgumentException {
+        // Converting the literal to a key rejects type mismatches before a single row is read.
+        Object key = column.toKey(value);
+
+        return switch (column) {
+            case Column.IntegerColumn c -> compileInteger(c, op, (int) key);
+            case Column.BooleanColumn c -> compileBoolean(c, op, (boolean) key);
+            case Column.VarCharColumn c -> compileVarChar(c, op, (String) key);
+        };
+    }
+
+    private static IntPredicate compileInteger(Column.IntegerColumn column, Token.OperatorType op, int value) {
+        // Null values never satisfy a comparison
+        return switch (op) {
+            case ASSIGN, EQUAL -> (row) -> column.getInt(row) == value && !column.isNull(row);
+            case NOT_EQUAL     -> (row) -> column.getInt(row) != value && !column.isNull(row);
+            case LESS          -> (row) -> column.getInt(row) < value && !column.isNull(row);
+            case LESS_EQUAL    -> (row) -> column.getInt(row) <= value && !column.isNull(row);
+            case GREATER       -> (row) -> column.getInt(row) > value && !column.isNull(row);
+            case GREATER_EQUAL -> (row) -> column.getInt(row) >= value && !column.isNull(row);
+        };
+    }
+
+    private static IntPredicate compileBoolean(Column.BooleanColumn column, Token.OperatorType op, boolean value) {
+        // There are only two possible values, so work out up front which of them satisfy the comparison.
+        boolean matchesTrue = evaluate(op, Boolean.compare(true, value));
+        boolean matchesFalse = evaluate(op, Boolean.compare(false, value));
+
+        if (matchesTrue && matchesFalse) {
+            return (row) -> !column.isNull(row);
+        } else if (matchesTrue) {
+            return (row) -> column.getBoolean(row) && !column.isNull(row);
+        } else if (matchesFalse) {
+            return (row) -> !column.getBoolean(row) && !column.isNull(row);
+        } else {
+            return NEVER;
+        }
+    }
+
+    private static IntPredicate compileVarChar(Column.VarCharColumn column, Token.OperatorType op, String value) {
+        // Strings stored inline are mostly distinct, so there is nothing to gain from comparing each one only once.
+        if (!column.isDictionaryEncoded()) {
+            Token.Literal literal = new Token.Literal.String(value);
+            return (row) -> !column.isNull(row) && evaluate(op, column.compare(row, literal));
+        }
+
+        // Every row holds a dictionary code, so compare the literal against each distinct string once
+        // and reduce the per-row test to a bit lookup.
+        BitSet matchingCodes = new BitSet(column.getDictionarySize());
+
+        for (int code = 0; code < column.getDictionarySize(); code++) {
+            if (evaluate(op, column.getDictionaryEntry(code).compareTo(value))) {
+                matchingCodes.set(code);
+            }
+        }
+
+        if (matchingCodes.isEmpty()) {
+            return NEVER;
+        }
+
+        return (row) -> matchingCodes.get(column.getCode(row)) && !column.isNull(row);
+    }
+
+    /**
+     * Interprets the result of a comparison with an operator.
+     * @param order relative order between a datum and a literal, as returned by a comparator
+     */
+    private static boolean evaluate(Token.OperatorType op, int order) {
+        return switch (op) {
+            // SQL lets you use both `=` and `==` for equality comparison
+            case ASSIGN, EQUAL -> order == 0;
+            case NOT_EQUAL     -> order != 0;
+            case LESS          -> order < 0;
+            case LESS_EQUAL    -> order <= 0;
+            case GREATER       -> order > 0;
+            case GREATER_EQUAL -> order >= 0;
+        };
+    }
+}
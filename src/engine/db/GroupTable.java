@@ -0,0 +1,109 @@
+/*
+ * GroupTable v1.0
+ *
+ * database contributors
+ * Oct 16, 2026
+ */
+
+package engine.db;
+
+/**
+ * Open-addressing hash table that numbers the distinct primitive keys it is given, in the order they are first seen,
+ * so that aggregates and joins can keep their state in plain arrays indexed by group number. Keys are stored in a
+ * `long[]` and looked up by linear probing, so grouping never boxes a key or allocates an entry per group.
+ */
+final class GroupTable {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private long[] keys;
+    // Group number plus one of the key in the same slot, or 0 if the slot is empty
+    private int[] groups;
+    private int size;
+
+    GroupTable() {
+        this.keys = new long[INITIAL_CAPACITY];
+        this.groups = new int[INITIAL_CAPACITY];
+        this.size = 0;
+    }
+
+    /**
+     * Returns the number of distinct keys seen so far.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Returns the group number of a key, and numbers it as the next group if it has not been seen before.
+     */
+    int groupOf(long key) {
+        int mask = keys.length - 1;
+
+        for (int slot = hash(key) & mask; ; slot = (slot + 1) & mask) {
+            int group = groups[slot];
+
+            if (group == 0) {
+                keys[slot] = key;
+                groups[slot] = ++size;
+
+                // Keep the table at most half full, so that probe sequences stay short.
+                if (size * 2 > keys.length) {
+                    grow();
+                }
+
+                return size - 1;
+            }
+
+            if (keys[slot] == key) {
+                return group - 1;
+            }
+        }
+    }
+
+    /**
+     * Returns the group number of a key, or -1 if it has not been seen.
+     */
+    int find(long key) {
+        int mask = keys.length - 1;
+
+        for (int slot = hash(key) & mask; ; slot = (slot + 1) & mask) {
+            int group = groups[slot];
+
+            if (group == 0 || keys[slot] == key) {
+                return group - 1;
+            }
+        }
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldGroups = groups;
+
+        keys = new long[oldKeys.length * 2];
+        groups = new int[oldGroups.length * 2];
+        int mask = keys.length - 1;
+
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldGroups[i] != 0) {
+                int slot = hash(oldKeys[i]) & mask;
+
+                while (groups[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+
+                keys[slot] = oldKeys[i];
+                groups[slot] = oldGroups[i];
+            }
+        }
+    }
+
+    /**
+     * Spreads the bits of a key, since keys are often small consecutive numbers, e.g. dictionary codes. Also used by
+     * hash joins to pick the partition of a key, from the top bits.
+     */
+    static int hash(long key) {
+        key = (key ^ (key >>> 33)) * 0xff51afd7ed558ccdL;
+        key = (key ^ (key >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return (int) (key ^ (key >>> 33));
+    }
+}
@@ -0,0 +1,370 @@
+/*
+ * Index v1.0
+ *
+ * database contributors
+ * Oct 16, 2026
+ */
+
+package engine.db;
+
+import engine.sql.Token;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.IntStream;
+
+/**
+ * Secondary index that maps the non-null values of a single column to the rows that hold them.
+ * Has the following variants:
+ *  - HashIndex     Answers equality lookups in constant time.
+ *  - OrderedIndex  Keeps keys in a skip list, which also answers range lookups and yields rows in sorted order.
+ */
+public abstract sealed class Index permits Index.HashIndex, Index.OrderedIndex {
+    protected final String name;
+    protected final int columnIndex;
+    protected final Map<Object, RowList> entries;
+
+    protected Index(String name, int columnIndex, Map<Object, RowList> entries) {
+        this.name = name;
+        this.columnIndex = columnIndex;
+        this.entries = entries;
+    }
+
+    /**
+     * Creates an empty index of the given type.
+     * @param name name of the index
+     * @param columnIndex position of the indexed column within its table
+     * @param type index structure to use
+     */
+    public static Index create(String name, int columnIndex, Token.IndexTypeType type) {
+        return switch (type) {
+            case HASH -> new HashIndex(name, columnIndex);
+            case BTREE -> new OrderedIndex(name, columnIndex);
+        };
+    }
+
+    /**
+     * Builds an index over the existing rows of a column in one go. Each key gets a row list of exactly the right
+     * size, with its rows in ascending order.
+     * @param name name of the index
+     * @param columnIndex position of the indexed column within its table
+     * @param type index structure to use
+     * @param column column to index
+     * @param rowCount number of rows of the column to index
+     */
+    public static Index build(String name, int columnIndex, Token.IndexTypeType type, Column column, int rowCount) {
+        Object[] keys = new Object[rowCount];
+        int nonNull = 0;
+
+        for (int row = 0; row < rowCount; row++) {
+            Cancellation.checkRow(row);
+            if (!column.isNull(row)) {
+                keys[row] = column.getKey(row);
+                nonNull++;
+            }
+        }
+
+        return switch (type) {
+            case HASH -> buildHash(name, columnIndex, keys);
+            case BTREE -> buildOrdered(name, columnIndex, keys, nonNull);
+        };
+    }
+
+    /**
+     * Groups rows by key without sorting them: the rows of each key are counted first, and then added in ascending
+     * order to lists of the counted size.
+     */
+    private static HashIndex buildHash(String name, int columnIndex, Object[] keys) {
+        Map<Object, int[]> counts = new HashMap<>();
+
+        for (Object key : keys) {
+            if (key != null) {
+                counts.computeIfAbsent(key, (k) -> new int[1])[0]++;
+            }
+        }
+
+        Map<Object, RowList> entries = new ConcurrentHashMap<>(counts.size() * 4 / 3 + 1);
+
+        for (int row = 0; row < keys.length; row++) {
+            if (keys[row] != null) {
+                entries.computeIfAbsent(keys[row], (key) -> new RowList(counts.get(key)[0])).add(row);
+            }
+        }
+
+        return new HashIndex(name, columnIndex, entries);
+    }
+
+    /**
+     * Sorts rows on their keys, and adds the keys to the skip list in ascending order, so that each one is linked in
+     * at the end of the list.
+     */
+    private static OrderedIndex buildOrdered(String name, int columnIndex, Object[] keys, int nonNull) {
+        Integer[] rows = new Integer[nonNull];
+        for (int row = 0, i = 0; row < keys.length; row++) {
+            if (keys[row] != null) {
+                rows[i++] = row;
+            }
+        }
+
+        // The sort is stable, so the rows of each key stay in ascending order, and already sorted columns, e.g. ids,
+        // are sorted in a single pass.
+        Arrays.sort(rows, (a, b) -> OrderedIndex.compareKeys(keys[a], keys[b]));
+
+        OrderedIndex index = new OrderedIndex(name, columnIndex);
+
+        for (int from = 0, to; from < rows.length; from = to) {
+            Object key = keys[rows[from]];
+
+            for (to = from + 1; to < rows.length && OrderedIndex.compareKeys(keys[rows[to]], key) == 0; to++) {}
+
+            int[] run = new int[to - from];
+            for (int i = 0; i < run.length; i++) {
+                run[i] = rows[from + i];
+            }
+
+            index.entries.put(key, new RowList(run));
+        }
+
+        return index;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getColumnIndex() {
+        return columnIndex;
+    }
+
+    public abstract Token.IndexTypeType getType();
+
+    /**
+     * Returns the number of distinct keys stored in the index.
+     */
+    public int getDistinctKeys() {
+        return entries.size();
+    }
+
+    /**
+     * Records that the given row holds the given key.
+     */
+    public void add(Object key, int row) {
+        entries.computeIfAbsent(key, (k) -> new RowList()).add(row);
+    }
+
+    /**
+     * Forgets that the given row holds the given key.
+     */
+    public void remove(Object key, int row) {
+        RowList rows = entries.get(key);
+
+        if (rows != null) {
+            rows.remove(row);
+            if (rows.size() == 0) {
+                entries.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Drops deleted rows and renumbers the remaining rows after the table has been compacted.
+     * @param removed set of row indices that were removed
+     * @param positions new index of every row that was kept, indexed by its old index
+     */
+    public void compact(BitSet removed, int[] positions) {
+        entries.values().removeIf((rows) -> !rows.compact(removed, positions));
+    }
+
+    /**
+     * Finds every row whose key satisfies `key <op> value`.
+     * @return matching row indices, or null if this index cannot answer the comparison
+     */
+    public abstract IntStream lookup(Token.OperatorType op, Object value);
+
+    /**
+     * Returns true if this index yields rows in sorted key order.
+     */
+    public abstract boolean isOrdered();
+
+    /**
+     * Returns true if {@link #lookup(Token.OperatorType, Object)} can answer comparisons with the given operator.
+     */
+    public abstract boolean supports(Token.OperatorType op);
+
+    /**
+     * Yields every indexed row in key order.
+     * @param descending whether to yield the largest keys first
+     * @throws UnsupportedOperationException if the index is not ordered
+     */
+    public IntStream scan(boolean descending) {
+        throw new UnsupportedOperationException(String.format("Index '%s' is not ordered.", name));
+    }
+
+    protected static IntStream flatten(Collection<RowList> rows) {
+        return rows.stream().flatMapToInt(RowList::stream);
+    }
+
+    public static final class HashIndex extends Index {
+        HashIndex(String name, int columnIndex) {
+            super(name, columnIndex, new ConcurrentHashMap<>());
+        }
+
+        private HashIndex(String name, int columnIndex, Map<Object, RowList> entries) {
+            super(name, columnIndex, entries);
+        }
+
+        @Override
+        public Token.IndexTypeType getType() {
+            return Token.IndexTypeType.HASH;
+        }
+
+        @Override
+        public boolean isOrdered() {
+            return false;
+        }
+
+        @Override
+        public boolean supports(Token.OperatorType op) {
+            return op == Token.OperatorType.ASSIGN || op == Token.OperatorType.EQUAL;
+        }
+
+        @Override
+        public IntStream lookup(Token.OperatorType op, Object value) {
+            return switch (op) {
+                case ASSIGN, EQUAL -> {
+                    RowList rows = entries.get(value);
+                    yield rows == null ? IntStream.empty() : rows.stream();
+                }
+                default -> null;
+            };
+        }
+    }
+
+    public static final class OrderedIndex extends Index {
+        OrderedIndex(String name, int columnIndex) {
+            super(name, columnIndex, new ConcurrentSkipListMap<>(OrderedIndex::compareKeys));
+        }
+
+        @SuppressWarnings("unchecked")
+        static int compareKeys(Object a, Object b) {
+            return ((Comparable<Object>) a).compareTo(b);
+        }
+
+        private NavigableMap<Object, RowList> tree() {
+            return (NavigableMap<Object, RowList>) entries;
+        }
+
+        @Override
+        public Token.IndexTypeType getType() {
+            return Token.IndexTypeType.BTREE;
+        }
+
+        @Override
+        public boolean isOrdered() {
+            return true;
+        }
+
+        @Override
+        public boolean supports(Token.OperatorType op) {
+            return op != Token.OperatorType.NOT_EQUAL;
+        }
+
+        @Override
+        public IntStream lookup(Token.OperatorType op, Object value) {
+            NavigableMap<Object, RowList> tree = tree();
+
+            return switch (op) {
+                case ASSIGN, EQUAL -> {
+                    RowList rows = tree.get(value);
+                    yield rows == null ? IntStream.empty() : rows.stream();
+                }
+                case LESS          -> flatten(tree.headMap(value, false).values());
+                case LESS_EQUAL    -> flatten(tree.headMap(value, true).values());
+                case GREATER       -> flatten(tree.tailMap(value, false).values());
+                case GREATER_EQUAL -> flatten(tree.tailMap(value, true).values());
+                case NOT_EQUAL     -> null;
+            };
+        }
+
+        @Override
+        public IntStream scan(boolean descending) {
+            NavigableMap<Object, RowList> tree = descending ? tree().descendingMap() : tree();
+            return flatten(tree.values());
+        }
+    }
+
+    /**
+     * Growable list of row indices that share a single key. Any number of threads may stream the list while a single
+     * thread appends to it, since a grown array and each new row are published before the size that covers them.
+     */
+    static final class RowList {
+        private volatile int[] rows;
+        private volatile int size;
+
+        RowList() {
+            this(1);
+        }
+
+        /**
+         * Creates an empty list with room for the given number of rows.
+         */
+        RowList(int capacity) {
+            this.rows = new int[Math.max(capacity, 1)];
+            this.size = 0;
+        }
+
+        /**
+         * Creates a list that holds the given rows, in ascending order.
+         */
+        RowList(int[] rows) {
+            this.rows = rows;
+            this.size = rows.length;
+        }
+
+        int size() {
+            return size;
+        }
+
+        void add(int row) {
+            if (size == rows.length) {
+                rows = Arrays.copyOf(rows, rows.length * 2);
+            }
+            rows[size] = row;
+            size = size + 1;
+        }
+
+        void remove(int row) {
+            for (int i = 0; i < size; i++) {
+                if (rows[i] == row) {
+                    System.arraycopy(rows, i + 1, rows, i, size - i - 1);
+                    size--;
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Drops removed rows and renumbers the rest.
+         * @return true if any rows remain
+         */
+        boolean compact(BitSet removed, int[] positions) {
+            int write = 0;
+
+            for (int read = 0; read < size; read++) {
+                if (!removed.get(rows[read])) {
+                    rows[write++] = positions[rows[read]];
+                }
+            }
+
+            size = write;
+            return size > 0;
+        }
+
+        IntStream stream() {
+            // Read the size first, so the array is at least as new as the size.
+            int size = this.size;
+            return Arrays.stream(rows, 0, size);
+        }
+    }
+}
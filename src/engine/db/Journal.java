@@ -0,0 +1,48 @@
+/*
+ * Journal v1.0
+ *
+ * database contributors
+ * Oct 16, 2026
+ */
+
+package engine.db;
+
+import engine.sql.Query;
+
+import java.util.List;
+
+/**
+ * Receives every change made to a {@link Database}, so that it can be made durable.
+ */
+public interface Journal {
+    /**
+     * Records a query that changed the database. Called right after the query has been applied, while the tables it
+     * changed are still locked, so changes to the same table are recorded in the order they were applied.
+     * @return position of the record, to be passed to {@link #commit(long)}
+     * @throws RuntimeException if the change could not be recorded.
+     */
+    long record(Query query) throws RuntimeException;
+
+    /**
+     * Records the changes made by a transaction as a single unit, so that either all or none of them are recovered.
+     * Called right after the changes have been applied, while the tables they changed are still locked.
+     * @return position of the record, to be passed to {@link #commit(long)}
+     * @throws RuntimeException if the changes could not be recorded.
+     */
+    long record(List<Query> queries) throws RuntimeException;
+
+    /**
+     * Waits until a recorded change is as durable as the journal promises to make it. Called after the tables the
+     * change touched have been unlocked, so that many writers can wait for the same flush.
+     * @param position position returned by {@link #record(Query)} or {@link #record(List)}
+     * @throws RuntimeException if the change could not be made durable.
+     */
+    void commit(long position) throws RuntimeException;
+
+    /**
+     * Records the entire state of the database, used when it was replaced wholesale instead of changed by queries.
+     * Called while no query can change the database.
+     * @throws RuntimeException if the state could not be recorded.
+     */
+    void checkpoint(Database database) throws RuntimeException;
+}
@@ -0,0 +1,148 @@
+/*
+ * LruCache v1.0
+ *
+ * database contributors
+ * Oct 16, 2026
+ */
+
+package engine.db;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.BiPredicate;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+
+/**
+ * Bounded map that evicts the least recently used entries once it holds too many entries, or once the total weight
+ * of its values grows too large, and counts how often lookups find what they are looking for. Safe to use from any
+ * number of threads.
+ */
+public class LruCache<K, V> {
+    private final int capacity;
+    private final long maxWeight;
+    private final ToLongFunction<V> weigher;
+    private final LinkedHashMap<K, V> entries;
+
+    private long weight;
+    private long hits;
+    private long misses;
+
+    /**
+     * @param capacity maximum number of entries to keep
+     */
+    public LruCache(int capacity) {
+        this(capacity, Long.MAX_VALUE, (value) -> 1);
+    }
+
+    /**
+     * @param capacity maximum number of entries to keep
+     * @param maxWeight maximum total weight of the values to keep; values heavier than this are never kept
+     * @param weigher computes the weight of a value, which must not change while it is cached
+     */
+    public LruCache(int capacity, long maxWeight, ToLongFunction<V> weigher) {
+        this.capacity = capacity;
+        this.maxWeight = maxWeight;
+        this.weigher = weigher;
+        // Access order moves every entry that is looked up to the end, so the eldest entry is the least recently used.
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * Looks up an entry and marks it as the most recently used.
+     * @return the cached value, or null if there is none.
+     */
+    public synchronized V get(K key) {
+        return get(key, (value) -> true);
+    }
+
+    /**
+     * Looks up an entry that is still valid and marks it as the most recently used. An entry that is no longer valid
+     * is removed, and counts as a miss.
+     * @return the cached value, or null if there is no valid one.
+     */
+    public synchronized V get(K key, Predicate<V> valid) {
+        V value = entries.get(key);
+
+        if (value != null && !valid.test(value)) {
+            remove(key);
+            value = null;
+        }
+
+        if (value == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+
+        return value;
+    }
+
+    /**
+     * Adds or replaces an entry, evicting the least recently used entries until the cache is within its bounds.
+     */
+    public synchronized void put(K key, V value) {
+        long weight = weigher.applyAsLong(value);
+
+        remove(key);
+        if (weight > maxWeight) {
+            return;
+        }
+
+        entries.put(key, value);
+        this.weight += weight;
+
+        Iterator<V> eldest = entries.values().iterator();
+        while (entries.size() > capacity || this.weight > maxWeight) {
+            this.weight -= weigher.applyAsLong(eldest.next());
+            eldest.remove();
+        }
+    }
+
+    private void remove(K key) {
+        V value = entries.remove(key);
+
+        if (value != null) {
+            weight -= weigher.applyAsLong(value);
+        }
+    }
+
+    /**
+     * Removes every entry that matches a predicate.
+     */
+    public synchronized void removeIf(BiPredicate<K, V> predicate) {
+        entries.entrySet().removeIf((entry) -> {
+            if (!predicate.test(entry.getKey(), entry.getValue())) {
+                return false;
+            }
+
+            weight -= weigher.applyAsLong(entry.getValue());
+            return true;
+        });
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        weight = 0;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Returns the total weight of the cached values.
+     */
+    public synchronized long getWeight() {
+        return weight;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+}
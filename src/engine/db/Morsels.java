@@ -0,0 +1,105 @@
+/*
+ * Morsels v1.0
+ *
+ * database contributors
+ * Oct 16, 2026
+ */
+
+package engine.db;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.IntPredicate;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Scans a table in parallel by splitting its rows into fixed-size ranges, called morsels, which are filtered on a
+ * shared fork/join pool. Only a few morsels per query are in flight at a time, and their results are handed back in
+ * storage order as they finish, so a scan yields exactly the same rows in the same order as a sequential one, and a
+ * consumer that stops early, e.g. because of a `LIMIT`, does not make the whole table get scanned.
+ */
+final class Morsels {
+    // Rows per morsel, small enough to spread work evenly and large enough to make handing it over worthwhile
+    static final int MORSEL_SIZE = 16 * 1024;
+
+    // Tables with fewer rows are scanned sequentially, since a parallel scan would not save enough to pay off
+    static final int PARALLEL_THRESHOLD = 4 * MORSEL_SIZE;
+
+    private static final ForkJoinPool POOL = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+    private Morsels() {}
+
+    /**
+     * Returns true if a table is large enough to be worth scanning in parallel.
+     */
+    static boolean worthwhile(Table table, int parallelism) {
+        return parallelism > 1 && table.getRowCount() >= PARALLEL_THRESHOLD;
+    }
+
+    /**
+     * Yields the rows below the given row count that satisfy a predicate, in ascending order. The predicate is
+     * tested on pool threads, so it must not depend on the calling thread, e.g. through {@link Cancellation#check()}.
+     * @param parallelism number of morsels that may be scanned at the same time
+     */
+    static IntStream scan(int rowCount, IntPredicate rows, int parallelism) {
+        int morsels = (int) ((rowCount + (long) MORSEL_SIZE - 1) / MORSEL_SIZE);
+
+        Iterator<int[]> results = new Iterator<>() {
+            private final ArrayDeque<ForkJoinTask<int[]>> pending = new ArrayDeque<>();
+            private int next = 0;
+            // Number of morsels handed back so far
+            private int done = 0;
+
+            public boolean hasNext() {
+                submit();
+                return !pending.isEmpty();
+            }
+
+            public int[] next() {
+                submit();
+
+                ForkJoinTask<int[]> task = pending.poll();
+                if (task == null) {
+                    throw new NoSuchElementException();
+                }
+
+                // Keep the pool busy while the caller works through this morsel.
+                submit();
+
+                try {
+                    int[] selected = task.join();
+                    int from = done++ * MORSEL_SIZE;
+
+                    // Counted on the calling thread, since the profile of the query is bound to it.
+                    QueryProfile.addScannedRows(Math.min((long) from + MORSEL_SIZE, rowCount) - from);
+                    return selected;
+                } catch (RuntimeException err) {
+                    for (ForkJoinTask<int[]> other : pending) {
+                        other.cancel(false);
+                    }
+                    pending.clear();
+                    throw err;
+                }
+            }
+
+            private void submit() {
+                while (pending.size() < parallelism && next < morsels) {
+                    int from = next++ * MORSEL_SIZE;
+                    int to = (int) Math.min((long) from + MORSEL_SIZE, rowCount);
+
+                    pending.add(POOL.submit(() -> IntStream.range(from, to).filter(rows).toArray()));
+                }
+            }
+        };
+
+        return StreamSupport
+            .stream(Spliterators.spliterator(results, morsels, Spliterator.ORDERED | Spliterator.NONNULL), false)
+            .flatMapToInt(IntStream::of);
+    }
+}
@@ -0,0 +1,1267 @@
+/*
+ * Plan v1.0
+ *
+ * database contributors
+ * Oct 16, 2026
+ */
+
+package engine.db;
+
+import engine.sql.Expression;
+import engine.sql.Query;
+import engine.sql.Token;
+
+import java.io.DataInput;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.PriorityQueue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.IntPredicate;
+import java.util.function.IntToLongFunction;
+import java.util.function.LongConsumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Algebraic data type that represents a physical operator tree produced by the {@link Planner}.
+ * Every operator yields a stream of row indices into its table. Has the following variants:
+ *  - Empty       Yields no rows, used when a filter can never be satisfied.
+ *  - TableScan   Yields every visible row in storage order.
+ *  - ParallelScan Yields the visible rows that satisfy an optional predicate in storage order, scanning chunks of
+ *                the table on several threads at once.
+ *  - IndexSeek   Yields the visible rows that satisfy a single comparison by looking them up in an index.
+ *  - IndexScan   Yields every visible row in the sort order of an ordered index.
+ *  - Union       Yields the rows of both inputs without duplicates, in storage order.
+ *  - Filter      Yields the rows of its input that satisfy a predicate.
+ *  - Sort        Yields the rows of its input sorted on one or more columns, spilling to disk once it runs out of
+ *                memory.
+ *  - TopN        Yields the first rows of its input in sorted order, keeping only that many rows in memory.
+ *  - Limit       Yields a range of the rows of its input, and stops reading its input once it has enough.
+ *  - Project     Yields the rows of its input and boxes the requested columns into {@link Value} objects.
+ * Queries with aggregates or `GROUP BY` produce groups rather than rows of the table, and are planned as an
+ * {@link Aggregation}, which has the following variants:
+ *  - HashAggregate      Groups the rows of its input in a hash table and computes aggregates over each group.
+ *  - MetadataAggregate  Answers aggregates over a whole table without scanning it: `COUNT(*)` from the row count of
+ *                       the table, and `MIN` and `MAX` from the ends of an ordered index.
+ *  - GroupLimit         Yields a range of the groups of its input.
+ * Queries with `JOIN` produce pairs of rows of two tables, and are planned as a {@link Join} under a
+ * {@link JoinProject}, which sorts, cuts off and boxes the pairs. The join variants are:
+ *  - HashJoin             Loads the smaller input into a hash table on its join column, and looks up each row of the
+ *                         other input in it.
+ *  - SortMergeJoin        Merges two inputs that are both sorted on their join columns.
+ *  - IndexNestedLoopJoin  Looks up each row of its input in an index over the join column of the other table.
+ * Tables and indexes hold every version of a row, so the access operators only yield the versions accepted by their
+ * visibility predicate, e.g. {@link Table#visibleTo(ReadView)}, and check whether the query has been cancelled as
+ * they go through rows. They also count those rows for the {@link QueryProfile} of the query.
+ */
+public sealed interface Plan {
+    /**
+     * Executes the operator.
+     * @return stream of row indices produced by this operator
+     */
+    IntStream rows();
+
+    /**
+     * Returns the number of rows the planner expects this operator to produce.
+     */
+    long estimatedRows();
+
+    /**
+     * Returns a short description of what the operator does, used by `EXPLAIN`.
+     */
+    String describe();
+
+    /**
+     * Returns the inputs to this operator.
+     */
+    List<Plan> children();
+
+    record Empty() implements Plan {
+        public IntStream rows() {
+            return IntStream.empty();
+        }
+
+        public long estimatedRows() {
+            return 0;
+        }
+
+        public String describe() {
+            return "Empty";
+        }
+
+        public List<Plan> children() {
+            return List.of();
+        }
+    }
+
+    record TableScan(Table table, IntPredicate visible) implements Plan {
+        public IntStream rows() {
+            return IntStream.range(0, table.getRowCount()).filter(QueryProfile.counting(Cancellation.checking(visible)));
+        }
+
+        public long estimatedRows() {
+            return table.getLiveRowCount();
+        }
+
+        public String describe() {
+            return String.format("TableScan on %s", table.getName());
+        }
+
+        public List<Plan> children() {
+            return List.of();
+        }
+    }
+
+    record ParallelScan(Table table, IntPredicate visible, Expression predicate, int parallelism, long estimatedRows) implements Plan {
+        public IntStream rows() {
+            IntPredicate rows = Cancellation.checking(visible);
+
+            if (predicate != null) {
+                rows = rows.and(FilterCompiler.compile(table, predicate));
+            }
+
+            return Morsels.scan(table.getRowCount(), rows, parallelism);
+        }
+
+        public String describe() {
+            return predicate == null
+                ? String.format("ParallelScan on %s (%d workers)", table.getName(), parallelism)
+                : String.format("ParallelScan on %s (%d workers, %s)", table.getName(), parallelism, Planner.format(predicate));
+        }
+
+        public List<Plan> children() {
+            return List.of();
+        }
+    }
+
+    record IndexSeek(Table table, IntPredicate visible, Index index, Expression.Comparison comparison, long estimatedRows) implements Plan {
+        public IntStream rows() {
+            Object key = table.getColumn(index.getColumnIndex()).toKey(comparison.value());
+
+            // Index lookups yield rows in key order, so restore storage order.
+            return index.lookup(comparison.op().type(), key).filter(QueryProfile.counting(Cancellation.checking(visible))).sorted();
+        }
+
+        public String describe() {
+            return String.format("IndexSeek on %s using %s (%s)", table.getName(), index.getName(), Planner.format(comparison));
+        }
+
+        public List<Plan> children() {
+            return List.of();
+        }
+    }
+
+    record IndexScan(Table table, IntPredicate visible, Index index, boolean descending) implements Plan {
+        public IntStream rows() {
+            // Null values are not indexed and come first in ascending order.
+            IntStream nulls = table.getColumn(index.getColumnIndex()).nullRows();
+
+            return (descending
+                ? IntStream.concat(index.scan(true), nulls)
+                : IntStream.concat(nulls, index.scan(false))).filter(QueryProfile.counting(Cancellation.checking(visible)));
+        }
+
+        public long estimatedRows() {
+            return table.getLiveRowCount();
+        }
+
+        public String describe() {
+            return String.format("IndexScan on %s using %s (%s)", table.getName(), index.getName(), descending ? "DESC" : "ASC");
+        }
+
+        public List<Plan> children() {
+            return List.of();
+        }
+    }
+
+    record Union(Plan lhs, Plan rhs) implements Plan {
+        public IntStream rows() {
+            return IntStream.concat(lhs.rows(), rhs.rows()).sorted().distinct();
+        }
+
+        public long estimatedRows() {
+            return lhs.estimatedRows() + rhs.estimatedRows();
+        }
+
+        public String describe() {
+            return "Union";
+        }
+
+        public List<Plan> children() {
+            return List.of(lhs, rhs);
+        }
+    }
+
+    record Filter(Plan input, Table table, Expression predicate, long estimatedRows) implements Plan {
+        public IntStream rows() {
+            return input.rows().filter(FilterCompiler.compile(table, predicate));
+        }
+
+        public String describe() {
+            return String.format("Filter (%s)", Planner.format(predicate));
+        }
+
+        public List<Plan> children() {
+            return List.of(input);
+        }
+    }
+
+    record Sort(Plan input, Table table, List<Query.OrderBy> order, long memoryBudget) implements Plan {
+        public IntStream rows() {
+            SortKey.Encoder keys = new SortKey.Encoder(table, order);
+            return sort(input.rows().mapToObj(keys::encode), memoryBudget).mapToInt((row) -> (int) row);
+        }
+
+        /**
+         * Sorts keys, writing them out to spill files if they do not fit into the memory budget.
+         * @return rows of the keys in order
+         */
+        static LongStream sort(Stream<SortKey> keys, long memoryBudget) {
+            // Only the sorted row numbers are kept once the sort is done, so that no spill file outlives it.
+            try (ExternalSorter<SortKey> sorter = new ExternalSorter<>(SortKey.COMPARATOR, SortKey.CODEC, memoryBudget)) {
+                keys.forEach(sorter::add);
+
+                LongStream.Builder rows = LongStream.builder();
+                sorter.sorted().forEachRemaining((key) -> rows.add(key.row()));
+                return rows.build();
+            }
+        }
+
+        public long estimatedRows() {
+            return input.estimatedRows();
+        }
+
+        public String describe() {
+            return String.format("Sort (%s)", Planner.format(order));
+        }
+
+        public List<Plan> children() {
+            return List.of(input);
+        }
+    }
+
+    record TopN(Plan input, Table table, List<Query.OrderBy> order, int count) implements Plan {
+        private static final int INITIAL_HEAP_CAPACITY = 16;
+
+        public IntStream rows() {
+            SortKey.Encoder keys = new SortKey.Encoder(table, order);
+            return top(input.rows().mapToObj(keys::encode), count).mapToInt((row) -> (int) row);
+        }
+
+        /**
+         * Finds the first keys in sort order without sorting the rest.
+         * @return rows of the first `count` keys in order
+         */
+        static LongStream top(Stream<SortKey> keys, int count) {
+            // Keeps the best rows seen so far, with the worst of them on top so that it can be replaced. The heap grows
+            // as rows come in, so that it is no larger than the input even if the count is.
+            PriorityQueue<SortKey> heap = new PriorityQueue<>(Math.min(count, INITIAL_HEAP_CAPACITY) + 1, SortKey.COMPARATOR.reversed());
+
+            keys.forEach((key) -> {
+                if (heap.size() < count) {
+                    heap.add(key);
+                } else if (SortKey.COMPARATOR.compare(key, heap.peek()) < 0) {
+                    heap.poll();
+                    heap.add(key);
+                }
+            });
+
+            return heap.stream().sorted(SortKey.COMPARATOR).mapToLong(SortKey::row);
+        }
+
+        public long estimatedRows() {
+            return Math.min(count, input.estimatedRows());
+        }
+
+        public String describe() {
+            return String.format("TopN (%s, %d rows)", Planner.format(order), count);
+        }
+
+        public List<Plan> children() {
+            return List.of(input);
+        }
+    }
+
+    record Limit(Plan input, long offset, long count) implements Plan {
+        public IntStream rows() {
+            // Streams are lazy, so the input stops producing rows once the limit has been reached.
+            return input.rows().skip(offset).limit(count);
+        }
+
+        public long estimatedRows() {
+            return Math.max(0, Math.min(count, input.estimatedRows() - offset));
+        }
+
+        public String describe() {
+            return count == Long.MAX_VALUE
+                ? String.format("Limit (offset %d)", offset)
+                : String.format("Limit (%d, offset %d)", count, offset);
+        }
+
+        public List<Plan> children() {
+            return List.of(input);
+        }
+    }
+
+    record Project(Plan input, Table table, int[] columns) implements Plan {
+        public IntStream rows() {
+            return input.rows();
+        }
+
+        /**
+         * Executes the plan and boxes only the projected columns of each row.
+         * @return stream of rows containing the projected columns
+         */
+        public Stream<List<Value>> materialize() {
+            return input.rows().mapToObj((row) -> table.materializeRow(row, columns));
+        }
+
+        /**
+         * Returns the names of the projected columns, in order.
+         */
+        public List<String> columnNames() {
+            return Arrays.stream(columns)
+                .mapToObj((column) -> table.getColumns().get(column).name())
+                .toList();
+        }
+
+        /**
+         * Returns the names and kinds of value of the projected columns, in order.
+         */
+        public List<ResultColumn> resultColumns() {
+            return Arrays.stream(columns)
+                .mapToObj((column) -> table.getColumns().get(column))
+                .map((column) -> new ResultColumn(column.name(), Planner.valueType(column.type())))
+                .toList();
+        }
+
+        public long estimatedRows() {
+            return input.estimatedRows();
+        }
+
+        public String describe() {
+            return String.format("Project (%s)", String.join(", ", columnNames()));
+        }
+
+        public List<Plan> children() {
+            return List.of(input);
+        }
+    }
+
+    /**
+     * Operator that produces groups of rows rather than rows of its table.
+     */
+    sealed interface Aggregation extends Plan {
+        /**
+         * Executes the plan and computes the selected group columns and aggregates of each group.
+         * @return stream of rows containing the selected columns, one per group
+         */
+        Stream<List<Value>> materialize();
+
+        /**
+         * Returns the names of the selected columns, in order.
+         */
+        List<String> columnNames();
+
+        /**
+         * Returns the names and kinds of value of the selected columns, in order, without executing the plan.
+         */
+        List<ResultColumn> resultColumns();
+    }
+
+    /**
+     * @param groupBy columns to group on, or null to aggregate every row into a single group
+     * @param columns selected group columns and aggregates
+     * @param order optional sort columns, which must all be group columns
+     */
+    record HashAggregate(Plan input, Table table, List<Token.Identifier> groupBy, List<Query.Selection> columns, List<Query.OrderBy> order, long estimatedRows) implements Aggregation {
+        /**
+         * Groups computed from the input.
+         * @param firstRows first row of each group by group number, or -1 for the group of an empty input
+         * @param order group numbers in result order
+         */
+        private record Groups(int[] firstRows, int[] order, Aggregator aggregator) {}
+
+        /**
+         * Yields the first row of each group, which holds the values the group was formed on.
+         */
+        public IntStream rows() {
+            Groups groups = aggregate();
+            return Arrays.stream(groups.order()).map((group) -> groups.firstRows()[group]);
+        }
+
+        public Stream<List<Value>> materialize() {
+            Groups groups = aggregate();
+
+            return Arrays.stream(groups.order()).mapToObj((group) -> {
+                List<Value> values = new ArrayList<>(columns.size());
+                int aggregate = 0;
+
+                for (Query.Selection column : columns) {
+                    values.add(switch (column) {
+                        // Every row of a group holds the same values in the group columns.
+                        case Token.Identifier name -> table.getColumn(table.getColumnIndex(name.ident())).get(groups.firstRows()[group]);
+                        case Query.Aggregate ignored -> groups.aggregator().result(aggregate++, group);
+                    });
+                }
+
+                return values;
+            });
+        }
+
+        public List<String> columnNames() {
+            return columns.stream().map(Planner::columnName).toList();
+        }
+
+        public List<ResultColumn> resultColumns() {
+            return columns.stream().map((column) -> new ResultColumn(Planner.columnName(column), Planner.valueType(table, column))).toList();
+        }
+
+        private Groups aggregate() {
+            Aggregator aggregator = new Aggregator(table, columns.stream().filter(Query.Aggregate.class::isInstance).map(Query.Aggregate.class::cast).toList());
+
+            // Without grouping, every row belongs to group 0, which exists even if there are no rows.
+            if (groupBy == null) {
+                int[] firstRow = { -1 };
+
+                input.rows().forEach((row) -> {
+                    if (firstRow[0] < 0) {
+                        firstRow[0] = row;
+                    }
+                    aggregator.add(0, row);
+                });
+
+                return new Groups(firstRow, new int[]{ 0 }, aggregator);
+            }
+
+            IntToLongFunction[] keys = new IntToLongFunction[groupBy.size()];
+            GroupTable[] tables = new GroupTable[groupBy.size()];
+
+            for (int i = 0; i < keys.length; i++) {
+                keys[i] = groupKeys(table.getColumn(table.getColumnIndex(groupBy.get(i).ident())));
+                tables[i] = new GroupTable();
+            }
+
+            int[] firstRows = new int[16];
+            int groupCount = 0;
+            PrimitiveIterator.OfInt rows = input.rows().iterator();
+
+            while (rows.hasNext()) {
+                int row = rows.nextInt();
+
+                // Each group column narrows down the group found for the columns before it, so every lookup has a
+                // single primitive key: the group so far in the upper bits, and the value of the column in the lower
+                // 33 bits.
+                int group = 0;
+                for (int i = 0; i < keys.length; i++) {
+                    group = tables[i].groupOf(((long) group << 33) | keys[i].applyAsLong(row));
+                }
+
+                // Groups are numbered in the order they are first seen.
+                if (group == groupCount) {
+                    if (groupCount == firstRows.length) {
+                        firstRows = Arrays.copyOf(firstRows, groupCount * 2);
+                    }
+                    firstRows[groupCount++] = row;
+                }
+
+                aggregator.add(group, row);
+            }
+
+            firstRows = Arrays.copyOf(firstRows, groupCount);
+            int[] groupOrder = IntStream.range(0, groupCount).toArray();
+
+            // Groups are sorted on the values of their first rows, which are the values of the whole group.
+            if (order != null) {
+                SortKey.Encoder encoder = new SortKey.Encoder(table, order);
+                SortKey[] sortKeys = Arrays.stream(firstRows).mapToObj(encoder::encode).toArray(SortKey[]::new);
+
+                groupOrder = IntStream.range(0, groupCount)
+                    .boxed()
+                    .sorted((a, b) -> SortKey.COMPARATOR.compare(sortKeys[a], sortKeys[b]))
+                    .mapToInt(Integer::intValue)
+                    .toArray();
+            }
+
+            return new Groups(firstRows, groupOrder, aggregator);
+        }
+
+        /**
+         * Maps the values of a group column to keys of at most 33 bits, where 0 stands for null. Strings are keyed by
+         * their dictionary code, or, if the column stores them inline, numbered in the order they are first seen.
+         */
+        private static IntToLongFunction groupKeys(Column column) {
+            IntToLongFunction key = switch (column) {
+                case Column.IntegerColumn c -> (row) -> (long) c.getInt(row) - Integer.MIN_VALUE + 1;
+                case Column.BooleanColumn c -> (row) -> c.getBoolean(row) ? 2 : 1;
+                case Column.VarCharColumn c when c.isDictionaryEncoded() -> (row) -> (long) c.getCode(row) + 1;
+                case Column.VarCharColumn c -> {
+                    Map<String, Integer> numbers = new HashMap<>();
+                    yield (row) -> (long) numbers.computeIfAbsent(c.getString(row), (s) -> numbers.size()) + 1;
+                }
+            };
+
+            return (row) -> column.isNull(row) ? 0 : key.applyAsLong(row);
+        }
+
+        public String describe() {
+            String aggregates = columns.stream().filter(Query.Aggregate.class::isInstance).map(Object::toString).collect(Collectors.joining(", "));
+
+            if (groupBy == null) {
+                return String.format("HashAggregate (%s)", aggregates);
+            }
+
+            String groups = groupBy.stream().map(Token.Identifier::ident).collect(Collectors.joining(", "));
+
+            return String.format(
+                "HashAggregate (%sgroup by %s%s)",
+                aggregates.isEmpty() ? "" : aggregates + " ",
+                groups,
+                order == null ? "" : ", order by " + Planner.format(order)
+            );
+        }
+
+        public List<Plan> children() {
+            return List.of(input);
+        }
+    }
+
+    /**
+     * @param version version of the table that the visibility predicate is known to see all of, or -1 if it may see an
+     *                older state, e.g. the snapshot of a transaction
+     * @param columns selected aggregates, each of them `COUNT(*)`, or `MIN` or `MAX` of a column
+     * @param indexes ordered index over the column of each `MIN` and `MAX`, and null for each `COUNT(*)`
+     */
+    record MetadataAggregate(Table table, IntPredicate visible, long version, List<Query.Aggregate> columns, List<Index> indexes) implements Aggregation {
+        /**
+         * Reads no rows, since there are no group columns.
+         */
+        public IntStream rows() {
+            return IntStream.empty();
+        }
+
+        public Stream<List<Value>> materialize() {
+            List<Value> values = new ArrayList<>(columns.size());
+
+            for (int i = 0; i < columns.size(); i++) {
+                values.add(indexes.get(i) == null
+                    ? new Value.Integer(count())
+                    : extreme(indexes.get(i), columns.get(i).function() == Query.AggregateFunction.MAX)
+                );
+            }
+
+            return Stream.of(values);
+        }
+
+        /**
+         * Counts the visible rows. The row count of the table is only used if no change has been made to the table
+         * since the snapshot was taken, and none was in progress while the count was read. Otherwise the rows are
+         * counted one by one.
+         */
+        private int count() {
+            if (version >= 0) {
+                int liveRows = table.getLiveRowCount();
+
+                if (table.getVersion() == version) {
+                    return liveRows;
+                }
+            }
+
+            return (int) IntStream.range(0, table.getRowCount()).filter(QueryProfile.counting(Cancellation.checking(visible))).count();
+        }
+
+        /**
+         * Finds the smallest or largest value of a column, which is held by the first visible row from one end of the
+         * index. Null values are not indexed, which is also what `MIN` and `MAX` skip.
+         */
+        private Value extreme(Index index, boolean max) {
+            return index
+                .scan(max)
+                .filter(QueryProfile.counting(Cancellation.checking(visible)))
+                .findFirst()
+                .stream()
+                .mapToObj((row) -> table.getColumn(index.getColumnIndex()).get(row))
+                .findFirst()
+                .orElse(null);
+        }
+
+        public List<String> columnNames() {
+            return columns.stream().map(Planner::columnName).toList();
+        }
+
+        public List<ResultColumn> resultColumns() {
+            return columns.stream().map((column) -> new ResultColumn(Planner.columnName(column), Planner.valueType(table, column))).toList();
+        }
+
+        public long estimatedRows() {
+            return 1;
+        }
+
+        public String describe() {
+            List<String> sources = new ArrayList<>(columns.size());
+
+            for (int i = 0; i < columns.size(); i++) {
+                sources.add(indexes.get(i) == null
+                    ? String.format("%s from row count", columns.get(i))
+                    : String.format("%s using %s", columns.get(i), indexes.get(i).getName())
+                );
+            }
+
+            return String.format("MetadataAggregate on %s (%s)", table.getName(), String.join(", ", sources));
+        }
+
+        public List<Plan> children() {
+            return List.of();
+        }
+    }
+
+    record GroupLimit(Aggregation input, long offset, long count) implements Aggregation {
+        /**
+         * Yields the first row of each group in the range.
+         */
+        public IntStream rows() {
+            return input.rows().skip(offset).limit(count);
+        }
+
+        public Stream<List<Value>> materialize() {
+            return input.materialize().skip(offset).limit(count);
+        }
+
+        public List<String> columnNames() {
+            return input.columnNames();
+        }
+
+        public List<ResultColumn> resultColumns() {
+            return input.resultColumns();
+        }
+
+        public long estimatedRows() {
+            return Math.max(0, Math.min(count, input.estimatedRows() - offset));
+        }
+
+        public String describe() {
+            return count == Long.MAX_VALUE
+                ? String.format("GroupLimit (offset %d)", offset)
+                : String.format("GroupLimit (%d, offset %d)", count, offset);
+        }
+
+        public List<Plan> children() {
+            return List.of(input);
+        }
+    }
+
+    /**
+     * Operator that pairs up the rows of two tables whose join columns hold equal values. Null values never match.
+     */
+    sealed interface Join extends Plan {
+        /**
+         * Executes the join.
+         * @return stream of matching pairs of rows, each packed into a single long by {@link #pair}
+         */
+        LongStream pairs();
+
+        /**
+         * Yields the row of the left table of each pair.
+         */
+        default IntStream rows() {
+            return pairs().mapToInt(Join::left);
+        }
+
+        /**
+         * Packs a row of the left table and a row of the right table into a single long, so that pairs are never boxed.
+         */
+        static long pair(int left, int right) {
+            return (long) left << 32 | (right & 0xffffffffL);
+        }
+
+        static int left(long pair) {
+            return (int) (pair >>> 32);
+        }
+
+        static int right(long pair) {
+            return (int) pair;
+        }
+    }
+
+    /**
+     * @param build input that is loaded into the hash table, which should be the smaller one
+     * @param probe input whose rows are looked up in the hash table
+     * @param buildLeft whether the build input reads the left table of the join
+     * @param memoryBudget bytes the hash table may use before both inputs are partitioned into spill files
+     */
+    record HashJoin(Plan build, Table buildTable, int buildColumn, Plan probe, Table probeTable, int probeColumn, boolean buildLeft, Query.Join on, long memoryBudget, long estimatedRows) implements Join {
+        // Key of a probe row that cannot match any build row
+        private static final long MISSING = Long.MIN_VALUE;
+        // Bytes taken by each build row: its row and key while it is buffered, and its slot in the hash table
+        private static final int BYTES_PER_ROW = 40;
+        private static final int MAX_PARTITIONS = 64;
+
+        /**
+         * Joins in memory if the build input fits into the memory budget. Otherwise the rows of both inputs are
+         * written out to spill files by the hash of their key, and each partition is joined on its own, so that only
+         * one partition of the build input is in memory at once. A partition that still does not fit, e.g. because
+         * most rows share one key, is joined in memory anyway.
+         */
+        public LongStream pairs() {
+            Column buildKeys = buildTable.getColumn(buildColumn);
+            Column probeKeys = probeTable.getColumn(probeColumn);
+            IntToLongFunction buildKey = buildKeys(buildKeys);
+            IntToLongFunction probeKey = probeKeys(probeKeys, buildKeys);
+            int capacity = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(1, memoryBudget / BYTES_PER_ROW));
+            int[] rows = new int[16];
+            long[] keys = new long[16];
+            int count = 0;
+            PrimitiveIterator.OfInt input = build.rows().iterator();
+
+            while (count < capacity && input.hasNext()) {
+                int row = input.nextInt();
+
+                if (buildKeys.isNull(row)) {
+                    continue;
+                }
+
+                if (count == rows.length) {
+                    rows = Arrays.copyOf(rows, (int) Math.min(capacity, count * 2L));
+                    keys = Arrays.copyOf(keys, rows.length);
+                }
+
+                rows[count] = row;
+                keys[count++] = buildKey.applyAsLong(row);
+            }
+
+            if (!input.hasNext()) {
+                Buckets buckets = new Buckets(rows, keys, count);
+
+                return probe.rows().asLongStream().mapMulti((probeRow, downstream) ->
+                    buckets.match((int) probeRow, probeKey.applyAsLong((int) probeRow), downstream)
+                );
+            }
+
+            return spill(rows, keys, count, input, buildKey, probeKey);
+        }
+
+        /**
+         * Partitions both inputs into spill files and joins the partitions one after another.
+         * @param rows build rows read so far, followed by the rest of the build input
+         */
+        private LongStream spill(int[] rows, long[] keys, int count, PrimitiveIterator.OfInt input, IntToLongFunction buildKey, IntToLongFunction probeKey) throws UncheckedIOException {
+            Column buildKeys = buildTable.getColumn(buildColumn);
+            // A power of two, so that a partition is picked by the top bits of the hash and the hash table of each
+            // partition still gets evenly spread low bits.
+            int wanted = (int) Math.min(MAX_PARTITIONS, Math.max(2, 2 * build.estimatedRows() / Math.max(1, count)));
+            int bits = Integer.SIZE - Integer.numberOfLeadingZeros(wanted - 1);
+            SpillFile[] builds = new SpillFile[1 << bits];
+            SpillFile[] probes = new SpillFile[1 << bits];
+            int[] buildCounts = new int[1 << bits];
+            int[] probeCounts = new int[1 << bits];
+
+            try {
+                for (int i = 0; i < builds.length; i++) {
+                    builds[i] = new SpillFile();
+                    probes[i] = new SpillFile();
+                }
+
+                for (int i = 0; i < count; i++) {
+                    write(builds, buildCounts, bits, rows[i], keys[i]);
+                }
+
+                while (input.hasNext()) {
+                    int row = input.nextInt();
+
+                    if (!buildKeys.isNull(row)) {
+                        write(builds, buildCounts, bits, row, buildKey.applyAsLong(row));
+                    }
+                }
+
+                probe.rows().forEach((row) -> {
+                    long key = probeKey.applyAsLong(row);
+
+                    if (key != MISSING) {
+                        write(probes, probeCounts, bits, row, key);
+                    }
+                });
+
+                LongStream.Builder pairs = LongStream.builder();
+
+                for (int partition = 0; partition < builds.length; partition++) {
+                    Cancellation.check();
+
+                    if (buildCounts[partition] == 0 || probeCounts[partition] == 0) {
+                        continue;
+                    }
+
+                    DataInput in = builds[partition].read();
+                    int[] partitionRows = new int[buildCounts[partition]];
+                    long[] partitionKeys = new long[buildCounts[partition]];
+
+                    for (int i = 0; i < partitionRows.length; i++) {
+                        partitionRows[i] = in.readInt();
+                        partitionKeys[i] = in.readLong();
+                    }
+
+                    Buckets buckets = new Buckets(partitionRows, partitionKeys, partitionRows.length);
+                    in = probes[partition].read();
+
+                    for (int i = 0; i < probeCounts[partition]; i++) {
+                        Cancellation.checkRow(i);
+                        buckets.match(in.readInt(), in.readLong(), pairs);
+                    }
+
+                    // Free the disk space of a partition as soon as it has been joined.
+                    builds[partition].close();
+                    probes[partition].close();
+                }
+
+                return pairs.build();
+            } catch (IOException err) {
+                throw new UncheckedIOException("Unable to read a join partition.", err);
+            } finally {
+                for (int i = 0; i < builds.length; i++) {
+                    if (builds[i] != null) {
+                        builds[i].close();
+                    }
+                    if (probes[i] != null) {
+                        probes[i].close();
+                    }
+                }
+            }
+        }
+
+        private static void write(SpillFile[] files, int[] counts, int bits, int row, long key) throws UncheckedIOException {
+            int partition = GroupTable.hash(key) >>> (Integer.SIZE - bits);
+
+            try {
+                files[partition].getOutput().writeInt(row);
+                files[partition].getOutput().writeLong(key);
+                counts[partition]++;
+            } catch (IOException err) {
+                throw new UncheckedIOException("Unable to write a join partition.", err);
+            }
+        }
+
+        /**
+         * Hash table over build rows, which finds the build rows that match a probe row.
+         */
+        private final class Buckets {
+            private final GroupTable numbers = new GroupTable();
+            // The rows of key number k are grouped[starts[k]] up to grouped[starts[k + 1]], in the order they were read.
+            private final int[] starts;
+            private final int[] grouped;
+            // Build and probe columns if keys are hashes of strings, which have to be compared to rule out collisions
+            private final Column.VarCharColumn buildStrings;
+            private final Column.VarCharColumn probeStrings;
+
+            Buckets(int[] rows, long[] keys, int count) {
+                int[] rowKeys = new int[count];
+                for (int i = 0; i < count; i++) {
+                    rowKeys[i] = numbers.groupOf(keys[i]);
+                }
+
+                this.starts = new int[numbers.size() + 1];
+                for (int i = 0; i < count; i++) {
+                    starts[rowKeys[i] + 1]++;
+                }
+                for (int key = 0; key < numbers.size(); key++) {
+                    starts[key + 1] += starts[key];
+                }
+
+                this.grouped = new int[count];
+                int[] next = Arrays.copyOf(starts, numbers.size());
+                for (int i = 0; i < count; i++) {
+                    grouped[next[rowKeys[i]]++] = rows[i];
+                }
+
+                boolean hashed = buildTable.getColumn(buildColumn) instanceof Column.VarCharColumn strings && !strings.isDictionaryEncoded();
+                this.buildStrings = hashed ? (Column.VarCharColumn) buildTable.getColumn(buildColumn) : null;
+                this.probeStrings = hashed ? (Column.VarCharColumn) probeTable.getColumn(probeColumn) : null;
+            }
+
+            void match(int probeRow, long key, LongConsumer downstream) {
+                int number = key == MISSING ? -1 : numbers.find(key);
+
+                if (number < 0) {
+                    return;
+                }
+
+                for (int i = starts[number]; i < starts[number + 1]; i++) {
+                    if (buildStrings != null && !probeStrings.getString(probeRow).equals(buildStrings.getString(grouped[i]))) {
+                        continue;
+                    }
+
+                    downstream.accept(buildLeft ? Join.pair(grouped[i], probeRow) : Join.pair(probeRow, grouped[i]));
+                }
+            }
+        }
+
+        /**
+         * Maps the non-null values of the build column to primitive keys. Strings are keyed by their dictionary code,
+         * or, if the column stores them inline, by their hash code.
+         */
+        private static IntToLongFunction buildKeys(Column column) {
+            return switch (column) {
+                case Column.IntegerColumn c -> c::getInt;
+                case Column.BooleanColumn c -> (row) -> c.getBoolean(row) ? 1 : 0;
+                case Column.VarCharColumn c when c.isDictionaryEncoded() -> c::getCode;
+                case Column.VarCharColumn c -> (row) -> c.getString(row).hashCode();
+            };
+        }
+
+        /**
+         * Maps the values of the probe column to keys of the build column. Dictionary codes differ between columns, so
+         * each code of the probe column is translated into a code of the build column once and remembered.
+         */
+        private static IntToLongFunction probeKeys(Column probeKeys, Column buildKeys) {
+            if (!(probeKeys instanceof Column.VarCharColumn strings)) {
+                IntToLongFunction key = buildKeys(probeKeys);
+                return (row) -> probeKeys.isNull(row) ? MISSING : key.applyAsLong(row);
+            }
+
+            Column.VarCharColumn buildStrings = (Column.VarCharColumn) buildKeys;
+
+            if (!buildStrings.isDictionaryEncoded()) {
+                return (row) -> strings.isNull(row) ? MISSING : strings.getString(row).hashCode();
+            }
+
+            if (!strings.isDictionaryEncoded()) {
+                return (row) -> {
+                    int code = strings.isNull(row) ? -1 : buildStrings.getCode(strings.getString(row));
+                    return code < 0 ? MISSING : code;
+                };
+            }
+            // Translated code of each probe code, or -1 if the string is not in the build column, or -2 if unknown yet
+            int[] codes = new int[strings.getDictionarySize()];
+            Arrays.fill(codes, -2);
+
+            return (row) -> {
+                if (strings.isNull(row)) {
+                    return MISSING;
+                }
+
+                int code = strings.getCode(row);
+
+                // Strings added to the dictionary after the join started have no place in the memo.
+                if (code >= codes.length) {
+                    int translated = buildStrings.getCode(strings.getDictionaryEntry(code));
+                    return translated < 0 ? MISSING : translated;
+                }
+
+                if (codes[code] == -2) {
+                    codes[code] = buildStrings.getCode(strings.getDictionaryEntry(code));
+                }
+
+                return codes[code] < 0 ? MISSING : codes[code];
+            };
+        }
+
+        public String describe() {
+            return String.format("HashJoin (%s, build %s)", Planner.format(on), buildTable.getName());
+        }
+
+        public List<Plan> children() {
+            return List.of(build, probe);
+        }
+    }
+
+    /**
+     * @param left input that yields rows of the left table in ascending order of its join column
+     * @param right input that yields rows of the right table in ascending order of its join column
+     */
+    record SortMergeJoin(Plan left, Table leftTable, int leftColumn, Plan right, Table rightTable, int rightColumn, Query.Join on, long estimatedRows) implements Join {
+        public LongStream pairs() {
+            Column leftKeys = leftTable.getColumn(leftColumn);
+            Column rightKeys = rightTable.getColumn(rightColumn);
+            PrimitiveIterator.OfInt lefts = left.rows().iterator();
+            PrimitiveIterator.OfInt rights = right.rows().iterator();
+
+            // Both inputs are read once: the right rows with the current key are kept, so that a run of left rows with
+            // the same key can be paired with them without going back.
+            PrimitiveIterator.OfLong pairs = new PrimitiveIterator.OfLong() {
+                private int[] run = new int[16];
+                private int runSize = 0;
+                private Object runKey = null;
+                private int leftRow = -1;
+                private int paired = 0;
+                // Right row that has been read but has a larger key than the current run, or -1
+                private int pending = -1;
+
+                public boolean hasNext() {
+                    while (leftRow < 0 || paired == runSize) {
+                        if (!lefts.hasNext()) {
+                            return false;
+                        }
+
+                        int row = lefts.nextInt();
+
+                        if (leftKeys.isNull(row)) {
+                            continue;
+                        }
+
+                        Object key = leftKeys.getKey(row);
+
+                        if (runKey == null || Index.OrderedIndex.compareKeys(key, runKey) != 0) {
+                            readRun(key);
+                        }
+
+                        leftRow = row;
+                        paired = 0;
+                    }
+
+                    return true;
+                }
+
+                public long nextLong() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+
+                    return Join.pair(leftRow, run[paired++]);
+                }
+
+                /**
+                 * Skips right rows with smaller keys, and collects the right rows with the given key.
+                 */
+                private void readRun(Object key) {
+                    runKey = key;
+                    runSize = 0;
+
+                    while (true) {
+                        if (pending < 0) {
+                            if (!rights.hasNext()) {
+                                return;
+                            }
+
+                            pending = rights.nextInt();
+
+                            if (rightKeys.isNull(pending)) {
+                                pending = -1;
+                                continue;
+                            }
+                        }
+
+                        int order = Index.OrderedIndex.compareKeys(rightKeys.getKey(pending), key);
+
+                        if (order > 0) {
+                            return;
+                        }
+
+                        if (order == 0) {
+                            if (runSize == run.length) {
+                                run = Arrays.copyOf(run, runSize * 2);
+                            }
+                            run[runSize++] = pending;
+                        }
+
+                        pending = -1;
+                    }
+                }
+            };
+
+            return StreamSupport.longStream(Spliterators.spliteratorUnknownSize(pairs, Spliterator.ORDERED), false);
+        }
+
+        public String describe() {
+            return String.format("SortMergeJoin (%s)", Planner.format(on));
+        }
+
+        public List<Plan> children() {
+            return List.of(left, right);
+        }
+    }
+
+    /**
+     * @param outer input whose rows are looked up in the index, which should be the smaller one
+     * @param innerVisible row versions of the inner table the query may see
+     * @param innerFilter optional filter on the rows of the inner table
+     * @param innerIndex index over the join column of the inner table
+     * @param outerLeft whether the outer input reads the left table of the join
+     */
+    record IndexNestedLoopJoin(Plan outer, Table outerTable, int outerColumn, Table innerTable, IntPredicate innerVisible, Expression innerFilter, Index innerIndex, boolean outerLeft, Query.Join on, long estimatedRows) implements Join {
+        public LongStream pairs() {
+            Column keys = outerTable.getColumn(outerColumn);
+            IntPredicate inner = QueryProfile.counting(innerFilter == null
+                ? innerVisible
+                : innerVisible.and(FilterCompiler.compile(innerTable, innerFilter)));
+
+            return outer.rows().asLongStream().mapMulti((outerRow, downstream) -> {
+                int row = (int) outerRow;
+
+                if (keys.isNull(row)) {
+                    return;
+                }
+
+                innerIndex.lookup(Token.OperatorType.EQUAL, keys.getKey(row)).filter(inner).forEach((innerRow) ->
+                    downstream.accept(outerLeft ? Join.pair(row, innerRow) : Join.pair(innerRow, row))
+                );
+            });
+        }
+
+        public String describe() {
+            return innerFilter == null
+                ? String.format("IndexNestedLoopJoin (%s using %s on %s)", Planner.format(on), innerIndex.getName(), innerTable.getName())
+                : String.format("IndexNestedLoopJoin (%s using %s on %s, %s)", Planner.format(on), innerIndex.getName(), innerTable.getName(), Planner.format(innerFilter));
+        }
+
+        public List<Plan> children() {
+            return List.of(outer);
+        }
+    }
+
+    /**
+     * Sorts the pairs produced by a join the same way {@link Sort} sorts the rows of a table.
+     * @param order sort columns of either table, most significant first
+     */
+    record JoinSort(Join input, Table left, Table right, List<JoinColumn> order, long memoryBudget) implements Join {
+        public LongStream pairs() {
+            SortKey.Encoder keys = new SortKey.Encoder(left, right, order);
+            return Sort.sort(input.pairs().mapToObj(keys::encodePair), memoryBudget);
+        }
+
+        public long estimatedRows() {
+            return input.estimatedRows();
+        }
+
+        public String describe() {
+            return String.format("Sort (%s)", format(left, right, order));
+        }
+
+        public List<Plan> children() {
+            return List.of(input);
+        }
+
+        /**
+         * Formats sort columns of a join back into SQL, used by `EXPLAIN`.
+         */
+        static String format(Table left, Table right, List<JoinColumn> order) {
+            return order
+                .stream()
+                .map((key) -> {
+                    Table table = key.left() ? left : right;
+                    return String.format("%s.%s %s", table.getName(), table.getColumns().get(key.column()).name(), key.descending() ? "DESC" : "ASC");
+                })
+                .collect(Collectors.joining(", "));
+        }
+    }
+
+    /**
+     * Finds the first pairs produced by a join in sort order, the same way {@link TopN} does for the rows of a table.
+     * @param order sort columns of either table, most significant first
+     */
+    record JoinTopN(Join input, Table left, Table right, List<JoinColumn> order, int count) implements Join {
+        public LongStream pairs() {
+            SortKey.Encoder keys = new SortKey.Encoder(left, right, order);
+            return TopN.top(input.pairs().mapToObj(keys::encodePair), count);
+        }
+
+        public long estimatedRows() {
+            return Math.min(count, input.estimatedRows());
+        }
+
+        public String describe() {
+            return String.format("TopN (%s, %d rows)", JoinSort.format(left, right, order), count);
+        }
+
+        public List<Plan> children() {
+            return List.of(input);
+        }
+    }
+
+    /**
+     * Column of either table of a join.
+     * @param left whether the column belongs to the left table
+     * @param column position of the column in its table
+     * @param descending whether to sort in descending order, if this is a sort column
+     */
+    record JoinColumn(boolean left, int column, boolean descending) {}
+
+    /**
+     * @param input join, sorted by a {@link JoinSort} or {@link JoinTopN} if the query has an `ORDER BY`
+     * @param columns selected columns of either table
+     * @param columnNames names of the selected columns in the result set
+     */
+    record JoinProject(Join input, Table left, Table right, List<JoinColumn> columns, List<String> columnNames, long offset, long count) implements Plan {
+        /**
+         * Yields the row of the left table of each pair in the result.
+         */
+        public IntStream rows() {
+            return pairs().mapToInt(Join::left);
+        }
+
+        /**
+         * Executes the plan and boxes only the selected columns of each pair of rows.
+         * @return stream of rows containing the selected columns
+         */
+        public Stream<List<Value>> materialize() {
+            return pairs().mapToObj((pair) -> {
+                List<Value> values = new ArrayList<>(columns.size());
+
+                for (JoinColumn column : columns) {
+                    values.add(table(column).getColumn(column.column()).get(row(column, pair)));
+                }
+
+                return values;
+            });
+        }
+
+        /**
+         * Cuts the pairs produced by the join off to the requested range.
+         */
+        private LongStream pairs() {
+            return input.pairs().skip(offset).limit(count);
+        }
+
+        /**
+         * Returns the names and kinds of value of the selected columns, in order, without executing the plan.
+         */
+        public List<ResultColumn> resultColumns() {
+            List<ResultColumn> result = new ArrayList<>(columns.size());
+
+            for (int i = 0; i < columns.size(); i++) {
+                JoinColumn column = columns.get(i);
+                result.add(new ResultColumn(columnNames.get(i), Planner.valueType(table(column).getColumns().get(column.column()).type())));
+            }
+
+            return result;
+        }
+
+        private Table table(JoinColumn column) {
+            return column.left() ? left : right;
+        }
+
+        private static int row(JoinColumn column, long pair) {
+            return column.left() ? Join.left(pair) : Join.right(pair);
+        }
+
+        public long estimatedRows() {
+            return Math.max(0, Math.min(count, input.estimatedRows() - offset));
+        }
+
+        public String describe() {
+            StringBuilder description = new StringBuilder(String.join(", ", columnNames));
+
+            if (count != Long.MAX_VALUE) {
+                description.append(String.format(", limit %d", count));
+            }
+
+            if (offset > 0) {
+                description.append(String.format(", offset %d", offset));
+            }
+
+            return String.format("JoinProject (%s)", description);
+        }
+
+        public List<Plan> children() {
+            return List.of(input);
+        }
+    }
+}
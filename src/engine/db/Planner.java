@@ -0,0 +1,937 @@
+/*
+ * Planner v1.0
+ *
+ * database contributors
+ * Oct 16, 2026
+ */
+
+package engine.db;
+
+import engine.sql.DataType;
+import engine.sql.Expression;
+import engine.sql.Query;
+import engine.sql.Token;
+
+import java.util.*;
+import java.util.function.IntPredicate;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Turns the filter, ordering and projection of a query into a tree of physical {@link Plan} operators.
+ * Applies the following rewrites along the way:
+ *  - Constant folding   Removes duplicate predicates, merges comparisons on the same column into the tightest range,
+ *                       and replaces filters that can never be satisfied with an empty plan.
+ *  - Predicate ordering Evaluates the most selective predicates of a conjunction first.
+ *  - Index selection    Answers the most selective indexable predicate with an index seek, and answers `ORDER BY`
+ *                       with an ordered index scan when the whole table has to be read anyway.
+ *  - Top-N              Replaces a sort whose output is cut off by `LIMIT` with a bounded heap if the heap only keeps
+ *                       a small part of the input, and stops scanning early when `LIMIT` is used without a sort.
+ *  - Projection         Resolves projected columns up front so that unused columns are never boxed.
+ *  - Metadata answers   Answers `COUNT(*)` from the row count of the table, and `MIN` and `MAX` from the ends of an
+ *                       ordered index, when a query has neither a filter nor groups.
+ *  - Join selection     Pushes the conditions on each table of a join below it, and picks a join algorithm from the
+ *                       expected size of each side.
+ */
+public class Planner {
+    // Rough guesses at how many rows a predicate lets through when we have nothing better to go on.
+    private static final double EQUALITY_SELECTIVITY = 0.1;
+    private static final double RANGE_SELECTIVITY = 0.3;
+    private static final double INEQUALITY_SELECTIVITY = 0.9;
+
+    // A join side that reads at least this fraction of its table may as well read all of it in index order.
+    private static final double MERGE_FRACTION = 0.5;
+    // An index lookup costs roughly as much as hashing this many rows.
+    private static final int NESTED_LOOP_RATIO = 10;
+    // A heap for the first rows of a sort cannot spill to disk like the sort itself, so it is only used up to this many
+    // rows, and only if it keeps at most this fraction of the input.
+    private static final int TOP_N_MAX_ROWS = 100_000;
+    private static final double TOP_N_FRACTION = 0.5;
+
+    private static final Token.BinaryOperator AND = new Token.BinaryOperator(Token.BinaryOperatorType.AND);
+    private static final Token.BinaryOperator OR = new Token.BinaryOperator(Token.BinaryOperatorType.OR);
+
+    /**
+     * Plans a query that reads rows out of a table.
+     * @param table table to read from
+     * @param visible row versions the query may see
+     * @param selectColumns columns to be included in the result set
+     * @param filter optional filtering settings
+     * @param order optional sort columns, most significant first
+     * @param limit optional range of rows to return
+     * @param settings how much memory and how many threads operators may use
+     * @return root operator of the plan
+     * @throws IllegalArgumentException if a column does not exist or a comparison does not match its column type.
+     */
+    public static Plan.Project plan(Table table, IntPredicate visible, List<Query.Selection> selectColumns, Expression filter, List<Query.OrderBy> order, Query.Limit limit, ExecutionSettings settings) throws IllegalArgumentException {
+        int[] columns;
+
+        if (selectColumns.contains(new Token.Identifier("*"))) {
+            columns = IntStream.range(0, table.getColumns().size()).toArray();
+        } else {
+            columns = new int[selectColumns.size()];
+            for (int i = 0; i < selectColumns.size(); i++) {
+                columns[i] = switch (selectColumns.get(i)) {
+                    case Token.Identifier name -> table.getColumnIndex(name.ident());
+                    case Query.Aggregate aggregate -> throw new IllegalArgumentException(String.format("Aggregate %s cannot be selected without aggregating.", aggregate));
+                };
+            }
+        }
+
+        Plan rows = planRows(table, visible, filter, order, settings);
+
+        if (limit != null) {
+            rows = limit(rows, limit);
+        }
+
+        return new Plan.Project(rows, table, columns);
+    }
+
+    /**
+     * Returns true if a query computes aggregates or groups its rows, which is planned with {@link #planAggregate}.
+     */
+    public static boolean isAggregate(Query.Select query) {
+        return query.groupBy() != null || query.columns().stream().anyMatch(Query.Aggregate.class::isInstance);
+    }
+
+    /**
+     * Plans a query that groups the rows of a table and computes aggregates over each group.
+     * @param table table to read from
+     * @param visible row versions the query may see
+     * @param version version of the table that the visibility predicate sees all of, or -1 if it may see an older
+     *                state, in which case the row count of the table is never used in place of counting rows
+     * @param query query with aggregates or a `GROUP BY` clause
+     * @param settings how much memory and how many threads operators may use
+     * @return root operator of the plan
+     * @throws IllegalArgumentException if a column does not exist, a selected column is neither grouped on nor
+     *                                  aggregated, or the result is ordered on a column that is not grouped on.
+     */
+    public static Plan.Aggregation planAggregate(Table table, IntPredicate visible, long version, Query.Select query, ExecutionSettings settings) throws IllegalArgumentException {
+        List<Token.Identifier> groupBy = query.groupBy();
+
+        if (groupBy != null) {
+            for (Token.Identifier column : groupBy) {
+                table.getColumnIndex(column.ident());
+            }
+        }
+
+        for (Query.Selection column : query.columns()) {
+            switch (column) {
+                case Token.Identifier name -> {
+                    if (groupBy == null || !groupBy.contains(name)) {
+                        throw new IllegalArgumentException(String.format("Column '%s' must appear in GROUP BY or be used in an aggregate.", name.ident()));
+                    }
+                }
+                case Query.Aggregate aggregate -> {
+                    if (!aggregate.column().ident().equals("*")) {
+                        table.getColumnIndex(aggregate.column().ident());
+                    }
+                }
+            }
+        }
+
+        // A group only has one value in the columns it was formed on, so those are the only columns it can be sorted on.
+        if (query.order() != null) {
+            for (Query.OrderBy key : query.order()) {
+                if (groupBy == null || !groupBy.contains(key.column())) {
+                    throw new IllegalArgumentException(String.format("Cannot order on column '%s', which is not in GROUP BY.", key.column().ident()));
+                }
+            }
+        }
+
+        Plan.Aggregation plan = groupBy == null && query.filter() == null ? metadataAggregate(table, visible, version, query.columns()) : null;
+
+        if (plan == null) {
+            Plan rows = planRows(table, visible, query.filter(), settings);
+            plan = new Plan.HashAggregate(rows, table, groupBy, query.columns(), query.order(), groupBy == null ? 1 : rows.estimatedRows());
+        }
+
+        if (query.limit() != null) {
+            long count = query.limit().count() == null ? Long.MAX_VALUE : toCount(query.limit().count(), "LIMIT");
+            long offset = query.limit().offset() == null ? 0 : toCount(query.limit().offset(), "OFFSET");
+
+            plan = new Plan.GroupLimit(plan, offset, count);
+        }
+
+        return plan;
+    }
+
+    /**
+     * Attempts to answer aggregates over a whole table without reading its rows.
+     * @return a metadata aggregate, or null if any of the aggregates is not `COUNT(*)`, or `MIN` or `MAX` of a column
+     *         with an ordered index.
+     */
+    private static Plan.Aggregation metadataAggregate(Table table, IntPredicate visible, long version, List<Query.Selection> columns) {
+        List<Query.Aggregate> aggregates = new ArrayList<>(columns.size());
+        List<Index> indexes = new ArrayList<>(columns.size());
+
+        for (Query.Selection column : columns) {
+            if (!(column instanceof Query.Aggregate aggregate)) {
+                return null;
+            }
+
+            boolean countAll = aggregate.function() == Query.AggregateFunction.COUNT && aggregate.column().ident().equals("*");
+            boolean extreme = aggregate.function() == Query.AggregateFunction.MIN || aggregate.function() == Query.AggregateFunction.MAX;
+            Index index = extreme ? findIndex(table, table.getColumnIndex(aggregate.column().ident()), true) : null;
+
+            if (!countAll && index == null) {
+                return null;
+            }
+
+            aggregates.add(aggregate);
+            indexes.add(index);
+        }
+
+        return new Plan.MetadataAggregate(table, visible, version, aggregates, indexes);
+    }
+
+    /**
+     * Plans a query that pairs up the rows of two tables on equal values of a column of each. Each condition of the
+     * filter is applied to the table it reads before the join, and the join algorithm is picked from how many rows
+     * each side is expected to produce:
+     *  - Index nested-loop join  when one side is much smaller than the other and the other has an index on its join
+     *                            column, so that only the matching rows of the larger table are ever read.
+     *  - Sort-merge join         when both join columns have ordered indexes and most of both tables is read anyway,
+     *                            so that both sides arrive sorted and neither has to be hashed.
+     *  - Hash join               otherwise, with the smaller side loaded into the hash table.
+     * @param left table named in `FROM`
+     * @param leftVisible row versions of the left table the query may see
+     * @param right table named in `JOIN`
+     * @param rightVisible row versions of the right table the query may see
+     * @param query query with a `JOIN` clause
+     * @param settings how much memory and how many threads operators may use
+     * @return root operator of the plan
+     * @throws IllegalArgumentException if a column does not exist or is in both tables without being qualified, the
+     *                                  join columns have different types, a condition mixes columns of both tables
+     *                                  other than through `AND`, or the query aggregates or groups its rows.
+     */
+    public static Plan.JoinProject planJoin(Table left, IntPredicate leftVisible, Table right, IntPredicate rightVisible, Query.Select query, ExecutionSettings settings) throws IllegalArgumentException {
+        if (left.getName().equals(right.getName())) {
+            throw new IllegalArgumentException(String.format("Cannot join table '%s' with itself.", left.getName()));
+        }
+
+        if (isAggregate(query)) {
+            throw new IllegalArgumentException("Aggregates and GROUP BY cannot be used with JOIN.");
+        }
+
+        Query.Join on = query.join();
+        boolean leftFirst = isLeft(left, right, on.left());
+
+        if (leftFirst == isLeft(left, right, on.right())) {
+            throw new IllegalArgumentException(String.format("JOIN must compare a column of '%s' with a column of '%s'.", left.getName(), right.getName()));
+        }
+
+        Token.Identifier leftKey = leftFirst ? on.left() : on.right();
+        Token.Identifier rightKey = leftFirst ? on.right() : on.left();
+        int leftColumn = left.getColumnIndex(leftKey.ident());
+        int rightColumn = right.getColumnIndex(rightKey.ident());
+
+        if (left.getColumn(leftColumn).getClass() != right.getColumn(rightColumn).getClass()) {
+            throw new IllegalArgumentException(String.format("Cannot join column '%s' with column '%s' of a different type.", leftKey.ident(), rightKey.ident()));
+        }
+
+        // Push each condition down to the table it reads, so that rows are filtered before they are joined.
+        List<Expression> leftConditions = new ArrayList<>();
+        List<Expression> rightConditions = new ArrayList<>();
+
+        if (query.filter() != null) {
+            for (Expression conjunct : conjuncts(query.filter())) {
+                (isLeft(left, right, conjunct) ? leftConditions : rightConditions).add(conjunct);
+            }
+        }
+
+        Expression leftFilter = leftConditions.isEmpty() ? null : combine(leftConditions, AND);
+        Expression rightFilter = rightConditions.isEmpty() ? null : combine(rightConditions, AND);
+        Plan leftRows = planRows(left, leftVisible, leftFilter, settings);
+        Plan rightRows = planRows(right, rightVisible, rightFilter, settings);
+        long leftEstimate = leftRows.estimatedRows();
+        long rightEstimate = rightRows.estimatedRows();
+
+        // Each row is expected to match the rows of the other side that share its key, out of all distinct keys.
+        long estimate = leftEstimate * rightEstimate / Math.max(1, Math.max(
+            distinctKeys(left, leftColumn, leftEstimate),
+            distinctKeys(right, rightColumn, rightEstimate)
+        ));
+
+        boolean leftOuter = leftEstimate <= rightEstimate;
+        Index innerIndex = leftOuter ? equalityIndex(right, rightColumn) : equalityIndex(left, leftColumn);
+        Index leftOrdered = findIndex(left, leftColumn, true);
+        Index rightOrdered = findIndex(right, rightColumn, true);
+        Plan.Join join;
+
+        if (innerIndex != null && Math.min(leftEstimate, rightEstimate) * NESTED_LOOP_RATIO <= Math.max(leftEstimate, rightEstimate)) {
+            join = leftOuter
+                ? new Plan.IndexNestedLoopJoin(leftRows, left, leftColumn, right, rightVisible, rightFilter, innerIndex, true, on, estimate)
+                : new Plan.IndexNestedLoopJoin(rightRows, right, rightColumn, left, leftVisible, leftFilter, innerIndex, false, on, estimate);
+        } else if (leftOrdered != null && rightOrdered != null
+            && leftEstimate >= left.getLiveRowCount() * MERGE_FRACTION
+            && rightEstimate >= right.getLiveRowCount() * MERGE_FRACTION) {
+            join = new Plan.SortMergeJoin(
+                sortedRows(left, leftVisible, leftOrdered, leftFilter, leftEstimate), left, leftColumn,
+                sortedRows(right, rightVisible, rightOrdered, rightFilter, rightEstimate), right, rightColumn,
+                on, estimate
+            );
+        } else {
+            join = leftOuter
+                ? new Plan.HashJoin(leftRows, left, leftColumn, rightRows, right, rightColumn, true, on, settings.joinMemory(), estimate)
+                : new Plan.HashJoin(rightRows, right, rightColumn, leftRows, left, leftColumn, false, on, settings.joinMemory(), estimate);
+        }
+
+        List<Plan.JoinColumn> columns = new ArrayList<>();
+        List<String> columnNames = new ArrayList<>();
+
+        for (Query.Selection selection : query.columns()) {
+            Token.Identifier name = (Token.Identifier) selection;
+
+            if (name.ident().equals("*")) {
+                addAllColumns(left, right, true, columns, columnNames);
+                addAllColumns(right, left, false, columns, columnNames);
+                continue;
+            }
+
+            boolean isLeft = isLeft(left, right, name);
+            columns.add(new Plan.JoinColumn(isLeft, (isLeft ? left : right).getColumnIndex(name.ident()), false));
+            columnNames.add(name.ident());
+        }
+
+        List<Plan.JoinColumn> order = new ArrayList<>();
+
+        if (query.order() != null) {
+            for (Query.OrderBy key : query.order()) {
+                boolean isLeft = isLeft(left, right, key.column());
+                order.add(new Plan.JoinColumn(isLeft, (isLeft ? left : right).getColumnIndex(key.column().ident()), key.sortOrder().type() == Token.SortOrderType.DESC));
+            }
+        }
+
+        long count = Long.MAX_VALUE;
+        long offset = 0;
+
+        if (query.limit() != null) {
+            count = query.limit().count() == null ? Long.MAX_VALUE : toCount(query.limit().count(), "LIMIT");
+            offset = query.limit().offset() == null ? 0 : toCount(query.limit().offset(), "OFFSET");
+        }
+
+        // Like a single table, the join is sorted by its sort key, and only the rows up to the limit are kept if it has
+        // one. An empty range needs no sort at all.
+        if (!order.isEmpty() && count > 0) {
+            join = isTopN(offset + count, join.estimatedRows())
+                ? new Plan.JoinTopN(join, left, right, order, (int) (offset + count))
+                : new Plan.JoinSort(join, left, right, order, settings.sortMemory());
+        }
+
+        return new Plan.JoinProject(join, left, right, columns, columnNames, offset, count);
+    }
+
+    /**
+     * Finds which table of a join a column belongs to.
+     * @return true if the column belongs to the left table
+     * @throws IllegalArgumentException if the column is in neither table, or in both without being qualified.
+     */
+    private static boolean isLeft(Table left, Table right, Token.Identifier column) throws IllegalArgumentException {
+        boolean inLeft = left.hasColumn(column.ident());
+        boolean inRight = right.hasColumn(column.ident());
+
+        if (inLeft && inRight) {
+            throw new IllegalArgumentException(String.format("Column '%s' is ambiguous, since both '%s' and '%s' have it.", column.ident(), left.getName(), right.getName()));
+        }
+
+        if (!inLeft && !inRight) {
+            throw new IllegalArgumentException(String.format("Column '%s' does not exist in table '%s' or '%s'.", column.ident(), left.getName(), right.getName()));
+        }
+
+        return inLeft;
+    }
+
+    /**
+     * Finds which table of a join a condition reads.
+     * @return true if the condition reads the left table
+     * @throws IllegalArgumentException if the condition reads columns of both tables.
+     */
+    private static boolean isLeft(Table left, Table right, Expression condition) throws IllegalArgumentException {
+        return switch (condition) {
+            case Expression.Comparison comparison -> isLeft(left, right, comparison.ident());
+            case Expression.Binary binary -> {
+                boolean lhs = isLeft(left, right, binary.lhs());
+
+                if (lhs != isLeft(left, right, binary.rhs())) {
+                    throw new IllegalArgumentException(String.format("Conditions on '%s' and '%s' can only be combined with AND.", left.getName(), right.getName()));
+                }
+
+                yield lhs;
+            }
+        };
+    }
+
+    /**
+     * Splits a filter into the conditions that are combined with `AND` at its top level.
+     */
+    private static List<Expression> conjuncts(Expression filter) {
+        if (filter instanceof Expression.Binary binary && binary.op().type() == Token.BinaryOperatorType.AND) {
+            List<Expression> conjuncts = new ArrayList<>(conjuncts(binary.lhs()));
+            conjuncts.addAll(conjuncts(binary.rhs()));
+            return conjuncts;
+        }
+
+        return List.of(filter);
+    }
+
+    /**
+     * Selects every column of one table of a join. Names that both tables have are qualified with the table name.
+     */
+    private static void addAllColumns(Table table, Table other, boolean isLeft, List<Plan.JoinColumn> columns, List<String> columnNames) {
+        for (int i = 0; i < table.getColumns().size(); i++) {
+            String name = table.getColumns().get(i).name();
+
+            columns.add(new Plan.JoinColumn(isLeft, i, false));
+            columnNames.add(other.hasColumn(name) ? table.getName() + "." + name : name);
+        }
+    }
+
+    /**
+     * Plans the rows of one side of a sort-merge join, which come in the order of an ordered index over its join column.
+     */
+    private static Plan sortedRows(Table table, IntPredicate visible, Index index, Expression filter, long estimate) {
+        Plan scan = new Plan.IndexScan(table, visible, index, false);
+        return filter == null ? scan : new Plan.Filter(scan, table, filter, estimate);
+    }
+
+    /**
+     * Finds an index that can look up equal values of a column, preferring a hash index.
+     */
+    private static Index equalityIndex(Table table, int columnIndex) {
+        Index index = findIndex(table, columnIndex, false);
+        return index == null ? findIndex(table, columnIndex, true) : index;
+    }
+
+    /**
+     * Estimates the number of distinct values a join column holds among the rows read from its table. Without an
+     * index to tell, every row is assumed to hold a different value.
+     */
+    private static long distinctKeys(Table table, int columnIndex, long estimate) {
+        Index index = equalityIndex(table, columnIndex);
+        return index == null ? estimate : Math.min(estimate, index.getDistinctKeys());
+    }
+
+    /**
+     * Cuts a plan off after a range of rows. A sort that only has to produce a few of its first rows keeps just those
+     * rows in a bounded heap instead of sorting everything.
+     * @throws IllegalArgumentException if the count or offset is not a non-negative integer.
+     */
+    private static Plan limit(Plan plan, Query.Limit limit) throws IllegalArgumentException {
+        long count = limit.count() == null ? Long.MAX_VALUE : toCount(limit.count(), "LIMIT");
+        long offset = limit.offset() == null ? 0 : toCount(limit.offset(), "OFFSET");
+
+        if (count == 0) {
+            return new Plan.Empty();
+        }
+
+        if (plan instanceof Plan.Sort(var input, var table, var order, var memoryBudget) && isTopN(offset + count, input.estimatedRows())) {
+            plan = new Plan.TopN(input, table, order, (int) (offset + count));
+        }
+
+        return new Plan.Limit(plan, offset, count);
+    }
+
+    /**
+     * Decides whether the first rows of a sort are better found with a bounded heap than by sorting everything, which
+     * is only the case if the heap keeps few of the rows. Otherwise the heap saves little work, and could take more
+     * memory than the sort is allowed to use before it spills.
+     * @param rows number of rows the heap would have to keep
+     * @param estimatedRows expected number of rows to be sorted
+     */
+    private static boolean isTopN(long rows, long estimatedRows) {
+        return rows <= TOP_N_MAX_ROWS && rows <= estimatedRows * TOP_N_FRACTION;
+    }
+
+    private static int toCount(Token.Literal literal, String clause) throws IllegalArgumentException {
+        return switch (literal) {
+            case Token.Literal.Integer(var value) when value >= 0 -> value;
+            case Token.Parameter p -> throw p.unbound();
+            default -> throw new IllegalArgumentException(String.format("%s must be a non-negative integer.", clause));
+        };
+    }
+
+    /**
+     * Plans which rows of a table satisfy a filter, in no particular order.
+     * @param table table to read from
+     * @param visible row versions the query may see
+     * @param filter optional filtering settings
+     * @param settings how many threads the scan may use
+     * @return root operator of the plan
+     * @throws IllegalArgumentException if a column does not exist or a comparison does not match its column type.
+     */
+    public static Plan planRows(Table table, IntPredicate visible, Expression filter, ExecutionSettings settings) throws IllegalArgumentException {
+        return planRows(table, visible, filter, null, settings);
+    }
+
+    /**
+     * Plans which rows of a table satisfy a filter, and in what order they should be produced.
+     * @param table table to read from
+     * @param visible row versions the query may see
+     * @param filter optional filtering settings
+     * @param order optional sort columns, most significant first
+     * @param settings how much memory and how many threads operators may use
+     * @return root operator of the plan
+     * @throws IllegalArgumentException if a column does not exist or a comparison does not match its column type.
+     */
+    public static Plan planRows(Table table, IntPredicate visible, Expression filter, List<Query.OrderBy> order, ExecutionSettings settings) throws IllegalArgumentException {
+        List<Expression> conjuncts = filter == null ? List.of() : simplify(table, filter);
+
+        // The filter contradicts itself, so there is no point in touching the table at all.
+        if (conjuncts == null) {
+            return new Plan.Empty();
+        }
+
+        conjuncts = new ArrayList<>(conjuncts);
+        conjuncts.sort(Comparator.comparingDouble((conjunct) -> selectivity(table, conjunct)));
+
+        // Pick the indexable predicate that leaves us with the fewest rows to look at.
+        Plan access = null;
+        Expression seekConjunct = null;
+
+        for (Expression conjunct : conjuncts) {
+            Plan seek = indexAccess(table, visible, conjunct);
+
+            if (seek != null && (access == null || seek.estimatedRows() < access.estimatedRows())) {
+                access = seek;
+                seekConjunct = conjunct;
+            }
+        }
+
+        conjuncts.remove(seekConjunct);
+
+        boolean sorted = false;
+
+        if (order != null) {
+            for (Query.OrderBy key : order) {
+                table.getColumnIndex(key.column().ident());
+            }
+        }
+
+        if (access == null) {
+            // An index only orders rows on its own column, so it cannot break ties on further sort columns.
+            Index orderedIndex = order == null || order.size() != 1 ? null : findIndex(table, table.getColumnIndex(order.get(0).column().ident()), true);
+
+            if (orderedIndex != null) {
+                access = new Plan.IndexScan(table, visible, orderedIndex, order.get(0).sortOrder().type() == Token.SortOrderType.DESC);
+                sorted = true;
+            } else {
+                access = new Plan.TableScan(table, visible);
+            }
+        }
+
+        Plan plan = access;
+        Expression residual = conjuncts.isEmpty() ? null : combine(conjuncts, AND);
+        long estimatedRows = plan.estimatedRows();
+
+        if (residual != null) {
+            double residualSelectivity = conjuncts
+                .stream()
+                .mapToDouble((conjunct) -> selectivity(table, conjunct))
+                .reduce(1, (a, b) -> a * b);
+
+            estimatedRows = (long) Math.ceil(estimatedRows * residualSelectivity);
+        }
+
+        // Large tables that have to be read in full are split into morsels that are filtered on several threads.
+        if (access instanceof Plan.TableScan && Morsels.worthwhile(table, settings.parallelism())) {
+            plan = new Plan.ParallelScan(table, visible, residual, settings.parallelism(), estimatedRows);
+        } else if (residual != null) {
+            plan = new Plan.Filter(plan, table, residual, estimatedRows);
+        }
+
+        if (order != null && !sorted) {
+            plan = new Plan.Sort(plan, table, order, settings.sortMemory());
+        }
+
+        return plan;
+    }
+
+    /**
+     * Attempts to answer a predicate entirely with index lookups.
+     * @return an index seek (or union of seeks), or null if the predicate cannot be answered by an index.
+     */
+    private static Plan indexAccess(Table table, IntPredicate visible, Expression predicate) {
+        return switch (predicate) {
+            case Expression.Comparison comparison -> {
+                int columnIndex = table.getColumnIndex(comparison.ident().ident());
+                Token.OperatorType op = comparison.op().type();
+
+                // Hash indexes are the cheapest for equality, so prefer them over ordered indexes.
+                Index index = findIndex(table, columnIndex, false);
+                if (index == null || !index.supports(op)) {
+                    index = findIndex(table, columnIndex, true);
+                }
+
+                if (index == null || !index.supports(op)) {
+                    yield null;
+                }
+
+                yield new Plan.IndexSeek(table, visible, index, comparison, (long) Math.ceil(table.getLiveRowCount() * selectivity(table, comparison)));
+            }
+            // Both sides of a disjunction have to be answered by an index.
+            case Expression.Binary binary when binary.op().type() == Token.BinaryOperatorType.OR -> {
+                Plan lhs = indexAccess(table, visible, binary.lhs());
+                Plan rhs = lhs != null ? indexAccess(table, visible, binary.rhs()) : null;
+                yield rhs != null ? new Plan.Union(lhs, rhs) : null;
+            }
+            case Expression.Binary ignored -> null;
+        };
+    }
+
+    /**
+     * Finds an index over the given column. Indexes that are not being kept up to date are never used.
+     * @param ordered whether to look for an ordered index or a hash index
+     */
+    private static Index findIndex(Table table, int columnIndex, boolean ordered) {
+        if (table.areIndexesDeferred()) {
+            return null;
+        }
+
+        for (Index index : table.getIndexes()) {
+            if (index.getColumnIndex() == columnIndex && index.isOrdered() == ordered) {
+                return index;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Estimates the fraction of rows that satisfy a predicate.
+     */
+    private static double selectivity(Table table, Expression predicate) {
+        return switch (predicate) {
+            case Expression.Comparison comparison -> switch (comparison.op().type()) {
+                case ASSIGN, EQUAL -> {
+                    // An index tells us how many distinct values there are, which gives a much better guess.
+                    int columnIndex = table.getColumnIndex(comparison.ident().ident());
+                    Index index = findIndex(table, columnIndex, false);
+                    if (index == null) {
+                        index = findIndex(table, columnIndex, true);
+                    }
+
+                    yield index == null
+                        ? EQUALITY_SELECTIVITY
+                        : 1.0 / Math.max(1, index.getDistinctKeys());
+                }
+                case NOT_EQUAL -> INEQUALITY_SELECTIVITY;
+                case LESS, LESS_EQUAL, GREATER, GREATER_EQUAL -> RANGE_SELECTIVITY;
+            };
+            case Expression.Binary binary -> switch (binary.op().type()) {
+                case AND -> selectivity(table, binary.lhs()) * selectivity(table, binary.rhs());
+                case OR  -> Math.min(1, selectivity(table, binary.lhs()) + selectivity(table, binary.rhs()));
+            };
+        };
+    }
+
+    /**
+     * Splits a filter into a list of conjuncts and folds away redundant or contradictory predicates.
+     * @return simplified conjuncts, or null if the filter can never be satisfied.
+     */
+    private static List<Expression> simplify(Table table, Expression filter) {
+        return switch (filter) {
+            case Expression.Comparison comparison -> {
+                // Check the literal against the column type once, instead of once per row.
+                table.getColumn(table.getColumnIndex(comparison.ident().ident())).toKey(comparison.value());
+                yield List.of(comparison);
+            }
+            case Expression.Binary binary -> switch (binary.op().type()) {
+                case AND -> {
+                    List<Expression> lhs = simplify(table, binary.lhs());
+                    List<Expression> rhs = simplify(table, binary.rhs());
+
+                    if (lhs == null || rhs == null) {
+                        yield null;
+                    }
+
+                    List<Expression> conjuncts = new ArrayList<>(lhs);
+                    conjuncts.addAll(rhs);
+                    yield mergeRanges(table, conjuncts);
+                }
+                case OR -> {
+                    // Drop disjuncts that can never be satisfied, as well as duplicate disjuncts.
+                    Set<Expression> disjuncts = new LinkedHashSet<>();
+
+                    for (Expression disjunct : List.of(binary.lhs(), binary.rhs())) {
+                        List<Expression> conjuncts = simplify(table, disjunct);
+                        if (conjuncts != null) {
+                            disjuncts.add(combine(conjuncts, AND));
+                        }
+                    }
+
+                    if (disjuncts.isEmpty()) {
+                        yield null;
+                    }
+
+                    yield List.of(combine(new ArrayList<>(disjuncts), OR));
+                }
+            };
+        };
+    }
+
+    /**
+     * Removes duplicate conjuncts and merges comparisons on the same column into the tightest possible range.
+     * @return merged conjuncts, or null if the comparisons on a column contradict each other.
+     */
+    private static List<Expression> mergeRanges(Table table, List<Expression> conjuncts) {
+        Map<Integer, List<Expression.Comparison>> ranges = new LinkedHashMap<>();
+        List<Expression> result = new ArrayList<>();
+
+        for (Expression conjunct : new LinkedHashSet<>(conjuncts)) {
+            if (conjunct instanceof Expression.Comparison comparison && comparison.op().type() != Token.OperatorType.NOT_EQUAL) {
+                int columnIndex = table.getColumnIndex(comparison.ident().ident());
+
+                if (!ranges.containsKey(columnIndex)) {
+                    // Reserve a spot so that the merged range keeps the position of the first comparison.
+                    result.add(null);
+                    ranges.put(columnIndex, new ArrayList<>());
+                }
+
+                ranges.get(columnIndex).add(comparison);
+            } else {
+                result.add(conjunct);
+            }
+        }
+
+        Iterator<Integer> columnIndices = ranges.keySet().iterator();
+
+        for (int i = 0; i < result.size(); i++) {
+            if (result.get(i) != null) {
+                continue;
+            }
+
+            int columnIndex = columnIndices.next();
+            List<Expression.Comparison> merged = mergeRange(table.getColumn(columnIndex), ranges.get(columnIndex));
+
+            if (merged == null) {
+                return null;
+            }
+
+            result.remove(i);
+            result.addAll(i, merged);
+            i += merged.size() - 1;
+        }
+
+        return result;
+    }
+
+    /**
+     * Merges comparisons on a single column into at most one lower bound and one upper bound, or a single equality.
+     * @return merged comparisons, or null if the comparisons contradict each other.
+     */
+    private static List<Expression.Comparison> mergeRange(Column column, List<Expression.Comparison> comparisons) {
+        Expression.Comparison equal = null;
+        Expression.Comparison lower = null;
+        Expression.Comparison upper = null;
+
+        for (Expression.Comparison comparison : comparisons) {
+            switch (comparison.op().type()) {
+                case ASSIGN, EQUAL -> {
+                    if (equal != null && compareKeys(column, equal, comparison) != 0) {
+                        return null;
+                    }
+                    equal = comparison;
+                }
+                case GREATER, GREATER_EQUAL -> {
+                    if (lower == null || isTighter(column, comparison, lower, 1)) {
+                        lower = comparison;
+                    }
+                }
+                case LESS, LESS_EQUAL -> {
+                    if (upper == null || isTighter(column, comparison, upper, -1)) {
+                        upper = comparison;
+                    }
+                }
+                case NOT_EQUAL -> throw new IllegalStateException("Inequalities cannot be merged into a range.");
+            }
+        }
+
+        if (equal != null) {
+            // An equality is tighter than any range, as long as it lies inside of it.
+            if ((lower != null && !satisfies(column, equal, lower)) || (upper != null && !satisfies(column, equal, upper))) {
+                return null;
+            }
+
+            return List.of(equal);
+        }
+
+        if (lower != null && upper != null) {
+            int order = compareKeys(column, lower, upper);
+            boolean inclusive = lower.op().type() == Token.OperatorType.GREATER_EQUAL
+                && upper.op().type() == Token.OperatorType.LESS_EQUAL;
+
+            if (order > 0 || (order == 0 && !inclusive)) {
+                return null;
+            }
+
+            // `x >= 5 AND x <= 5` can only mean `x == 5`.
+            if (order == 0) {
+                return List.of(new Expression.Comparison(lower.ident(), new Token.Operator(Token.OperatorType.EQUAL), lower.value()));
+            }
+        }
+
+        List<Expression.Comparison> merged = new ArrayList<>(2);
+        if (lower != null) {
+            merged.add(lower);
+        }
+        if (upper != null) {
+            merged.add(upper);
+        }
+
+        return merged;
+    }
+
+    /**
+     * Returns true if `candidate` is a tighter bound than `current`.
+     * @param direction 1 for lower bounds, -1 for upper bounds
+     */
+    private static boolean isTighter(Column column, Expression.Comparison candidate, Expression.Comparison current, int direction) {
+        int order = compareKeys(column, candidate, current) * direction;
+
+        if (order != 0) {
+            return order > 0;
+        }
+
+        // On a tie, a strict bound excludes more than an inclusive one.
+        Token.OperatorType op = candidate.op().type();
+        return op == Token.OperatorType.GREATER || op == Token.OperatorType.LESS;
+    }
+
+    /**
+     * Returns true if the value of an equality comparison satisfies a range comparison.
+     */
+    private static boolean satisfies(Column column, Expression.Comparison equal, Expression.Comparison bound) {
+        int order = compareKeys(column, equal, bound);
+
+        return switch (bound.op().type()) {
+            case ASSIGN, EQUAL -> order == 0;
+            case NOT_EQUAL     -> order != 0;
+            case LESS          -> order < 0;
+            case LESS_EQUAL    -> order <= 0;
+            case GREATER       -> order > 0;
+            case GREATER_EQUAL -> order >= 0;
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private static int compareKeys(Column column, Expression.Comparison a, Expression.Comparison b) {
+        return ((Comparable<Object>) column.toKey(a.value())).compareTo(column.toKey(b.value()));
+    }
+
+    /**
+     * Combines a list of expressions with a binary operator, from left to right.
+     */
+    private static Expression combine(List<Expression> expressions, Token.BinaryOperator op) {
+        Expression result = expressions.get(0);
+
+        for (int i = 1; i < expressions.size(); i++) {
+            result = new Expression.Binary(result, op, expressions.get(i));
+        }
+
+        return result;
+    }
+
+    /**
+     * Formats an expression back into SQL, used by `EXPLAIN`.
+     */
+    static String format(Expression expression) {
+        return switch (expression) {
+            case Expression.Comparison comparison -> String.format(
+                "%s %s %s",
+                comparison.ident().ident(),
+                switch (comparison.op().type()) {
+                    case ASSIGN        -> "=";
+                    case EQUAL         -> "==";
+                    case NOT_EQUAL     -> "!=";
+                    case LESS          -> "<";
+                    case LESS_EQUAL    -> "<=";
+                    case GREATER       -> ">";
+                    case GREATER_EQUAL -> ">=";
+                },
+                switch (comparison.value()) {
+                    case Token.Literal.String(var s) -> String.format("'%s'", s);
+                    case Token.Literal.Integer(var i) -> String.valueOf(i);
+                    case Token.Literal.Boolean(var b) -> String.valueOf(b);
+                    case Token.Parameter(var index) -> "$" + index;
+                }
+            );
+            case Expression.Binary binary -> String.format(
+                "(%s %s %s)",
+                format(binary.lhs()),
+                binary.op().type(),
+                format(binary.rhs())
+            );
+        };
+    }
+
+    /**
+     * Formats the condition of a join back into SQL, used by `EXPLAIN`.
+     */
+    static String format(Query.Join join) {
+        return String.format("%s = %s", join.left().ident(), join.right().ident());
+    }
+
+    /**
+     * Returns the kind of value a selected column or aggregate holds in a result set.
+     */
+    static Class<? extends Value> valueType(Table table, Query.Selection column) {
+        return switch (column) {
+            case Token.Identifier name -> valueType(table.getColumns().get(table.getColumnIndex(name.ident())).type());
+            case Query.Aggregate aggregate -> switch (aggregate.function()) {
+                case COUNT -> Value.Integer.class;
+                case SUM, AVG -> Value.Numeric.class;
+                case MIN, MAX -> valueType(table, aggregate.column());
+            };
+        };
+    }
+
+    /**
+     * Returns the kind of value a column of the given type holds.
+     */
+    static Class<? extends Value> valueType(DataType type) {
+        return switch (type) {
+            case DataType.Integer ignored -> Value.Integer.class;
+            case DataType.Boolean ignored -> Value.Boolean.class;
+            case DataType.VarChar ignored -> Value.VarChar.class;
+        };
+    }
+
+    /**
+     * Returns the name of a selected column in a result set, e.g. `id` or `COUNT(*)`.
+     */
+    static String columnName(Query.Selection column) {
+        return switch (column) {
+            case Token.Identifier name -> name.ident();
+            case Query.Aggregate aggregate -> aggregate.toString();
+        };
+    }
+
+    /**
+     * Formats sort columns back into SQL, used by `EXPLAIN`.
+     */
+    static String format(List<Query.OrderBy> order) {
+        return order
+            .stream()
+            .map((key) -> String.format("%s %s", key.column().ident(), key.sortOrder().type()))
+            .collect(Collectors.joining(", "));
+    }
+
+    /**
+     * Flattens a plan into one line per operator, indented by depth, used by `EXPLAIN`.
+     * @return rows of { operator, estimated rows }
+     */
+    public static String[][] describe(Plan plan) {
+        List<String[]> rows = new ArrayList<>();
+        describe(plan, 0, rows);
+        return rows.toArray(String[][]::new);
+    }
+
+    private static void describe(Plan plan, int depth, List<String[]> rows) {
+        rows.add(new String[]{ "  ".repeat(depth) + plan.describe(), String.valueOf(plan.estimatedRows()) });
+
+        for (Plan child : plan.children()) {
+            describe(child, depth + 1, rows);
+        }
+    }
+}
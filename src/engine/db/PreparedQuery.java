@@ -0,0 +1,348 @@
+/*
+ * PreparedQuery v1.0
+ *
+ * database contributors
+ * Oct 16, 2026
+ */
+
+package engine.db;
+
+import engine.sql.DataType;
+import engine.sql.Expression;
+import engine.sql.Query;
+import engine.sql.Token;
+
+import javax.swing.table.TableModel;
+import java.util.*;
+import java.util.function.UnaryOperator;
+
+/**
+ * One or more queries that have been tokenized, parsed and checked against the schema once, and can be executed any
+ * number of times with different values for their `?` / `$1` parameters. Binding values only substitutes literals
+ * into the parsed queries, so executing a prepared query never touches the tokenizer or parser again.
+ * Prepared queries are created with {@link Database#prepare(String)}, and are safe to share between threads.
+ */
+public final class PreparedQuery {
+    private final Database database;
+    private final List<Query> templates;
+    private final int parameterCount;
+    private final List<DataType> parameterTypes;
+    private final Set<String> tableNames;
+
+    /**
+     * @throws NoSuchElementException if a query refers to a table or column that does not exist.
+     */
+    PreparedQuery(Database database, List<Query> templates) throws NoSuchElementException, IllegalArgumentException {
+        this.database = database;
+        this.templates = List.copyOf(templates);
+        this.tableNames = new HashSet<>();
+
+        int[] parameterCount = { 0 };
+        Set<String> created = new HashSet<>();
+        Map<Integer, DataType> types = new HashMap<>();
+
+        for (Query template : this.templates) {
+            // Walk every literal without changing it, just to find the highest parameter number.
+            substitute(template, (literal) -> {
+                if (literal instanceof Token.Parameter(var index)) {
+                    parameterCount[0] = Math.max(parameterCount[0], index);
+                }
+                return literal;
+            });
+
+            check(template, created);
+            inferTypes(template, created, types);
+        }
+
+        this.parameterCount = parameterCount[0];
+
+        // Parameters whose type cannot be told from the schema are left null, which List.of does not allow.
+        DataType[] parameterTypes = new DataType[this.parameterCount];
+        types.forEach((index, type) -> parameterTypes[index - 1] = type);
+        this.parameterTypes = Collections.unmodifiableList(Arrays.asList(parameterTypes));
+    }
+
+    /**
+     * Returns the number of values that have to be bound, which is the highest parameter number used.
+     */
+    public int getParameterCount() {
+        return parameterCount;
+    }
+
+    /**
+     * Returns the type of the column each parameter is compared with or stored in, in order, e.g. so that a client
+     * can be told how to send its values. A parameter has a null type if that cannot be told from the schema, e.g.
+     * because its table is created by an earlier query in the same script.
+     */
+    public List<DataType> getParameterTypes() {
+        return parameterTypes;
+    }
+
+    /**
+     * Returns true if any of the queries reads or changes the given table.
+     */
+    boolean references(String tableName) {
+        return tableNames.contains(tableName);
+    }
+
+    /**
+     * Substitutes values for the parameters of every query.
+     * @param values one value per parameter, in order; each one an {@link Integer}, {@link String}, {@link Boolean},
+     *               {@link Token.Literal} or null
+     * @return queries that are ready to be executed
+     * @throws IllegalArgumentException if the number or types of the values are wrong.
+     */
+    public List<Query> bind(Object... values) throws IllegalArgumentException {
+        if (values.length != parameterCount) {
+            throw new IllegalArgumentException(String.format("Expected %d parameter values but got %d.", parameterCount, values.length));
+        }
+
+        if (parameterCount == 0) {
+            return templates;
+        }
+
+        Token.Literal[] literals = new Token.Literal[values.length];
+        for (int i = 0; i < values.length; i++) {
+            literals[i] = toLiteral(values[i]);
+        }
+
+        List<Query> queries = new ArrayList<>(templates.size());
+        for (Query template : templates) {
+            queries.add(substitute(template, (literal) -> literal instanceof Token.Parameter(var index) ? literals[index - 1] : literal));
+        }
+
+        return queries;
+    }
+
+    /**
+     * Binds values to the parameters and executes every query, each one committing as soon as it finishes.
+     * @return result set of the last query
+     * @throws IllegalArgumentException if the number or types of the values are wrong.
+     * @throws NoSuchElementException if a query had invalid arguments
+     */
+    public TableModel execute(Object... values) throws IllegalArgumentException, NoSuchElementException {
+        TableModel result = null;
+
+        for (Query query : bind(values)) {
+            result = database.executeQuery(query);
+        }
+
+        return result;
+    }
+
+    private static Token.Literal toLiteral(Object value) throws IllegalArgumentException {
+        return switch (value) {
+            case null -> null;
+            case Token.Literal literal -> literal;
+            case Integer v -> new Token.Literal.Integer(v);
+            case String v -> new Token.Literal.String(v);
+            case Boolean v -> new Token.Literal.Boolean(v);
+            default -> throw new IllegalArgumentException(String.format("Cannot bind a value of type %s to a parameter.", value.getClass().getSimpleName()));
+        };
+    }
+
+    /**
+     * Rebuilds a query with every literal replaced by the result of a function. Queries without literals are
+     * returned as they are.
+     */
+    private static Query substitute(Query query, UnaryOperator<Token.Literal> replace) {
+        return switch (query) {
+            case Query.InsertInto q -> new Query.InsertInto(q.tableName(), q.columns(), q.rows().stream().map((values) -> substitute(values, replace)).toList());
+            case Query.InsertSelect q -> new Query.InsertSelect(q.tableName(), q.columns(), (Query.Select) substitute(q.source(), replace));
+            case Query.Select q -> new Query.Select(q.tableName(), q.join(), q.columns(), substitute(q.filter(), replace), q.groupBy(), q.order(), substitute(q.limit(), replace));
+            case Query.DeleteFrom q -> new Query.DeleteFrom(q.tableName(), substitute(q.filter(), replace));
+            case Query.UpdateSet q -> new Query.UpdateSet(q.tableName(), q.columns(), substitute(q.values(), replace), substitute(q.filter(), replace));
+            case Query.Explain q -> new Query.Explain(substitute(q.query(), replace));
+            default -> query;
+        };
+    }
+
+    private static List<Token.Literal> substitute(List<Token.Literal> literals, UnaryOperator<Token.Literal> replace) {
+        // Literals may be null, which List.copyOf and Stream.toList do not allow.
+        List<Token.Literal> result = new ArrayList<>(literals.size());
+        for (Token.Literal literal : literals) {
+            result.add(replace.apply(literal));
+        }
+        return result;
+    }
+
+    private static Query.Limit substitute(Query.Limit limit, UnaryOperator<Token.Literal> replace) {
+        return limit == null ? null : new Query.Limit(
+            limit.count() == null ? null : replace.apply(limit.count()),
+            limit.offset() == null ? null : replace.apply(limit.offset())
+        );
+    }
+
+    private static Expression substitute(Expression expression, UnaryOperator<Token.Literal> replace) {
+        return switch (expression) {
+            case null -> null;
+            case Expression.Comparison c -> new Expression.Comparison(c.ident(), c.op(), replace.apply(c.value()));
+            case Expression.Binary b -> new Expression.Binary(substitute(b.lhs(), replace), b.op(), substitute(b.rhs(), replace));
+        };
+    }
+
+    /**
+     * Makes sure that every table and column a query refers to exists, so that mistakes are reported when the query
+     * is prepared rather than every time it is executed. Tables created earlier in the same script are not checked.
+     */
+    private void check(Query query, Set<String> created) throws NoSuchElementException, IllegalArgumentException {
+        switch (query) {
+            case Query.CreateTable q -> {
+                tableNames.add(q.tableName().ident());
+                created.add(q.tableName().ident());
+            }
+            case Query.DropTable q -> tableNames.add(q.tableName().ident());
+            case Query.InsertInto q -> checkColumns(q.tableName(), q.columns(), null, created);
+            case Query.InsertSelect q -> {
+                checkColumns(q.tableName(), q.columns(), null, created);
+                check(q.source(), created);
+            }
+            case Query.Select q when q.join() != null -> {
+                // Columns of a join may belong to either table, which is only worked out when the query is planned.
+                checkColumns(q.tableName(), List.of(), null, created);
+                checkColumns(q.join().tableName(), List.of(), null, created);
+            }
+            case Query.Select q -> checkColumns(q.tableName(), referencedColumns(q), q.filter(), created);
+            case Query.DeleteFrom q -> checkColumns(q.tableName(), List.of(), q.filter(), created);
+            case Query.UpdateSet q -> checkColumns(q.tableName(), q.columns(), q.filter(), created);
+            case Query.CreateIndex q -> checkColumns(q.tableName(), List.of(q.column()), null, created);
+            case Query.Explain q -> check(q.query(), created);
+            default -> {}
+        }
+    }
+
+    private void checkColumns(Token.Identifier tableName, List<Token.Identifier> columns, Expression filter, Set<String> created) {
+        tableNames.add(tableName.ident());
+
+        // Tables created by an earlier query in the same script do not exist yet.
+        if (created.contains(tableName.ident())) {
+            return;
+        }
+
+        Table table = database.getTable(tableName.ident());
+
+        if (columns != null) {
+            for (Token.Identifier column : columns) {
+                if (!column.ident().equals("*")) {
+                    table.getColumnIndex(column.ident());
+                }
+            }
+        }
+
+        checkFilter(table, filter);
+    }
+
+    /**
+     * Works out the types of the parameters of a query from the columns they are compared with or stored in. A
+     * parameter that is used in several places takes the type of the first one.
+     */
+    private void inferTypes(Query query, Set<String> created, Map<Integer, DataType> types) {
+        switch (query) {
+            case Query.InsertInto q when !created.contains(q.tableName().ident()) -> {
+                Table table = database.getTable(q.tableName().ident());
+                List<Query.ColumnDefinition> columns = table.getColumns();
+
+                for (List<Token.Literal> row : q.rows()) {
+                    for (int i = 0; i < row.size(); i++) {
+                        if (row.get(i) instanceof Token.Parameter(var index)) {
+                            int column = q.columns() == null ? i : table.getColumnIndex(q.columns().get(i).ident());
+                            types.putIfAbsent(index, columns.get(column).type());
+                        }
+                    }
+                }
+            }
+            case Query.InsertSelect q -> inferTypes(q.source(), created, types);
+            case Query.Select q -> {
+                if (q.limit() != null) {
+                    for (Token.Literal literal : Arrays.asList(q.limit().count(), q.limit().offset())) {
+                        if (literal instanceof Token.Parameter(var index)) {
+                            types.putIfAbsent(index, new DataType.Integer());
+                        }
+                    }
+                }
+
+                inferTypes(q.tableName(), q.join() == null ? null : q.join().tableName(), q.filter(), created, types);
+            }
+            case Query.DeleteFrom q -> inferTypes(q.tableName(), null, q.filter(), created, types);
+            case Query.UpdateSet q when !created.contains(q.tableName().ident()) -> {
+                Table table = database.getTable(q.tableName().ident());
+
+                for (int i = 0; i < q.values().size(); i++) {
+                    if (q.values().get(i) instanceof Token.Parameter(var index)) {
+                        types.putIfAbsent(index, table.getColumns().get(table.getColumnIndex(q.columns().get(i).ident())).type());
+                    }
+                }
+
+                inferTypes(q.tableName(), null, q.filter(), created, types);
+            }
+            case Query.Explain q -> inferTypes(q.query(), created, types);
+            default -> {}
+        }
+    }
+
+    /**
+     * Works out the types of the parameters of a filter over a table, or over either table of a join.
+     * @param joined table joined with the first one, or null
+     */
+    private void inferTypes(Token.Identifier tableName, Token.Identifier joined, Expression filter, Set<String> created, Map<Integer, DataType> types) {
+        if (created.contains(tableName.ident()) || (joined != null && created.contains(joined.ident()))) {
+            return;
+        }
+
+        List<Table> tables = joined == null
+            ? List.of(database.getTable(tableName.ident()))
+            : List.of(database.getTable(tableName.ident()), database.getTable(joined.ident()));
+
+        inferTypes(tables, filter, types);
+    }
+
+    private static void inferTypes(List<Table> tables, Expression filter, Map<Integer, DataType> types) {
+        switch (filter) {
+            case null -> {}
+            case Expression.Comparison c -> {
+                if (c.value() instanceof Token.Parameter(var index)) {
+                    for (Table table : tables) {
+                        if (table.hasColumn(c.ident().ident())) {
+                            types.putIfAbsent(index, table.getColumns().get(table.getColumnIndex(c.ident().ident())).type());
+                            break;
+                        }
+                    }
+                }
+            }
+            case Expression.Binary b -> {
+                inferTypes(tables, b.lhs(), types);
+                inferTypes(tables, b.rhs(), types);
+            }
+        }
+    }
+
+    /**
+     * Returns the columns a query selects, aggregates or groups on.
+     */
+    private static List<Token.Identifier> referencedColumns(Query.Select query) {
+        List<Token.Identifier> columns = new ArrayList<>();
+
+        for (Query.Selection selection : query.columns()) {
+            columns.add(switch (selection) {
+                case Token.Identifier column -> column;
+                case Query.Aggregate aggregate -> aggregate.column();
+            });
+        }
+        if (query.groupBy() != null) {
+            columns.addAll(query.groupBy());
+        }
+
+        return columns;
+    }
+
+    private static void checkFilter(Table table, Expression filter) {
+        switch (filter) {
+            case null -> {}
+            case Expression.Comparison c -> table.getColumnIndex(c.ident().ident());
+            case Expression.Binary b -> {
+                checkFilter(table, b.lhs());
+                checkFilter(table, b.rhs());
+            }
+        }
+    }
+}
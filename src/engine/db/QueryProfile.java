@@ -0,0 +1,189 @@
+/*
+ * QueryProfile v1.0
+ *
+ * database contributors
+ * Oct 16, 2026
+ */
+
+package engine.db;
+
+import engine.sql.Parser;
+import engine.sql.Query;
+import engine.sql.Token;
+import engine.sql.Tokenizer;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.function.IntPredicate;
+import java.util.function.Supplier;
+
+/**
+ * Measures where a single query spends its time, without attaching a profiler. Like a {@link Cancellation} token, a
+ * profile is bound to the thread that works on the query through {@link #call(Callable)}, and the code that handles
+ * each phase of the query reports to it through {@link #measure(Phase, Supplier)}. Phases nest, e.g. planning happens
+ * while a query executes, and each phase is only charged for the time not spent in the phases nested in it, so the
+ * phases add up to the total. The access operators count every row they go through, and CPU time and allocated bytes
+ * are read from the {@link ThreadMXBean} of the thread the profile is bound to, which leaves out work done on other
+ * threads, e.g. by a parallel scan.
+ * Nothing is measured while no profile is bound, and a profile must only be used by one thread at a time.
+ */
+public final class QueryProfile {
+    public enum Phase {
+        TOKENIZE,
+        PARSE,
+        PLAN,
+        EXECUTE,
+        MATERIALIZE,
+    }
+
+    private static final ThreadLocal<QueryProfile> current = new ThreadLocal<>();
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private final String sql;
+    private final long startedAt;
+    private final long[] phaseNanos;
+    // Phase that is being timed, and when it was last started or resumed
+    private Phase phase;
+    private long phaseStart;
+    private long scannedRows;
+    private long cpuNanos;
+    private long allocatedBytes;
+
+    /**
+     * @param sql text of the query, as shown in the stats
+     */
+    public QueryProfile(String sql) {
+        this.sql = sql;
+        this.startedAt = System.currentTimeMillis();
+        this.phaseNanos = new long[Phase.values().length];
+    }
+
+    /**
+     * Runs work on the calling thread with this profile bound to it, and charges the query for the CPU time and memory
+     * the thread uses meanwhile. A query may be worked on by several calls, e.g. one to parse it and one to execute it.
+     */
+    public <T> T call(Callable<T> work) throws Exception {
+        QueryProfile previous = current.get();
+        long cpu = cpuTime();
+        long allocated = allocatedBytes();
+        current.set(this);
+
+        try {
+            return work.call();
+        } finally {
+            current.set(previous);
+            this.cpuNanos += cpuTime() - cpu;
+            this.allocatedBytes += allocatedBytes() - allocated;
+        }
+    }
+
+    /**
+     * Runs a phase of the query whose profile is bound to the calling thread, and charges its time to the phase.
+     */
+    public static <T> T measure(Phase phase, Supplier<T> work) {
+        QueryProfile profile = current.get();
+
+        if (profile == null) {
+            return work.get();
+        }
+
+        Phase outer = profile.phase;
+        profile.switchTo(phase);
+
+        try {
+            return work.get();
+        } finally {
+            profile.switchTo(outer);
+        }
+    }
+
+    /**
+     * Tokenizes and parses a statement, and charges each step to its phase.
+     * @throws IllegalArgumentException if the statement cannot be parsed.
+     */
+    public static List<Query> parse(String statement) throws IllegalArgumentException {
+        List<Token> tokens = measure(Phase.TOKENIZE, () -> Tokenizer.tokenize(statement));
+        return measure(Phase.PARSE, () -> Parser.parse(tokens));
+    }
+
+    /**
+     * Wraps the predicate that decides which rows a scan yields, so that the query counts the rows the scan goes
+     * through. The profile is looked up once, and the predicate must be tested on the calling thread.
+     */
+    static IntPredicate counting(IntPredicate rows) {
+        QueryProfile profile = current.get();
+
+        if (profile == null) {
+            return rows;
+        }
+
+        return (row) -> {
+            profile.scannedRows++;
+            return rows.test(row);
+        };
+    }
+
+    /**
+     * Counts rows that have been scanned on behalf of the query bound to the calling thread, e.g. on other threads.
+     */
+    static void addScannedRows(long rows) {
+        QueryProfile profile = current.get();
+
+        if (profile != null) {
+            profile.scannedRows += rows;
+        }
+    }
+
+    /**
+     * Returns what has been measured so far.
+     * @param returnedRows number of rows in the result of the query
+     */
+    public QueryStats getStats(long returnedRows) {
+        return new QueryStats(
+            sql,
+            startedAt,
+            phaseNanos[Phase.TOKENIZE.ordinal()],
+            phaseNanos[Phase.PARSE.ordinal()],
+            phaseNanos[Phase.PLAN.ordinal()],
+            phaseNanos[Phase.EXECUTE.ordinal()],
+            phaseNanos[Phase.MATERIALIZE.ordinal()],
+            scannedRows,
+            returnedRows,
+            cpuNanos,
+            allocatedBytes
+        );
+    }
+
+    /**
+     * Stops the clock of the phase being timed, if any, and starts it for another one.
+     * @param next phase to time from now on, or null to time none
+     */
+    private void switchTo(Phase next) {
+        long now = System.nanoTime();
+
+        if (phase != null) {
+            phaseNanos[phase.ordinal()] += now - phaseStart;
+        }
+
+        phase = next;
+        phaseStart = now;
+    }
+
+    /**
+     * Returns the CPU time used by the calling thread so far, or 0 if the JVM does not measure it.
+     */
+    private static long cpuTime() {
+        return THREADS.isCurrentThreadCpuTimeSupported() ? Math.max(0, THREADS.getCurrentThreadCpuTime()) : 0;
+    }
+
+    /**
+     * Returns the bytes allocated by the calling thread so far, or 0 if the JVM does not measure them.
+     */
+    private static long allocatedBytes() {
+        return THREADS instanceof com.sun.management.ThreadMXBean threads && threads.isThreadAllocatedMemorySupported()
+            ? Math.max(0, threads.getCurrentThreadAllocatedBytes())
+            : 0;
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * QueryStats v1.0
+ *
+ * database contributors
+ * Oct 16, 2026
+ */
+
+package engine.db;
+
+import engine.sql.DataType;
+import engine.sql.Query;
+import engine.sql.Token;
+
+import java.util.List;
+
+/**
+ * What a {@link QueryProfile} measured for a single query. Times are in nanoseconds, and each phase leaves out the
+ * phases nested in it.
+ * @param startedAt when the query started, in milliseconds since the epoch
+ * @param scannedRows number of row versions the access operators went through, visible or not
+ * @param cpuNanos CPU time used by the thread that ran the query
+ * @param allocatedBytes bytes allocated by the thread that ran the query
+ */
+public record QueryStats(String sql, long startedAt, long tokenizeNanos, long parseNanos, long planNanos, long executeNanos, long materializeNanos, long scannedRows, long returnedRows, long cpuNanos, long allocatedBytes) {
+    // Longest query text kept in `sys_query_stats`
+    private static final int MAX_SQL_LENGTH = 1024;
+
+    /**
+     * Columns of `sys_query_stats`, which holds one row per query. Times are in microseconds and memory in kilobytes,
+     * so that they fit in an int.
+     */
+    static final List<Query.ColumnDefinition> COLUMNS = List.of(
+        new Query.ColumnDefinition("id", new DataType.Integer()),
+        new Query.ColumnDefinition("query", new DataType.VarChar(MAX_SQL_LENGTH)),
+        new Query.ColumnDefinition("tokenize_us", new DataType.Integer()),
+        new Query.ColumnDefinition("parse_us", new DataType.Integer()),
+        new Query.ColumnDefinition("plan_us", new DataType.Integer()),
+        new Query.ColumnDefinition("execute_us", new DataType.Integer()),
+        new Query.ColumnDefinition("materialize_us", new DataType.Integer()),
+        new Query.ColumnDefinition("total_us", new DataType.Integer()),
+        new Query.ColumnDefinition("rows_scanned", new DataType.Integer()),
+        new Query.ColumnDefinition("rows_returned", new DataType.Integer()),
+        new Query.ColumnDefinition("cpu_us", new DataType.Integer()),
+        new Query.ColumnDefinition("allocated_kb", new DataType.Integer())
+    );
+
+    /**
+     * Returns the time spent in every phase.
+     */
+    public long totalNanos() {
+        return tokenizeNanos + parseNanos + planNanos + executeNanos + materializeNanos;
+    }
+
+    /**
+     * Returns the values of the row of `sys_query_stats` that describes the query.
+     * @param id number of the query, counting every query whose stats have been recorded
+     */
+    List<Token.Literal> toRow(long id) {
+        String text = sql.length() > MAX_SQL_LENGTH ? sql.substring(0, MAX_SQL_LENGTH - 3) + "..." : sql;
+
+        return List.of(
+            integer(id),
+            new Token.Literal.String(text),
+            integer(tokenizeNanos / 1000),
+            integer(parseNanos / 1000),
+            integer(planNanos / 1000),
+            integer(executeNanos / 1000),
+            integer(materializeNanos / 1000),
+            integer(totalNanos() / 1000),
+            integer(scannedRows),
+            integer(returnedRows),
+            integer(cpuNanos / 1000),
+            integer(allocatedBytes / 1024)
+        );
+    }
+
+    /**
+     * Clamps a number to the range of an int column.
+     */
+    private static Token.Literal integer(long value) {
+        return new Token.Literal.Integer((int) Math.min(value, Integer.MAX_VALUE));
+    }
+}
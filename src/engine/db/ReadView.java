@@ -0,0 +1,60 @@
+/*
+ * ReadView v1.0
+ *
+ * database contributors
+ * Oct 16, 2026
+ */
+
+package engine.db;
+
+import java.util.Arrays;
+
+/**
+ * Consistent snapshot of which transactions had committed at the moment a query started. A query that reads through
+ * a view sees the effects of those transactions, and none of the effects of transactions that were still running or
+ * had not started yet, no matter how long the query takes. Views must be closed so that vacuum can reclaim the row
+ * versions they kept alive.
+ */
+public final class ReadView implements AutoCloseable {
+    private final Transactions transactions;
+
+    // Transactions with an id at or above the horizon had not started when the view was taken
+    private final long horizon;
+    // Transactions that had started but not finished, sorted
+    private final long[] active;
+
+    ReadView(Transactions transactions, long horizon, long[] active) {
+        this.transactions = transactions;
+        this.horizon = horizon;
+        this.active = active;
+    }
+
+    /**
+     * Returns the oldest transaction whose effects this view cannot see.
+     */
+    long getOldestInvisible() {
+        return active.length > 0 ? active[0] : horizon;
+    }
+
+    /**
+     * Returns true if the effects of the given transaction are visible through this view.
+     */
+    public boolean sees(long transaction) {
+        return transaction < horizon && (active.length == 0 || Arrays.binarySearch(active, transaction) < 0);
+    }
+
+    /**
+     * Opens another view of the same snapshot, e.g. for a result that is read after the query that produced it has
+     * finished. Each view has to be closed separately.
+     */
+    ReadView share() {
+        ReadView view = new ReadView(transactions, horizon, active);
+        transactions.register(view);
+        return view;
+    }
+
+    @Override
+    public void close() {
+        transactions.release(this);
+    }
+}
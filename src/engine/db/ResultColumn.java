@@ -0,0 +1,14 @@
+/*
+ * ResultColumn v1.0
+ *
+ * database contributors
+ * Oct 16, 2026
+ */
+
+package engine.db;
+
+/**
+ * Column of the result of a query, as worked out by {@link Database#describe(engine.sql.Query)} before the query runs.
+ * @param type kind of value the column holds, e.g. {@link Value.VarChar} for a column of strings
+ */
+public record ResultColumn(String name, Class<? extends Value> type) {}
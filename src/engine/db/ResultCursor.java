@@ -0,0 +1,138 @@
+/*
+ * ResultCursor v1.0
+ *
+ * database contributors
+ * Oct 16, 2026
+ */
+
+package engine.db;
+
+import engine.sql.Query;
+
+import java.lang.ref.Cleaner;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Rows selected by a `SELECT`, which are read out of the table on demand rather than all at once. The cursor runs the
+ * query once, keeping only the numbers of the rows it selects in result order, and keeps its snapshot open so that
+ * vacuum does not reclaim them. Pages are then read in any order by looking their rows up by number, so that e.g. a
+ * sort is never repeated; only vacuum renumbering the rows of the table runs the query again. A cursor takes four
+ * bytes per selected row, rather than the values of the rows.
+ * Cursors must be closed once they are no longer used; a cursor that is garbage collected is closed as a last resort.
+ */
+public final class ResultCursor implements AutoCloseable {
+    private static final Cleaner CLEANER = Cleaner.create();
+
+    private final Table table;
+    private final Query.Select query;
+    private final ExecutionSettings settings;
+    private final ReadView view;
+    private final Cleaner.Cleanable cleanable;
+
+    private final int[] columns;
+    private final List<String> columnNames;
+    private final int rowCount;
+
+    // Numbers of the selected rows in result order, which are only valid as long as the rows are numbered the same as
+    // after the given number of compactions
+    private int[] rows;
+    private long compactions;
+    private volatile boolean closed;
+
+    /**
+     * Runs a query and keeps the numbers of the rows it selects.
+     * @param view snapshot to read, which is closed along with the cursor
+     * @throws IllegalArgumentException if a column does not exist or a value does not match the column type
+     */
+    ResultCursor(Table table, Query.Select query, ExecutionSettings settings, ReadView view) throws IllegalArgumentException {
+        this.table = table;
+        this.query = query;
+        this.settings = settings;
+        this.view = view;
+        // The action must not refer to the cursor, or the cursor could never be garbage collected.
+        this.cleanable = CLEANER.register(this, view::close);
+
+        Lock lock = table.getVacuumLock().readLock();
+
+        lock.lock();
+        try {
+            Plan.Project plan = plan();
+
+            this.columns = plan.columns();
+            this.columnNames = plan.columnNames();
+            this.rows = plan.rows().toArray();
+            this.rowCount = rows.length;
+            this.compactions = table.getCompactions();
+        } catch (RuntimeException err) {
+            cleanable.clean();
+            throw err;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public List<String> getColumnNames() {
+        return columnNames;
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Reads a range of rows, boxing only the projected columns of each one.
+     * @param from first row to read, in result order
+     * @param count number of rows to read
+     * @throws IllegalStateException if the cursor has been closed.
+     */
+    public synchronized List<List<Value>> fetch(int from, int count) throws IllegalStateException {
+        if (closed) {
+            throw new IllegalStateException("The result has been closed.");
+        }
+
+        Lock lock = table.getVacuumLock().readLock();
+        List<List<Value>> result = new ArrayList<>(count);
+
+        lock.lock();
+        try {
+            // Row numbers from before vacuum renumbered the rows point at other rows now. Vacuum keeps every row the
+            // snapshot can see, in the same relative order, so running the query again selects the same rows.
+            if (table.getCompactions() != compactions) {
+                rows = plan().rows().toArray();
+                compactions = table.getCompactions();
+
+                if (rows.length != rowCount) {
+                    throw new IllegalStateException("The rows of the result were reclaimed by vacuum.");
+                }
+            }
+
+            int[] rows = this.rows;
+
+            QueryProfile.measure(QueryProfile.Phase.MATERIALIZE, () -> {
+                for (int i = from; i < from + count; i++) {
+                    result.add(table.materializeRow(rows[i], columns));
+                }
+                return result;
+            });
+        } finally {
+            lock.unlock();
+        }
+
+        return result;
+    }
+
+    private Plan.Project plan() {
+        return QueryProfile.measure(QueryProfile.Phase.PLAN, () ->
+            Planner.plan(table, table.visibleTo(view), query.columns(), query.filter(), query.order(), query.limit(), settings)
+        );
+    }
+
+    @Override
+    public synchronized void close() {
+        closed = true;
+        rows = null;
+        cleanable.clean();
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * ResultSet v1.0
+ *
+ * database contributors
+ * Oct 16, 2026
+ */
+
+package engine.db;
+
+import javax.swing.table.AbstractTableModel;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Rows returned by a `SELECT`, as shown on the UI. Small results are read in full right away. Larger results are read
+ * from a {@link ResultCursor} one page at a time as rows are asked for, and only the most recently used pages are
+ * kept in memory, so opening a large result does not depend on its size. Cells are only converted to strings when they
+ * are displayed. Result sets cannot be edited, so a complete result set can safely be handed to any number of callers,
+ * e.g. when it is served from the result cache. Result sets that are not complete must be closed once they are no
+ * longer displayed.
+ */
+public final class ResultSet extends AbstractTableModel implements AutoCloseable {
+    // Number of rows read from the cursor at once, which is also the largest result that is read in full
+    static final int PAGE_SIZE = 512;
+    // Number of pages kept in memory at once, a few screens' worth in either direction
+    private static final int MAX_PAGES = 16;
+
+    private final List<String> columnNames;
+    private final int rowCount;
+
+    // Every row, if the result is complete; otherwise the cursor and the pages read from it so far
+    private final List<List<Value>> rows;
+    private final ResultCursor cursor;
+    private final LruCache<Integer, List<List<Value>>> pages;
+
+    /**
+     * @param cursor rows to show, which is closed along with the result set
+     */
+    public ResultSet(ResultCursor cursor) {
+        this.columnNames = cursor.getColumnNames();
+        this.rowCount = cursor.getRowCount();
+
+        if (rowCount <= PAGE_SIZE) {
+            this.rows = cursor.fetch(0, rowCount);
+            this.cursor = null;
+            this.pages = null;
+            cursor.close();
+        } else {
+            this.rows = null;
+            this.cursor = cursor;
+            this.pages = new LruCache<>(MAX_PAGES);
+        }
+    }
+
+    /**
+     * @param rows every row of the result
+     */
+    public ResultSet(List<String> columnNames, List<List<Value>> rows) {
+        this.columnNames = columnNames;
+        this.rowCount = rows.size();
+        this.rows = rows;
+        this.cursor = null;
+        this.pages = null;
+    }
+
+    /**
+     * Returns true if every row has been read, so that the result set holds on to nothing but its rows.
+     */
+    public boolean isComplete() {
+        return cursor == null;
+    }
+
+    /**
+     * Returns the number of cells in the result set, which is what it costs to keep it in the result cache.
+     */
+    public long getCellCount() {
+        return (long) rowCount * columnNames.size();
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columnNames.size();
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return columnNames.get(column);
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        return Objects.toString(getRow(row).get(column), "NULL");
+    }
+
+    /**
+     * Returns the values of a row, reading its page from the cursor if it is not in memory.
+     */
+    public List<Value> getRow(int row) {
+        if (rows != null) {
+            return rows.get(row);
+        }
+
+        int page = row / PAGE_SIZE;
+        List<List<Value>> values = pages.get(page);
+
+        if (values == null) {
+            int from = page * PAGE_SIZE;
+            values = cursor.fetch(from, Math.min(PAGE_SIZE, rowCount - from));
+            pages.put(page, values);
+        }
+
+        return values.get(row % PAGE_SIZE);
+    }
+
+    @Override
+    public void close() {
+        if (cursor != null) {
+            cursor.close();
+        }
+    }
+}
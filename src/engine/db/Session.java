@@ -0,0 +1,184 @@
+/*
+ * Session v1.0
+ *
+ * database contributors
+ * Oct 16, 2026
+ */
+
+package engine.db;
+
+import engine.sql.Query;
+
+import javax.swing.table.TableModel;
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Runs queries against a {@link Database} on behalf of a single client, and keeps track of its explicit transaction.
+ * Outside of a transaction every query commits as soon as it finishes. Between `BEGIN` and `COMMIT`:
+ *  - `INSERT`, `UPDATE` and `DELETE` are buffered instead of applied, and are applied in one batch on `COMMIT`, run
+ *    back to back against the snapshot taken on `BEGIN`, so each of them sees the effects of the ones before it.
+ *    `ROLLBACK` throws the buffer away. Since they have not run yet, they count no affected rows, except for the
+ *    values an `INSERT` lists.
+ *  - `COMMIT` fails, and nothing is applied, if a row that an `UPDATE` or `DELETE` changes has been changed by another
+ *    transaction since the snapshot was taken.
+ *  - `SELECT` and `EXPLAIN` read the snapshot taken on `BEGIN`. Since that does not include the buffered changes, a
+ *    `SELECT` after the first buffered change is rejected rather than answered with rows the transaction has changed.
+ *  - Queries that change the schema are rejected, since they cannot be undone.
+ * Queries run with the execution settings of the database unless the session is given settings of its own, e.g. so
+ * that one client's analytics queries may use every core while the others scan sequentially.
+ * A session is not safe to use from more than one thread at once.
+ */
+public class Session implements AutoCloseable {
+    private final Database database;
+    // Null to follow the settings of the database
+    private ExecutionSettings settings;
+
+    // Both null outside of a transaction
+    private ReadView view;
+    private List<Query> changes;
+    private long affectedRows;
+
+    public Session(Database database) {
+        this.database = database;
+    }
+
+    public Database getDatabase() {
+        return database;
+    }
+
+    /**
+     * Returns the settings the queries of this session run with, which are those of the database unless overridden.
+     */
+    public ExecutionSettings getSettings() {
+        ExecutionSettings settings = this.settings;
+        return settings == null ? database.getSettings() : settings;
+    }
+
+    /**
+     * Changes how the queries this session starts from now on are executed, without affecting other sessions.
+     * @param settings settings to use, or null to go back to those of the database
+     */
+    public void setSettings(ExecutionSettings settings) {
+        this.settings = settings;
+    }
+
+    /**
+     * Returns true if a transaction has been started and not yet committed or rolled back.
+     */
+    public boolean inTransaction() {
+        return view != null;
+    }
+
+    /**
+     * Returns the number of rows that the last `INSERT`, `UPDATE` or `DELETE` made by this session inserted, updated or
+     * deleted.
+     */
+    public long getAffectedRows() {
+        return affectedRows;
+    }
+
+    /**
+     * Makes a query on behalf of this session.
+     * @param query query to be made
+     * @return result set to be displayed on the UI
+     * @throws NoSuchElementException if a query had invalid arguments
+     * @throws IllegalStateException if the query is not allowed in the current transaction state, e.g. a `SELECT` after
+     * the transaction has changed rows
+     * @throws ConcurrentModificationException if a transaction could not be committed because another transaction
+     * changed the same rows first
+     */
+    public TableModel executeQuery(Query query) throws NoSuchElementException, IllegalStateException, ConcurrentModificationException {
+        return switch (query) {
+            case Query.Begin q -> {
+                if (inTransaction()) {
+                    throw new IllegalStateException("A transaction is already in progress.");
+                }
+
+                view = database.snapshot();
+                changes = new ArrayList<>();
+                yield null;
+            }
+            case Query.Commit q -> {
+                requireTransaction(q);
+
+                // The transaction is over whether or not its changes could be applied.
+                try {
+                    database.applyBatch(changes, view, getSettings());
+                } finally {
+                    end();
+                }
+                yield null;
+            }
+            case Query.Rollback q -> {
+                requireTransaction(q);
+                end();
+                yield null;
+            }
+            case Query.InsertInto   q when inTransaction() -> buffer(q, q.tableName().ident());
+            case Query.InsertSelect q when inTransaction() -> {
+                database.getTable(q.source().tableName().ident());
+                yield buffer(q, q.tableName().ident());
+            }
+            case Query.DeleteFrom   q when inTransaction() -> buffer(q, q.tableName().ident());
+            case Query.DeleteRows   q when inTransaction() -> buffer(q, q.tableName().ident());
+            case Query.UpdateSet    q when inTransaction() -> buffer(q, q.tableName().ident());
+            case Query.InsertInto   q -> change(q);
+            case Query.InsertSelect q -> change(q);
+            case Query.DeleteFrom   q -> change(q);
+            case Query.DeleteRows   q -> change(q);
+            case Query.UpdateSet    q -> change(q);
+            case Query.Select       q when inTransaction() && !changes.isEmpty() -> throw new IllegalStateException("SELECT cannot see the changes made by this transaction until COMMIT, so it cannot follow them.");
+            case Query.ShowTables   q -> database.executeQuery(q, view, getSettings());
+            case Query.Select       q -> database.executeQuery(q, view, getSettings());
+            case Query.Explain      q -> database.executeQuery(q, view, getSettings());
+            default -> {
+                if (inTransaction()) {
+                    throw new IllegalStateException(String.format("%s cannot be run inside a transaction.", query.getClass().getSimpleName()));
+                }
+
+                yield database.executeQuery(query, null, getSettings());
+            }
+        };
+    }
+
+    private TableModel buffer(Query change, String tableName) throws NoSuchElementException {
+        // Catch typos right away instead of on commit; everything else is checked when the change is applied.
+        Database.requireWritable(tableName);
+        database.getTable(tableName);
+        changes.add(change);
+        affectedRows = change instanceof Query.InsertInto insert ? insert.rows().size() : 0;
+        return null;
+    }
+
+    private TableModel change(Query change) throws NoSuchElementException {
+        // A change that fails affects no rows.
+        affectedRows = 0;
+        affectedRows = database.executeChange(change, getSettings());
+        return null;
+    }
+
+    private void requireTransaction(Query query) throws IllegalStateException {
+        if (!inTransaction()) {
+            throw new IllegalStateException(String.format("%s without a transaction in progress.", query.getClass().getSimpleName().toUpperCase()));
+        }
+    }
+
+    private void end() {
+        view.close();
+        view = null;
+        changes = null;
+    }
+
+    /**
+     * Rolls back the transaction in progress, if any.
+     */
+    @Override
+    public void close() {
+        if (inTransaction()) {
+            end();
+        }
+    }
+}
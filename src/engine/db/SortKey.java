@@ -0,0 +1,204 @@
+/*
+ * SortKey v1.0
+ *
+ * database contributors
+ * Oct 16, 2026
+ */
+
+package engine.db;
+
+import engine.sql.Query;
+import engine.sql.Token;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Normalized sort key of a row. The row's `ORDER BY` columns are encoded into one string of bytes, and comparing two
+ * of those as unsigned bytes gives the same order as comparing the rows column by column. Sorting then never has to
+ * look at the columns or their types again. The first eight bytes are packed into a long, which is all that has to be
+ * compared when every sort column is an integer or a boolean.
+ * Each column is encoded as a flag byte that orders nulls first (0 for null, 1 otherwise), followed by:
+ *  - Integer  4 big-endian bytes with the sign bit flipped.
+ *  - Boolean  A single byte.
+ *  - VarChar  The UTF-16 code units in 2 big-endian bytes each. Zero bytes are escaped as `00 FF` and the end is
+ *             marked with `00 00`, so a string sorts before every longer string it is a prefix of.
+ * Every byte of a descending column is inverted, which also puts its nulls last.
+ * @param prefix first eight bytes of the key, padded with zeros
+ * @param suffix remaining bytes of the key, or null if the whole key fits into the prefix
+ * @param row row the key was encoded from, or the pair of rows packed by {@link Plan.Join#pair} if it was encoded from
+ *            the output of a join
+ */
+record SortKey(long prefix, byte[] suffix, long row) {
+    /**
+     * Orders keys by their bytes, and rows that compare equal by storage order.
+     */
+    static final Comparator<SortKey> COMPARATOR = (a, b) -> {
+        int result = Long.compareUnsigned(a.prefix, b.prefix);
+
+        // Keys are never a prefix of one another, so equal prefixes mean that either both keys have a suffix or
+        // neither does.
+        if (result == 0 && a.suffix != null) {
+            result = Arrays.compareUnsigned(a.suffix, b.suffix);
+        }
+
+        return result != 0 ? result : Long.compare(a.row, b.row);
+    };
+
+    static final ExternalSorter.Codec<SortKey> CODEC = new ExternalSorter.Codec<>() {
+        public void write(DataOutput out, SortKey key) throws IOException {
+            out.writeLong(key.row);
+            out.writeLong(key.prefix);
+
+            if (key.suffix == null) {
+                out.writeInt(-1);
+            } else {
+                out.writeInt(key.suffix.length);
+                out.write(key.suffix);
+            }
+        }
+
+        public SortKey read(DataInput in) throws IOException {
+            long row = in.readLong();
+            long prefix = in.readLong();
+            int length = in.readInt();
+
+            byte[] suffix = null;
+            if (length >= 0) {
+                suffix = new byte[length];
+                in.readFully(suffix);
+            }
+
+            return new SortKey(prefix, suffix, row);
+        }
+
+        public long size(SortKey key) {
+            // Object header and fields of the key, plus the header and contents of its suffix
+            return 32 + (key.suffix == null ? 0 : 16 + key.suffix.length);
+        }
+    };
+
+    /**
+     * Encodes the sort keys of rows in a table, or of pairs of rows produced by a join. Reuses a single buffer, so it
+     * may only be used by one thread.
+     */
+    static final class Encoder {
+        private final Column[] columns;
+        private final boolean[] descending;
+        // Whether each column belongs to the right table of a join
+        private final boolean[] right;
+
+        private byte[] buffer;
+        private int length;
+
+        /**
+         * @throws IllegalArgumentException if a column does not exist.
+         */
+        Encoder(Table table, List<Query.OrderBy> order) throws IllegalArgumentException {
+            this.columns = new Column[order.size()];
+            this.descending = new boolean[order.size()];
+            this.right = new boolean[order.size()];
+            this.buffer = new byte[16];
+
+            for (int i = 0; i < order.size(); i++) {
+                this.columns[i] = table.getColumn(table.getColumnIndex(order.get(i).column().ident()));
+                this.descending[i] = order.get(i).sortOrder().type() == Token.SortOrderType.DESC;
+            }
+        }
+
+        /**
+         * @param order sort columns of either table of the join
+         */
+        Encoder(Table left, Table right, List<Plan.JoinColumn> order) {
+            this.columns = new Column[order.size()];
+            this.descending = new boolean[order.size()];
+            this.right = new boolean[order.size()];
+            this.buffer = new byte[16];
+
+            for (int i = 0; i < order.size(); i++) {
+                Plan.JoinColumn key = order.get(i);
+                this.columns[i] = (key.left() ? left : right).getColumn(key.column());
+                this.descending[i] = key.descending();
+                this.right[i] = !key.left();
+            }
+        }
+
+        SortKey encode(int row) {
+            return encode(row, row, row);
+        }
+
+        /**
+         * Encodes the sort key of a pair of rows packed by {@link Plan.Join#pair}.
+         */
+        SortKey encodePair(long pair) {
+            return encode(Plan.Join.left(pair), Plan.Join.right(pair), pair);
+        }
+
+        private SortKey encode(int leftRow, int rightRow, long pair) {
+            length = 0;
+
+            for (int i = 0; i < columns.length; i++) {
+                int start = length;
+                int row = right[i] ? rightRow : leftRow;
+
+                if (columns[i].isNull(row)) {
+                    write(0);
+                } else {
+                    write(1);
+
+                    switch (columns[i]) {
+                        case Column.IntegerColumn column -> {
+                            int value = column.getInt(row) ^ Integer.MIN_VALUE;
+                            write(value >>> 24);
+                            write(value >>> 16);
+                            write(value >>> 8);
+                            write(value);
+                        }
+                        case Column.BooleanColumn column -> write(column.getBoolean(row) ? 1 : 0);
+                        case Column.VarCharColumn column -> {
+                            String value = column.getString(row);
+
+                            for (int j = 0; j < value.length(); j++) {
+                                writeEscaped(value.charAt(j) >>> 8);
+                                writeEscaped(value.charAt(j) & 0xFF);
+                            }
+                            write(0);
+                            write(0);
+                        }
+                    }
+                }
+
+                if (descending[i]) {
+                    for (int j = start; j < length; j++) {
+                        buffer[j] = (byte) ~buffer[j];
+                    }
+                }
+            }
+
+            long prefix = 0;
+            for (int j = 0; j < Long.BYTES; j++) {
+                prefix = (prefix << 8) | (j < length ? buffer[j] & 0xFF : 0);
+            }
+
+            return new SortKey(prefix, length > Long.BYTES ? Arrays.copyOfRange(buffer, Long.BYTES, length) : null, pair);
+        }
+
+        private void writeEscaped(int b) {
+            write(b);
+            if ((b & 0xFF) == 0) {
+                write(0xFF);
+            }
+        }
+
+        private void write(int b) {
+            if (length == buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            }
+            buffer[length++] = (byte) b;
+        }
+    }
+}
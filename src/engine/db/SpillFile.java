@@ -0,0 +1,82 @@
+/*
+ * SpillFile v1.0
+ *
+ * database contributors
+ * Oct 16, 2026
+ */
+
+package engine.db;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Temporary file that an operator writes records to when they do not fit in its memory budget, and reads back in the
+ * order they were written. Each operator decides how its records are encoded, e.g. with a {@link ExternalSorter.Codec}.
+ * The file is deleted when it is closed.
+ */
+public final class SpillFile implements AutoCloseable {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Path path;
+    private DataOutputStream output;
+    private DataInputStream input;
+
+    /**
+     * @throws UncheckedIOException if the file cannot be created.
+     */
+    public SpillFile() throws UncheckedIOException {
+        try {
+            this.path = Files.createTempFile("spill-", ".tmp");
+            this.output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), BUFFER_SIZE));
+        } catch (IOException err) {
+            throw new UncheckedIOException("Unable to create a spill file.", err);
+        }
+    }
+
+    /**
+     * Returns the stream that records are written to.
+     */
+    public DataOutput getOutput() {
+        return output;
+    }
+
+    /**
+     * Finishes writing, and returns a stream that reads the records back from the start.
+     * @throws UncheckedIOException if the file cannot be read.
+     */
+    public DataInput read() throws UncheckedIOException {
+        try {
+            if (output != null) {
+                output.close();
+                output = null;
+            }
+
+            input = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), BUFFER_SIZE));
+            return input;
+        } catch (IOException err) {
+            throw new UncheckedIOException("Unable to read a spill file.", err);
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            if (output != null) {
+                output.close();
+            }
+            if (input != null) {
+                input.close();
+            }
+        } catch (IOException ignored) {
+            // The file is about to be deleted anyway.
+        } finally {
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException ignored) {
+                // Temporary files are cleaned up by the system eventually.
+            }
+        }
+    }
+}
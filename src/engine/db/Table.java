@@ -7,34 +7,98 @@
 
 package engine.db;
 
-import engine.sql.DataType;
 import engine.sql.Expression;
 import engine.sql.Query;
 import engine.sql.Token;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntPredicate;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 /**
  * Represents the data stored in a single table and provides an interface to retrieve, insert, and update rows.
+ * Data is stored column by column in primitive {@link Column} vectors, and {@link Value} objects are only created
+ * when rows leave the table.
+ *
+ * Rows are versioned for multi-version concurrency control. Every change appends new row versions or stamps existing
+ * ones as deleted, and never overwrites data that a reader might be looking at. Readers filter versions through a
+ * {@link ReadView}, so they see a consistent snapshot without locking out writers. Indexes point at every version,
+ * visible or not, until vacuum reclaims the versions that no reader can see any more.
+ *
+ * Callers must hold the write lock from {@link #getLock()} while changing rows or indexes, which makes writers take
+ * turns. Readers do not need the lock, but must hold the read lock from {@link #getVacuumLock()} while they scan,
+ * so that vacuum does not move rows out from under them.
  */
 public class Table {
     private final String name;
     private final List<Query.ColumnDefinition> columns;
-    private final List<List<Value>> data;
-
-    // Column indices are used to directly retrieve a datum from a row given the column name
+    private final List<Column> data;
+    private final Versions versions;
+
+    // Number of row versions, including those that are no longer visible. Written last by every change, which
+    // publishes the new versions to readers.
+    private volatile int rowCount;
+    private volatile int deadRowCount;
+    // Bumped by every change to the rows, so that results computed from an earlier state can be recognized as stale
+    private volatile long version;
+    // Bumped every time vacuum renumbers rows, so that row numbers kept from an earlier scan can be recognized as stale
+    private volatile long compactions;
+
+    // Column indices are used to directly retrieve a column vector given the column name
     private final Map<String, Integer> columnIndices;
 
-    public Table(String name, List<Query.ColumnDefinition> columns, List<List<Value>> data) {
+    // Secondary indexes by name, which are kept up to date by every mutation unless they are deferred
+    private final Map<String, Index> indexes;
+    // True while indexes are not kept up to date, e.g. during a bulk load, in which case queries must not use them
+    private volatile boolean indexesDeferred;
+
+    // Makes writers take turns, and lets readers that need the latest state keep writers out
+    private final ReentrantReadWriteLock lock;
+    // Held by readers while they scan, and by vacuum while it moves rows
+    private final ReentrantReadWriteLock vacuumLock;
+
+    public Table(String name, List<Query.ColumnDefinition> columns) {
         this.name = name;
         this.columns = columns;
-        this.data = data;
+        this.data = new ArrayList<>(columns.size());
+        this.versions = new Versions();
+        this.rowCount = 0;
+        this.deadRowCount = 0;
+        this.indexes = new ConcurrentSkipListMap<>();
+        this.lock = new ReentrantReadWriteLock();
+        this.vacuumLock = new ReentrantReadWriteLock();
 
         this.columnIndices = new HashMap<>();
         for (int i = 0; i < columns.size(); i++) {
             columnIndices.put(columns.get(i).name(), i);
+            data.add(Column.create(columns.get(i)));
+        }
+    }
+
+    /**
+     * Creates a table around existing column vectors, e.g. when loading a snapshot.
+     * @param data one column vector per column definition, all of the same size
+     */
+    public Table(String name, List<Query.ColumnDefinition> columns, List<Column> data) {
+        this(name, columns);
+
+        for (int i = 0; i < data.size(); i++) {
+            if (data.get(i).size() != data.get(0).size()) {
+                throw new IllegalArgumentException(String.format("Column '%s' does not have the same number of rows as the rest of table '%s'.", columns.get(i).name(), name));
+            }
+            this.data.set(i, data.get(i));
+        }
+
+        int rowCount = data.isEmpty() ? 0 : data.get(0).size();
+        for (int row = 0; row < rowCount; row++) {
+            this.versions.append(Transactions.FROZEN);
         }
+
+        this.rowCount = rowCount;
     }
 
     public String getName() {
@@ -51,85 +115,258 @@ public class Table {
             .map(Query.ColumnDefinition::name);
     }
 
-    public List<List<Value>> getData() {
-        return data;
+    /**
+     * Returns the lock that guards the rows and indexes of this table against concurrent changes.
+     */
+    public ReadWriteLock getLock() {
+        return lock;
     }
 
     /**
-     * Determines if a row should be included in the result set given a filter {@link Expression}.
-     * @param row current row being filtered
-     * @param filter expression to filter on
-     * @return true if the row should be included, false otherwise
+     * Returns the lock that keeps vacuum from moving rows while readers scan the table.
      */
-    private boolean recursiveFilter(List<Value> row, Expression filter) {
-        return switch (filter) {
-            // If the current expression is a comparison, we've reached our base case and can perform the comparison
-            case Expression.Comparison comparison -> {
-                Value columnValue = row.get(columnIndices.get(comparison.ident().ident()));
-                Token.Literal value = comparison.value();
+    public ReadWriteLock getVacuumLock() {
+        return vacuumLock;
+    }
 
-                yield switch (comparison.op().type()) {
-                    // SQL lets you use both `=` and `==` for equality comparison
-                    case ASSIGN, EQUAL -> columnValue.equals(value);
-                    case NOT_EQUAL     -> !columnValue.equals(value);
-                    case LESS          -> columnValue.lessThan(value);
-                    case LESS_EQUAL    -> !columnValue.greaterThan(value);
-                    case GREATER       -> columnValue.greaterThan(value);
-                    case GREATER_EQUAL -> !columnValue.lessThan(value);
-                };
-            }
-            // Otherwise, we must recursively evaluate both sides of the expression and compare their outputs
-            case Expression.Binary binary -> switch (binary.op().type()) {
-                case AND -> recursiveFilter(row, binary.lhs()) && recursiveFilter(row, binary.rhs());
-                case OR  -> recursiveFilter(row, binary.lhs()) || recursiveFilter(row, binary.rhs());
-            };
-        };
+    /**
+     * Returns the number of row versions in the table, including those that are no longer visible.
+     */
+    public int getRowCount() {
+        return rowCount;
     }
 
     /**
-     * Provides direct access to data while allowing filtering and ordering.
-     * @param selectColumns columns to be included in the result set
-     * @param filter optional filtering settings
-     * @param order optional relative ordering settings
-     * @return stream of rows containing the requested columns
+     * Returns the number of rows in the latest state of the table.
      */
-    public Stream<List<Value>> filterData(List<Token.Identifier> selectColumns, Expression filter, Query.OrderBy order) {
-        Stream<List<Value>> selectedData = this.data.stream();
+    public int getLiveRowCount() {
+        return rowCount - deadRowCount;
+    }
 
-        // Apply filters, if applicable
-        if (filter != null) {
-            selectedData = selectedData.filter((row) -> recursiveFilter(row, filter));
+    /**
+     * Returns the number of row versions that have been deleted or replaced, and are waiting to be vacuumed.
+     */
+    public int getDeadRowCount() {
+        return deadRowCount;
+    }
+
+    /**
+     * Returns a number that changes whenever rows are inserted, updated or deleted, or -1 while a writer holds the
+     * lock, since the changes it has made so far may not have committed yet. A result computed from a snapshot taken
+     * after this call reflects at least every change counted in the number.
+     */
+    public long getVersion() {
+        // Read the counter before the lock, so that any writer that bumped it is seen holding the lock.
+        long version = this.version;
+        return lock.isWriteLocked() ? -1 : version;
+    }
+
+    /**
+     * Returns true if a column holds data no row refers to any more, which vacuum would reclaim even if no row
+     * versions are dead.
+     */
+    public boolean needsCompaction() {
+        for (Column column : this.data) {
+            if (column.needsCompaction()) {
+                return true;
+            }
         }
 
-        // Apply a relative ordering, if applicable
-        if (order != null) {
-            int orderIndex = this.columnIndices.get(order.column().ident());
+        return false;
+    }
+
+    /**
+     * Returns the number of times vacuum has renumbered the rows of this table.
+     */
+    public long getCompactions() {
+        return compactions;
+    }
+
+    /**
+     * Returns a predicate that accepts the row versions seen by a view.
+     * Versions appended after this call are never accepted, since they were created after the view was taken.
+     */
+    public IntPredicate visibleTo(ReadView view) {
+        int rowCount = this.rowCount;
+        return (row) -> row < rowCount && versions.isVisible(row, view);
+    }
 
-            if (order.sortOrder().type() == Token.SortOrderType.ASC) {
-                selectedData = selectedData.sorted((a, b) -> a.get(orderIndex).compareTo(b.get(orderIndex)));
-            } else {
-                selectedData = selectedData.sorted((a, b) -> b.get(orderIndex).compareTo(a.get(orderIndex)));
+    /**
+     * Returns a predicate that accepts the row versions seen by a transaction that started from a view: those seen by
+     * the view, and the effects of the transaction itself. Versions appended after this call are never accepted.
+     */
+    public IntPredicate visibleTo(ReadView view, long transaction) {
+        int rowCount = this.rowCount;
+        return (row) -> row < rowCount && versions.isVisible(row, view, transaction);
+    }
+
+    /**
+     * Returns a predicate that accepts the row versions that make up the latest state of the table.
+     * Only meaningful while holding the write lock, or the read lock to keep writers out.
+     */
+    public IntPredicate liveRows() {
+        int rowCount = this.rowCount;
+        return (row) -> row < rowCount && versions.isLive(row);
+    }
+
+    /**
+     * Materializes the latest state of every row in the table. Each row is boxed lazily as the stream is consumed.
+     * Only meaningful while holding the write lock, or the read lock to keep writers out.
+     * @return stream of rows containing all columns
+     */
+    public Stream<List<Value>> getData() {
+        int[] indices = IntStream.range(0, this.columns.size()).toArray();
+        return IntStream.range(0, this.rowCount).filter(Cancellation.checking(liveRows())).mapToObj((row) -> materializeRow(row, indices));
+    }
+
+    /**
+     * Returns column vectors that only hold the latest state of every row, e.g. to save a snapshot.
+     * Columns are only copied if there are versions to leave out.
+     * Only meaningful while holding the write lock, or the read lock to keep writers out.
+     */
+    public List<Column> getLiveColumns() {
+        BitSet removed = new BitSet(this.rowCount);
+        IntPredicate live = liveRows();
+
+        for (int row = 0; row < this.rowCount; row++) {
+            Cancellation.checkRow(row);
+            if (!live.test(row)) {
+                removed.set(row);
             }
         }
 
-        // If we're grabbing all columns, we're done.
-        if (selectColumns.contains(new Token.Identifier("*"))) {
-            return selectedData;
+        if (removed.isEmpty()) {
+            return Collections.unmodifiableList(this.data);
         }
 
-        // Otherwise, we'll keep track of which indices we need to pull from each row.
-        List<Integer> indices = new ArrayList<>();
+        List<Column> columns = new ArrayList<>(this.data.size());
+        for (Column column : this.data) {
+            Column copy = column.copy();
+            copy.delete(removed);
+            columns.add(copy);
+        }
 
-        for (Token.Identifier column : selectColumns) {
-            String columnName = column.ident();
-            if (!columnIndices.containsKey(columnName)) {
-                throw new IllegalArgumentException(String.format("Column '%s' does not exist in table '%s'.", columnName, this.name));
-            }
-            indices.add(columnIndices.get(columnName));
+        return columns;
+    }
+
+    /**
+     * Boxes the requested columns of a single row into {@link Value} objects.
+     * @param row index of the row to materialize
+     * @param indices column indices to include, in order
+     */
+    List<Value> materializeRow(int row, int[] indices) {
+        Value[] values = new Value[indices.length];
+
+        for (int i = 0; i < indices.length; i++) {
+            values[i] = this.data.get(indices[i]).get(row);
+        }
+
+        return Arrays.asList(values);
+    }
+
+    /**
+     * Retrieves the column vector at the given index.
+     */
+    public Column getColumn(int columnIndex) {
+        return this.data.get(columnIndex);
+    }
+
+    /**
+     * Retrieves the index of a column given its name, which may be qualified with the name of this table, e.g. `users.id`.
+     * @throws IllegalArgumentException if the column does not exist.
+     */
+    public int getColumnIndex(String columnName) throws IllegalArgumentException {
+        Integer index = findColumn(columnName);
+
+        if (index == null) {
+            throw new IllegalArgumentException(String.format("Column '%s' does not exist in table '%s'.", columnName, this.name));
+        }
+
+        return index;
+    }
+
+    /**
+     * Returns true if the table has a column with the given name, which may be qualified with the name of this table.
+     */
+    public boolean hasColumn(String columnName) {
+        return findColumn(columnName) != null;
+    }
+
+    private Integer findColumn(String columnName) {
+        Integer index = this.columnIndices.get(columnName);
+
+        if (index == null && columnName.length() > this.name.length() && columnName.startsWith(this.name) && columnName.charAt(this.name.length()) == '.') {
+            index = this.columnIndices.get(columnName.substring(this.name.length() + 1));
+        }
+
+        return index;
+    }
+
+    public Collection<Index> getIndexes() {
+        return indexes.values();
+    }
+
+    public boolean hasIndex(String indexName) {
+        return indexes.containsKey(indexName);
+    }
+
+    /**
+     * Returns true if indexes are not being kept up to date, so that they cannot be used to answer queries.
+     */
+    public boolean areIndexesDeferred() {
+        return indexesDeferred;
+    }
+
+    /**
+     * Stops keeping indexes up to date as rows are inserted, e.g. while loading a dump, until {@link #buildIndexes()}
+     * builds them from scratch. Must be called while holding the write lock.
+     */
+    public void deferIndexes() {
+        this.indexesDeferred = true;
+    }
+
+    /**
+     * Builds every deferred index from the rows as they are now, and keeps them up to date again from then on.
+     * Must be called while holding the write lock.
+     */
+    public void buildIndexes() {
+        if (!indexesDeferred) {
+            return;
+        }
+
+        for (Index index : List.copyOf(indexes.values())) {
+            indexes.put(index.getName(), Index.build(index.getName(), index.getColumnIndex(), index.getType(), this.data.get(index.getColumnIndex()), this.rowCount));
+        }
+
+        this.indexesDeferred = false;
+    }
+
+    /**
+     * Builds a new secondary index over an existing column. The index is left empty while indexes are deferred.
+     * @param indexName name of the index
+     * @param columnName column to index
+     * @param type index structure to use
+     * @throws IllegalArgumentException if the column does not exist or an index with the same name already exists.
+     */
+    public void createIndex(String indexName, String columnName, Token.IndexTypeType type) throws IllegalArgumentException {
+        if (indexes.containsKey(indexName)) {
+            throw new IllegalArgumentException(String.format("Index with name '%s' already exists.", indexName));
         }
 
-        // For each row, pick out the indices specified by the `indices` list.
-        return selectedData.map((row) -> indices.stream().map(row::get).toList());
+        int columnIndex = getColumnIndex(columnName);
+        Index index = indexesDeferred
+            ? Index.create(indexName, columnIndex, type)
+            : Index.build(indexName, columnIndex, type, this.data.get(columnIndex), this.rowCount);
+
+        indexes.put(indexName, index);
+    }
+
+    /**
+     * Removes a secondary index.
+     * @return true if the index existed.
+     */
+    public boolean dropIndex(String indexName) {
+        return indexes.remove(indexName) != null;
     }
 
     /**
@@ -137,111 +374,342 @@ public class Table {
      *
      * @param insertColumns columns to insert into. attempts to into into all columns if null.
      * @param values values to include (should correspond 1 - 1 with `insertColumns`)
+     * @param transaction transaction that creates the row
      * @throws IllegalArgumentException if a value does not match the column type
      */
-    public void insertRow(List<Token.Identifier> insertColumns, List<Token.Literal> values) throws IllegalArgumentException {
-        if (insertColumns != null) {
-            // Verify that all inserted columns exist in the table.
-            for (Token.Identifier column : insertColumns) {
-                if (!columnIndices.containsKey(column.ident())) {
-                    throw new IllegalArgumentException(String.format("Column '%s' does not exist in table '%s'.", column.ident(), this.name));
+    public void insertRow(List<Token.Identifier> insertColumns, List<Token.Literal> values, long transaction) throws IllegalArgumentException {
+        insertRows(insertColumns, List.of(values), transaction);
+    }
+
+    /**
+     * Inserts a batch of rows that all provide values for the same columns. Every row is validated before any of them
+     * is written, and each index is brought up to date once for the whole batch rather than once per row.
+     *
+     * @param insertColumns columns to insert into. attempts to into into all columns if null.
+     * @param rows values of each row to include (should correspond 1 - 1 with `insertColumns`)
+     * @param transaction transaction that creates the rows
+     * @throws IllegalArgumentException if a column does not exist or a value does not match the column type
+     */
+    public void insertRows(List<Token.Identifier> insertColumns, List<List<Token.Literal>> rows, long transaction) throws IllegalArgumentException {
+        // Resolve which column each value goes into once for the whole batch.
+        int[] indices;
+
+        if (insertColumns == null) {
+            indices = IntStream.range(0, this.columns.size()).toArray();
+        } else {
+            indices = new int[insertColumns.size()];
+            for (int i = 0; i < insertColumns.size(); i++) {
+                indices[i] = getColumnIndex(insertColumns.get(i).ident());
+            }
+        }
+
+        // Check to make sure every value type matches before anything is written.
+        for (List<Token.Literal> values : rows) {
+            if (values.size() != indices.length) {
+                throw new IllegalArgumentException(String.format("Expected %d values but got %d.", indices.length, values.size()));
+            }
+            for (int i = 0; i < indices.length; i++) {
+                // Null values are stored as nulls in any column.
+                if (values.get(i) != null) {
+                    this.data.get(indices[i]).validate(values.get(i));
                 }
             }
         }
 
-        List<Value> row = new ArrayList<>(this.columns.size());
+        // Every value has been validated, so appending to each column vector cannot fail halfway through.
+        Token.Literal[] row = new Token.Literal[this.columns.size()];
+        int firstRow = this.rowCount;
 
-        int currentValueIndex = 0;
-        for (Query.ColumnDefinition column : this.columns) {
-            // Check if the current column is next in our input data
-            if (insertColumns == null || column.name().equals(insertColumns.get(currentValueIndex).ident())) {
-                // Check to make sure the value type matches and wrap our literal with the respective value type.
-                Value value = switch (column.type()) {
-                    case DataType.VarChar(var maxLength) -> switch (values.get(currentValueIndex)) {
-                        case Token.Literal.String(var s) -> {
-                            if (s.length() > maxLength) {
-                                throw new IllegalArgumentException(String.format("String exceeds maximum field length (%s > %s)", s.length(), maxLength));
-                            }
-                            yield new Value.VarChar(s);
-                        }
-                        case Token.Literal.Integer ignored -> throw new IllegalArgumentException(String.format("Attempted to write integer value to varchar column '%s'", column.name()));
-                        case Token.Literal.Boolean ignored -> throw new IllegalArgumentException(String.format("Attempted to write boolean value to varchar column '%s'", column.name()));
-                    };
-                    case DataType.Integer() -> switch (values.get(currentValueIndex)) {
-                        case Token.Literal.Integer(var i) -> new Value.Integer(i);
-                        case Token.Literal.String ignored -> throw new IllegalArgumentException(String.format("Attempted to write string value to integer column '%s'", column.name()));
-                        case Token.Literal.Boolean ignored -> throw new IllegalArgumentException(String.format("Attempted to write boolean value to integer column '%s'", column.name()));
-                    };
-                    case DataType.Boolean() -> switch (values.get(currentValueIndex)) {
-                        case Token.Literal.Boolean(var b) -> new Value.Boolean(b);
-                        case Token.Literal.String ignored -> throw new IllegalArgumentException(String.format("Attempted to write string value to boolean column '%s'", column.name()));
-                        case Token.Literal.Integer ignored -> throw new IllegalArgumentException(String.format("Attempted to write integer value to boolean column '%s'", column.name()));
-                    };
-                };
+        for (List<Token.Literal> values : rows) {
+            Arrays.fill(row, null);
+            for (int i = 0; i < indices.length; i++) {
+                row[indices[i]] = values.get(i);
+            }
+            for (int i = 0; i < row.length; i++) {
+                this.data.get(i).append(row[i]);
+            }
+        }
 
-                row.add(value);
-                currentValueIndex++;
-            } else {
-                row.add(null);
+        appendVersions(firstRow, firstRow + rows.size(), transaction);
+        this.version++;
+    }
+
+    /**
+     * Indexes row versions that have been appended to every column, and publishes them to readers. Deferred indexes
+     * are left alone, since they are built from scratch later on.
+     * @param from first new version (inclusive)
+     * @param to last new version (exclusive)
+     */
+    private void appendVersions(int from, int to, long transaction) {
+        if (!indexesDeferred) {
+            for (Index index : this.indexes.values()) {
+                Column column = this.data.get(index.getColumnIndex());
+
+                for (int row = from; row < to; row++) {
+                    if (!column.isNull(row)) {
+                        index.add(column.getKey(row), row);
+                    }
+                }
             }
         }
 
-        this.data.add(row);
+        for (int row = from; row < to; row++) {
+            this.versions.append(transaction);
+        }
+        this.rowCount = to;
     }
 
     /**
-     * Removes rows that match the provided filter.
+     * Deletes rows that match the provided filter. The deleted versions stay in place until they are vacuumed.
      * @param filter rows to remove.
+     * @param settings how many threads may look for the rows
+     * @param transaction transaction that deletes the rows
+     * @return number of rows deleted
+     */
+    public int deleteRows(Expression filter, ExecutionSettings settings, long transaction) {
+        return deleteRows(filter, liveRows(), settings, transaction);
+    }
+
+    /**
+     * Deletes rows that match the provided filter among the row versions a transaction sees, e.g. from an older
+     * snapshot. The deleted versions stay in place until they are vacuumed.
+     * @param visible row versions the transaction sees
+     * @return number of rows deleted
+     * @throws ConcurrentModificationException if a matching row has been deleted or updated by another transaction.
+     */
+    public int deleteRows(Expression filter, IntPredicate visible, ExecutionSettings settings, long transaction) throws ConcurrentModificationException {
+        int[] selectedRows = selectRows(filter, visible, settings);
+        deleteRows(selectedRows, transaction);
+        return selectedRows.length;
+    }
+
+    /**
+     * Deletes the given row versions, found by {@link #selectRows} or {@link #findRows}.
+     */
+    void deleteRows(int[] rows, long transaction) {
+        for (int row : rows) {
+            this.versions.delete(row, transaction);
+        }
+
+        this.deadRowCount += rows.length;
+        this.version++;
+    }
+
+    /**
+     * Updates rows that match the provided filter by deleting their current versions and appending new ones.
+     * @param settings how many threads may look for the rows
+     * @param transaction transaction that updates the rows
+     * @return number of rows updated
+     * @throws IllegalArgumentException if a column does not exist or a value does not match the column type
+     */
+    public int updateRows(List<Token.Identifier> updateColumns, List<Token.Literal> values, Expression filter, ExecutionSettings settings, long transaction) throws IllegalArgumentException {
+        return updateRows(updateColumns, values, filter, liveRows(), settings, transaction);
+    }
+
+    /**
+     * Updates rows that match the provided filter among the row versions a transaction sees, e.g. from an older
+     * snapshot, by deleting their current versions and appending new ones.
+     * @param visible row versions the transaction sees
+     * @return number of rows updated
+     * @throws IllegalArgumentException if a column does not exist or a value does not match the column type
+     * @throws ConcurrentModificationException if a matching row has been deleted or updated by another transaction.
+     */
+    public int updateRows(List<Token.Identifier> updateColumns, List<Token.Literal> values, Expression filter, IntPredicate visible, ExecutionSettings settings, long transaction) throws IllegalArgumentException, ConcurrentModificationException {
+        int[] indices = updateIndices(updateColumns, values);
+
+        // Collect matching rows up front so that updated values cannot affect which rows get updated.
+        int[] selectedRows = selectRows(filter, visible, settings);
+        updateRows(indices, values, selectedRows, transaction);
+        return selectedRows.length;
+    }
+
+    /**
+     * Updates the given row versions, found by {@link #selectRows}. The new versions are appended in the same order.
+     * @throws IllegalArgumentException if a column does not exist or a value does not match the column type
+     */
+    void updateRows(List<Token.Identifier> updateColumns, List<Token.Literal> values, int[] rows, long transaction) throws IllegalArgumentException {
+        updateRows(updateIndices(updateColumns, values), values, rows, transaction);
+    }
+
+    /**
+     * Verifies that all updated columns exist in the table and that each value matches its column type.
+     * @return index of each updated column
+     */
+    private int[] updateIndices(List<Token.Identifier> updateColumns, List<Token.Literal> values) throws IllegalArgumentException {
+        int[] indices = new int[updateColumns.size()];
+
+        for (int i = 0; i < updateColumns.size(); i++) {
+            indices[i] = getColumnIndex(updateColumns.get(i).ident());
+            this.data.get(indices[i]).validate(values.get(i));
+        }
+
+        return indices;
+    }
+
+    private void updateRows(int[] indices, List<Token.Literal> values, int[] selectedRows, long transaction) {
+        for (int row : selectedRows) {
+            int version = this.rowCount;
+
+            for (Column column : this.data) {
+                column.appendCopy(row);
+            }
+            for (int i = 0; i < indices.length; i++) {
+                this.data.get(indices[i]).set(version, values.get(i));
+            }
+
+            this.versions.delete(row, transaction);
+            appendVersions(version, version + 1, transaction);
+        }
+
+        this.deadRowCount += selectedRows.length;
+        this.version++;
+    }
+
+    /**
+     * Finds the row versions that match a filter among those a transaction sees. Each of them has to be part of the
+     * latest state of the table, since a transaction must not change a row that another transaction has changed
+     * after its snapshot was taken, which it would otherwise overwrite without having seen.
+     * @throws ConcurrentModificationException if a matching row has been deleted or updated by another transaction.
      */
-    public void deleteRows(Expression filter) {
-        this.data.removeIf((row) -> recursiveFilter(row, filter));
+    int[] selectRows(Expression filter, IntPredicate visible, ExecutionSettings settings) throws ConcurrentModificationException {
+        int[] selectedRows = QueryProfile.measure(QueryProfile.Phase.PLAN, () -> Planner.planRows(this, visible, filter, settings)).rows().toArray();
+
+        for (int row : selectedRows) {
+            if (!this.versions.isLive(row)) {
+                throw new ConcurrentModificationException(String.format("A row of table '%s' was changed by another transaction after this one started.", this.name));
+            }
+        }
+
+        return selectedRows;
     }
 
-    public void updateRows(List<Token.Identifier> updateColumns, List<Token.Literal> values, Expression filter) throws IllegalArgumentException {
-        Stream<List<Value>> selectedData = this.data.stream();
+    /**
+     * Finds one row version for each of the given rows of values among those a transaction sees. Rows that hold the
+     * same values cannot be told apart, so any of them may be picked, but never the same version twice.
+     * @param rows values of every column of each row, with null for null values
+     * @throws NoSuchElementException if there are fewer versions with some values than there are rows with them.
+     */
+    int[] findRows(List<List<Token.Literal>> rows, IntPredicate visible) throws NoSuchElementException {
+        // Number of versions still to be found with each set of values
+        Map<List<Token.Literal>, Integer> wanted = new HashMap<>();
+        for (List<Token.Literal> values : rows) {
+            wanted.merge(values, 1, Integer::sum);
+        }
+
+        int[] found = new int[rows.size()];
+        int count = 0;
+
+        for (int row = 0; row < this.rowCount && count < found.length; row++) {
+            if (!visible.test(row)) {
+                continue;
+            }
+
+            List<Token.Literal> values = getLiterals(row);
+            Integer left = wanted.get(values);
+
+            if (left != null) {
+                found[count++] = row;
 
-        // Apply filters, if applicable
-        if (filter != null) {
-            selectedData = selectedData.filter((row) -> recursiveFilter(row, filter));
+                if (left == 1) {
+                    wanted.remove(values);
+                } else {
+                    wanted.put(values, left - 1);
+                }
+            }
         }
 
-        // Verify that all updated columns exist in the table.
-        for (Token.Identifier column : updateColumns) {
-            if (!columnIndices.containsKey(column.ident())) {
-                throw new IllegalArgumentException(String.format("Column '%s' does not exist in table '%s'.", column.ident(), this.name));
+        if (count < found.length) {
+            throw new NoSuchElementException(String.format("Table '%s' does not hold the rows to be deleted.", this.name));
+        }
+
+        return found;
+    }
+
+    /**
+     * Returns the values of every column of a row version as literals, with null for null values.
+     */
+    List<Token.Literal> getLiterals(int row) {
+        List<Token.Literal> literals = new ArrayList<>(this.data.size());
+
+        for (Column column : this.data) {
+            literals.add(switch (column.get(row)) {
+                case null -> null;
+                case Value.Integer(var v) -> new Token.Literal.Integer(v);
+                case Value.VarChar(var v) -> new Token.Literal.String(v);
+                case Value.Boolean(var v) -> new Token.Literal.Boolean(v);
+                case Value.Numeric(var v) -> throw new IllegalStateException("Columns do not hold numeric values.");
+            });
+        }
+
+        return literals;
+    }
+
+    /**
+     * Undoes the changes a failed transaction made to this table.
+     * @param firstRow number of row versions in the table before the transaction started
+     */
+    public void rollback(long transaction, int firstRow) {
+        this.versions.rollback(transaction, firstRow);
+
+        // Versions deleted by the transaction are live again, and versions it appended are now dead.
+        this.deadRowCount = (int) IntStream.range(0, this.rowCount).filter((row) -> !this.versions.isLive(row)).count();
+        this.version++;
+    }
+
+    /**
+     * Physically removes row versions that no transaction can see any more, and renumbers the rest.
+     * Must be called while holding both the write lock and the write side of the vacuum lock.
+     * @param oldest oldest transaction that is still running or invisible to an open view
+     * @return number of row versions that were removed
+     */
+    public int vacuum(long oldest) {
+        BitSet removed = new BitSet(this.rowCount);
+
+        for (int row = 0; row < this.rowCount; row++) {
+            if (this.versions.isDead(row, oldest)) {
+                removed.set(row);
             }
         }
 
-        selectedData.forEach((row) -> {
-            for (int i = 0; i < updateColumns.size(); i++) {
-                int columnIndex = this.columnIndices.get(updateColumns.get(i).ident());
-                Query.ColumnDefinition column = this.columns.get(columnIndex);
+        if (removed.isEmpty()) {
+            // Nothing to remove, but columns may still hold data no row refers to any more, e.g. strings of rows
+            // removed by an earlier vacuum.
+            for (Column column : this.data) {
+                if (column.needsCompaction()) {
+                    column.compact();
+                }
+            }
+
+            return 0;
+        }
+
+        for (Column column : this.data) {
+            column.delete(removed);
+        }
+        this.versions.delete(removed);
 
-                Value value = switch (column.type()) {
-                    case DataType.VarChar(var maxLength) -> switch (values.get(i)) {
-                        case Token.Literal.String(var s) -> {
-                            if (s.length() > maxLength) {
-                                throw new IllegalArgumentException(String.format("String exceeds maximum field length (%s > %s)", s.length(), maxLength));
-                            }
-                            yield new Value.VarChar(s);
-                        }
-                        case Token.Literal.Integer ignored -> throw new IllegalArgumentException(String.format("Attempted to write integer value to varchar column '%s'", column.name()));
-                        case Token.Literal.Boolean ignored -> throw new IllegalArgumentException(String.format("Attempted to write boolean value to varchar column '%s'", column.name()));
-                    };
-                    case DataType.Integer() -> switch (values.get(i)) {
-                        case Token.Literal.Integer(var v) -> new Value.Integer(v);
-                        case Token.Literal.String ignored -> throw new IllegalArgumentException(String.format("Attempted to write string value to integer column '%s'", column.name()));
-                        case Token.Literal.Boolean ignored -> throw new IllegalArgumentException(String.format("Attempted to write boolean value to integer column '%s'", column.name()));
-                    };
-                    case DataType.Boolean() -> switch (values.get(i)) {
-                        case Token.Literal.Boolean(var b) -> new Value.Boolean(b);
-                        case Token.Literal.String ignored -> throw new IllegalArgumentException(String.format("Attempted to write string value to boolean column '%s'", column.name()));
-                        case Token.Literal.Integer ignored -> throw new IllegalArgumentException(String.format("Attempted to write integer value to boolean column '%s'", column.name()));
-                    };
-                };
+        // Rows after a removed row shift down, so every index has to be renumbered.
+        if (!this.indexes.isEmpty()) {
+            int[] positions = new int[this.rowCount];
+            int position = 0;
 
-                row.set(columnIndex, value);
+            for (int row = 0; row < this.rowCount; row++) {
+                positions[row] = position;
+                if (!removed.get(row)) {
+                    position++;
+                }
+            }
+
+            for (Index index : this.indexes.values()) {
+                index.compact(removed, positions);
             }
-        });
+        }
+
+        int count = removed.cardinality();
+        this.rowCount -= count;
+        this.deadRowCount -= count;
+        this.compactions++;
+
+        return count;
     }
 }
@@ -0,0 +1,87 @@
+/*
+ * Transactions v1.0
+ *
+ * database contributors
+ * Oct 16, 2026
+ */
+
+package engine.db;
+
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Hands out transaction ids and keeps track of which transactions are running and which {@link ReadView}s are open,
+ * so that readers can take consistent snapshots and vacuum knows which row versions nobody can see any more.
+ * Ids increase monotonically, so a larger id always belongs to a later transaction.
+ */
+public class Transactions {
+    /**
+     * Id of the transaction that created rows which existed before any running transaction, e.g. rows loaded from a
+     * snapshot. Visible to every view.
+     */
+    public static final long FROZEN = 0;
+
+    private long nextId;
+    private final TreeSet<Long> active;
+    // Number of open views per oldest transaction they cannot see
+    private final TreeMap<Long, Integer> views;
+
+    public Transactions() {
+        this.nextId = FROZEN + 1;
+        this.active = new TreeSet<>();
+        this.views = new TreeMap<>();
+    }
+
+    /**
+     * Starts a new transaction.
+     * @return id of the transaction
+     */
+    public synchronized long begin() {
+        long id = nextId++;
+        active.add(id);
+        return id;
+    }
+
+    /**
+     * Finishes a transaction. Its effects become visible to every view taken from now on.
+     * A transaction that failed must have undone its effects before it is ended.
+     */
+    public synchronized void end(long id) {
+        active.remove(id);
+    }
+
+    /**
+     * Takes a snapshot of the transactions that have committed so far.
+     */
+    public synchronized ReadView snapshot() {
+        ReadView view = new ReadView(this, nextId, active.stream().mapToLong(Long::longValue).toArray());
+        register(view);
+        return view;
+    }
+
+    synchronized void register(ReadView view) {
+        views.merge(view.getOldestInvisible(), 1, Integer::sum);
+    }
+
+    synchronized void release(ReadView view) {
+        views.computeIfPresent(view.getOldestInvisible(), (oldest, count) -> count == 1 ? null : count - 1);
+    }
+
+    /**
+     * Returns the oldest transaction id that is still running or that an open view cannot see. Every transaction
+     * with a smaller id has finished, and is seen by every open view.
+     */
+    public synchronized long oldestVisible() {
+        long oldest = nextId;
+
+        if (!active.isEmpty()) {
+            oldest = Math.min(oldest, active.first());
+        }
+        if (!views.isEmpty()) {
+            oldest = Math.min(oldest, views.firstKey());
+        }
+
+        return oldest;
+    }
+}
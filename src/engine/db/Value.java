@@ -9,12 +9,15 @@ package engine.db;
 
 import engine.sql.Token;
 
+import java.math.BigDecimal;
+
 /**
  * Algebraic data type that represents a value stored in the database. Also provides methods for comparison.
  * Has the following variants:
  *  - VarChar
  *  - Integer
  *  - Boolean
+ *  - Numeric
  */
 public sealed interface Value {
     /**
@@ -55,6 +58,7 @@ public sealed interface Value {
                 case Token.Literal.String(var v) -> v;
                 case Token.Literal.Integer ignored -> throw new IllegalArgumentException("Attempted to compare varchar column to integer");
                 case Token.Literal.Boolean ignored -> throw new IllegalArgumentException("Attempted to compare varchar column to boolean");
+                case Token.Parameter p -> throw p.unbound();
             };
         }
 
@@ -75,6 +79,7 @@ public sealed interface Value {
                 case Value.VarChar(var v) -> value.compareTo(v);
                 case Value.Integer ignored -> throw new IllegalArgumentException("Attempted to compare varchar column to integer column");
                 case Value.Boolean ignored -> throw new IllegalArgumentException("Attempted to compare varchar column to boolean column");
+                case Value.Numeric ignored -> throw new IllegalArgumentException("Attempted to compare varchar column to numeric column");
             };
         }
     }
@@ -90,6 +95,7 @@ public sealed interface Value {
                 case Token.Literal.Integer(var v) -> v;
                 case Token.Literal.String ignored -> throw new IllegalArgumentException("Attempted to compare integer column to string");
                 case Token.Literal.Boolean ignored -> throw new IllegalArgumentException("Attempted to compare integer column to boolean");
+                case Token.Parameter p -> throw p.unbound();
             };
         }
 
@@ -107,7 +113,8 @@ public sealed interface Value {
 
         public int compareTo(Value rhs) {
             return switch (rhs) {
-                case Value.Integer(var v) -> value - v;
+                case Value.Integer(var v) -> java.lang.Integer.compare(value, v);
+                case Value.Numeric(var v) -> BigDecimal.valueOf(value).compareTo(v);
                 case Value.VarChar ignored -> throw new IllegalArgumentException("Attempted to compare integer column to varchar column");
                 case Value.Boolean ignored -> throw new IllegalArgumentException("Attempted to compare integer column to boolean column");
             };
@@ -125,6 +132,7 @@ public sealed interface Value {
                 case Token.Literal.Boolean(var v) -> v;
                 case Token.Literal.String ignored -> throw new IllegalArgumentException("Attempted to compare boolean column to string");
                 case Token.Literal.Integer ignored -> throw new IllegalArgumentException("Attempted to compare boolean column to integer");
+                case Token.Parameter p -> throw p.unbound();
             };
         }
 
@@ -142,9 +150,51 @@ public sealed interface Value {
 
         public int compareTo(Value rhs) {
             return switch (rhs) {
-                case Value.Boolean(var v) -> (value ? 1 : 0) - (v ? 1 : 0);
+                case Value.Boolean(var v) -> java.lang.Boolean.compare(value, v);
                 case Value.VarChar ignored -> throw new IllegalArgumentException("Attempted to compare boolean column to varchar column");
                 case Value.Integer ignored -> throw new IllegalArgumentException("Attempted to compare boolean column to integer column");
+                case Value.Numeric ignored -> throw new IllegalArgumentException("Attempted to compare boolean column to numeric column");
+            };
+        }
+    }
+
+    /**
+     * Exact number computed by an aggregate, e.g. a sum that does not fit an integer, or an average. No column holds
+     * numeric values.
+     */
+    record Numeric(BigDecimal value) implements Value {
+        @Override
+        public String toString() {
+            return value.toPlainString();
+        }
+
+        BigDecimal getValue(Token.Literal rhs) throws IllegalArgumentException {
+            return switch (rhs) {
+                case Token.Literal.Integer(var v) -> BigDecimal.valueOf(v);
+                case Token.Literal.String ignored -> throw new IllegalArgumentException("Attempted to compare numeric column to string");
+                case Token.Literal.Boolean ignored -> throw new IllegalArgumentException("Attempted to compare numeric column to boolean");
+                case Token.Parameter p -> throw p.unbound();
+            };
+        }
+
+        public boolean equals(Token.Literal rhs) throws IllegalArgumentException {
+            return value.compareTo(getValue(rhs)) == 0;
+        }
+
+        public boolean lessThan(Token.Literal rhs) throws IllegalArgumentException {
+            return value.compareTo(getValue(rhs)) < 0;
+        }
+
+        public boolean greaterThan(Token.Literal rhs) throws IllegalArgumentException {
+            return value.compareTo(getValue(rhs)) > 0;
+        }
+
+        public int compareTo(Value rhs) {
+            return switch (rhs) {
+                case Value.Numeric(var v) -> value.compareTo(v);
+                case Value.Integer(var v) -> value.compareTo(BigDecimal.valueOf(v));
+                case Value.VarChar ignored -> throw new IllegalArgumentException("Attempted to compare numeric column to varchar column");
+                case Value.Boolean ignored -> throw new IllegalArgumentException("Attempted to compare numeric column to boolean column");
             };
         }
     }
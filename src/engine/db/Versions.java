@@ -0,0 +1,133 @@
+/*
+ * Versions v1.0
+ *
+ * database contributors
+ * Oct 16, 2026
+ */
+
+package engine.db;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Records which transaction created and which transaction deleted each row version in a table.
+ * Rows are never changed in place: an update deletes the old version and appends a new one, and a delete only stamps
+ * the version with the id of the deleting transaction. Versions that no transaction can see any more are reclaimed by
+ * vacuum. Like {@link Column}, any number of threads may read published versions while a single thread writes.
+ */
+final class Versions {
+    // Creator of versions whose transaction failed, which no view will ever see
+    static final long ABORTED = Long.MAX_VALUE;
+    // Deleter of versions that have not been deleted
+    private static final long NONE = 0;
+
+    private volatile long[] createdBy;
+    private volatile long[] deletedBy;
+    private int size;
+
+    Versions() {
+        this.createdBy = new long[0];
+        this.deletedBy = new long[0];
+        this.size = 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Appends a new version created by the given transaction.
+     */
+    void append(long transaction) {
+        if (size == createdBy.length) {
+            int capacity = Column.grow(createdBy.length, size + 1);
+            createdBy = Arrays.copyOf(createdBy, capacity);
+            deletedBy = Arrays.copyOf(deletedBy, capacity);
+        }
+
+        createdBy[size] = transaction;
+        deletedBy[size] = NONE;
+        size++;
+    }
+
+    /**
+     * Marks a version as deleted by the given transaction.
+     */
+    void delete(int row, long transaction) {
+        deletedBy[row] = transaction;
+    }
+
+    /**
+     * Returns true if a version is part of the latest state of the table, i.e. it was created by a transaction that
+     * did not fail, and has not been deleted. Only meaningful to the thread that holds the table's write lock.
+     */
+    boolean isLive(int row) {
+        return createdBy[row] != ABORTED && deletedBy[row] == NONE;
+    }
+
+    /**
+     * Returns true if a version is seen by a view: its creator is visible and its deleter, if any, is not.
+     */
+    boolean isVisible(int row, ReadView view) {
+        long deleter = deletedBy[row];
+        return view.sees(createdBy[row]) && (deleter == NONE || !view.sees(deleter));
+    }
+
+    /**
+     * Returns true if a version is seen by a transaction that has changed the table itself: either the view sees it and
+     * the transaction has not deleted it, or the transaction created it and has not deleted it since.
+     * @param view snapshot the transaction started from
+     */
+    boolean isVisible(int row, ReadView view, long transaction) {
+        long deleter = deletedBy[row];
+
+        if (createdBy[row] == transaction) {
+            return deleter == NONE;
+        }
+
+        return deleter != transaction && isVisible(row, view);
+    }
+
+    /**
+     * Returns true if no running or future transaction can ever see a version.
+     * @param oldest oldest transaction that is still running or invisible to an open view
+     */
+    boolean isDead(int row, long oldest) {
+        long deleter = deletedBy[row];
+        return createdBy[row] == ABORTED || (deleter != NONE && deleter < oldest);
+    }
+
+    /**
+     * Undoes the effects of a failed transaction.
+     * @param firstRow first version the transaction may have appended
+     */
+    void rollback(long transaction, int firstRow) {
+        for (int row = 0; row < size; row++) {
+            if (deletedBy[row] == transaction) {
+                deletedBy[row] = NONE;
+            }
+            if (row >= firstRow && createdBy[row] == transaction) {
+                createdBy[row] = ABORTED;
+            }
+        }
+    }
+
+    /**
+     * Removes the given versions and shifts the remaining ones down, the same way {@link Column#delete(BitSet)} does.
+     * Must not be called while other threads read versions.
+     */
+    void delete(BitSet removed) {
+        int write = 0;
+
+        for (int read = 0; read < size; read++) {
+            if (!removed.get(read)) {
+                createdBy[write] = createdBy[read];
+                deletedBy[write] = deletedBy[read];
+                write++;
+            }
+        }
+
+        size = write;
+    }
+}
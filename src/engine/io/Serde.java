@@ -7,20 +7,29 @@
 
 package engine.io;
 
+import engine.db.Cancellation;
 import engine.db.Database;
+import engine.db.Index;
+import engine.db.Session;
 import engine.db.Table;
 import engine.db.Value;
-import engine.sql.Parser;
 import engine.sql.Query;
+import engine.sql.ScriptReader;
 
 import java.io.*;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.CancellationException;
 
 /**
  * Provides methods to serialize and deserialize a database by using SQL commands as a representation of the current state.
  * This is similar to what tools like `mysqldump` and `pg_dump` do.
  */
 public class Serde {
+    // Number of rows written by each `INSERT` of a dump
+    private static final int ROWS_PER_INSERT = 1000;
+
     /**
      * Serializes a database to equivalent SQL commands.
      * @param out output writer stream where the script contents will go.
@@ -29,37 +38,78 @@ public class Serde {
     public static void serialize(BufferedWriter out, Database database) {
         PrintWriter writer = new PrintWriter(out);
 
-        for (Table table : database.getTables()) {
-            writer.println(String.format("-- BEGIN TABLE '%s'\n", table.getName()));
+        // Keep writers out until every table has been dumped, so that the dump is consistent.
+        database.whileFrozen(() -> {
+            for (Table table : database.getTables()) {
+                writer.println(String.format("-- BEGIN TABLE '%s'\n", table.getName()));
 
-            writer.println(String.format("CREATE TABLE %s (", table.getName()));
+                writer.println(String.format("CREATE TABLE %s (", table.getName()));
 
-            for (Query.ColumnDefinition column : table.getColumns()) {
-                writer.println(String.format("\t%s %s,", column.name(), column.type()));
-            }
+                for (Query.ColumnDefinition column : table.getColumns()) {
+                    writer.println(String.format("\t%s %s,", column.name(), column.type()));
+                }
 
-            writer.println(");\n");
+                writer.println(");\n");
 
-            for (List<Value> row : table.getData()) {
-                writer.print(String.format("INSERT INTO %s VALUES (", table.getName()));
+                // Rows are written in batches, so that loading the dump appends many rows per statement. SQL has no
+                // null literal, so null values are left out, and a batch only holds rows that are null in the same
+                // columns.
+                Iterator<List<Value>> rows = table.getData().iterator();
+                List<String> batchColumns = null;
+                int batched = 0;
 
-                for (int i = 0; i < row.size(); i++) {
-                    if (row.get(i) instanceof Value.VarChar(var value)) {
-                        writer.print(String.format("'%s'", value));
+                while (rows.hasNext()) {
+                    List<Value> row = rows.next();
+                    List<String> columns = new ArrayList<>(row.size());
+                    List<String> values = new ArrayList<>(row.size());
+
+                    for (int i = 0; i < row.size(); i++) {
+                        if (row.get(i) == null) {
+                            continue;
+                        }
+
+                        columns.add(table.getColumns().get(i).name());
+                        values.add(row.get(i) instanceof Value.VarChar(var value) ? String.format("'%s'", value) : row.get(i).toString());
+                    }
+
+                    if (batched > 0 && !columns.equals(batchColumns)) {
+                        writer.println(";");
+                        batched = 0;
+                    }
+
+                    if (batched == 0) {
+                        // Rows without nulls list no columns, which keeps the most common batches short.
+                        writer.print(columns.size() == row.size()
+                            ? String.format("INSERT INTO %s VALUES\n\t(", table.getName())
+                            : String.format("INSERT INTO %s (%s) VALUES\n\t(", table.getName(), String.join(", ", columns))
+                        );
+                        batchColumns = columns;
                     } else {
-                        writer.print(row.get(i));
+                        writer.print(",\n\t(");
                     }
 
-                    if (i < row.size() - 1) {
-                        writer.print(", ");
+                    writer.print(String.join(", ", values));
+                    writer.print(")");
+
+                    if (++batched == ROWS_PER_INSERT || !rows.hasNext()) {
+                        writer.println(";");
+                        batched = 0;
                     }
                 }
 
-                writer.println(");");
-            }
+                for (Index index : table.getIndexes()) {
+                    writer.println(String.format(
+                        "CREATE INDEX %s ON %s USING %s (%s);",
+                        index.getName(),
+                        table.getName(),
+                        index.getType(),
+                        table.getColumns().get(index.getColumnIndex()).name()
+                    ));
+                }
 
-            writer.println(String.format("\n-- END TABLE '%s'\n\n", table.getName()));
-        }
+                writer.println(String.format("\n-- END TABLE '%s'\n\n", table.getName()));
+            }
+        });
     }
 
     /**
@@ -68,13 +118,31 @@ public class Serde {
      * @return new database.
      */
     public static Database deserialize(String in) {
+        return deserialize(new StringReader(in));
+    }
+
+    /**
+     * Constructs a new database from a stream of SQL commands. Each query is executed as soon as it has been read,
+     * so the script never has to fit in memory all at once. Scripts may group their changes into transactions.
+     * The database is loaded in bulk, so indexes are built once at the end rather than updated with every row.
+     * @param in reader over a SQL script file
+     * @return new database.
+     */
+    public static Database deserialize(Reader in) {
         Database database = new Database();
-        List<Query> queries = Parser.parse(in);
+        ScriptReader queries = new ScriptReader(in);
 
-        try {
-            for (Query query : queries) {
-                database.executeQuery(query);
+        database.startBulkLoad();
+
+        try (Session session = new Session(database)) {
+            while (queries.hasNext()) {
+                Cancellation.check();
+                session.executeQuery(queries.next());
             }
+
+            database.finishBulkLoad();
+        } catch (CancellationException err) {
+            throw err;
         } catch (Exception err) {
             throw new RuntimeException(err);
         }
@@ -0,0 +1,438 @@
+/*
+ * Snapshot v1.0
+ *
+ * database contributors
+ * Oct 16, 2026
+ */
+
+package engine.io;
+
+import engine.db.Cancellation;
+import engine.db.Column;
+import engine.db.Database;
+import engine.db.Index;
+import engine.db.Table;
+import engine.sql.DataType;
+import engine.sql.Query;
+import engine.sql.Token;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.zip.CRC32;
+
+/**
+ * Provides methods to save and load a database in a versioned binary format that mirrors the in-memory column vectors,
+ * so loading a snapshot copies arrays in bulk instead of parsing and re-executing SQL like {@link Serde} does.
+ * A snapshot file has the following layout:
+ *  - Header        Magic bytes followed by the format version.
+ *  - Catalog block Number of tables, and the position of the last write-ahead log record the snapshot includes.
+ *  - Schema block  One per table: name, column definitions, row count and index definitions.
+ *  - Data block    One per column, right after the schema block of its table: null bitmap followed by the values.
+ * Every block is framed as `[int length][payload][long CRC32 of payload]`, so a truncated or corrupt file is detected
+ * before any of it is used. Indexes are not stored, they are rebuilt from the column data on load.
+ */
+public class Snapshot {
+    private static final byte[] MAGIC = "CSC221DB".getBytes(StandardCharsets.US_ASCII);
+    private static final int VERSION = 2;
+
+    // Tags that identify the type of a column in a schema block.
+    private static final byte INTEGER = 0;
+    private static final byte BOOLEAN = 1;
+    private static final byte VARCHAR = 2;
+
+    /**
+     * Contents of a snapshot file.
+     * @param logPosition sequence number of the last {@link WriteAheadLog} record that is reflected in the database,
+     *                    or 0 if the snapshot was not taken as a checkpoint
+     */
+    public record Contents(Database database, long logPosition) {}
+
+    /**
+     * Writes a snapshot of a database to a file, outside of any write-ahead log.
+     * @param path file to write the snapshot to
+     * @param database database to save
+     * @throws IOException if the file cannot be written.
+     */
+    public static void write(Path path, Database database) throws IOException {
+        write(path, database, 0);
+    }
+
+    /**
+     * Writes a snapshot of a database to a file. The snapshot is written to a temporary file next to the target first
+     * and then moved into place, so an existing snapshot is never left half-overwritten.
+     * @param path file to write the snapshot to
+     * @param database database to save
+     * @param logPosition sequence number of the last write-ahead log record that is reflected in the database
+     * @throws IOException if the file cannot be written.
+     */
+    public static void write(Path path, Database database, long logPosition) throws IOException {
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(MAGIC.length + Integer.BYTES);
+            header.put(MAGIC).putInt(VERSION).flip();
+            writeFully(channel, header);
+
+            // Keep writers out until every table has been written, so that the snapshot is consistent.
+            try {
+                database.whileFrozen(() -> {
+                    try {
+                        writeBlock(channel, ByteBuffer.allocate(Integer.BYTES + Long.BYTES).putInt(database.getTables().size()).putLong(logPosition));
+
+                        for (Table table : database.getTables()) {
+                            // Only the latest version of each row is saved, so a loaded table starts out fully vacuumed.
+                            List<Column> data = table.getLiveColumns();
+                            writeBlock(channel, encodeSchema(table, data.isEmpty() ? 0 : data.get(0).size()));
+
+                            for (Column column : data) {
+                                Cancellation.check();
+                                writeBlock(channel, encodeColumn(column));
+                            }
+                        }
+                    } catch (IOException err) {
+                        throw new UncheckedIOException(err);
+                    }
+                });
+            } catch (UncheckedIOException err) {
+                throw err.getCause();
+            }
+
+            channel.force(true);
+        } catch (CancellationException err) {
+            // Leave the existing snapshot, if any, as it was.
+            Files.deleteIfExists(temporary);
+            throw err;
+        }
+
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads a snapshot file into a new database.
+     * @param path file to read the snapshot from
+     * @return new database.
+     * @throws IOException if the file cannot be read, is corrupt, or was written by an unsupported version.
+     */
+    public static Database read(Path path) throws IOException {
+        return load(path).database();
+    }
+
+    /**
+     * Reads a snapshot file into a new database. Data blocks are memory-mapped and copied straight into column vectors.
+     * Version 1 snapshots predate the write-ahead log, and are read as if they include no log records.
+     * @param path file to read the snapshot from
+     * @return new database, along with the log position it was taken at.
+     * @throws IOException if the file cannot be read, is corrupt, or was written by an unsupported version.
+     */
+    public static Contents load(Path path) throws IOException {
+        Database database = new Database();
+        long logPosition;
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(MAGIC.length + Integer.BYTES);
+            readFully(channel, header, 0);
+
+            byte[] magic = new byte[MAGIC.length];
+            header.get(magic);
+
+            if (!Arrays.equals(magic, MAGIC)) {
+                throw new IOException(String.format("'%s' is not a snapshot file.", path));
+            }
+
+            int version = header.getInt();
+            if (version < 1 || version > VERSION) {
+                throw new IOException(String.format("Unsupported snapshot version %d (expected at most %d).", version, VERSION));
+            }
+
+            channel.position(header.capacity());
+            ByteBuffer catalog = readBlock(channel);
+            int tableCount = catalog.getInt();
+            logPosition = version >= 2 ? catalog.getLong() : 0;
+
+            for (int t = 0; t < tableCount; t++) {
+                Cancellation.check();
+                ByteBuffer schema = readBlock(channel);
+
+                String name = getString(schema);
+                int columnCount = schema.getInt();
+                List<Query.ColumnDefinition> columns = new ArrayList<>(columnCount);
+
+                for (int i = 0; i < columnCount; i++) {
+                    String columnName = getString(schema);
+                    byte tag = schema.get();
+                    int length = schema.getInt();
+
+                    columns.add(new Query.ColumnDefinition(columnName, switch (tag) {
+                        case INTEGER -> new DataType.Integer();
+                        case BOOLEAN -> new DataType.Boolean();
+                        case VARCHAR -> new DataType.VarChar(length);
+                        default -> throw new IOException(String.format("Unknown type tag %d for column '%s'.", tag, columnName));
+                    }));
+                }
+
+                int rowCount = schema.getInt();
+                List<Column> data = new ArrayList<>(columnCount);
+
+                for (Query.ColumnDefinition column : columns) {
+                    data.add(decodeColumn(readBlock(channel), column, rowCount));
+                }
+
+                Table table = new Table(name, columns, data);
+
+                int indexCount = schema.getInt();
+                for (int i = 0; i < indexCount; i++) {
+                    String indexName = getString(schema);
+                    int columnIndex = schema.getInt();
+                    Token.IndexTypeType type = Token.IndexTypeType.valueOf(getString(schema));
+
+                    table.createIndex(indexName, columns.get(columnIndex).name(), type);
+                }
+
+                database.addTable(table);
+            }
+
+            if (channel.position() != channel.size()) {
+                throw new IOException("Snapshot has trailing data after the last block.");
+            }
+        } catch (IllegalArgumentException | IndexOutOfBoundsException err) {
+            throw new IOException("Snapshot is malformed.", err);
+        }
+
+        return new Contents(database, logPosition);
+    }
+
+    private static ByteBuffer encodeSchema(Table table, int rowCount) {
+        List<byte[]> strings = new ArrayList<>();
+        int size = Integer.BYTES * 3;
+
+        strings.add(table.getName().getBytes(StandardCharsets.UTF_8));
+        for (Query.ColumnDefinition column : table.getColumns()) {
+            strings.add(column.name().getBytes(StandardCharsets.UTF_8));
+            size += Byte.BYTES + Integer.BYTES;
+        }
+        for (Index index : table.getIndexes()) {
+            strings.add(index.getName().getBytes(StandardCharsets.UTF_8));
+            strings.add(index.getType().name().getBytes(StandardCharsets.UTF_8));
+            size += Integer.BYTES;
+        }
+        for (byte[] string : strings) {
+            size += Integer.BYTES + string.length;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        int string = 0;
+
+        putString(buffer, strings.get(string++));
+        buffer.putInt(table.getColumns().size());
+
+        for (Query.ColumnDefinition column : table.getColumns()) {
+            putString(buffer, strings.get(string++));
+
+            switch (column.type()) {
+                case DataType.Integer() -> buffer.put(INTEGER).putInt(0);
+                case DataType.Boolean() -> buffer.put(BOOLEAN).putInt(0);
+                case DataType.VarChar(var length) -> buffer.put(VARCHAR).putInt(length);
+            }
+        }
+
+        buffer.putInt(rowCount);
+        buffer.putInt(table.getIndexes().size());
+
+        for (Index index : table.getIndexes()) {
+            putString(buffer, strings.get(string++));
+            buffer.putInt(index.getColumnIndex());
+            putString(buffer, strings.get(string++));
+        }
+
+        return buffer;
+    }
+
+    private static ByteBuffer encodeColumn(Column column) {
+        long[] nulls = column.getNulls().toLongArray();
+        int bitmapSize = Integer.BYTES + nulls.length * Long.BYTES;
+
+        ByteBuffer buffer = switch (column) {
+            case Column.IntegerColumn c -> {
+                ByteBuffer b = ByteBuffer.allocate(bitmapSize + c.size() * Integer.BYTES);
+                putBits(b, nulls);
+                b.asIntBuffer().put(c.getValues());
+                yield b.position(b.capacity());
+            }
+            case Column.BooleanColumn c -> {
+                long[] values = c.getValues().toLongArray();
+                ByteBuffer b = ByteBuffer.allocate(bitmapSize + Integer.BYTES + values.length * Long.BYTES);
+                putBits(b, nulls);
+                yield putBits(b, values);
+            }
+            case Column.VarCharColumn c -> {
+                // Strings stored inline are written as a dictionary with one entry per row, which loading turns back
+                // into inline strings.
+                boolean inline = !c.isDictionaryEncoded();
+                byte[][] dictionary = new byte[inline ? c.size() : c.getDictionarySize()][];
+                int dictionaryBytes = Integer.BYTES;
+
+                for (int code = 0; code < dictionary.length; code++) {
+                    String entry = !inline ? c.getDictionaryEntry(code) : c.isNull(code) ? "" : c.getString(code);
+                    dictionary[code] = entry.getBytes(StandardCharsets.UTF_8);
+                    dictionaryBytes += Integer.BYTES + dictionary[code].length;
+                }
+
+                ByteBuffer b = ByteBuffer.allocate(bitmapSize + dictionaryBytes + c.size() * Integer.BYTES);
+                putBits(b, nulls);
+                b.putInt(dictionary.length);
+                for (byte[] entry : dictionary) {
+                    putString(b, entry);
+                }
+
+                if (inline) {
+                    IntBuffer codes = b.asIntBuffer();
+                    for (int row = 0; row < c.size(); row++) {
+                        codes.put(row);
+                    }
+                } else {
+                    b.asIntBuffer().put(c.getCodes());
+                }
+                yield b.position(b.capacity());
+            }
+        };
+
+        return buffer;
+    }
+
+    private static Column decodeColumn(ByteBuffer buffer, Query.ColumnDefinition definition, int rowCount) throws IOException {
+        BitSet nulls = getBits(buffer);
+
+        Column column = switch (definition.type()) {
+            case DataType.Integer() -> {
+                int[] values = new int[rowCount];
+                buffer.asIntBuffer().get(values);
+                buffer.position(buffer.position() + rowCount * Integer.BYTES);
+                yield Column.IntegerColumn.of(definition, values, rowCount, nulls);
+            }
+            case DataType.Boolean() -> Column.BooleanColumn.of(definition, getBits(buffer), rowCount, nulls);
+            case DataType.VarChar ignored -> {
+                String[] dictionary = new String[buffer.getInt()];
+                for (int code = 0; code < dictionary.length; code++) {
+                    dictionary[code] = getString(buffer);
+                }
+
+                int[] codes = new int[rowCount];
+                buffer.asIntBuffer().get(codes);
+                buffer.position(buffer.position() + rowCount * Integer.BYTES);
+
+                for (int code : codes) {
+                    if (code < 0 || code >= Math.max(dictionary.length, 1)) {
+                        throw new IOException(String.format("Column '%s' refers to a dictionary entry that does not exist.", definition.name()));
+                    }
+                }
+
+                yield Column.VarCharColumn.of(definition, dictionary, codes, rowCount, nulls);
+            }
+        };
+
+        if (buffer.hasRemaining()) {
+            throw new IOException(String.format("Data block of column '%s' has trailing data.", definition.name()));
+        }
+
+        return column;
+    }
+
+    /**
+     * Frames a payload with its length and checksum and appends it to the file.
+     * @param payload buffer whose contents from the start up to its position make up the payload
+     */
+    private static void writeBlock(FileChannel channel, ByteBuffer payload) throws IOException {
+        payload.flip();
+
+        CRC32 crc = new CRC32();
+        crc.update(payload.duplicate());
+
+        ByteBuffer length = ByteBuffer.allocate(Integer.BYTES).putInt(payload.remaining()).flip();
+        ByteBuffer checksum = ByteBuffer.allocate(Long.BYTES).putLong(crc.getValue()).flip();
+
+        ByteBuffer[] buffers = { length, payload, checksum };
+        while (checksum.hasRemaining()) {
+            channel.write(buffers);
+        }
+    }
+
+    /**
+     * Maps the block that starts at the current position of the channel, verifies its checksum,
+     * and advances the channel past the block.
+     * @return payload of the block
+     */
+    private static ByteBuffer readBlock(FileChannel channel) throws IOException {
+        long position = channel.position();
+        ByteBuffer length = ByteBuffer.allocate(Integer.BYTES);
+        readFully(channel, length, position);
+
+        int size = length.getInt();
+        if (size < 0 || position + Integer.BYTES + size + Long.BYTES > channel.size()) {
+            throw new IOException(String.format("Snapshot is truncated at offset %d.", position));
+        }
+
+        ByteBuffer block = channel.map(FileChannel.MapMode.READ_ONLY, position + Integer.BYTES, size + Long.BYTES);
+        ByteBuffer payload = block.slice(0, size);
+
+        CRC32 crc = new CRC32();
+        crc.update(payload.duplicate());
+
+        if (crc.getValue() != block.getLong(size)) {
+            throw new IOException(String.format("Snapshot block at offset %d is corrupt.", position));
+        }
+
+        channel.position(position + Integer.BYTES + size + Long.BYTES);
+        return payload;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException(String.format("Snapshot is truncated at offset %d.", position));
+            }
+        }
+        buffer.flip();
+    }
+
+    private static void putString(ByteBuffer buffer, byte[] string) {
+        buffer.putInt(string.length).put(string);
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        byte[] string = new byte[buffer.getInt()];
+        buffer.get(string);
+        return new String(string, StandardCharsets.UTF_8);
+    }
+
+    private static ByteBuffer putBits(ByteBuffer buffer, long[] words) {
+        buffer.putInt(words.length);
+        buffer.asLongBuffer().put(words);
+        return buffer.position(buffer.position() + words.length * Long.BYTES);
+    }
+
+    private static BitSet getBits(ByteBuffer buffer) {
+        long[] words = new long[buffer.getInt()];
+        buffer.asLongBuffer().get(words);
+        buffer.position(buffer.position() + words.length * Long.BYTES);
+        return BitSet.valueOf(words);
+    }
+}
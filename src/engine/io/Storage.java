@@ -0,0 +1,165 @@
+/*
+ * Storage v1.0
+ *
+ * database contributors
+ * Oct 16, 2026
+ */
+
+package engine.io;
+
+import engine.db.Database;
+import engine.db.Journal;
+import engine.db.Session;
+import engine.sql.Query;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Keeps a database durable in a data directory, which holds the last {@link Snapshot} and a {@link WriteAheadLog} of
+ * every change made since. Opening the directory loads the snapshot and replays the log on top of it, after which every
+ * change to the database is appended to the log. A checkpoint writes a new snapshot and empties the log, which keeps
+ * the log, and so the time it takes to recover, short. Checkpoints are taken whenever the log grows past the checkpoint
+ * size, and should also be taken before a clean shutdown, so that the next start has nothing to replay.
+ */
+public class Storage implements Journal, Closeable {
+    private static final String SNAPSHOT_FILE = "database.snap";
+    private static final String LOG_FILE = "database.wal";
+
+    private final Path directory;
+    private final Database database;
+    private final WriteAheadLog log;
+    // Size the log may grow to before a checkpoint is taken, or 0 to only take checkpoints when asked to
+    private volatile long checkpointSize;
+    // Set while a checkpoint is being written, so that writers that cross the checkpoint size at once only take one
+    private final AtomicBoolean checkpointing;
+
+    private Storage(Path directory, Database database, WriteAheadLog log) {
+        this.directory = directory;
+        this.database = database;
+        this.log = log;
+        this.checkpointSize = 0;
+        this.checkpointing = new AtomicBoolean(false);
+    }
+
+    /**
+     * Opens a data directory, creating it if it does not exist, and recovers the database stored in it.
+     * @param directory directory that holds the snapshot and log files
+     * @param mode when to force log records to disk
+     * @param syncIntervalMillis time between syncs, used with {@link WriteAheadLog.SyncMode#INTERVAL}
+     * @return storage whose database records every change to the log.
+     * @throws IOException if the directory cannot be read, or holds corrupt files.
+     */
+    public static Storage open(Path directory, WriteAheadLog.SyncMode mode, long syncIntervalMillis) throws IOException {
+        Files.createDirectories(directory);
+
+        Path snapshot = directory.resolve(SNAPSHOT_FILE);
+        Snapshot.Contents contents = Files.exists(snapshot)
+            ? Snapshot.load(snapshot)
+            : new Snapshot.Contents(new Database(), 0);
+
+        Database database = contents.database();
+        // Transactions in the log are replayed as transactions, so they are applied in one batch again.
+        Session session = new Session(database);
+        WriteAheadLog log = WriteAheadLog.open(
+            directory.resolve(LOG_FILE),
+            contents.logPosition(),
+            session::executeQuery,
+            mode,
+            syncIntervalMillis
+        );
+
+        Storage storage = new Storage(directory, database, log);
+        database.setJournal(storage);
+
+        return storage;
+    }
+
+    public Database getDatabase() {
+        return database;
+    }
+
+    public long getCheckpointSize() {
+        return checkpointSize;
+    }
+
+    /**
+     * Sets the size in bytes that the log may grow to before a checkpoint is taken. The checkpoint is written by the
+     * writer whose change pushed the log past the size, once that change has been committed.
+     * @param checkpointSize size of the log that triggers a checkpoint, or 0 to only take checkpoints when asked to
+     */
+    public void setCheckpointSize(long checkpointSize) throws IllegalArgumentException {
+        if (checkpointSize < 0) {
+            throw new IllegalArgumentException("Checkpoint size must not be negative.");
+        }
+
+        this.checkpointSize = checkpointSize;
+    }
+
+    @Override
+    public long record(Query query) throws RuntimeException {
+        return log.append(query);
+    }
+
+    @Override
+    public long record(List<Query> queries) throws RuntimeException {
+        return log.append(queries);
+    }
+
+    @Override
+    public void commit(long position) throws RuntimeException {
+        try {
+            log.commit(position);
+        } catch (IOException err) {
+            throw new RuntimeException(String.format("Change was applied but could not be written to the log: %s", err.getMessage()), err);
+        }
+
+        long checkpointSize = this.checkpointSize;
+
+        if (checkpointSize > 0 && log.getSize() >= checkpointSize && checkpointing.compareAndSet(false, true)) {
+            try {
+                checkpoint(database);
+            } finally {
+                checkpointing.set(false);
+            }
+        }
+    }
+
+    /**
+     * Writes a new snapshot of the database and empties the log, e.g. before a clean shutdown.
+     * @throws RuntimeException if the snapshot could not be written.
+     */
+    public void checkpoint() throws RuntimeException {
+        checkpoint(database);
+    }
+
+    /**
+     * Writes a new snapshot of the database and empties the log. The snapshot remembers the last log record it
+     * includes, so if the process dies before the log is emptied, recovery skips the records that are already in it.
+     */
+    @Override
+    public void checkpoint(Database database) throws RuntimeException {
+        // Nothing can be appended to the log while the database is frozen, so the snapshot matches the log position.
+        database.whileFrozen(() -> {
+            try {
+                Snapshot.write(directory.resolve(SNAPSHOT_FILE), database, log.getLastSequence());
+                log.reset();
+            } catch (IOException err) {
+                throw new RuntimeException(String.format("Unable to write checkpoint: %s", err.getMessage()), err);
+            }
+        });
+    }
+
+    /**
+     * Forces every change to disk and stops recording changes.
+     */
+    @Override
+    public void close() throws IOException {
+        database.setJournal(null);
+        log.close();
+    }
+}
@@ -0,0 +1,774 @@
+/*
+ * WriteAheadLog v1.0
+ *
+ * database contributors
+ * Oct 16, 2026
+ */
+
+package engine.io;
+
+import engine.sql.DataType;
+import engine.sql.Expression;
+import engine.sql.Query;
+import engine.sql.Token;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of every query that changed the database since the last snapshot, so that changes survive a crash.
+ * Each record is framed as `[int length][long sequence number][query][int CRC32]`, where the query is a compact binary
+ * encoding of its fields rather than SQL text. The changes made by an explicit transaction are written as a single
+ * record, so a crash can never leave half of a transaction in the log.
+ *
+ * Writers append records to an in-memory buffer and then wait for them to be committed. Whichever writer gets to
+ * commit first writes out the records of every writer waiting behind it with a single write (and fsync), so the cost
+ * of syncing is shared between concurrent writers. How long a commit waits depends on the {@link SyncMode}.
+ */
+public class WriteAheadLog implements Closeable {
+    /**
+     * Controls when appended records are forced to disk:
+     *  - EVERY_COMMIT  Every commit waits until its record is on disk. Nothing is ever lost.
+     *  - INTERVAL      Commits wait until their record has been handed to the OS, which is forced to disk on a timer.
+     *                  Up to one interval of commits can be lost if the machine (but not the process) crashes.
+     *  - OS            Commits wait until their record has been handed to the OS, which writes it out whenever it
+     *                  likes. The log is only forced when it is closed.
+     */
+    public enum SyncMode {
+        EVERY_COMMIT,
+        INTERVAL,
+        OS,
+    }
+
+    private static final byte[] MAGIC = "CSC221WL".getBytes(StandardCharsets.US_ASCII);
+    private static final int VERSION = 4;
+    private static final int HEADER_SIZE = MAGIC.length + Integer.BYTES;
+
+    private static final int INITIAL_BUFFER_SIZE = 64 * 1024;
+
+    // Tags that identify the kind of query in a record.
+    private static final byte CREATE_TABLE = 0;
+    private static final byte DROP_TABLE = 1;
+    private static final byte INSERT_INTO = 2;
+    private static final byte DELETE_FROM = 3;
+    private static final byte UPDATE_SET = 4;
+    private static final byte CREATE_INDEX = 5;
+    private static final byte DROP_INDEX = 6;
+    // Added in version 2
+    private static final byte TRANSACTION = 7;
+    // Added in version 3, and written instead of INSERT_INTO since
+    private static final byte INSERT_ROWS = 8;
+    // Added in version 4
+    private static final byte DELETE_ROWS = 9;
+
+    // Tags that identify literals, expressions and column types inside a record.
+    private static final byte NULL = 0;
+    private static final byte INTEGER = 1;
+    private static final byte STRING = 2;
+    private static final byte BOOLEAN = 3;
+    private static final byte COMPARISON = 1;
+    private static final byte BINARY = 2;
+
+    private final FileChannel channel;
+    private final SyncMode mode;
+    private final ScheduledExecutorService syncer;
+
+    private final ReentrantLock lock;
+    private final Condition flushed;
+
+    // Records are appended to `pending` while the previous batch is being written out of `spare`.
+    private ByteBuffer pending;
+    private ByteBuffer spare;
+    private boolean flushing;
+    private IOException failure;
+
+    private long nextSequence;
+    private long writtenSequence;
+    private long syncedSequence;
+    // Bytes in the file, including the header; only counts records once they have been written out
+    private volatile long size;
+
+    private WriteAheadLog(FileChannel channel, long size, long lastSequence, SyncMode mode, long syncIntervalMillis) {
+        this.channel = channel;
+        this.size = size;
+        this.mode = mode;
+        this.lock = new ReentrantLock();
+        this.flushed = this.lock.newCondition();
+        this.pending = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+        this.spare = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+        this.nextSequence = lastSequence + 1;
+        this.writtenSequence = lastSequence;
+        this.syncedSequence = lastSequence;
+
+        if (mode == SyncMode.INTERVAL) {
+            this.syncer = Executors.newSingleThreadScheduledExecutor((runnable) -> {
+                Thread thread = new Thread(runnable, "wal-sync");
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.syncer.scheduleWithFixedDelay(this::syncQuietly, syncIntervalMillis, syncIntervalMillis, TimeUnit.MILLISECONDS);
+        } else {
+            this.syncer = null;
+        }
+    }
+
+    /**
+     * Opens a log file for appending, creating it if it does not exist, after replaying the records it holds.
+     * A record that was only partially written when the process died is discarded along with everything after it.
+     * @param path log file to open
+     * @param checkpoint sequence number of the last record already reflected in the database; older records are skipped
+     * @param replay called with each query newer than the checkpoint, in order. The queries of a transaction record
+     *               are wrapped in {@link Query.Begin} and {@link Query.Commit}.
+     * @param mode when to force records to disk
+     * @param syncIntervalMillis time between syncs, used with {@link SyncMode#INTERVAL}
+     * @return log positioned after its last valid record
+     * @throws IOException if the log cannot be opened, or was written by an unsupported version.
+     */
+    public static WriteAheadLog open(Path path, long checkpoint, Consumer<Query> replay, SyncMode mode, long syncIntervalMillis) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        try {
+            long lastSequence = checkpoint;
+
+            if (channel.size() < HEADER_SIZE) {
+                // Either a brand-new log or one whose header never made it to disk, which means it holds no records.
+                channel.truncate(0);
+                writeHeader(channel);
+            } else {
+                lastSequence = Math.max(lastSequence, recover(channel, checkpoint, replay));
+            }
+
+            channel.position(channel.size());
+            return new WriteAheadLog(channel, channel.size(), lastSequence, mode, syncIntervalMillis);
+        } catch (IOException | RuntimeException err) {
+            channel.close();
+            throw err;
+        }
+    }
+
+    /**
+     * Replays every valid record in the log and truncates the log after the last one.
+     * @return sequence number of the last valid record, or 0 if there are none.
+     */
+    private static long recover(FileChannel channel, long checkpoint, Consumer<Query> replay) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel.position(0))));
+
+        byte[] magic = new byte[MAGIC.length];
+        in.readFully(magic);
+
+        if (!Arrays.equals(magic, MAGIC)) {
+            throw new IOException("Write-ahead log has an invalid header.");
+        }
+
+        // Older logs are a subset of newer logs, since they only lack record types that were added later.
+        int version = in.readInt();
+        if (version < 1 || version > VERSION) {
+            throw new IOException(String.format("Unsupported write-ahead log version %d (expected at most %d).", version, VERSION));
+        }
+
+        long end = HEADER_SIZE;
+        long lastSequence = 0;
+
+        while (true) {
+            byte[] record = readRecord(in, channel.size() - end);
+
+            if (record == null) {
+                break;
+            }
+
+            ByteBuffer buffer = ByteBuffer.wrap(record);
+            long sequence = buffer.getLong();
+
+            if (sequence > checkpoint) {
+                List<Query> queries;
+
+                try {
+                    queries = decodeRecord(new DataInputStream(new ByteArrayInputStream(record, Long.BYTES, record.length - Long.BYTES)));
+                } catch (IOException | RuntimeException err) {
+                    throw new IOException(String.format("Write-ahead log record %d could not be decoded.", sequence), err);
+                }
+
+                try {
+                    queries.forEach(replay);
+                } catch (RuntimeException err) {
+                    throw new IOException(String.format("Write-ahead log record %d could not be replayed: %s", sequence, err.getMessage()), err);
+                }
+            }
+
+            lastSequence = sequence;
+            end += Integer.BYTES + record.length + Integer.BYTES;
+        }
+
+        // Drop the torn tail, if any, so new records are not appended after garbage.
+        if (end < channel.size()) {
+            channel.truncate(end);
+            channel.force(true);
+        }
+
+        // Records that older versions cannot read may be appended from now on.
+        if (version < VERSION) {
+            writeHeader(channel);
+        }
+
+        return lastSequence;
+    }
+
+    /**
+     * Reads the contents of the next record and checks it against its checksum.
+     * @param remaining number of bytes left in the file
+     * @return record contents, or null if there is no complete, valid record left.
+     */
+    private static byte[] readRecord(DataInputStream in, long remaining) throws IOException {
+        if (remaining < Integer.BYTES) {
+            return null;
+        }
+
+        int length = in.readInt();
+        if (length < Long.BYTES || length > remaining - Integer.BYTES * 2) {
+            return null;
+        }
+
+        byte[] record = new byte[length];
+        in.readFully(record);
+
+        CRC32 crc = new CRC32();
+        crc.update(record);
+
+        return (int) crc.getValue() == in.readInt() ? record : null;
+    }
+
+    private static void writeHeader(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).put(MAGIC).putInt(VERSION).flip();
+
+        while (header.hasRemaining()) {
+            channel.write(header, header.position());
+        }
+        channel.force(true);
+    }
+
+    /**
+     * Appends a query to the log. The record is only buffered; call {@link #commit(long)} to wait for it to be written.
+     * @param query query that changed the database
+     * @return sequence number of the record
+     */
+    public long append(Query query) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+
+        try {
+            encode(query, new DataOutputStream(bytes));
+        } catch (IOException err) {
+            // Byte array streams never fail.
+            throw new UncheckedIOException(err);
+        }
+
+        return appendRecord(bytes.toByteArray());
+    }
+
+    /**
+     * Appends the changes made by a transaction to the log as a single record.
+     * The record is only buffered; call {@link #commit(long)} to wait for it to be written.
+     * @param queries queries that changed the database, in the order they were applied
+     * @return sequence number of the record
+     */
+    public long append(List<Query> queries) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 * queries.size());
+        DataOutputStream out = new DataOutputStream(bytes);
+
+        try {
+            out.writeByte(TRANSACTION);
+            out.writeInt(queries.size());
+
+            for (Query query : queries) {
+                encode(query, out);
+            }
+        } catch (IOException err) {
+            // Byte array streams never fail.
+            throw new UncheckedIOException(err);
+        }
+
+        return appendRecord(bytes.toByteArray());
+    }
+
+    private long appendRecord(byte[] payload) {
+        int length = Long.BYTES + payload.length;
+
+        lock.lock();
+        try {
+            long sequence = nextSequence++;
+
+            ByteBuffer prefix = ByteBuffer.allocate(Long.BYTES).putLong(sequence).flip();
+            CRC32 crc = new CRC32();
+            crc.update(prefix.duplicate());
+            crc.update(payload);
+
+            ensureCapacity(Integer.BYTES + length + Integer.BYTES);
+            pending.putInt(length).put(prefix).put(payload).putInt((int) crc.getValue());
+
+            return sequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until the record with the given sequence number is as durable as the sync mode promises.
+     * @throws IOException if the log could not be written.
+     */
+    public void commit(long sequence) throws IOException {
+        boolean sync = mode == SyncMode.EVERY_COMMIT;
+
+        lock.lock();
+        try {
+            while (writtenSequence < sequence || (sync && syncedSequence < sequence)) {
+                if (failure != null) {
+                    throw new IOException("Write-ahead log is unusable after an earlier write failed.", failure);
+                }
+
+                if (flushing) {
+                    // Another writer is already writing out a batch, which may well include our record.
+                    flushed.awaitUninterruptibly();
+                } else {
+                    flush(sync);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes out every pending record and forces the log to disk.
+     * @throws IOException if the log could not be written.
+     */
+    public void sync() throws IOException {
+        lock.lock();
+        try {
+            while (flushing) {
+                flushed.awaitUninterruptibly();
+            }
+            flush(true);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void syncQuietly() {
+        try {
+            sync();
+        } catch (IOException ignored) {
+            // The failure is remembered and reported to the next commit.
+        }
+    }
+
+    /**
+     * Returns the sequence number of the last record that was appended.
+     */
+    public long getLastSequence() {
+        lock.lock();
+        try {
+            return nextSequence - 1;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the size of the log file in bytes, which grows as records are written out and shrinks on reset.
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * Discards every record in the log, after they have all been captured by a snapshot.
+     * Sequence numbers keep counting up from where they were.
+     * @throws IOException if the log could not be truncated.
+     */
+    public void reset() throws IOException {
+        lock.lock();
+        try {
+            while (flushing) {
+                flushed.awaitUninterruptibly();
+            }
+
+            pending.clear();
+            writtenSequence = nextSequence - 1;
+            syncedSequence = nextSequence - 1;
+
+            channel.truncate(HEADER_SIZE);
+            channel.position(HEADER_SIZE);
+            channel.force(true);
+            size = HEADER_SIZE;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes the pending batch out to the file. Must be called with the lock held, and releases it while writing so
+     * that other writers can keep appending to the next batch.
+     */
+    private void flush(boolean sync) throws IOException {
+        ByteBuffer batch = pending.flip();
+        long target = nextSequence - 1;
+
+        pending = spare;
+        flushing = true;
+        lock.unlock();
+
+        IOException error = null;
+        int written = batch.remaining();
+        try {
+            while (batch.hasRemaining()) {
+                channel.write(batch);
+            }
+            if (sync) {
+                channel.force(false);
+            }
+        } catch (IOException err) {
+            error = err;
+        } finally {
+            lock.lock();
+        }
+
+        spare = batch.clear();
+        flushing = false;
+
+        if (error == null) {
+            size += written;
+            writtenSequence = target;
+            if (sync) {
+                syncedSequence = target;
+            }
+        } else {
+            failure = error;
+        }
+
+        flushed.signalAll();
+
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    private void ensureCapacity(int size) {
+        if (pending.remaining() < size) {
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(pending.capacity() * 2, pending.position() + size));
+            pending = grown.put(pending.flip());
+        }
+    }
+
+    /**
+     * Writes out and forces every pending record, then closes the log file.
+     */
+    @Override
+    public void close() throws IOException {
+        if (syncer != null) {
+            syncer.shutdownNow();
+        }
+
+        try {
+            sync();
+        } finally {
+            channel.close();
+        }
+    }
+
+    private static void encode(Query query, DataOutputStream out) throws IOException {
+        switch (query) {
+            case Query.CreateTable q -> {
+                out.writeByte(CREATE_TABLE);
+                writeString(out, q.tableName().ident());
+                out.writeInt(q.columns().size());
+
+                for (Query.ColumnDefinition column : q.columns()) {
+                    writeString(out, column.name());
+                    switch (column.type()) {
+                        case DataType.Integer() -> out.writeByte(INTEGER);
+                        case DataType.Boolean() -> out.writeByte(BOOLEAN);
+                        case DataType.VarChar(var length) -> {
+                            out.writeByte(STRING);
+                            out.writeInt(length);
+                        }
+                    }
+                }
+            }
+            case Query.DropTable q -> {
+                out.writeByte(DROP_TABLE);
+                writeString(out, q.tableName().ident());
+            }
+            case Query.InsertInto q -> {
+                out.writeByte(INSERT_ROWS);
+                writeString(out, q.tableName().ident());
+                writeIdentifiers(out, q.columns());
+                out.writeInt(q.rows().size());
+                for (List<Token.Literal> values : q.rows()) {
+                    writeLiterals(out, values);
+                }
+            }
+            case Query.DeleteFrom q -> {
+                out.writeByte(DELETE_FROM);
+                writeString(out, q.tableName().ident());
+                writeExpression(out, q.filter());
+            }
+            case Query.DeleteRows q -> {
+                out.writeByte(DELETE_ROWS);
+                writeString(out, q.tableName().ident());
+                out.writeInt(q.rows().size());
+                for (List<Token.Literal> values : q.rows()) {
+                    writeLiterals(out, values);
+                }
+            }
+            case Query.UpdateSet q -> {
+                out.writeByte(UPDATE_SET);
+                writeString(out, q.tableName().ident());
+                writeIdentifiers(out, q.columns());
+                writeLiterals(out, q.values());
+                writeExpression(out, q.filter());
+            }
+            case Query.CreateIndex q -> {
+                out.writeByte(CREATE_INDEX);
+                writeString(out, q.indexName().ident());
+                writeString(out, q.tableName().ident());
+                out.writeByte(q.indexType().type().ordinal());
+                writeString(out, q.column().ident());
+            }
+            case Query.DropIndex q -> {
+                out.writeByte(DROP_INDEX);
+                writeString(out, q.indexName().ident());
+            }
+            default -> throw new IllegalArgumentException(String.format("%s queries do not change the database and cannot be logged.", query.getClass().getSimpleName()));
+        }
+    }
+
+    /**
+     * Decodes the queries held by a record, wrapping those of a transaction in {@link Query.Begin} and {@link Query.Commit}.
+     */
+    private static List<Query> decodeRecord(DataInputStream in) throws IOException {
+        in.mark(1);
+
+        if (in.readByte() != TRANSACTION) {
+            in.reset();
+            return List.of(decode(in));
+        }
+
+        int count = in.readInt();
+        List<Query> queries = new ArrayList<>(count + 2);
+
+        queries.add(new Query.Begin());
+        for (int i = 0; i < count; i++) {
+            queries.add(decode(in));
+        }
+        queries.add(new Query.Commit());
+
+        return queries;
+    }
+
+    private static Query decode(DataInputStream in) throws IOException {
+        byte tag = in.readByte();
+
+        return switch (tag) {
+            case CREATE_TABLE -> {
+                Token.Identifier tableName = readIdentifier(in);
+                int count = in.readInt();
+                List<Query.ColumnDefinition> columns = new ArrayList<>(count);
+
+                for (int i = 0; i < count; i++) {
+                    String name = readString(in);
+                    byte type = in.readByte();
+
+                    columns.add(new Query.ColumnDefinition(name, switch (type) {
+                        case INTEGER -> new DataType.Integer();
+                        case BOOLEAN -> new DataType.Boolean();
+                        case STRING -> new DataType.VarChar(in.readInt());
+                        default -> throw new IOException(String.format("Unknown column type tag %d.", type));
+                    }));
+                }
+
+                yield new Query.CreateTable(tableName, columns);
+            }
+            case DROP_TABLE -> new Query.DropTable(readIdentifier(in));
+            case INSERT_INTO -> new Query.InsertInto(readIdentifier(in), readIdentifiers(in), List.of(readLiterals(in)));
+            case INSERT_ROWS -> {
+                Token.Identifier tableName = readIdentifier(in);
+                List<Token.Identifier> columns = readIdentifiers(in);
+                int count = in.readInt();
+                List<List<Token.Literal>> rows = new ArrayList<>(count);
+
+                for (int i = 0; i < count; i++) {
+                    rows.add(readLiterals(in));
+                }
+
+                yield new Query.InsertInto(tableName, columns, rows);
+            }
+            case DELETE_FROM -> new Query.DeleteFrom(readIdentifier(in), readExpression(in));
+            case DELETE_ROWS -> {
+                Token.Identifier tableName = readIdentifier(in);
+                int count = in.readInt();
+                List<List<Token.Literal>> rows = new ArrayList<>(count);
+
+                for (int i = 0; i < count; i++) {
+                    rows.add(readLiterals(in));
+                }
+
+                yield new Query.DeleteRows(tableName, rows);
+            }
+            case UPDATE_SET -> new Query.UpdateSet(readIdentifier(in), readIdentifiers(in), readLiterals(in), readExpression(in));
+            case CREATE_INDEX -> new Query.CreateIndex(
+                readIdentifier(in),
+                readIdentifier(in),
+                new Token.IndexType(Token.IndexTypeType.values()[in.readByte()]),
+                readIdentifier(in)
+            );
+            case DROP_INDEX -> new Query.DropIndex(readIdentifier(in));
+            default -> throw new IOException(String.format("Unknown query tag %d.", tag));
+        };
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static Token.Identifier readIdentifier(DataInputStream in) throws IOException {
+        return new Token.Identifier(readString(in));
+    }
+
+    /**
+     * Writes an optional list of identifiers, where null is written as a negative length.
+     */
+    private static void writeIdentifiers(DataOutputStream out, List<Token.Identifier> identifiers) throws IOException {
+        if (identifiers == null) {
+            out.writeInt(-1);
+            return;
+        }
+
+        out.writeInt(identifiers.size());
+        for (Token.Identifier identifier : identifiers) {
+            writeString(out, identifier.ident());
+        }
+    }
+
+    private static List<Token.Identifier> readIdentifiers(DataInputStream in) throws IOException {
+        int count = in.readInt();
+
+        if (count < 0) {
+            return null;
+        }
+
+        List<Token.Identifier> identifiers = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            identifiers.add(readIdentifier(in));
+        }
+
+        return identifiers;
+    }
+
+    private static void writeLiterals(DataOutputStream out, List<Token.Literal> literals) throws IOException {
+        out.writeInt(literals.size());
+        for (Token.Literal literal : literals) {
+            writeLiteral(out, literal);
+        }
+    }
+
+    private static List<Token.Literal> readLiterals(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        List<Token.Literal> literals = new ArrayList<>(count);
+
+        for (int i = 0; i < count; i++) {
+            literals.add(readLiteral(in));
+        }
+
+        return literals;
+    }
+
+    private static void writeLiteral(DataOutputStream out, Token.Literal literal) throws IOException {
+        switch (literal) {
+            case null -> out.writeByte(NULL);
+            case Token.Literal.Integer(var value) -> {
+                out.writeByte(INTEGER);
+                out.writeInt(value);
+            }
+            case Token.Literal.String(var value) -> {
+                out.writeByte(STRING);
+                writeString(out, value);
+            }
+            case Token.Literal.Boolean(var value) -> {
+                out.writeByte(BOOLEAN);
+                out.writeBoolean(value);
+            }
+            case Token.Parameter p -> throw p.unbound();
+        }
+    }
+
+    private static Token.Literal readLiteral(DataInputStream in) throws IOException {
+        byte tag = in.readByte();
+
+        return switch (tag) {
+            case NULL -> null;
+            case INTEGER -> new Token.Literal.Integer(in.readInt());
+            case STRING -> new Token.Literal.String(readString(in));
+            case BOOLEAN -> new Token.Literal.Boolean(in.readBoolean());
+            default -> throw new IOException(String.format("Unknown literal tag %d.", tag));
+        };
+    }
+
+    private static void writeExpression(DataOutputStream out, Expression expression) throws IOException {
+        switch (expression) {
+            case null -> out.writeByte(NULL);
+            case Expression.Comparison comparison -> {
+                out.writeByte(COMPARISON);
+                writeString(out, comparison.ident().ident());
+                out.writeByte(comparison.op().type().ordinal());
+                writeLiteral(out, comparison.value());
+            }
+            case Expression.Binary binary -> {
+                out.writeByte(BINARY);
+                out.writeByte(binary.op().type().ordinal());
+                writeExpression(out, binary.lhs());
+                writeExpression(out, binary.rhs());
+            }
+        }
+    }
+
+    private static Expression readExpression(DataInputStream in) throws IOException {
+        byte tag = in.readByte();
+
+        return switch (tag) {
+            case NULL -> null;
+            case COMPARISON -> new Expression.Comparison(
+                readIdentifier(in),
+                new Token.Operator(Token.OperatorType.values()[in.readByte()]),
+                readLiteral(in)
+            );
+            case BINARY -> {
+                Token.BinaryOperator op = new Token.BinaryOperator(Token.BinaryOperatorType.values()[in.readByte()]);
+                Expression lhs = readExpression(in);
+                yield new Expression.Binary(lhs, op, readExpression(in));
+            }
+            default -> throw new IOException(String.format("Unknown expression tag %d.", tag));
+        };
+    }
+}
@@ -194,14 +194,16 @@ public class Parser {
     };
 
     /**
-     * Attempts to consume tokens to construct {@link Query.InsertInto}.
+     * Attempts to consume tokens to construct {@link Query.InsertInto} with one or more rows of values, or
+     * {@link Query.InsertSelect}. An empty column list with empty rows, as in `INSERT INTO t () VALUES ()`, inserts
+     * rows that are null in every column.
      */
     private static final ParserFn insertIntoParser = (input, current) -> {
         int startIndex = current;
 
         Token.Identifier tableName;
         List<Token.Identifier> columns = null;
-        List<Token.Literal> values = new ArrayList<>();
+        List<List<Token.Literal>> rows = new ArrayList<>();
 
         if (input.get(current) instanceof Token.Statement(var t1) && t1 == Token.StatementType.INSERT) {
             current++;
@@ -226,8 +228,9 @@ public class Parser {
             current++;
 
             columns = new ArrayList<>();
+            boolean empty = input.get(current) instanceof Token.Punctuation(var t4) && t4 == Token.PunctuationType.RIGHT_PAREN;
 
-            while (true) {
+            while (!empty) {
                 if (input.get(current) instanceof Token.Identifier) {
                     columns.add((Token.Identifier) input.get(current));
                     current++;
@@ -249,42 +252,69 @@ public class Parser {
             }
         }
 
-        if (input.get(current) instanceof Token.Statement(var t7) && t7 == Token.StatementType.VALUES) {
-            current++;
-        } else {
-            return null;
+        if (input.get(current) instanceof Token.Statement(var t7) && t7 == Token.StatementType.SELECT) {
+            ParseResult source = Parser.selectParser.parse(input, current);
+
+            if (source == null) {
+                return null;
+            }
+
+            return new ParseResult(
+                current - startIndex + source.length,
+                new Query.InsertSelect(tableName, columns, (Query.Select) source.query)
+            );
         }
 
-        if (input.get(current) instanceof Token.Punctuation(var t8) && t8 == Token.PunctuationType.LEFT_PAREN) {
+        if (input.get(current) instanceof Token.Statement(var t8) && t8 == Token.StatementType.VALUES) {
             current++;
         } else {
             return null;
         }
 
         while (true) {
-            if (input.get(current) instanceof Token.Literal) {
-                values.add((Token.Literal) input.get(current));
+            List<Token.Literal> values = new ArrayList<>();
+
+            if (input.get(current) instanceof Token.Punctuation(var t9) && t9 == Token.PunctuationType.LEFT_PAREN) {
                 current++;
             } else {
                 return null;
             }
 
-            if (input.get(current) instanceof Token.Punctuation(var t11) && t11 == Token.PunctuationType.COMMA) {
+            boolean empty = input.get(current) instanceof Token.Punctuation(var t13) && t13 == Token.PunctuationType.RIGHT_PAREN;
+
+            while (!empty) {
+                if (input.get(current) instanceof Token.Literal) {
+                    values.add((Token.Literal) input.get(current));
+                    current++;
+                } else {
+                    return null;
+                }
+
+                if (input.get(current) instanceof Token.Punctuation(var t10) && t10 == Token.PunctuationType.COMMA) {
+                    current++;
+                } else {
+                    break;
+                }
+            }
+
+            if (input.get(current) instanceof Token.Punctuation(var t11) && t11 == Token.PunctuationType.RIGHT_PAREN) {
                 current++;
             } else {
-                break;
+                return null;
             }
-        }
 
-        if (input.get(current) instanceof Token.Punctuation(var t12) && t12 == Token.PunctuationType.RIGHT_PAREN) {
-            current++;
-        } else {
-            return null;
+            rows.add(values);
+
+            if (input.get(current) instanceof Token.Punctuation(var t12) && t12 == Token.PunctuationType.COMMA) {
+                current++;
+            } else {
+                break;
+            }
         }
 
         return new ParseResult(
             current - startIndex,
-            new Query.InsertInto(tableName, columns, values)
+            new Query.InsertInto(tableName, columns, rows)
         );
     };
 
@@ -295,9 +325,12 @@ public class Parser {
         int startIndex = current;
 
         Token.Identifier tableName;
-        List<Token.Identifier> columns = new ArrayList<>();
+        Query.Join join = null;
+        List<Query.Selection> columns = new ArrayList<>();
         Expression filter = null;
-        Query.OrderBy order = null;
+        List<Token.Identifier> groupBy = null;
+        List<Query.OrderBy> order = null;
+        Query.Limit limit = null;
 
         if (input.get(current) instanceof Token.Statement(var t1) && t1 == Token.StatementType.SELECT) {
             current++;
@@ -306,7 +339,23 @@ public class Parser {
         }
 
         while (true) {
-            if (input.get(current) instanceof Token.Identifier) {
+            if (input.get(current) instanceof Token.Identifier(var name)
+                && input.get(current + 1) instanceof Token.Punctuation(var p1) && p1 == Token.PunctuationType.LEFT_PAREN
+            ) {
+                // Aggregate functions are not keywords, so that columns may still be named e.g. `count`.
+                Query.AggregateFunction function = parseAggregateFunction(name);
+
+                if (function != null
+                    && input.get(current + 2) instanceof Token.Identifier column
+                    && input.get(current + 3) instanceof Token.Punctuation(var p2) && p2 == Token.PunctuationType.RIGHT_PAREN
+                    && (function == Query.AggregateFunction.COUNT || !column.ident().equals("*"))
+                ) {
+                    columns.add(new Query.Aggregate(function, column));
+                    current += 4;
+                } else {
+                    return null;
+                }
+            } else if (input.get(current) instanceof Token.Identifier) {
                 columns.add((Token.Identifier) input.get(current));
                 current++;
             } else {
@@ -333,6 +382,22 @@ public class Parser {
             return null;
         }
 
+        if (input.get(current) instanceof Token.Statement(var j1) && j1 == Token.StatementType.JOIN) {
+            current++;
+
+            if (input.get(current) instanceof Token.Identifier joinTable
+                && input.get(current + 1) instanceof Token.Statement(var j2) && j2 == Token.StatementType.ON
+                && input.get(current + 2) instanceof Token.Identifier left
+                && input.get(current + 3) instanceof Token.Operator(var op) && (op == Token.OperatorType.ASSIGN || op == Token.OperatorType.EQUAL)
+                && input.get(current + 4) instanceof Token.Identifier right
+            ) {
+                join = new Query.Join(joinTable, left, right);
+                current += 5;
+            } else {
+                return null;
+            }
+        }
+
         if (input.get(current) instanceof Token.Statement(var t4) && t4 == Token.StatementType.WHERE) {
             current++;
 
@@ -384,6 +449,33 @@ public class Parser {
             }
         }
 
+        if (input.get(current) instanceof Token.Statement(var g1) && g1 == Token.StatementType.GROUP) {
+            current++;
+
+            if (input.get(current) instanceof Token.Statement(var g2) && g2 == Token.StatementType.BY) {
+                current++;
+            } else {
+                return null;
+            }
+
+            groupBy = new ArrayList<>();
+
+            while (true) {
+                if (input.get(current) instanceof Token.Identifier) {
+                    groupBy.add((Token.Identifier) input.get(current));
+                    current++;
+                } else {
+                    return null;
+                }
+
+                if (input.get(current) instanceof Token.Punctuation(var g3) && g3 == Token.PunctuationType.COMMA) {
+                    current++;
+                } else {
+                    break;
+                }
+            }
+        }
+
         if (input.get(current) instanceof Token.Statement(var t5) && t5 == Token.StatementType.ORDER) {
             current++;
 
@@ -393,27 +485,66 @@ public class Parser {
                 return null;
             }
 
-            Token.Identifier columnName;
-            Token.SortOrder sortOrder = new Token.SortOrder(Token.SortOrderType.ASC);
+            order = new ArrayList<>();
 
-            if (input.get(current) instanceof Token.Identifier) {
-                columnName = (Token.Identifier) input.get(current);
+            while (true) {
+                Token.Identifier columnName;
+                Token.SortOrder sortOrder = new Token.SortOrder(Token.SortOrderType.ASC);
+
+                if (input.get(current) instanceof Token.Identifier) {
+                    columnName = (Token.Identifier) input.get(current);
+                    current++;
+                } else {
+                    return null;
+                }
+
+                if (input.get(current) instanceof Token.SortOrder) {
+                    sortOrder = (Token.SortOrder) input.get(current);
+                    current++;
+                }
+
+                order.add(new Query.OrderBy(columnName, sortOrder));
+
+                if (input.get(current) instanceof Token.Punctuation(var t7) && t7 == Token.PunctuationType.COMMA) {
+                    current++;
+                } else {
+                    break;
+                }
+            }
+        }
+
+        Token.Literal count = null;
+        Token.Literal offset = null;
+
+        if (input.get(current) instanceof Token.Statement(var t8) && t8 == Token.StatementType.LIMIT) {
+            current++;
+
+            if (input.get(current) instanceof Token.Literal) {
+                count = (Token.Literal) input.get(current);
                 current++;
             } else {
                 return null;
             }
+        }
+
+        if (input.get(current) instanceof Token.Statement(var t9) && t9 == Token.StatementType.OFFSET) {
+            current++;
 
-            if (input.get(current) instanceof Token.SortOrder) {
-                sortOrder = (Token.SortOrder) input.get(current);
+            if (input.get(current) instanceof Token.Literal) {
+                offset = (Token.Literal) input.get(current);
                 current++;
+            } else {
+                return null;
             }
+        }
 
-            order = new Query.OrderBy(columnName, sortOrder);
+        if (count != null || offset != null) {
+            limit = new Query.Limit(count, offset);
         }
 
         return new ParseResult(
             current - startIndex,
-            new Query.Select(tableName, columns, filter, order)
+            new Query.Select(tableName, join, columns, filter, groupBy, order, limit)
         );
     };
 
@@ -619,6 +750,155 @@ public class Parser {
         );
     };
 
+    /**
+     * Attempts to consume tokens to construct {@link Query.CreateIndex}.
+     * Indexes default to an ordered B-tree unless `USING HASH` is given.
+     */
+    private static final ParserFn createIndexParser = (input, current) -> {
+        int startIndex = current;
+
+        Token.Identifier indexName;
+        Token.Identifier tableName;
+        Token.IndexType indexType = new Token.IndexType(Token.IndexTypeType.BTREE);
+        Token.Identifier column;
+
+        if (input.get(current) instanceof Token.Statement(var t1) && t1 == Token.StatementType.CREATE) {
+            current++;
+        } else {
+            return null;
+        }
+
+        if (input.get(current) instanceof Token.Statement(var t2) && t2 == Token.StatementType.INDEX) {
+            current++;
+        } else {
+            return null;
+        }
+
+        if (input.get(current) instanceof Token.Identifier) {
+            indexName = (Token.Identifier) input.get(current);
+            current++;
+        } else {
+            return null;
+        }
+
+        if (input.get(current) instanceof Token.Statement(var t3) && t3 == Token.StatementType.ON) {
+            current++;
+        } else {
+            return null;
+        }
+
+        if (input.get(current) instanceof Token.Identifier) {
+            tableName = (Token.Identifier) input.get(current);
+            current++;
+        } else {
+            return null;
+        }
+
+        if (input.get(current) instanceof Token.Statement(var t4) && t4 == Token.StatementType.USING) {
+            current++;
+
+            if (input.get(current) instanceof Token.IndexType) {
+                indexType = (Token.IndexType) input.get(current);
+                current++;
+            } else {
+                return null;
+            }
+        }
+
+        if (input.get(current) instanceof Token.Punctuation(var t5) && t5 == Token.PunctuationType.LEFT_PAREN) {
+            current++;
+        } else {
+            return null;
+        }
+
+        if (input.get(current) instanceof Token.Identifier) {
+            column = (Token.Identifier) input.get(current);
+            current++;
+        } else {
+            return null;
+        }
+
+        if (input.get(current) instanceof Token.Punctuation(var t6) && t6 == Token.PunctuationType.RIGHT_PAREN) {
+            current++;
+        } else {
+            return null;
+        }
+
+        return new ParseResult(
+            current - startIndex,
+            new Query.CreateIndex(indexName, tableName, indexType, column)
+        );
+    };
+
+    /**
+     * Attempts to consume tokens to construct {@link Query.DropIndex}.
+     */
+    private static final ParserFn dropIndexParser = (input, current) -> {
+        Token.Identifier indexName;
+
+        if (input.get(current) instanceof Token.Statement(var t1) && t1 == Token.StatementType.DROP) {
+            current++;
+        } else {
+            return null;
+        }
+
+        if (input.get(current) instanceof Token.Statement(var t2) && t2 == Token.StatementType.INDEX) {
+            current++;
+        } else {
+            return null;
+        }
+
+        if (input.get(current) instanceof Token.Identifier) {
+            indexName = (Token.Identifier) input.get(current);
+        } else {
+            return null;
+        }
+
+        return new ParseResult(
+            3,
+            new Query.DropIndex(indexName)
+        );
+    };
+
+    /**
+     * Attempts to consume tokens to construct {@link Query.Explain} by handing the rest of the query to the other parsers.
+     */
+    private static final ParserFn explainParser = (input, current) -> {
+        if (input.get(current) instanceof Token.Statement(var t1) && t1 == Token.StatementType.EXPLAIN) {
+            current++;
+        } else {
+            return null;
+        }
+
+        for (ParserFn parser : Parser.parsers) {
+            ParseResult result = parser.parse(input, current);
+
+            if (result != null && result.query != null) {
+                return new ParseResult(result.length + 1, new Query.Explain(result.query));
+            }
+        }
+
+        return null;
+    };
+
+    /**
+     * Attempts to consume tokens to construct {@link Query.Begin}, {@link Query.Commit} or {@link Query.Rollback}.
+     */
+    private static final ParserFn transactionParser = (input, current) -> {
+        if (input.get(current) instanceof Token.Statement(var t1)) {
+            Query query = switch (t1) {
+                case BEGIN -> new Query.Begin();
+                case COMMIT -> new Query.Commit();
+                case ROLLBACK -> new Query.Rollback();
+                default -> null;
+            };
+
+            return query == null ? null : new ParseResult(1, query);
+        }
+
+        return null;
+    };
+
     private static final ParserFn[] parsers = {
         skipSemicolon,
         showTablesParser,
@@ -628,18 +908,43 @@ public class Parser {
         selectParser,
         deleteFromParser,
         updateSetParser,
+        createIndexParser,
+        dropIndexParser,
+        explainParser,
+        transactionParser,
     };
 
+    /**
+     * Looks up an aggregate function by name, without regard to case.
+     * @return aggregate function, or null if there is no function with the given name.
+     */
+    private static Query.AggregateFunction parseAggregateFunction(String name) {
+        for (Query.AggregateFunction function : Query.AggregateFunction.values()) {
+            if (function.name().equalsIgnoreCase(name)) {
+                return function;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Tokenizes a string and parses the resulting tokens with {@link #parse(List)}.
+     * @param input string to parse
+     * @return list of queries extracted from the input string
+     */
+    public static List<Query> parse(CharSequence input) {
+        return parse(Tokenizer.tokenize(input));
+    }
+
     /**
      * Continually loops through all `parsers` until either:
      *   1. the input token stream is empty, in which case the string has been successfully parsed; or,
      *   2. all parsers have been exhausted, in which case the string is not valid and an `IllegalArgumentException` is thrown.
-     * @param input string to tokenize
-     * @return list of tokens extracted from the input string
+     * @param tokens tokens to parse
+     * @return list of queries extracted from the token sequence
      */
-    public static List<Query> parse(String input) {
-        List<Token> tokens = Tokenizer.tokenize(input);
-
+    public static List<Query> parse(List<Token> tokens) {
         List<Query> queries = new ArrayList<>();
         int consumedChars = 0;
 
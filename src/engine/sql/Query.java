@@ -15,18 +15,64 @@ import java.util.List;
  *  - CreateTable
  *  - DropTable
  *  - InsertInto
+ *  - InsertSelect
  *  - Select
  *  - DeleteFrom
+ *  - DeleteRows
  *  - UpdateSet
+ *  - CreateIndex
+ *  - DropIndex
+ *  - Explain
+ *  - Begin
+ *  - Commit
+ *  - Rollback
  */
 public sealed interface Query {
     record ColumnDefinition(String name, DataType type) {}
 
+    /**
+     * One column of the select list: either a column of the table, which is a {@link Token.Identifier}, or an
+     * aggregate over the rows of a group.
+     */
+    sealed interface Selection permits Token.Identifier, Aggregate {}
+
+    enum AggregateFunction {
+        COUNT,
+        SUM,
+        MIN,
+        MAX,
+        AVG,
+    }
+
+    /**
+     * Aggregate function over a column, e.g. `SUM(price)`. `COUNT(*)` counts every row, and has `*` for a column.
+     */
+    record Aggregate(
+        AggregateFunction function,
+        Token.Identifier column
+    ) implements Selection {
+        @Override
+        public String toString() {
+            return String.format("%s(%s)", function, column.ident());
+        }
+    }
+
+    /**
+     * One column of an `ORDER BY` clause. Later columns only order rows that are equal on every earlier one.
+     */
     record OrderBy(
         Token.Identifier column,
         Token.SortOrder sortOrder
     ) {}
 
+    /**
+     * `LIMIT count OFFSET offset`, where either part may be missing (null).
+     */
+    record Limit(
+        Token.Literal count,
+        Token.Literal offset
+    ) {}
+
     record ShowTables() implements Query {}
 
     record CreateTable(
@@ -38,17 +84,45 @@ public sealed interface Query {
         Token.Identifier tableName
     ) implements Query {}
 
+    /**
+     * @param rows values of each row, which all provide values for the same columns
+     */
     record InsertInto(
         Token.Identifier tableName,
         List<Token.Identifier> columns,
-        List<Token.Literal> values
+        List<List<Token.Literal>> rows
     ) implements Query {}
 
-    record Select(
+    /**
+     * Inserts the result of a query. The query is run before anything is inserted, so it never sees its own rows.
+     */
+    record InsertSelect(
         Token.Identifier tableName,
         List<Token.Identifier> columns,
+        Select source
+    ) implements Query {}
+
+    /**
+     * Inner join with another table on the equality of a column of each table. Either column may be qualified with
+     * the name of its table, e.g. `users.id`, and must be if both tables have a column with that name.
+     */
+    record Join(
+        Token.Identifier tableName,
+        Token.Identifier left,
+        Token.Identifier right
+    ) {}
+
+    /**
+     * @param join optional table to join the rows of `tableName` with
+     */
+    record Select(
+        Token.Identifier tableName,
+        Join join,
+        List<Selection> columns,
         Expression filter,
-        OrderBy order
+        List<Token.Identifier> groupBy,
+        List<OrderBy> order,
+        Limit limit
     ) implements Query {}
 
     record DeleteFrom(
@@ -56,10 +130,42 @@ public sealed interface Query {
         Expression filter
     ) implements Query {}
 
+    /**
+     * Deletes one row for each of the given rows of values. Not part of SQL: this is how the journal records what an
+     * `UPDATE` or `DELETE` in a transaction changed, since the transaction found those rows in a snapshot that replaying
+     * the query could not see again.
+     * @param rows values of every column of each row, with null for null values
+     */
+    record DeleteRows(
+        Token.Identifier tableName,
+        List<List<Token.Literal>> rows
+    ) implements Query {}
+
     record UpdateSet(
         Token.Identifier tableName,
         List<Token.Identifier> columns,
         List<Token.Literal> values,
         Expression filter
     ) implements Query {}
+
+    record CreateIndex(
+        Token.Identifier indexName,
+        Token.Identifier tableName,
+        Token.IndexType indexType,
+        Token.Identifier column
+    ) implements Query {}
+
+    record DropIndex(
+        Token.Identifier indexName
+    ) implements Query {}
+
+    record Explain(
+        Query query
+    ) implements Query {}
+
+    record Begin() implements Query {}
+
+    record Commit() implements Query {}
+
+    record Rollback() implements Query {}
 }
@@ -0,0 +1,201 @@
+/*
+ * ScriptReader v1.0
+ *
+ * database contributors
+ * Oct 16, 2026
+ */
+
+package engine.sql;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+
+/**
+ * Pull-based parser that reads a SQL script in fixed-size chunks and yields each query as soon as its terminating
+ * semicolon has been read. Only the statement that is currently being read is kept in memory, so scripts of any size
+ * can be processed with bounded memory.
+ */
+public class ScriptReader implements Iterator<Query>, Closeable {
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    private final Reader reader;
+    private final char[] buffer;
+    private int position;
+    private int limit;
+    private boolean exhausted;
+
+    // Text of the statement that is currently being read.
+    private final StringBuilder statement;
+    private final Queue<Query> pending;
+
+    // Lexical state that has to survive across chunk boundaries, so that semicolons
+    // inside of string literals and comments are not mistaken for the end of a statement.
+    private boolean inString;
+    private boolean inComment;
+    private char previous;
+
+    // Used to report which statement failed to parse.
+    private int line;
+    private int statementLine;
+
+    public ScriptReader(Reader reader) {
+        this.reader = reader;
+        this.buffer = new char[CHUNK_SIZE];
+        this.position = 0;
+        this.limit = 0;
+        this.exhausted = false;
+        this.statement = new StringBuilder();
+        this.pending = new ArrayDeque<>();
+        this.line = 1;
+        this.statementLine = 0;
+    }
+
+    public ScriptReader(ReadableByteChannel channel) {
+        this(Channels.newReader(channel, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Reads ahead until the next query is available or the script has ended.
+     * @throws UncheckedIOException if the underlying reader fails.
+     * @throws IllegalArgumentException if a statement cannot be parsed.
+     */
+    @Override
+    public boolean hasNext() {
+        while (pending.isEmpty() && !exhausted) {
+            readStatement();
+        }
+
+        return !pending.isEmpty();
+    }
+
+    @Override
+    public Query next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        return pending.remove();
+    }
+
+    /**
+     * Splits a script into the text of each of its statements, by the same rules the reader uses to find where one
+     * ends, so that each statement can be tokenized and parsed on its own. Blank statements are left out.
+     */
+    public static List<String> split(String script) {
+        ScriptReader reader = new ScriptReader(new StringReader(script));
+        List<String> statements = new ArrayList<>();
+
+        while (!reader.exhausted) {
+            reader.readText();
+
+            if (!reader.statement.toString().isBlank()) {
+                statements.add(reader.statement.toString());
+            }
+            reader.statement.setLength(0);
+        }
+
+        return statements;
+    }
+
+    /**
+     * Reads characters up to and including the next top-level semicolon (or the end of the script) and parses them.
+     */
+    private void readStatement() {
+        readText();
+
+        try {
+            pending.addAll(Parser.parse(statement));
+        } catch (IllegalArgumentException err) {
+            throw new IllegalArgumentException(String.format("%s (in statement starting at line %d)", err.getMessage(), statementLine), err);
+        } finally {
+            statement.setLength(0);
+        }
+    }
+
+    /**
+     * Reads characters up to and including the next top-level semicolon (or the end of the script) into the statement.
+     */
+    private void readText() {
+        statementLine = 0;
+
+        while (true) {
+            if (position == limit && !fill()) {
+                break;
+            }
+
+            int start = position;
+            boolean terminated = false;
+
+            while (position < limit && !terminated) {
+                char c = buffer[position++];
+
+                if (statementLine == 0 && !Character.isWhitespace(c)) {
+                    statementLine = line;
+                }
+
+                if (c == '\n') {
+                    line++;
+                }
+
+                if (inComment) {
+                    inComment = c != '\n';
+                } else if (inString) {
+                    inString = c != '\'';
+                } else if (c == '\'') {
+                    inString = true;
+                } else if (c == '-' && previous == '-') {
+                    inComment = true;
+                } else if (c == ';') {
+                    terminated = true;
+                }
+
+                // A dash that opened a comment cannot also start the next one.
+                previous = inComment ? 0 : c;
+            }
+
+            statement.append(buffer, start, position - start);
+
+            if (terminated) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Reads the next chunk of the script into the buffer.
+     * @return false if the end of the script has been reached.
+     */
+    private boolean fill() {
+        try {
+            int read = reader.read(buffer);
+
+            if (read == -1) {
+                exhausted = true;
+                return false;
+            }
+
+            position = 0;
+            limit = read;
+            return true;
+        } catch (IOException err) {
+            throw new UncheckedIOException(err);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -15,10 +15,12 @@ package engine.sql;
  *  - BinaryOperator
  *  - SortOrder
  *  - DataType
+ *  - IndexType
  *  - Identifier
  *  - Literal.String
  *  - Literal.Integer
  *  - Literal.Boolean
+ *  - Parameter
  */
 public sealed interface Token {
     enum PunctuationType {
@@ -41,11 +43,22 @@ public sealed interface Token {
         SELECT,
         DELETE,
         FROM,
+        JOIN,
         UPDATE,
         SET,
         WHERE,
+        GROUP,
         ORDER,
         BY,
+        LIMIT,
+        OFFSET,
+        INDEX,
+        ON,
+        USING,
+        EXPLAIN,
+        BEGIN,
+        COMMIT,
+        ROLLBACK,
     }
     record Statement(StatementType type) implements Token {}
 
@@ -80,11 +93,28 @@ public sealed interface Token {
     }
     record DataType(DataTypeType type) implements Token {}
 
-    record Identifier(String ident) implements Token {}
+    enum IndexTypeType {
+        HASH,
+        BTREE,
+    }
+    record IndexType(IndexTypeType type) implements Token {}
+
+    record Identifier(String ident) implements Token, Query.Selection {}
 
     sealed interface Literal {
         record String(java.lang.String value) implements Token, Literal {}
         record Integer(int value) implements Token, Literal {}
         record Boolean(boolean value) implements Token, Literal {}
     }
+
+    /**
+     * Placeholder for a literal that is supplied when a prepared query is executed, written as `?` or `$1`.
+     * Parameters are numbered from 1 in each statement; each `?` takes the number after the previous `?`, and a statement
+     * uses either `?` or `$n` parameters, but not both.
+     */
+    record Parameter(int index) implements Token, Literal {
+        public IllegalArgumentException unbound() {
+            return new IllegalArgumentException(java.lang.String.format("Parameter $%d has not been bound to a value.", index));
+        }
+    }
 }
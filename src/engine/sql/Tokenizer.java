@@ -9,241 +9,354 @@ package engine.sql;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.regex.Pattern;
 
 /**
  * Provides a method to convert a raw SQL string into a sequence of tokens that can be interpreted by the Parser.
+ * The input is scanned once, from left to right, and each character is classified with a lookup table.
+ * Keywords, punctuation and operators are interned, so only identifiers and literals allocate new tokens.
  */
 public class Tokenizer {
-    private record TokenizeResult(int length, Token token) {}
+    // Character classes used to decide which kind of token starts at a given character.
+    private static final byte OTHER = 0;
+    private static final byte WHITESPACE = 1;
+    private static final byte LETTER = 2;
+    private static final byte UNDERSCORE = 3;
+    private static final byte DIGIT = 4;
+    private static final byte PUNCTUATION = 5;
+    private static final byte OPERATOR = 6;
+    private static final byte QUOTE = 7;
+    private static final byte DASH = 8;
+    private static final byte PARAMETER = 9;
 
-    /**
-     * Represents a closure that takes the input string and current index
-     * and attempts to consume part of the string.
-     */
-    private interface TokenizerFn {
-        TokenizeResult tokenize(String input, int current);
-    }
+    private static final byte[] CHARACTER_CLASSES = new byte[128];
 
-    /**
-     * Represents a closure that takes a string returned by a regex tokenizer
-     * and attempts to convert it into a token.
-     */
-    private interface TokenResolverFn {
-        Token resolve(String input);
-    }
+    // Interned tokens for single characters, indexed by the character itself.
+    private static final Token[] PUNCTUATION_TOKENS = new Token[128];
+
+    private static final Token WILDCARD = new Token.Identifier("*");
+
+    private static final Token ASSIGN = new Token.Operator(Token.OperatorType.ASSIGN);
+    private static final Token EQUAL = new Token.Operator(Token.OperatorType.EQUAL);
+    private static final Token NOT_EQUAL = new Token.Operator(Token.OperatorType.NOT_EQUAL);
+    private static final Token LESS = new Token.Operator(Token.OperatorType.LESS);
+    private static final Token LESS_EQUAL = new Token.Operator(Token.OperatorType.LESS_EQUAL);
+    private static final Token GREATER = new Token.Operator(Token.OperatorType.GREATER);
+    private static final Token GREATER_EQUAL = new Token.Operator(Token.OperatorType.GREATER_EQUAL);
 
     /**
-     * Creates a tokenizer closure that consumes characters based on the given RegEx pattern.
-     * @param regex pattern to determine whether to consume next character
-     * @param resolver closure that takes in a string and returns a `Token` or `null`
+     * Open-addressed hash table of keywords, keyed case-insensitively so that words can be looked up
+     * directly out of the input without allocating an upper-case copy.
      */
-    private static TokenizerFn generateRegexTokenizer(Pattern regex, TokenResolverFn resolver) {
-        return (input, current) -> {
-            int end = current;
+    private static final int KEYWORD_TABLE_SIZE = 256;
+    private static final String[] KEYWORDS = new String[KEYWORD_TABLE_SIZE];
+    private static final Token[] KEYWORD_TOKENS = new Token[KEYWORD_TABLE_SIZE];
 
-            // If the current character doesn't match, we already know the rest won't.
-            if (!regex.matcher(input.subSequence(end, end + 1)).matches()) {
-                return null;
-            }
+    static {
+        for (char c = 'A'; c <= 'Z'; c++) {
+            CHARACTER_CLASSES[c] = LETTER;
+            CHARACTER_CLASSES[Character.toLowerCase(c)] = LETTER;
+        }
+        for (char c = '0'; c <= '9'; c++) {
+            CHARACTER_CLASSES[c] = DIGIT;
+        }
+        for (char c : new char[]{ ' ', '\t', '\n', '\r', '\f', 0x0B, 0x1C, 0x1D, 0x1E, 0x1F }) {
+            CHARACTER_CLASSES[c] = WHITESPACE;
+        }
+        for (char c : new char[]{ '*', '<', '>', '!', '=' }) {
+            CHARACTER_CLASSES[c] = OPERATOR;
+        }
+        CHARACTER_CLASSES['_'] = UNDERSCORE;
+        CHARACTER_CLASSES['\''] = QUOTE;
+        CHARACTER_CLASSES['-'] = DASH;
+        CHARACTER_CLASSES['?'] = PARAMETER;
+        CHARACTER_CLASSES['$'] = PARAMETER;
 
-            // Keep consuming characters that match the regex pattern.
-            while (end < input.length() && regex.matcher(input.subSequence(end, end + 1)).matches()) {
-                end++;
-            }
+        CHARACTER_CLASSES['('] = PUNCTUATION;
+        CHARACTER_CLASSES[')'] = PUNCTUATION;
+        CHARACTER_CLASSES[','] = PUNCTUATION;
+        CHARACTER_CLASSES[';'] = PUNCTUATION;
+        PUNCTUATION_TOKENS['('] = new Token.Punctuation(Token.PunctuationType.LEFT_PAREN);
+        PUNCTUATION_TOKENS[')'] = new Token.Punctuation(Token.PunctuationType.RIGHT_PAREN);
+        PUNCTUATION_TOKENS[','] = new Token.Punctuation(Token.PunctuationType.COMMA);
+        PUNCTUATION_TOKENS[';'] = new Token.Punctuation(Token.PunctuationType.SEMICOLON);
 
-            // Attempt to resolve the consumed characters.
-            Token resolvedToken = resolver.resolve(input.substring(current, end));
-            if (resolvedToken == null) {
-                return null;
-            }
+        // Statements, binary operators, sort orders and index types are spelled the same as their enum constants.
+        for (Token.StatementType type : Token.StatementType.values()) {
+            addKeyword(type.name(), new Token.Statement(type));
+        }
+        for (Token.BinaryOperatorType type : Token.BinaryOperatorType.values()) {
+            addKeyword(type.name(), new Token.BinaryOperator(type));
+        }
+        for (Token.SortOrderType type : Token.SortOrderType.values()) {
+            addKeyword(type.name(), new Token.SortOrder(type));
+        }
+        for (Token.IndexTypeType type : Token.IndexTypeType.values()) {
+            addKeyword(type.name(), new Token.IndexType(type));
+        }
 
-            return new TokenizeResult(end - current, resolvedToken);
-        };
+        // Data Types
+        addKeyword("VARCHAR", new Token.DataType(Token.DataTypeType.VARCHAR));
+        addKeyword("INTEGER", new Token.DataType(Token.DataTypeType.INTEGER));
+        addKeyword("INT", new Token.DataType(Token.DataTypeType.INTEGER));
+        addKeyword("BOOLEAN", new Token.DataType(Token.DataTypeType.BOOLEAN));
+        addKeyword("BOOL", new Token.DataType(Token.DataTypeType.BOOLEAN));
+
+        // Boolean Literals
+        addKeyword("TRUE", new Token.Literal.Boolean(true));
+        addKeyword("FALSE", new Token.Literal.Boolean(false));
     }
 
-    /**
-     * Consumes one character and yields nothing if the current character is whitespace.
-     */
-    private static final TokenizerFn skipWhitespace = (input, current) -> (
-        Character.isWhitespace(input.charAt(current))
-            ? new TokenizeResult(1, null)
-            : null
-    );
-
-    private static final TokenizerFn skipComments = (input, current) -> (
-        input.startsWith("--", current)
-            ? new TokenizeResult(input.indexOf('\n', current) - current, null)
-            : null
-    );
+    private static void addKeyword(String keyword, Token token) {
+        int slot = hashKeyword(keyword, 0, keyword.length());
 
-    /**
-     * Consumes one character and yields corresponding `Token.Punctuation` object
-     * if the current character is one of four valid punctuation symbols { ( ) , ; }.
-     */
-    private static final TokenizerFn punctuationTokenizer = (input, current) -> {
-        Token token = switch (input.charAt(current)) {
-            case '(' -> new Token.Punctuation(Token.PunctuationType.LEFT_PAREN);
-            case ')' -> new Token.Punctuation(Token.PunctuationType.RIGHT_PAREN);
-            case ',' -> new Token.Punctuation(Token.PunctuationType.COMMA);
-            case ';' -> new Token.Punctuation(Token.PunctuationType.SEMICOLON);
-            default -> null;
-        };
-
-        if (token == null) {
-            return null;
+        while (KEYWORDS[slot] != null) {
+            slot = (slot + 1) & (KEYWORD_TABLE_SIZE - 1);
         }
 
-        return new TokenizeResult(1, token);
-    };
+        KEYWORDS[slot] = keyword;
+        KEYWORD_TOKENS[slot] = token;
+    }
 
     /**
-     * Continually consumes characters that are in the set { * < > ! = } and attempts
-     * to match the sequence to an operator.
+     * Hashes an ASCII word without regard to case.
      */
-    private static final TokenizerFn operatorTokenizer = generateRegexTokenizer(
-        Pattern.compile("[*<>!=]"),
-        (input) -> switch (input) {
-            case "=" -> new Token.Operator(Token.OperatorType.ASSIGN);
-            case "==" -> new Token.Operator(Token.OperatorType.EQUAL);
-            case "!=" -> new Token.Operator(Token.OperatorType.NOT_EQUAL);
-            case "<" -> new Token.Operator(Token.OperatorType.LESS);
-            case "<=" -> new Token.Operator(Token.OperatorType.LESS_EQUAL);
-            case ">" -> new Token.Operator(Token.OperatorType.GREATER);
-            case ">=" -> new Token.Operator(Token.OperatorType.GREATER_EQUAL);
-            default -> null;
-        }
-    );
+    private static int hashKeyword(CharSequence input, int start, int end) {
+        int hash = 0;
 
-    /**
-     * Continually consumes alphabetical characters and attempts to match
-     * the sequence to a keyword, which could be a statement, data type, or boolean literal.
-     */
-    private static final TokenizerFn keywordTokenizer = generateRegexTokenizer(
-        Pattern.compile("[A-Za-z]"),
-        (input) -> switch (input.toUpperCase()) {
-            // Statements
-            case "SHOW" -> new Token.Statement(Token.StatementType.SHOW);
-            case "TABLES" -> new Token.Statement(Token.StatementType.TABLES);
-            case "CREATE" -> new Token.Statement(Token.StatementType.CREATE);
-            case "DROP" -> new Token.Statement(Token.StatementType.DROP);
-            case "TABLE" -> new Token.Statement(Token.StatementType.TABLE);
-            case "INSERT" -> new Token.Statement(Token.StatementType.INSERT);
-            case "INTO" -> new Token.Statement(Token.StatementType.INTO);
-            case "VALUES" -> new Token.Statement(Token.StatementType.VALUES);
-            case "SELECT" -> new Token.Statement(Token.StatementType.SELECT);
-            case "DELETE" -> new Token.Statement(Token.StatementType.DELETE);
-            case "FROM" -> new Token.Statement(Token.StatementType.FROM);
-            case "UPDATE" -> new Token.Statement(Token.StatementType.UPDATE);
-            case "SET" -> new Token.Statement(Token.StatementType.SET);
-            case "WHERE" -> new Token.Statement(Token.StatementType.WHERE);
-            case "ORDER" -> new Token.Statement(Token.StatementType.ORDER);
-            case "BY" -> new Token.Statement(Token.StatementType.BY);
-            // Binary Operators
-            case "AND" -> new Token.BinaryOperator(Token.BinaryOperatorType.AND);
-            case "OR" -> new Token.BinaryOperator(Token.BinaryOperatorType.OR);
-            // Sort Order
-            case "ASC" -> new Token.SortOrder(Token.SortOrderType.ASC);
-            case "DESC" -> new Token.SortOrder(Token.SortOrderType.DESC);
-            // Data Types
-            case "VARCHAR" -> new Token.DataType(Token.DataTypeType.VARCHAR);
-            case "INTEGER", "INT" -> new Token.DataType(Token.DataTypeType.INTEGER);
-            case "BOOLEAN", "BOOL" -> new Token.DataType(Token.DataTypeType.BOOLEAN);
-            // Boolean Literals
-            case "TRUE" -> new Token.Literal.Boolean(true);
-            case "FALSE" -> new Token.Literal.Boolean(false);
-            default -> null;
+        for (int i = start; i < end; i++) {
+            // Clearing bit 5 maps lower-case ASCII letters onto their upper-case counterparts.
+            hash = hash * 31 + (input.charAt(i) & ~0x20);
         }
-    );
+
+        return (hash ^ (hash >>> 16)) & (KEYWORD_TABLE_SIZE - 1);
+    }
 
     /**
-     * Consumes all characters that lie in between single quotes and yields a string literal.
+     * Looks up the interned token for a keyword in the input.
+     * @return keyword token, or null if the word is not a keyword.
      */
-    private static final TokenizerFn stringTokenizer = (input, current) -> {
-        if (input.charAt(current) == '\'') {
-            int end = input.indexOf('\'', current + 1);
-
-            if (end > current) {
-                return new TokenizeResult(
-                    end - current + 1,
-                    new Token.Literal.String(input.substring(current + 1, end))
-                );
+    private static Token lookupKeyword(CharSequence input, int start, int end) {
+        int length = end - start;
+
+        for (int slot = hashKeyword(input, start, end); KEYWORDS[slot] != null; slot = (slot + 1) & (KEYWORD_TABLE_SIZE - 1)) {
+            String keyword = KEYWORDS[slot];
+
+            if (keyword.length() != length) {
+                continue;
+            }
+
+            int i = 0;
+            while (i < length && (input.charAt(start + i) & ~0x20) == keyword.charAt(i)) {
+                i++;
+            }
+
+            if (i == length) {
+                return KEYWORD_TOKENS[slot];
             }
         }
 
         return null;
-    };
+    }
 
-    /**
-     * Continually consumes numerical characters and yields an integer literal.
-     */
-    private static final TokenizerFn integerTokenizer = generateRegexTokenizer(
-        Pattern.compile("[0-9]"),
-        (input) -> new Token.Literal.Integer(Integer.parseInt(input))
-    );
+    private static byte classify(char c) {
+        if (c < 128) {
+            return CHARACTER_CLASSES[c];
+        }
 
-    /**
-     * Continually consumes alphabetical characters and underscores and yields an identifier.
-     */
-    private static final TokenizerFn identifierTokenizer = generateRegexTokenizer(
-        Pattern.compile("[_A-Za-z]"),
-        Token.Identifier::new
-    );
+        return Character.isWhitespace(c) ? WHITESPACE : OTHER;
+    }
 
     /**
-     * Consumes a single wildcard { * } character and yields an identifier.
+     * Matches a run of operator characters { * < > ! = } to an operator.
+     * @return operator token, or null if the run is not a valid operator.
      */
-    private static final TokenizerFn wildcardTokenizer = (input, current) -> {
-        if (input.charAt(current) == '*') {
-            return new TokenizeResult(
-                1,
-                new Token.Identifier("*")
-            );
+    private static Token matchOperator(CharSequence input, int start, int end) {
+        char first = input.charAt(start);
+
+        if (end - start == 1) {
+            return switch (first) {
+                case '=' -> ASSIGN;
+                case '<' -> LESS;
+                case '>' -> GREATER;
+                default -> null;
+            };
+        }
+
+        if (end - start == 2 && input.charAt(start + 1) == '=') {
+            return switch (first) {
+                case '=' -> EQUAL;
+                case '!' -> NOT_EQUAL;
+                case '<' -> LESS_EQUAL;
+                case '>' -> GREATER_EQUAL;
+                default -> null;
+            };
         }
 
         return null;
-    };
-
-    private static final TokenizerFn[] tokenizers = {
-        skipWhitespace,
-        skipComments,
-        punctuationTokenizer,
-        operatorTokenizer,
-        keywordTokenizer,
-        stringTokenizer,
-        integerTokenizer,
-        wildcardTokenizer,
-        identifierTokenizer,
-    };
+    }
 
     /**
-     * Continually loops through all `tokenizers` until either:
+     * Scans the input once from left to right until either:
      *   1. the input string is empty, in which case the string has been successfully tokenized; or,
-     *   2. all tokenizers have been exhausted, in which case the string is not valid and an `IllegalArgumentException` is thrown.
+     *   2. a character cannot start any token, in which case the string is not valid and an `IllegalArgumentException`
+     *      is thrown with the line and column of the offending character.
      * @param input string to tokenize
      * @return list of tokens extracted from the input string
      */
-    public static List<Token> tokenize(String input) {
+    public static List<Token> tokenize(CharSequence input) {
         List<Token> tokens = new ArrayList<>();
-        int consumedChars = 0;
+        int length = input.length();
+        int current = 0;
+
+        // Used to report where tokenizing failed.
+        int line = 1;
+        int lineStart = 0;
 
-        outer: while (consumedChars < input.length()) {
-            for (TokenizerFn tokenizer : tokenizers) {
-                TokenizeResult result = tokenizer.tokenize(input, consumedChars);
+        // Number of the last `?` parameter, and whether a `$n` parameter has been seen, in the current statement.
+        // Parameters of each statement are numbered on their own, and a statement must not mix both styles.
+        int positional = 0;
+        boolean numbered = false;
 
-                if (result != null) {
-                    consumedChars += result.length;
-                    if (result.token != null) {
-                        tokens.add(result.token);
+        while (current < length) {
+            char c = input.charAt(current);
+            int start = current;
+
+            switch (classify(c)) {
+                case WHITESPACE -> {
+                    if (c == '\n') {
+                        line++;
+                        lineStart = current + 1;
                     }
-                    continue outer;
+                    current++;
                 }
-            }
+                case PUNCTUATION -> {
+                    if (c == ';') {
+                        positional = 0;
+                        numbered = false;
+                    }
+
+                    tokens.add(PUNCTUATION_TOKENS[c]);
+                    current++;
+                }
+                case LETTER, UNDERSCORE -> {
+                    // Consume a word and check whether it is a keyword before treating it as an identifier.
+                    do {
+                        current++;
+                    } while (current < length && (classify(input.charAt(current)) == LETTER || input.charAt(current) == '_'));
+
+                    // A column name qualified with its table name, e.g. `users.id`, is a single identifier.
+                    if (current + 1 < length && input.charAt(current) == '.' && (classify(input.charAt(current + 1)) == LETTER || input.charAt(current + 1) == '_')) {
+                        do {
+                            current++;
+                        } while (current < length && (classify(input.charAt(current)) == LETTER || input.charAt(current) == '_'));
+                    }
+
+                    Token keyword = lookupKeyword(input, start, current);
+                    tokens.add(keyword != null ? keyword : new Token.Identifier(input.subSequence(start, current).toString()));
+                }
+                case DIGIT -> {
+                    long value = 0;
+
+                    do {
+                        value = value * 10 + (input.charAt(current) - '0');
+                        if (value > Integer.MAX_VALUE) {
+                            throw error("Integer literal is out of range", line, start - lineStart);
+                        }
+                        current++;
+                    } while (current < length && classify(input.charAt(current)) == DIGIT);
+
+                    tokens.add(new Token.Literal.Integer((int) value));
+                }
+                case QUOTE -> {
+                    int end = current + 1;
+                    int endLine = line;
+                    int endLineStart = lineStart;
+
+                    // Strings may span multiple lines, so keep counting them.
+                    while (end < length && input.charAt(end) != '\'') {
+                        if (input.charAt(end) == '\n') {
+                            endLine++;
+                            endLineStart = end + 1;
+                        }
+                        end++;
+                    }
+
+                    if (end == length) {
+                        throw error("Unterminated string literal", line, start - lineStart);
+                    }
+
+                    tokens.add(new Token.Literal.String(input.subSequence(current + 1, end).toString()));
+                    current = end + 1;
+                    line = endLine;
+                    lineStart = endLineStart;
+                }
+                case OPERATOR -> {
+                    int end = current;
+                    while (end < length && classify(input.charAt(end)) == OPERATOR) {
+                        end++;
+                    }
+
+                    Token operator = matchOperator(input, current, end);
+
+                    if (operator != null) {
+                        tokens.add(operator);
+                        current = end;
+                    } else if (c == '*') {
+                        // A lone `*` is a wildcard rather than an operator.
+                        tokens.add(WILDCARD);
+                        current++;
+                    } else {
+                        throw error("Invalid operator", line, start - lineStart);
+                    }
+                }
+                case PARAMETER -> {
+                    current++;
+
+                    if (c == '?' ? numbered : positional > 0) {
+                        throw error("Cannot mix `?` and `$n` parameters in one statement", line, start - lineStart);
+                    }
+
+                    if (c == '?') {
+                        tokens.add(new Token.Parameter(++positional));
+                    } else {
+                        numbered = true;
 
-            // All tokenizers have been tried and none of them consumed any characters.
-            throw new IllegalArgumentException("Could not tokenize input string.");
+                        // `$` must be followed by the number of the parameter.
+                        long index = 0;
+
+                        while (current < length && classify(input.charAt(current)) == DIGIT) {
+                            index = index * 10 + (input.charAt(current) - '0');
+                            if (index > Integer.MAX_VALUE) {
+                                throw error("Parameter number is out of range", line, start - lineStart);
+                            }
+                            current++;
+                        }
+
+                        if (index == 0) {
+                            throw error("Invalid parameter number", line, start - lineStart);
+                        }
+
+                        tokens.add(new Token.Parameter((int) index));
+                    }
+                }
+                case DASH -> {
+                    if (current + 1 < length && input.charAt(current + 1) == '-') {
+                        // Skip comments up to (but not including) the end of the line.
+                        while (current < length && input.charAt(current) != '\n') {
+                            current++;
+                        }
+                    } else {
+                        throw error("Unexpected character", line, start - lineStart);
+                    }
+                }
+                default -> throw error("Unexpected character", line, start - lineStart);
+            }
         }
 
         return tokens;
     }
+
+    private static IllegalArgumentException error(String reason, int line, int column) {
+        return new IllegalArgumentException(String.format("Could not tokenize input string: %s at line %d, column %d.", reason, line, column + 1));
+    }
 }
@@ -1,64 +1,118 @@
 package gui;
 
 import engine.db.Database;
-import engine.sql.Parser;
+import engine.db.QueryProfile;
+import engine.db.QueryStats;
+import engine.db.ResultSet;
+import engine.db.Session;
 import engine.sql.Query;
+import engine.sql.ScriptReader;
 
 import javax.swing.*;
 import javax.swing.table.TableModel;
 import java.awt.*;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CancellationException;
 
 public class App extends JFrame {
     private JPanel appPanel;
     private JEditorPane queryEditor;
     private JButton executeButton;
+    private JButton cancelButton;
     private JTable resultsTable;
     private JLabel resultsLabel;
 
     public App(Database database) {
         ImageIcon databaseIcon = new ImageIcon(getClass().getClassLoader().getResource("images/database-zap.png"));
 
-        JMenuBar menuBar = new MenuBar(database, resultsLabel);
+        // Queries run in the background, so that a slow one does not freeze the window and can be cancelled.
+        TaskRunner tasks = new TaskRunner(resultsLabel, cancelButton);
+        tasks.disableWhileRunning(executeButton);
+
+        JMenuBar menuBar = new MenuBar(database, resultsLabel, tasks);
         setJMenuBar(menuBar);
 
+        // Keeps track of transactions that are started by one execution and ended by another.
+        Session session = new Session(database);
+
         executeButton.addActionListener((e) -> {
-            List<Query> queries;
+            String sql = queryEditor.getText();
+            long startTime = System.nanoTime();
 
-            try {
-                queries = Parser.parse(queryEditor.getText());
-            } catch (IllegalArgumentException err) {
-                resultsLabel.setForeground(Color.decode("#ff453a"));
-                resultsLabel.setText("Unable to parse query.");
-                resultsTable.removeAll();
-                return;
-            }
+            tasks.run("Running query", (progress) -> {
+                // Every statement is parsed before any is run, each with a profile of its own.
+                List<Query> queries = new ArrayList<>();
+                List<QueryProfile> profiles = new ArrayList<>();
 
-            TableModel result = null;
-            long startTime = System.nanoTime();
+                for (String statement : ScriptReader.split(sql)) {
+                    QueryProfile profile = new QueryProfile(statement.strip());
+
+                    try {
+                        for (Query query : profile.call(() -> QueryProfile.parse(statement))) {
+                            queries.add(query);
+                            profiles.add(profile);
+                        }
+                    } catch (IllegalArgumentException err) {
+                        throw new UnparsableQueryException();
+                    }
+                }
+
+                TableModel result = null;
+                QueryStats stats = null;
+
+                // Only the result of the last statement is shown, so the earlier ones are closed as soon as they are
+                // replaced, letting go of the snapshots they keep open.
+                try {
+                    for (int i = 0; i < queries.size(); i++) {
+                        Query query = queries.get(i);
+                        QueryProfile profile = profiles.get(i);
+
+                        progress.accept(String.format("Running query %d of %d", i + 1, queries.size()));
+                        TableModel next = profile.call(() -> QueryProfile.measure(QueryProfile.Phase.EXECUTE, () -> session.executeQuery(query)));
+                        close(result);
+                        result = next;
+                        stats = profile.getStats(result == null ? 0 : result.getRowCount());
+                        database.recordQueryStats(stats);
+                    }
+                } catch (RuntimeException err) {
+                    close(result);
+                    throw err;
+                }
 
-            try {
-                for (Query query : queries) {
-                    result = database.executeQuery(query);
+                return new Outcome(result, stats);
+            }, (outcome) -> {
+                long endTime = System.nanoTime();
+                TableModel result = outcome.result();
+
+                resultsLabel.setForeground(Color.decode("#32d74b"));
+
+                if (result != null) {
+                    resultsLabel.setText(String.format("Returned %d rows in %.3f ms%s", result.getRowCount(), (endTime - startTime) / 1e6, breakdown(outcome.stats())));
+
+                    // Large results are read from the database as they are scrolled through, until they are replaced.
+                    close(resultsTable.getModel());
+                    resultsTable.setModel(result);
+                } else {
+                    resultsLabel.setText(String.format("Executed query in %.3f ms%s", (endTime - startTime) / 1e6, breakdown(outcome.stats())));
+                    resultsTable.removeAll();
                 }
-            } catch (Exception err) {
+            }, (err) -> {
                 resultsLabel.setForeground(Color.decode("#ff453a"));
-                resultsLabel.setText(String.format("Unable to execute query: %s", err.getMessage()));
                 resultsTable.removeAll();
-                return;
-            }
 
-            long endTime = System.nanoTime();
+                if (err instanceof UnparsableQueryException) {
+                    resultsLabel.setText("Unable to parse query.");
+                    return;
+                }
 
-            resultsLabel.setForeground(Color.decode("#32d74b"));
+                // Don't leave a half-finished transaction open, so that the fixed script can simply be run again.
+                boolean rolledBack = session.inTransaction();
+                session.close();
 
-            if (result != null) {
-                resultsLabel.setText(String.format("Returned %d rows in %.3f ms", result.getRowCount(), (endTime - startTime) / 1e6));
-                resultsTable.setModel(result);
-            } else {
-                resultsLabel.setText(String.format("Executed query in %.3f ms", (endTime - startTime) / 1e6));
-                resultsTable.removeAll();
-            }
+                String message = err instanceof CancellationException ? "Query was cancelled." : String.format("Unable to execute query: %s", err.getMessage());
+                resultsLabel.setText(String.format("%s%s", message, rolledBack ? " The transaction was rolled back." : ""));
+            });
         });
 
         setContentPane(appPanel);
@@ -68,4 +122,45 @@ public class App extends JFrame {
         setDefaultCloseOperation(WindowConstants.EXIT_ON_CLOSE);
         setVisible(true);
     }
+
+    /**
+     * Describes where the last query of a script spent its time, which is also recorded in `sys_query_stats`.
+     */
+    private static String breakdown(QueryStats stats) {
+        if (stats == null) {
+            return "";
+        }
+
+        return String.format(
+            " (last query: tokenize %.3f, parse %.3f, plan %.3f, execute %.3f, materialize %.3f ms; %,d rows scanned, %,d returned; CPU %.3f ms; %,d KB allocated)",
+            stats.tokenizeNanos() / 1e6,
+            stats.parseNanos() / 1e6,
+            stats.planNanos() / 1e6,
+            stats.executeNanos() / 1e6,
+            stats.materializeNanos() / 1e6,
+            stats.scannedRows(),
+            stats.returnedRows(),
+            stats.cpuNanos() / 1e6,
+            stats.allocatedBytes() / 1024
+        );
+    }
+
+    /**
+     * Closes a result that is no longer shown, if it is still reading rows from the database.
+     */
+    private static void close(TableModel result) {
+        if (result instanceof ResultSet resultSet) {
+            resultSet.close();
+        }
+    }
+
+    /**
+     * Result of the last query of a script, and its stats, or null if the script had no queries.
+     */
+    private record Outcome(TableModel result, QueryStats stats) {}
+
+    /**
+     * Thrown by the query task when the query text cannot be parsed, which leaves any open transaction alone.
+     */
+    private static class UnparsableQueryException extends RuntimeException {}
 }
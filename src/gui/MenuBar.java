@@ -2,6 +2,7 @@ package gui;
 
 import engine.db.Database;
 import engine.io.Serde;
+import engine.io.Snapshot;
 
 import javax.swing.*;
 import javax.swing.filechooser.FileNameExtensionFilter;
@@ -9,6 +10,7 @@ import java.awt.*;
 import java.io.*;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.concurrent.CancellationException;
 
 public class MenuBar extends JMenuBar {
     static final ImageIcon exportIcon = new ImageIcon(MenuBar.class.getClassLoader().getResource("images/download.png"));
@@ -16,15 +18,22 @@ public class MenuBar extends JMenuBar {
 
     private final Database database;
     private final JLabel resultsLabel;
+    private final TaskRunner tasks;
 
     private final JFileChooser fileChooser;
+    private final JFileChooser snapshotChooser;
 
-    public MenuBar(Database database, JLabel resultsLabel) {
+    /**
+     * @param tasks runs imports and exports in the background, so that they can be cancelled
+     */
+    public MenuBar(Database database, JLabel resultsLabel, TaskRunner tasks) {
         this.database = database;
         this.resultsLabel = resultsLabel;
+        this.tasks = tasks;
 
         JMenu fileMenu = new JMenu("File");
         add(fileMenu);
+        tasks.disableWhileRunning(fileMenu);
 
         this.fileChooser = new JFileChooser();
         this.fileChooser.setAcceptAllFileFilterUsed(false);
@@ -32,8 +41,15 @@ public class MenuBar extends JMenuBar {
         FileNameExtensionFilter filter = new FileNameExtensionFilter("SQL Files", "sql");
         this.fileChooser.setFileFilter(filter);
 
+        this.snapshotChooser = new JFileChooser();
+        this.snapshotChooser.setAcceptAllFileFilterUsed(false);
+        this.snapshotChooser.setFileFilter(new FileNameExtensionFilter("Database Snapshots", "snap"));
+
         fileMenu.add(getExportMenuItem());
         fileMenu.add(getImportMenuItem());
+        fileMenu.addSeparator();
+        fileMenu.add(getSnapshotExportMenuItem());
+        fileMenu.add(getSnapshotImportMenuItem());
     }
 
     private JMenuItem getExportMenuItem() {
@@ -47,18 +63,18 @@ public class MenuBar extends JMenuBar {
                     file = new File(file.getPath() + ".sql");
                 }
 
-                try {
-                    BufferedWriter fileWriter = new BufferedWriter(new FileWriter(file));
-                    Serde.serialize(fileWriter, this.database);
-                    fileWriter.close();
-                } catch (IOException err) {
-                    this.resultsLabel.setForeground(Color.decode("#ff453a"));
-                    this.resultsLabel.setText("Unable to export database.");
-                }
-
-                // Display success status message
-                this.resultsLabel.setForeground(Color.decode("#32d74b"));
-                this.resultsLabel.setText("Successfully exported database.");
+                File target = file;
+
+                this.tasks.run("Exporting database", (progress) -> {
+                    try (BufferedWriter fileWriter = new BufferedWriter(new FileWriter(target))) {
+                        Serde.serialize(fileWriter, this.database);
+                    } catch (CancellationException err) {
+                        // Don't leave half of a dump behind.
+                        Files.deleteIfExists(target.toPath());
+                        throw err;
+                    }
+                    return null;
+                }, (result) -> succeeded("Successfully exported database."), (err) -> failed("Unable to export database.", err));
             }
         });
         return exportItem;
@@ -70,19 +86,61 @@ public class MenuBar extends JMenuBar {
             if (this.fileChooser.showOpenDialog(this) == JFileChooser.APPROVE_OPTION) {
                 File file = this.fileChooser.getSelectedFile();
 
-                try {
-                    String contents = Files.readString(Paths.get(file.getPath()));
-                    this.database.copyFrom(Serde.deserialize(contents));
-                } catch (IOException err) {
-                    this.resultsLabel.setForeground(Color.decode("#ff453a"));
-                    this.resultsLabel.setText("Unable to import database.");
+                this.tasks.run("Importing database", (progress) -> {
+                    try (BufferedReader fileReader = Files.newBufferedReader(Paths.get(file.getPath()))) {
+                        this.database.copyFrom(Serde.deserialize(fileReader));
+                    }
+                    return null;
+                }, (result) -> succeeded("Successfully imported database."), (err) -> failed("Unable to import database.", err));
+            }
+        });
+        return importItem;
+    }
+
+    private JMenuItem getSnapshotExportMenuItem() {
+        JMenuItem exportItem = new JMenuItem("Export to snapshot", exportIcon);
+        exportItem.addActionListener((e) -> {
+            if (this.snapshotChooser.showSaveDialog(this) == JFileChooser.APPROVE_OPTION) {
+                File file = this.snapshotChooser.getSelectedFile();
+
+                // Make sure we have the correct extension
+                if (!file.getPath().endsWith(".snap")) {
+                    file = new File(file.getPath() + ".snap");
                 }
 
-                // Display success status message
-                this.resultsLabel.setForeground(Color.decode("#32d74b"));
-                this.resultsLabel.setText("Successfully imported database.");
+                File target = file;
+
+                this.tasks.run("Exporting snapshot", (progress) -> {
+                    Snapshot.write(target.toPath(), this.database);
+                    return null;
+                }, (result) -> succeeded("Successfully exported snapshot."), (err) -> failed("Unable to export snapshot.", err));
+            }
+        });
+        return exportItem;
+    }
+
+    private JMenuItem getSnapshotImportMenuItem() {
+        JMenuItem importItem = new JMenuItem("Import from snapshot", importIcon);
+        importItem.addActionListener((e) -> {
+            if (this.snapshotChooser.showOpenDialog(this) == JFileChooser.APPROVE_OPTION) {
+                File file = this.snapshotChooser.getSelectedFile();
+
+                this.tasks.run("Importing snapshot", (progress) -> {
+                    this.database.copyFrom(Snapshot.read(file.toPath()));
+                    return null;
+                }, (result) -> succeeded("Successfully imported snapshot."), (err) -> failed(String.format("Unable to import snapshot: %s", err.getMessage()), err));
             }
         });
         return importItem;
     }
+
+    private void succeeded(String message) {
+        this.resultsLabel.setForeground(Color.decode("#32d74b"));
+        this.resultsLabel.setText(message);
+    }
+
+    private void failed(String message, Exception err) {
+        this.resultsLabel.setForeground(Color.decode("#ff453a"));
+        this.resultsLabel.setText(err instanceof CancellationException ? "Cancelled." : message);
+    }
 }
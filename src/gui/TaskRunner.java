@@ -0,0 +1,146 @@
+/*
+ * TaskRunner v1.0
+ *
+ * database contributors
+ * Oct 16, 2026
+ */
+
+package gui;
+
+import engine.db.Cancellation;
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.function.Consumer;
+
+/**
+ * Runs slow work, e.g. queries and imports, on a background thread so that the window stays responsive, one task at a
+ * time. While a task runs, its progress is shown in the status label, the buttons that start tasks are disabled, and
+ * the cancel button asks the task to stop at its next cancellation check.
+ */
+public class TaskRunner {
+    // How often the status label is refreshed while a task runs
+    private static final int PROGRESS_INTERVAL_MILLIS = 100;
+
+    /**
+     * Work to run in the background.
+     */
+    @FunctionalInterface
+    public interface Task<T> {
+        /**
+         * @param progress receives a short description of what the task is doing now, e.g. "Running query 2 of 3"
+         */
+        T run(Consumer<String> progress) throws Exception;
+    }
+
+    private final JLabel statusLabel;
+    private final JButton cancelButton;
+    private final List<JComponent> startButtons;
+    private final Timer progressTimer;
+
+    // Only touched on the event dispatch thread, except for the progress message
+    private Cancellation running;
+    private volatile String progress;
+
+    public TaskRunner(JLabel statusLabel, JButton cancelButton) {
+        this.statusLabel = statusLabel;
+        this.cancelButton = cancelButton;
+        this.startButtons = new ArrayList<>();
+        this.progressTimer = new Timer(PROGRESS_INTERVAL_MILLIS, (e) -> showProgress());
+
+        this.cancelButton.setEnabled(false);
+        this.cancelButton.addActionListener((e) -> {
+            if (this.running != null) {
+                this.running.cancel();
+                this.cancelButton.setEnabled(false);
+            }
+        });
+    }
+
+    /**
+     * Disables a component that starts tasks while a task is running.
+     */
+    public void disableWhileRunning(JComponent component) {
+        this.startButtons.add(component);
+    }
+
+    /**
+     * Returns true if a task is running. Must be called on the event dispatch thread.
+     */
+    public boolean isRunning() {
+        return running != null;
+    }
+
+    /**
+     * Starts a task on a background thread, unless another one is still running. Must be called on the event dispatch
+     * thread, which is also where the task's result or error is handed to.
+     * @param description shown while the task runs, until it reports its own progress
+     * @param onSuccess receives the result of the task
+     * @param onFailure receives the error the task failed with, which is a {@link CancellationException} if it was
+     *                  cancelled
+     */
+    public <T> void run(String description, Task<T> task, Consumer<T> onSuccess, Consumer<Exception> onFailure) {
+        if (isRunning()) {
+            return;
+        }
+
+        Cancellation cancellation = new Cancellation();
+        this.running = cancellation;
+        this.progress = description;
+
+        for (JComponent button : this.startButtons) {
+            button.setEnabled(false);
+        }
+        this.cancelButton.setEnabled(true);
+        showProgress();
+        this.progressTimer.start();
+
+        Thread.ofVirtual().name("task").start(() -> {
+            T result = null;
+            Exception error = null;
+
+            try {
+                result = cancellation.call(() -> task.run((message) -> this.progress = message));
+            } catch (Exception err) {
+                error = err;
+            }
+
+            T finalResult = result;
+            Exception finalError = error;
+
+            SwingUtilities.invokeLater(() -> {
+                this.progressTimer.stop();
+                this.running = null;
+                this.cancelButton.setEnabled(false);
+                for (JComponent button : this.startButtons) {
+                    button.setEnabled(true);
+                }
+
+                if (finalError == null) {
+                    onSuccess.accept(finalResult);
+                } else {
+                    onFailure.accept(finalError);
+                }
+            });
+        });
+    }
+
+    private void showProgress() {
+        Cancellation cancellation = this.running;
+        if (cancellation == null) {
+            return;
+        }
+
+        long scannedRows = cancellation.getScannedRows();
+
+        this.statusLabel.setForeground(Color.decode("#ffd60a"));
+        this.statusLabel.setText(
+            cancellation.isCancelled() ? "Cancelling..."
+                : scannedRows > 0 ? String.format("%s... (%,d rows scanned)", this.progress, scannedRows)
+                : String.format("%s...", this.progress)
+        );
+    }
+}
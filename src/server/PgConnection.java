@@ -0,0 +1,874 @@
+/*
+ * PgConnection v1.0
+ *
+ * database contributors
+ * Oct 16, 2026
+ */
+
+package server;
+
+import engine.db.Cancellation;
+import engine.db.Database;
+import engine.db.PreparedQuery;
+import engine.db.QueryProfile;
+import engine.db.ResultColumn;
+import engine.db.ResultSet;
+import engine.db.Session;
+import engine.sql.DataType;
+import engine.sql.Query;
+import engine.sql.ScriptReader;
+
+import javax.swing.table.TableModel;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CancellationException;
+
+/**
+ * One client of a {@link PgServer}, served on a thread of its own. Messages are read and answered strictly in order,
+ * and answers are only flushed once the client has nothing more in flight, so a client can pipeline any number of
+ * queries without waiting for each answer. Queries run through a {@link Session}, which keeps track of the client's
+ * transaction. As in PostgreSQL, a query that fails inside a transaction block aborts the transaction, and every query
+ * after it is rejected until the client ends the block, and a message of the extended query protocol that fails makes
+ * the connection skip every message up to the next `Sync`.
+ */
+final class PgConnection implements Runnable {
+    private static final int PROTOCOL_VERSION = 3 << 16;
+    private static final int CANCEL_REQUEST = 80877102;
+    private static final int SSL_REQUEST = 80877103;
+    private static final int GSSENC_REQUEST = 80877104;
+    // Largest message a client may send, which is far more than any sensible query
+    private static final int MAX_MESSAGE_SIZE = 64 * 1024 * 1024;
+    private static final int MAX_STARTUP_SIZE = 10 * 1024;
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    private static final String SYNTAX_ERROR = "42601";
+    private static final String PROTOCOL_VIOLATION = "08P01";
+    private static final String IN_FAILED_TRANSACTION = "25P02";
+
+    private final PgServer server;
+    private final Database database;
+    private final Socket socket;
+    private final int processId;
+    private final int secretKey;
+    private final Session session;
+
+    private DataInputStream in;
+    private PgWriter out;
+
+    private final Map<String, Statement> statements;
+    private final Map<String, Portal> portals;
+    // Set when a query fails inside a transaction block, until the client ends the block
+    private boolean failedTransaction;
+    // Set when a message of the extended query protocol fails, until the next Sync
+    private boolean skipUntilSync;
+
+    // Guards the state that shutdown looks at
+    private final Object lock;
+    // True while the connection waits for the client with nothing in flight, when it can be closed right away
+    private boolean waiting;
+    private boolean closing;
+    private boolean terminated;
+    // Token of the query that is running, if any
+    private volatile Cancellation running;
+
+    /**
+     * Query that has been parsed by a `Parse` message.
+     * @param parameterTypes type the client declared for each parameter, or {@link PgTypes#UNSPECIFIED}
+     */
+    private record Statement(String sql, PreparedQuery query, int[] parameterTypes) {
+        /**
+         * Returns the type of each parameter as described to the client: the declared one, or the one of the column
+         * it is used with.
+         */
+        int[] describedTypes() {
+            int[] types = new int[parameterTypes.length];
+
+            for (int i = 0; i < types.length; i++) {
+                types[i] = parameterTypes[i] != PgTypes.UNSPECIFIED ? parameterTypes[i] : PgTypes.oidOf(inferredType(i));
+            }
+
+            return types;
+        }
+
+        DataType inferredType(int parameter) {
+            return parameter < query.getParameterCount() ? query.getParameterTypes().get(parameter) : null;
+        }
+    }
+
+    /**
+     * Query that has been bound to parameter values by a `Bind` message, along with its result once it has run.
+     * @param query query to run, or null for an empty query
+     * @param resultFormats format of each result column, as sent by the client
+     */
+    private static final class Portal {
+        final Query query;
+        final short[] resultFormats;
+        final QueryProfile profile;
+        TableModel result;
+        boolean executed;
+        // Number of rows of the result sent so far
+        int position;
+
+        Portal(Query query, short[] resultFormats, QueryProfile profile) {
+            this.query = query;
+            this.resultFormats = resultFormats;
+            this.profile = profile;
+        }
+
+        int format(int column) {
+            return resultFormats.length == 0 ? PgTypes.TEXT_FORMAT
+                : resultFormats.length == 1 ? resultFormats[0]
+                : resultFormats[column];
+        }
+
+        void close() {
+            if (result instanceof ResultSet rows) {
+                rows.close();
+            }
+            result = null;
+        }
+    }
+
+    /**
+     * Error reported to the client with a specific SQLSTATE code.
+     */
+    private static final class PgException extends RuntimeException {
+        final String sqlState;
+
+        PgException(String sqlState, String message) {
+            super(message);
+            this.sqlState = sqlState;
+        }
+    }
+
+    PgConnection(PgServer server, Database database, Socket socket, int processId, int secretKey) {
+        this.server = server;
+        this.database = database;
+        this.socket = socket;
+        this.processId = processId;
+        this.secretKey = secretKey;
+        this.session = new Session(database);
+        this.statements = new HashMap<>();
+        this.portals = new HashMap<>();
+        this.lock = new Object();
+        // The client has not said anything yet, so the connection can be closed without interrupting anything.
+        this.waiting = true;
+    }
+
+    int getProcessId() {
+        return processId;
+    }
+
+    int getSecretKey() {
+        return secretKey;
+    }
+
+    @Override
+    public void run() {
+        try (Socket socket = this.socket) {
+            boolean started;
+
+            // Reads time out until the session has started, so that a client that never starts it is let go of.
+            try {
+                socket.setSoTimeout(server.getStartupTimeoutMillis());
+                in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), READ_BUFFER_SIZE));
+                out = new PgWriter(socket.getOutputStream());
+                started = startup();
+            } finally {
+                server.startupFinished();
+            }
+
+            if (started) {
+                socket.setSoTimeout(0);
+                serve();
+            }
+        } catch (EOFException | SocketException | SocketTimeoutException err) {
+            // The client went away, took too long to start, or the connection was closed by shutdown.
+        } catch (IOException err) {
+            System.err.printf("Connection %d failed: %s%n", processId, err.getMessage());
+        } finally {
+            for (Portal portal : portals.values()) {
+                portal.close();
+            }
+            session.close();
+            server.unregister(this);
+        }
+    }
+
+    /**
+     * Asks the query that is running, if any, to stop.
+     */
+    void cancel() {
+        Cancellation cancellation = running;
+
+        if (cancellation != null) {
+            cancellation.cancel();
+        }
+    }
+
+    /**
+     * Closes the connection once the work the client has already sent is done, or right away if there is none.
+     */
+    void shutdown() {
+        synchronized (lock) {
+            closing = true;
+
+            if (waiting && !terminated) {
+                terminated = true;
+                terminate();
+            }
+        }
+    }
+
+    /**
+     * Cancels the running query, and closes the connection without waiting for anything.
+     */
+    void kill() {
+        cancel();
+
+        try {
+            socket.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    /**
+     * Tells the client that the server is shutting down, and closes the connection.
+     */
+    private void terminate() {
+        try {
+            fatal("57P01", "Terminating connection due to administrator command.");
+            socket.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    /**
+     * Marks the connection as waiting for the client.
+     * @return false if the connection is shutting down instead.
+     */
+    private boolean pause() {
+        synchronized (lock) {
+            if (closing) {
+                terminated = true;
+                terminate();
+                return false;
+            }
+
+            waiting = true;
+            return true;
+        }
+    }
+
+    /**
+     * Marks the connection as working on what the client sent.
+     * @return false if the connection has been closed by shutdown in the meantime.
+     */
+    private boolean resume() {
+        synchronized (lock) {
+            waiting = false;
+            return !terminated;
+        }
+    }
+
+    /**
+     * Negotiates the protocol and starts the session.
+     * @return false if the connection should be closed instead, e.g. because it only carried a cancel request.
+     */
+    private boolean startup() throws IOException {
+        while (true) {
+            int length = in.readInt();
+
+            if (length < 8 || length > MAX_STARTUP_SIZE) {
+                return false;
+            }
+
+            int code = in.readInt();
+            ByteBuffer body = read(length - 8);
+
+            if (!resume()) {
+                return false;
+            }
+
+            switch (code) {
+                case SSL_REQUEST, GSSENC_REQUEST -> {
+                    // Encryption is not supported, which clients take as a cue to carry on without it.
+                    out.writeByte('N');
+                    out.flush();
+
+                    if (!pause()) {
+                        return false;
+                    }
+                }
+                case CANCEL_REQUEST -> {
+                    server.cancel(body.getInt(), body.getInt());
+                    return false;
+                }
+                case PROTOCOL_VERSION -> {
+                    Map<String, String> parameters = new HashMap<>();
+
+                    for (String name = readString(body); !name.isEmpty(); name = readString(body)) {
+                        parameters.put(name, readString(body));
+                    }
+
+                    if (!server.register(this)) {
+                        fatal("53300", "Sorry, too many clients already.");
+                        return false;
+                    }
+
+                    // Clients are trusted, so they are let in without a password.
+                    out.begin('R').writeInt(0).end();
+
+                    parameterStatus("server_version", PgServer.SERVER_VERSION);
+                    parameterStatus("server_encoding", "UTF8");
+                    parameterStatus("client_encoding", "UTF8");
+                    parameterStatus("DateStyle", "ISO, MDY");
+                    parameterStatus("TimeZone", "UTC");
+                    parameterStatus("integer_datetimes", "on");
+                    parameterStatus("standard_conforming_strings", "on");
+                    parameterStatus("is_superuser", "off");
+                    parameterStatus("session_authorization", parameters.getOrDefault("user", ""));
+                    parameterStatus("application_name", parameters.getOrDefault("application_name", ""));
+
+                    out.begin('K').writeInt(processId).writeInt(secretKey).end();
+                    readyForQuery();
+                    return true;
+                }
+                default -> {
+                    fatal("0A000", String.format("Unsupported frontend protocol %d.%d.", code >>> 16, code & 0xffff));
+                    return false;
+                }
+            }
+        }
+    }
+
+    /**
+     * Answers messages until the client terminates the session or the server shuts down.
+     */
+    private void serve() throws IOException {
+        while (true) {
+            // Only wait for the client once every message it has sent so far has been answered.
+            if (in.available() == 0) {
+                out.flush();
+
+                if (!pause()) {
+                    return;
+                }
+            }
+
+            int type = in.read();
+
+            if (type < 0) {
+                return;
+            }
+
+            int length = in.readInt();
+
+            if (length < 4 || length > MAX_MESSAGE_SIZE) {
+                fatal(PROTOCOL_VIOLATION, String.format("Invalid message length %d.", length));
+                return;
+            }
+
+            ByteBuffer body = read(length - 4);
+
+            if (!resume()) {
+                return;
+            }
+
+            if (type == 'X') {
+                return;
+            }
+
+            handle((char) type, body);
+        }
+    }
+
+    private void handle(char type, ByteBuffer body) throws IOException {
+        if (type == 'Q') {
+            simpleQuery(readString(body));
+            return;
+        }
+
+        if (type == 'S') {
+            sync();
+            return;
+        }
+
+        // After an error, the rest of the batch the client sent is skipped.
+        if (skipUntilSync) {
+            return;
+        }
+
+        try {
+            switch (type) {
+                case 'P' -> parse(body);
+                case 'B' -> bind(body);
+                case 'D' -> describe(body);
+                case 'E' -> execute(body);
+                case 'C' -> close(body);
+                case 'H' -> out.flush();
+                default -> throw new PgException(PROTOCOL_VIOLATION, String.format("Unsupported message type '%c'.", type));
+            }
+        } catch (Exception err) {
+            error(err);
+            skipUntilSync = true;
+        }
+    }
+
+    /**
+     * Runs every statement of a script, and stops at the first one that fails. Every statement is parsed before any
+     * of them runs, so a script with a syntax error does nothing.
+     */
+    private void simpleQuery(String sql) throws IOException {
+        List<Query> queries = new ArrayList<>();
+        List<QueryProfile> profiles = new ArrayList<>();
+
+        try {
+            for (String statement : ScriptReader.split(sql)) {
+                QueryProfile profile = new QueryProfile(statement.strip());
+
+                for (Query query : profile.call(() -> QueryProfile.parse(terminated(statement)))) {
+                    queries.add(query);
+                    profiles.add(profile);
+                }
+            }
+        } catch (Exception err) {
+            error(new PgException(SYNTAX_ERROR, err.getMessage()));
+            readyForQuery();
+            return;
+        }
+
+        if (queries.isEmpty()) {
+            out.begin('I').end();
+        }
+
+        for (int i = 0; i < queries.size(); i++) {
+            Portal portal = new Portal(queries.get(i), new short[0], profiles.get(i));
+
+            try {
+                run(portal, true, 0);
+            } catch (Exception err) {
+                error(err);
+                break;
+            } finally {
+                portal.close();
+            }
+        }
+
+        readyForQuery();
+    }
+
+    private void parse(ByteBuffer body) throws IOException {
+        String name = readString(body);
+        String sql = readString(body);
+        int[] declaredTypes = new int[body.getShort()];
+
+        for (int i = 0; i < declaredTypes.length; i++) {
+            declaredTypes[i] = body.getInt();
+        }
+
+        if (!name.isEmpty() && statements.containsKey(name)) {
+            throw new PgException("42P05", String.format("Prepared statement '%s' already exists.", name));
+        }
+
+        PreparedQuery query;
+
+        try {
+            query = database.prepare(terminated(sql));
+        } catch (IllegalArgumentException err) {
+            throw new PgException(SYNTAX_ERROR, err.getMessage());
+        }
+
+        // Clients may declare more parameters than the query uses, but must then send values for all of them.
+        int[] parameterTypes = new int[Math.max(declaredTypes.length, query.getParameterCount())];
+        System.arraycopy(declaredTypes, 0, parameterTypes, 0, declaredTypes.length);
+
+        statements.put(name, new Statement(sql, query, parameterTypes));
+        out.begin('1').end();
+    }
+
+    private void bind(ByteBuffer body) throws IOException {
+        String portalName = readString(body);
+        Statement statement = statement(readString(body));
+        short[] parameterFormats = readShorts(body);
+        int parameterCount = body.getShort();
+
+        if (parameterCount != statement.parameterTypes().length) {
+            throw new PgException(PROTOCOL_VIOLATION, String.format("Bind message supplies %d parameters, but the prepared statement requires %d.", parameterCount, statement.parameterTypes().length));
+        }
+
+        Object[] values = new Object[statement.query().getParameterCount()];
+
+        for (int i = 0; i < parameterCount; i++) {
+            int length = body.getInt();
+            byte[] value = length < 0 ? null : new byte[length];
+
+            if (value != null) {
+                body.get(value);
+            }
+
+            int format = parameterFormats.length == 0 ? PgTypes.TEXT_FORMAT
+                : parameterFormats.length == 1 ? parameterFormats[0]
+                : parameterFormats[i];
+
+            if (i < values.length) {
+                try {
+                    values[i] = PgTypes.decode(value, format, statement.parameterTypes()[i], statement.inferredType(i));
+                } catch (IllegalArgumentException err) {
+                    throw new PgException("22P02", err.getMessage());
+                }
+            }
+        }
+
+        short[] resultFormats = readShorts(body);
+        List<Query> queries = statement.query().bind(values);
+
+        if (queries.size() > 1) {
+            throw new PgException(SYNTAX_ERROR, "Cannot insert multiple commands into a prepared statement.");
+        }
+
+        if (!portalName.isEmpty() && portals.containsKey(portalName)) {
+            throw new PgException("42P03", String.format("Portal '%s' already exists.", portalName));
+        }
+
+        Portal previous = portals.put(portalName, new Portal(queries.isEmpty() ? null : queries.getFirst(), resultFormats, new QueryProfile(statement.sql())));
+
+        if (previous != null) {
+            previous.close();
+        }
+
+        out.begin('2').end();
+    }
+
+    private void describe(ByteBuffer body) throws IOException {
+        char kind = (char) body.get();
+        String name = readString(body);
+
+        if (kind == 'S') {
+            Statement statement = statement(name);
+            int[] types = statement.describedTypes();
+
+            out.begin('t').writeShort(types.length);
+            for (int type : types) {
+                out.writeInt(type);
+            }
+            out.end();
+
+            // The columns of a result do not depend on the values of its parameters, so any values will do.
+            List<Query> queries = statement.query().bind(new Object[statement.query().getParameterCount()]);
+            rowDescription(queries.isEmpty() ? List.of() : database.describe(queries.getFirst()), null);
+        } else {
+            Portal portal = portal(name);
+            rowDescription(portal.query == null ? List.of() : database.describe(portal.query), portal);
+        }
+    }
+
+    private void execute(ByteBuffer body) throws Exception {
+        Portal portal = portal(readString(body));
+        int maxRows = body.getInt();
+
+        run(portal, false, maxRows);
+    }
+
+    private void close(ByteBuffer body) throws IOException {
+        char kind = (char) body.get();
+        String name = readString(body);
+
+        if (kind == 'S') {
+            statements.remove(name);
+        } else {
+            Portal portal = portals.remove(name);
+
+            if (portal != null) {
+                portal.close();
+            }
+        }
+
+        out.begin('3').end();
+    }
+
+    private void sync() throws IOException {
+        skipUntilSync = false;
+
+        // Portals only live as long as the transaction they were created in.
+        if (!session.inTransaction()) {
+            for (Portal portal : portals.values()) {
+                portal.close();
+            }
+            portals.clear();
+        }
+
+        readyForQuery();
+    }
+
+    /**
+     * Runs the query of a portal if it has not run yet, and sends the rows of its result.
+     * @param describe whether to describe the rows first, which the extended protocol does with a separate message
+     * @param maxRows maximum number of rows to send, or 0 for all of them; the rest are sent by the next call
+     */
+    private void run(Portal portal, boolean describe, int maxRows) throws Exception {
+        Query query = portal.query;
+
+        if (query == null) {
+            out.begin('I').end();
+            return;
+        }
+
+        // A failed transaction is rolled back however it ends, which the client is told.
+        Query completed = failedTransaction && query instanceof Query.Commit ? new Query.Rollback() : query;
+
+        if (!portal.executed) {
+            portal.result = execute(query, portal.profile);
+            portal.executed = true;
+
+            if (describe && portal.result != null) {
+                rowDescription(database.describe(query), portal);
+            }
+        }
+
+        TableModel result = portal.result;
+
+        if (result == null) {
+            commandComplete(completed, 0);
+            database.recordQueryStats(portal.profile.getStats(0));
+            return;
+        }
+
+        int end = maxRows > 0 ? (int) Math.min(result.getRowCount(), (long) portal.position + maxRows) : result.getRowCount();
+        int sent = end - portal.position;
+
+        Cancellation cancellation = new Cancellation();
+        running = cancellation;
+
+        try {
+            cancellation.call(() -> portal.profile.call(() -> {
+                sendRows(portal, end);
+                return null;
+            }));
+        } finally {
+            running = null;
+        }
+
+        if (portal.position < result.getRowCount()) {
+            out.begin('s').end();
+            return;
+        }
+
+        commandComplete(query, sent);
+        database.recordQueryStats(portal.profile.getStats(result.getRowCount()));
+        portal.close();
+    }
+
+    /**
+     * Runs a query in the session of the client, and lets it be cancelled while it runs.
+     * @return result of the query, or null if it returns no rows
+     */
+    private TableModel execute(Query query, QueryProfile profile) throws Exception {
+        boolean endsTransaction = query instanceof Query.Commit || query instanceof Query.Rollback;
+
+        if (failedTransaction && !endsTransaction) {
+            throw new PgException(IN_FAILED_TRANSACTION, "Current transaction is aborted, commands ignored until end of transaction block.");
+        }
+
+        // Nothing of a failed transaction can be committed, so it is rolled back however it ends.
+        Query run = failedTransaction ? new Query.Rollback() : query;
+        Cancellation cancellation = new Cancellation();
+        running = cancellation;
+
+        try {
+            TableModel result = cancellation.call(() -> profile.call(() ->
+                QueryProfile.measure(QueryProfile.Phase.EXECUTE, () -> session.executeQuery(run))
+            ));
+
+            failedTransaction = false;
+            return result;
+        } catch (Exception err) {
+            failedTransaction = session.inTransaction();
+            throw err;
+        } finally {
+            running = null;
+        }
+    }
+
+    /**
+     * Sends rows of a result, from the first one that has not been sent yet up to the given one.
+     */
+    private void sendRows(Portal portal, int end) throws IOException {
+        TableModel result = portal.result;
+        int columns = result.getColumnCount();
+
+        for (int row = portal.position; row < end; row++) {
+            Cancellation.checkRow(row);
+            // Result sets box their values, while other results, e.g. of `EXPLAIN`, hold strings.
+            List<?> values = result instanceof ResultSet rows ? rows.getRow(row) : null;
+
+            out.begin('D').writeShort(columns);
+
+            for (int column = 0; column < columns; column++) {
+                byte[] value = PgTypes.encode(values != null ? values.get(column) : result.getValueAt(row, column), portal.format(column));
+
+                if (value == null) {
+                    out.writeInt(-1);
+                } else {
+                    out.writeInt(value.length).writeBytes(value);
+                }
+            }
+
+            out.end();
+            portal.position = row + 1;
+        }
+    }
+
+    /**
+     * Describes the columns of a result, or tells the client that there is none.
+     * @param portal portal whose result is described, which decides the format of each column, or null for text
+     */
+    private void rowDescription(List<ResultColumn> columns, Portal portal) throws IOException {
+        if (columns.isEmpty()) {
+            out.begin('n').end();
+            return;
+        }
+
+        out.begin('T').writeShort(columns.size());
+
+        for (int i = 0; i < columns.size(); i++) {
+            int type = PgTypes.oidOf(columns.get(i).type());
+
+            out.writeString(columns.get(i).name())
+                .writeInt(0)
+                .writeShort(0)
+                .writeInt(type)
+                .writeShort(PgTypes.lengthOf(type))
+                .writeInt(-1)
+                .writeShort(portal == null ? PgTypes.TEXT_FORMAT : portal.format(i));
+        }
+
+        out.end();
+    }
+
+    private void commandComplete(Query query, long rows) throws IOException {
+        String tag = switch (query) {
+            case Query.Select q -> "SELECT " + rows;
+            case Query.InsertInto q -> "INSERT 0 " + session.getAffectedRows();
+            case Query.InsertSelect q -> "INSERT 0 " + session.getAffectedRows();
+            case Query.UpdateSet q -> "UPDATE " + session.getAffectedRows();
+            case Query.DeleteFrom q -> "DELETE " + session.getAffectedRows();
+            case Query.DeleteRows q -> "DELETE " + session.getAffectedRows();
+            case Query.CreateTable q -> "CREATE TABLE";
+            case Query.DropTable q -> "DROP TABLE";
+            case Query.CreateIndex q -> "CREATE INDEX";
+            case Query.DropIndex q -> "DROP INDEX";
+            case Query.ShowTables q -> "SHOW";
+            case Query.Explain q -> "EXPLAIN";
+            case Query.Begin q -> "BEGIN";
+            case Query.Commit q -> "COMMIT";
+            case Query.Rollback q -> "ROLLBACK";
+        };
+
+        out.begin('C').writeString(tag).end();
+    }
+
+    private void readyForQuery() throws IOException {
+        out.begin('Z').writeByte(failedTransaction ? 'E' : session.inTransaction() ? 'T' : 'I').end();
+    }
+
+    private void parameterStatus(String name, String value) throws IOException {
+        out.begin('S').writeString(name).writeString(value).end();
+    }
+
+    private void error(Exception err) throws IOException {
+        String sqlState = switch (err) {
+            case PgException e -> e.sqlState;
+            case CancellationException e -> "57014";
+            case ConcurrentModificationException e -> "40001";
+            case NoSuchElementException e -> "42704";
+            case IllegalStateException e -> "25000";
+            case IllegalArgumentException e -> "22000";
+            default -> "XX000";
+        };
+
+        sendError("ERROR", sqlState, err.getMessage() == null ? err.getClass().getSimpleName() : err.getMessage());
+    }
+
+    private void fatal(String sqlState, String message) throws IOException {
+        sendError("FATAL", sqlState, message);
+        out.flush();
+    }
+
+    private void sendError(String severity, String sqlState, String message) throws IOException {
+        out.begin('E')
+            .writeByte('S').writeString(severity)
+            .writeByte('V').writeString(severity)
+            .writeByte('C').writeString(sqlState)
+            .writeByte('M').writeString(message)
+            .writeByte(0)
+            .end();
+    }
+
+    private Statement statement(String name) {
+        Statement statement = statements.get(name);
+
+        if (statement == null) {
+            throw new PgException("26000", String.format("Prepared statement '%s' does not exist.", name));
+        }
+
+        return statement;
+    }
+
+    private Portal portal(String name) {
+        Portal portal = portals.get(name);
+
+        if (portal == null) {
+            throw new PgException("34000", String.format("Portal '%s' does not exist.", name));
+        }
+
+        return portal;
+    }
+
+    /**
+     * Ends a statement with a semicolon, which the grammar requires but clients usually leave out.
+     */
+    private static String terminated(String statement) {
+        String text = statement.strip();
+        return text.isEmpty() || text.endsWith(";") ? text : text + ";";
+    }
+
+    private ByteBuffer read(int length) throws IOException {
+        byte[] body = new byte[length];
+        in.readFully(body);
+        return ByteBuffer.wrap(body);
+    }
+
+    private static String readString(ByteBuffer body) {
+        int start = body.position();
+
+        while (body.get() != 0) {
+            // Find the terminating zero byte.
+        }
+
+        return new String(body.array(), start, body.position() - start - 1, StandardCharsets.UTF_8);
+    }
+
+    private static short[] readShorts(ByteBuffer body) {
+        short[] values = new short[body.getShort()];
+
+        for (int i = 0; i < values.length; i++) {
+            values[i] = body.getShort();
+        }
+
+        return values;
+    }
+}
@@ -0,0 +1,272 @@
+/*
+ * PgServer v1.0
+ *
+ * database contributors
+ * Oct 16, 2026
+ */
+
+package server;
+
+import engine.db.Database;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Serves a {@link Database} to clients that speak version 3 of the PostgreSQL wire protocol, e.g. `psql`, JDBC or
+ * pgbench with custom scripts. Both the simple and the extended query protocol are supported, without authentication
+ * or encryption, so the server should only listen on addresses trusted clients connect from. Each connection is served
+ * by a virtual thread of its own, which blocks on the socket while the client is quiet, and at most so many clients
+ * are let in at a time. Connections that have not started their session yet count against a limit of their own, so
+ * that clients which never send a startup packet cannot tie up threads and sockets without bound, and are closed if
+ * they take too long to start.
+ * Closing the server stops accepting connections and closes idle ones right away. Connections in the middle of a
+ * query are closed once the work their client has sent is done, or, if that takes too long, their queries are
+ * cancelled.
+ */
+public final class PgServer implements AutoCloseable {
+    static final String SERVER_VERSION = "16.0";
+    // How long closing the server waits for running queries before it cancels them
+    private static final long SHUTDOWN_TIMEOUT_MILLIS = 30_000;
+    // How long closing the server waits for cancelled queries to stop
+    private static final long KILL_TIMEOUT_MILLIS = 5_000;
+    // How long a client may take to start its session
+    private static final int DEFAULT_STARTUP_TIMEOUT_MILLIS = 10_000;
+    // How long to wait before accepting again after accepting failed, e.g. because the process ran out of file handles
+    private static final long ACCEPT_BACKOFF_MILLIS = 100;
+
+    private final Database database;
+    private final ServerSocket socket;
+    // One permit per client that may be let in
+    private final Semaphore slots;
+    // One permit per connection that may be starting its session at the same time
+    private final Semaphore startups;
+    private final int startupTimeoutMillis;
+    // Clients that have been let in, by process id, which cancel requests refer to them by
+    private final Map<Integer, PgConnection> clients;
+    // Threads of every connection, including those not let in yet
+    private final Map<PgConnection, Thread> connections;
+    private final AtomicInteger nextProcessId;
+    private final SecureRandom random;
+    private final Thread acceptor;
+    private volatile boolean closed;
+
+    /**
+     * Starts listening for clients, which have ten seconds to start their session.
+     * @param address address to listen on, e.g. the loopback address to only let in local clients
+     * @param maxConnections maximum number of clients let in at a time, which is also the maximum number of connections
+     *                       that may be starting their session at a time
+     */
+    public PgServer(Database database, InetSocketAddress address, int maxConnections) throws IOException {
+        this(database, address, maxConnections, DEFAULT_STARTUP_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * Starts listening for clients.
+     * @param address address to listen on, e.g. the loopback address to only let in local clients
+     * @param maxConnections maximum number of clients let in at a time, which is also the maximum number of connections
+     *                       that may be starting their session at a time
+     * @param startupTimeoutMillis how long a client may take to start its session before it is disconnected
+     */
+    public PgServer(Database database, InetSocketAddress address, int maxConnections, int startupTimeoutMillis) throws IOException {
+        if (startupTimeoutMillis <= 0) {
+            throw new IllegalArgumentException("Startup timeout must be positive.");
+        }
+
+        this.database = database;
+        this.socket = new ServerSocket();
+        this.slots = new Semaphore(maxConnections);
+        this.startups = new Semaphore(maxConnections);
+        this.startupTimeoutMillis = startupTimeoutMillis;
+        this.clients = new ConcurrentHashMap<>();
+        this.connections = new ConcurrentHashMap<>();
+        this.nextProcessId = new AtomicInteger(1);
+        this.random = new SecureRandom();
+
+        socket.setReuseAddress(true);
+        socket.bind(address);
+
+        // Unlike the connections, the acceptor is not a daemon thread, so that it keeps the JVM running.
+        this.acceptor = Thread.ofPlatform().name("pg-server").start(this::accept);
+    }
+
+    /**
+     * Returns the address the server listens on, with the port it was given if it was asked for any.
+     */
+    public InetSocketAddress getAddress() {
+        return (InetSocketAddress) socket.getLocalSocketAddress();
+    }
+
+    /**
+     * Stops accepting clients and waits for the connected ones to be closed, see {@link PgServer}.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+
+        try {
+            socket.close();
+        } catch (IOException ignored) {
+        }
+
+        for (PgConnection connection : connections.keySet()) {
+            connection.shutdown();
+        }
+
+        if (!awaitConnections(System.currentTimeMillis() + SHUTDOWN_TIMEOUT_MILLIS)) {
+            for (PgConnection connection : connections.keySet()) {
+                connection.kill();
+            }
+
+            awaitConnections(System.currentTimeMillis() + KILL_TIMEOUT_MILLIS);
+        }
+
+        try {
+            acceptor.join();
+        } catch (InterruptedException err) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Returns how long a client may take to start its session, in milliseconds.
+     */
+    int getStartupTimeoutMillis() {
+        return startupTimeoutMillis;
+    }
+
+    /**
+     * Makes room for another connection to start its session, once a connection is done starting its own, whether or
+     * not it was let in. Must be called exactly once per connection.
+     */
+    void startupFinished() {
+        startups.release();
+    }
+
+    /**
+     * Lets a client in once it has started its session, unless there are too many already or the server is closing.
+     * @return true if the client has been let in.
+     */
+    boolean register(PgConnection connection) {
+        if (closed || !slots.tryAcquire()) {
+            return false;
+        }
+
+        clients.put(connection.getProcessId(), connection);
+        return true;
+    }
+
+    /**
+     * Forgets a connection that has been closed, and lets another client in if it had been let in.
+     */
+    void unregister(PgConnection connection) {
+        if (clients.remove(connection.getProcessId(), connection)) {
+            slots.release();
+        }
+    }
+
+    /**
+     * Cancels the running query of a client, if the secret key matches the one it was given.
+     */
+    void cancel(int processId, int secretKey) {
+        PgConnection connection = clients.get(processId);
+
+        if (connection != null && connection.getSecretKey() == secretKey) {
+            connection.cancel();
+        }
+    }
+
+    private void accept() {
+        while (!closed) {
+            Socket client;
+
+            try {
+                client = socket.accept();
+                client.setTcpNoDelay(true);
+            } catch (IOException err) {
+                if (!closed) {
+                    System.err.println("Unable to accept a connection: " + err.getMessage());
+                    backOff();
+                }
+                continue;
+            }
+
+            // Too many connections are starting at once, so this one is turned away before it costs a thread.
+            if (!startups.tryAcquire()) {
+                try {
+                    client.close();
+                } catch (IOException ignored) {
+                }
+                continue;
+            }
+
+            PgConnection connection = new PgConnection(this, database, client, nextProcessId.getAndIncrement(), random.nextInt());
+            Thread thread = Thread.ofVirtual().name("pg-connection-" + connection.getProcessId()).unstarted(() -> {
+                try {
+                    connection.run();
+                } finally {
+                    connections.remove(connection);
+                }
+            });
+
+            // Connections are only started while the server is open, so that closing it waits for all of them.
+            synchronized (this) {
+                if (closed) {
+                    connection.kill();
+                    startups.release();
+                    return;
+                }
+
+                connections.put(connection, thread);
+                thread.start();
+            }
+        }
+    }
+
+    /**
+     * Waits a moment after accepting a connection failed, so that an error that persists, e.g. running out of file
+     * handles, does not keep the acceptor spinning.
+     */
+    private void backOff() {
+        try {
+            Thread.sleep(ACCEPT_BACKOFF_MILLIS);
+        } catch (InterruptedException err) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Waits for every connection to be closed.
+     * @param deadline time to give up at, in milliseconds since the epoch
+     * @return true if every connection has been closed.
+     */
+    private boolean awaitConnections(long deadline) {
+        for (Thread thread : connections.values()) {
+            long remaining = deadline - System.currentTimeMillis();
+
+            try {
+                if (remaining <= 0 || !thread.join(Duration.ofMillis(remaining))) {
+                    return false;
+                }
+            } catch (InterruptedException err) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+
+        return true;
+    }
+}
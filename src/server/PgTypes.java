@@ -0,0 +1,241 @@
+/*
+ * PgTypes v1.0
+ *
+ * database contributors
+ * Oct 16, 2026
+ */
+
+package server;
+
+import engine.db.Value;
+import engine.sql.DataType;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Maps values of the database to and from the types of the PostgreSQL wire protocol. Values are sent to clients in
+ * text format, or in binary format if they ask for it, and parameters are accepted in either format.
+ */
+final class PgTypes {
+    static final int BOOL = 16;
+    static final int INT8 = 20;
+    static final int INT2 = 21;
+    static final int INT4 = 23;
+    static final int TEXT = 25;
+    static final int BPCHAR = 1042;
+    static final int VARCHAR = 1043;
+    static final int NUMERIC = 1700;
+    static final int UNSPECIFIED = 0;
+
+    static final int TEXT_FORMAT = 0;
+    static final int BINARY_FORMAT = 1;
+
+    private PgTypes() {}
+
+    /**
+     * Returns the type a column holding the given kind of value is described as.
+     */
+    static int oidOf(Class<? extends Value> type) {
+        if (type == Value.Integer.class) {
+            return INT4;
+        }
+        if (type == Value.Boolean.class) {
+            return BOOL;
+        }
+        if (type == Value.Numeric.class) {
+            return NUMERIC;
+        }
+        return VARCHAR;
+    }
+
+    /**
+     * Returns the type a parameter of the given column type is described as, or text if the type is unknown.
+     */
+    static int oidOf(DataType type) {
+        return switch (type) {
+            case null -> TEXT;
+            case DataType.Integer ignored -> INT4;
+            case DataType.Boolean ignored -> BOOL;
+            case DataType.VarChar ignored -> VARCHAR;
+        };
+    }
+
+    /**
+     * Returns the size of a value of the given type, or -1 if its size varies.
+     */
+    static int lengthOf(int oid) {
+        return switch (oid) {
+            case INT4 -> 4;
+            case BOOL -> 1;
+            default -> -1;
+        };
+    }
+
+    /**
+     * Encodes a cell of a result, which is either a {@link Value} or, for results that are not read from a table, a
+     * string.
+     * @return the encoded value, or null for a null value
+     */
+    static byte[] encode(Object cell, int format) {
+        if (cell == null) {
+            return null;
+        }
+
+        if (format == BINARY_FORMAT) {
+            switch (cell) {
+                case Value.Integer(var v) -> {
+                    return ByteBuffer.allocate(4).putInt(v).array();
+                }
+                case Value.Boolean(var v) -> {
+                    return new byte[]{ (byte) (v ? 1 : 0) };
+                }
+                case Value.Numeric(var v) -> {
+                    return encodeNumeric(v);
+                }
+                default -> {}
+            }
+        }
+
+        String text = switch (cell) {
+            case Value.Boolean(var v) -> v ? "t" : "f";
+            case Value.Numeric(var v) -> v.toPlainString();
+            default -> cell.toString();
+        };
+
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Encodes a number in the binary format of `numeric`: the number of digits, the weight of the first digit, the
+     * sign and the number of decimal places, followed by the digits, each of them a group of four decimal digits.
+     */
+    private static byte[] encodeNumeric(BigDecimal value) {
+        int scale = Math.max(0, value.scale());
+        // Pad the fraction to whole groups of four decimal digits, and the integer part to the left likewise.
+        int groupScale = (scale + 3) / 4 * 4;
+        String digits = value.abs().setScale(groupScale).unscaledValue().toString();
+        int integerDigits = digits.length() - groupScale;
+        int padding = (4 - Math.floorMod(integerDigits, 4)) % 4;
+        digits = "0".repeat(padding) + digits;
+
+        short[] groups = new short[digits.length() / 4];
+        for (int i = 0; i < groups.length; i++) {
+            groups[i] = Short.parseShort(digits.substring(i * 4, i * 4 + 4));
+        }
+
+        int weight = (integerDigits + padding) / 4 - 1;
+        int first = 0;
+        int last = groups.length;
+
+        while (first < last && groups[first] == 0) {
+            first++;
+            weight--;
+        }
+        while (last > first && groups[last - 1] == 0) {
+            last--;
+        }
+
+        boolean zero = value.signum() == 0 || first == last;
+        ByteBuffer buffer = ByteBuffer.allocate(8 + 2 * (zero ? 0 : last - first));
+
+        buffer.putShort((short) (zero ? 0 : last - first));
+        buffer.putShort((short) (zero ? 0 : weight));
+        buffer.putShort((short) (value.signum() < 0 ? 0x4000 : 0));
+        buffer.putShort((short) scale);
+
+        if (!zero) {
+            for (int i = first; i < last; i++) {
+                buffer.putShort(groups[i]);
+            }
+        }
+
+        return buffer.array();
+    }
+
+    /**
+     * Decodes the value of a parameter into a value that can be bound to a {@link engine.db.PreparedQuery}.
+     * @param oid type the client declared for the parameter, or {@link #UNSPECIFIED}
+     * @param type type of the column the parameter is used with, or null if unknown
+     * @throws IllegalArgumentException if the value does not fit the type.
+     */
+    static Object decode(byte[] value, int format, int oid, DataType type) throws IllegalArgumentException {
+        if (value == null) {
+            return null;
+        }
+
+        if (oid == UNSPECIFIED) {
+            oid = switch (type) {
+                case null -> UNSPECIFIED;
+                case DataType.Integer ignored -> INT4;
+                case DataType.Boolean ignored -> BOOL;
+                case DataType.VarChar ignored -> VARCHAR;
+            };
+        }
+
+        if (format == BINARY_FORMAT) {
+            ByteBuffer buffer = ByteBuffer.wrap(value);
+
+            return switch (oid) {
+                case BOOL -> value.length == 1 ? value[0] != 0 : invalid(value.length, "boolean");
+                case INT2, INT4, INT8 -> switch (value.length) {
+                    case 2 -> (int) buffer.getShort();
+                    case 4 -> buffer.getInt();
+                    case 8 -> toInt(BigInteger.valueOf(buffer.getLong()));
+                    default -> invalid(value.length, "integer");
+                };
+                default -> new String(value, StandardCharsets.UTF_8);
+            };
+        }
+
+        String text = new String(value, StandardCharsets.UTF_8);
+
+        return switch (oid) {
+            case BOOL -> parseBoolean(text);
+            case INT2, INT4, INT8 -> parseInteger(text);
+            // Without a type to go by, a value is taken as a number if it looks like one, and as a string otherwise.
+            case UNSPECIFIED -> text.matches("\\s*-?\\d{1,10}\\s*") && fitsInt(text) ? parseInteger(text)
+                : text.equalsIgnoreCase("true") || text.equalsIgnoreCase("false") ? parseBoolean(text)
+                : text;
+            default -> text;
+        };
+    }
+
+    private static Object invalid(int length, String type) {
+        throw new IllegalArgumentException(String.format("Invalid binary %s parameter of %d bytes.", type, length));
+    }
+
+    private static boolean fitsInt(String text) {
+        long number = Long.parseLong(text.strip());
+        return number >= Integer.MIN_VALUE && number <= Integer.MAX_VALUE;
+    }
+
+    private static int parseInteger(String text) throws IllegalArgumentException {
+        try {
+            return toInt(new BigInteger(text.strip()));
+        } catch (NumberFormatException err) {
+            throw new IllegalArgumentException(String.format("Invalid input syntax for type integer: '%s'.", text));
+        }
+    }
+
+    private static int toInt(BigInteger number) throws IllegalArgumentException {
+        try {
+            return number.intValueExact();
+        } catch (ArithmeticException err) {
+            throw new IllegalArgumentException(String.format("Value %s is out of range for type integer.", number));
+        }
+    }
+
+    /**
+     * Parses a boolean in any of the forms PostgreSQL accepts, e.g. `t`, `true`, `yes`, `on` or `1`.
+     */
+    private static boolean parseBoolean(String text) throws IllegalArgumentException {
+        return switch (text.strip().toLowerCase()) {
+            case "t", "true", "y", "yes", "on", "1" -> true;
+            case "f", "false", "n", "no", "off", "0" -> false;
+            default -> throw new IllegalArgumentException(String.format("Invalid input syntax for type boolean: '%s'.", text));
+        };
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * PgWriter v1.0
+ *
+ * database contributors
+ * Oct 16, 2026
+ */
+
+package server;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Builds messages of the PostgreSQL wire protocol in a buffer, which is only written to the client when it is flushed
+ * or has grown large, so that the responses to pipelined queries go out together. Each message is a type byte
+ * followed by its length, which is filled in once the message is complete.
+ */
+final class PgWriter {
+    // Buffered bytes after which complete messages are written out without waiting for a flush, e.g. for large results
+    private static final int WRITE_THRESHOLD = 64 * 1024;
+
+    private final OutputStream out;
+    private byte[] buffer;
+    private int size;
+    // Position of the length of the message being built
+    private int lengthAt;
+
+    PgWriter(OutputStream out) {
+        this.out = out;
+        this.buffer = new byte[WRITE_THRESHOLD * 2];
+        this.size = 0;
+    }
+
+    /**
+     * Starts a message of the given type.
+     */
+    PgWriter begin(char type) {
+        writeByte(type);
+        lengthAt = size;
+        return writeInt(0);
+    }
+
+    /**
+     * Completes the message that was started last, and writes out the buffer if it has grown large.
+     */
+    void end() throws IOException {
+        int length = size - lengthAt;
+
+        buffer[lengthAt] = (byte) (length >>> 24);
+        buffer[lengthAt + 1] = (byte) (length >>> 16);
+        buffer[lengthAt + 2] = (byte) (length >>> 8);
+        buffer[lengthAt + 3] = (byte) length;
+
+        if (size >= WRITE_THRESHOLD) {
+            write();
+        }
+    }
+
+    PgWriter writeByte(int value) {
+        ensureCapacity(1);
+        buffer[size++] = (byte) value;
+        return this;
+    }
+
+    PgWriter writeShort(int value) {
+        ensureCapacity(2);
+        buffer[size++] = (byte) (value >>> 8);
+        buffer[size++] = (byte) value;
+        return this;
+    }
+
+    PgWriter writeInt(int value) {
+        ensureCapacity(4);
+        buffer[size++] = (byte) (value >>> 24);
+        buffer[size++] = (byte) (value >>> 16);
+        buffer[size++] = (byte) (value >>> 8);
+        buffer[size++] = (byte) value;
+        return this;
+    }
+
+    PgWriter writeBytes(byte[] value) {
+        ensureCapacity(value.length);
+        System.arraycopy(value, 0, buffer, size, value.length);
+        size += value.length;
+        return this;
+    }
+
+    /**
+     * Writes a string terminated by a zero byte.
+     */
+    PgWriter writeString(String value) {
+        return writeBytes(value.getBytes(StandardCharsets.UTF_8)).writeByte(0);
+    }
+
+    /**
+     * Writes everything that has been buffered to the client.
+     */
+    void flush() throws IOException {
+        write();
+        out.flush();
+    }
+
+    /**
+     * Returns true if there is anything to flush.
+     */
+    boolean hasPending() {
+        return size > 0;
+    }
+
+    private void write() throws IOException {
+        if (size > 0) {
+            out.write(buffer, 0, size);
+            size = 0;
+        }
+    }
+
+    private void ensureCapacity(int extra) {
+        if (size + extra > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + extra));
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package tests;
+
+import engine.db.Database;
+import engine.db.PreparedQuery;
+import engine.db.Session;
+import engine.sql.Parser;
+import engine.sql.Query;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import javax.swing.table.TableModel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+public class CacheTests {
+    private static TableModel execute(Database database, String sql) {
+        TableModel result = null;
+        for (Query query : Parser.parse(sql)) {
+            result = database.executeQuery(query);
+        }
+        return result;
+    }
+
+    private static TableModel execute(Session session, String sql) {
+        TableModel result = null;
+        for (Query query : Parser.parse(sql)) {
+            result = session.executeQuery(query);
+        }
+        return result;
+    }
+
+    private static List<List<String>> cells(TableModel result) {
+        List<List<String>> rows = new ArrayList<>();
+        for (int row = 0; row < result.getRowCount(); row++) {
+            List<String> values = new ArrayList<>();
+            for (int column = 0; column < result.getColumnCount(); column++) {
+                values.add(String.valueOf(result.getValueAt(row, column)));
+            }
+            rows.add(values);
+        }
+        return rows;
+    }
+
+    @Test
+    public void preparedQueryInvalidation() {
+        Database database = new Database();
+        execute(database, """
+            CREATE TABLE items (id int, name varchar(20),);
+            CREATE TABLE orders (id int, item int,);
+            INSERT INTO items VALUES (1, 'pen'), (2, 'ink');
+            INSERT INTO orders VALUES (1, 1), (2, 1);
+        """);
+
+        String sql = "SELECT * FROM items WHERE id == ?;";
+
+        PreparedQuery items = database.prepare(sql);
+        PreparedQuery orders = database.prepare("SELECT * FROM orders WHERE item == ?;");
+        Assertions.assertSame(items, database.prepare(sql));
+        Assertions.assertEquals(List.of(List.of("2", "ink")), cells(items.execute(2)));
+
+        // Changing rows does not change the schema a prepared query was checked against.
+        execute(database, "INSERT INTO items VALUES (3, 'cap');");
+        Assertions.assertSame(items, database.prepare(sql));
+
+        execute(database, "DROP TABLE items;");
+        Assertions.assertThrows(NoSuchElementException.class, () -> database.prepare(sql));
+        Assertions.assertSame(orders, database.prepare("SELECT * FROM orders WHERE item == ?;"));
+
+        // The table comes back with other columns, which the query is checked against again.
+        execute(database, "CREATE TABLE items (id int, name varchar(20), price int,); INSERT INTO items VALUES (1, 'pen', 5);");
+        PreparedQuery recreated = database.prepare(sql);
+
+        Assertions.assertNotSame(items, recreated);
+        Assertions.assertEquals(List.of(List.of("1", "pen", "5")), cells(recreated.execute(1)));
+    }
+
+    @Test
+    public void resultCacheInvalidation() {
+        Database database = new Database();
+        execute(database, """
+            CREATE TABLE items (id int, name varchar(20),);
+            CREATE TABLE orders (id int, item int,);
+            INSERT INTO items VALUES (1, 'pen'), (2, 'ink');
+            INSERT INTO orders VALUES (1, 1), (2, 1);
+        """);
+        database.setResultCache(16, 1_000);
+        String sql = "SELECT name FROM items ORDER BY id;";
+
+        TableModel first = execute(database, sql);
+        Assertions.assertSame(first, execute(database, sql));
+
+        // Writes to another table leave the result alone.
+        execute(database, "INSERT INTO orders VALUES (3, 2);");
+        Assertions.assertSame(first, execute(database, sql));
+
+        for (String write : List.of(
+            "INSERT INTO items VALUES (3, 'cap');",
+            "UPDATE items SET name = 'nib' WHERE id == 2;",
+            "DELETE FROM items WHERE id == 1;"
+        )) {
+            TableModel before = execute(database, sql);
+            execute(database, write);
+            Assertions.assertNotSame(before, execute(database, sql), write);
+        }
+
+        // So do changes committed by a transaction.
+        TableModel before = execute(database, sql);
+        execute(new Session(database), "BEGIN; INSERT INTO items VALUES (4, 'mug'); COMMIT;");
+        TableModel after = execute(database, sql);
+
+        Assertions.assertNotSame(before, after);
+        Assertions.assertEquals(List.of(List.of("nib"), List.of("cap"), List.of("mug")), cells(after));
+    }
+
+    @Test
+    public void resultCacheEntryLimit() {
+        Database database = new Database();
+        execute(database, """
+            CREATE TABLE items (id int, name varchar(20),);
+            INSERT INTO items VALUES (1, 'pen'), (2, 'ink'), (3, 'cap');
+        """);
+        database.setResultCache(2, 1_000);
+
+        TableModel first = execute(database, "SELECT name FROM items WHERE id == 1;");
+        execute(database, "SELECT name FROM items WHERE id == 2;");
+        execute(database, "SELECT name FROM items WHERE id == 3;");
+
+        // Only the two most recently used results are kept, however much room is left for cells.
+        Assertions.assertNotSame(first, execute(database, "SELECT name FROM items WHERE id == 1;"));
+        Assertions.assertEquals(List.of(List.of("pen")), cells(first));
+    }
+}
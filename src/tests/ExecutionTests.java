@@ -0,0 +1,344 @@
+package tests;
+
+import engine.db.Database;
+import engine.db.PreparedQuery;
+import engine.db.ResultSet;
+import engine.db.Session;
+import engine.sql.Parser;
+import engine.sql.Query;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import javax.swing.table.TableModel;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+public class ExecutionTests {
+    private static final int SORTED_ROWS = 3000;
+    private static final int LEFT_ROWS = 1000;
+    private static final int RIGHT_ROWS = 4000;
+    private static final int KEYS = 300;
+
+    private record Row(int id, int grp, String label) {}
+
+    private static TableModel execute(Database database, String sql) {
+        TableModel result = null;
+        for (Query query : Parser.parse(sql)) {
+            result = database.executeQuery(query);
+        }
+        return result;
+    }
+
+    private static TableModel execute(Session session, String sql) {
+        TableModel result = null;
+        for (Query query : Parser.parse(sql)) {
+            result = session.executeQuery(query);
+        }
+        return result;
+    }
+
+    private static List<List<String>> cells(TableModel result) {
+        List<List<String>> rows = new ArrayList<>();
+        for (int row = 0; row < result.getRowCount(); row++) {
+            List<String> values = new ArrayList<>();
+            for (int column = 0; column < result.getColumnCount(); column++) {
+                values.add(String.valueOf(result.getValueAt(row, column)));
+            }
+            rows.add(values);
+        }
+        if (result instanceof ResultSet resultSet) {
+            resultSet.close();
+        }
+        return rows;
+    }
+
+    /**
+     * Returns the operators of the plan of a query, one per line, as `EXPLAIN` shows them.
+     */
+    private static String explain(Database database, String sql) {
+        return explain(new Session(database), sql);
+    }
+
+    private static String explain(Session session, String sql) {
+        StringBuilder plan = new StringBuilder();
+        for (List<String> row : cells(execute(session, "EXPLAIN " + sql))) {
+            plan.append(row.getFirst().strip()).append('\n');
+        }
+        return plan.toString();
+    }
+
+    private static List<Row> numbers(Database database) {
+        Random random = new Random(1);
+        List<Row> rows = new ArrayList<>();
+        List<String> values = new ArrayList<>();
+
+        for (int id = 0; id < SORTED_ROWS; id++) {
+            Row row = new Row(id, random.nextInt(50), "label" + random.nextInt(400));
+            rows.add(row);
+            values.add(String.format("(%d, %d, '%s')", row.id(), row.grp(), row.label()));
+        }
+
+        execute(database, "CREATE TABLE numbers (id int, grp int, label varchar(10),);");
+        execute(database, String.format("INSERT INTO numbers VALUES %s;", String.join(", ", values)));
+        return rows;
+    }
+
+    private static List<List<String>> ids(List<Row> rows) {
+        return rows.stream().map((row) -> List.of(String.valueOf(row.id()))).toList();
+    }
+
+    @Test
+    public void externalSortMatchesFullSort() {
+        Database database = new Database();
+        List<Row> rows = new ArrayList<>(numbers(database));
+        String sql = "SELECT id FROM numbers ORDER BY label ASC, id ASC;";
+
+        rows.sort(Comparator.comparing(Row::label).thenComparingInt(Row::id));
+        List<List<String>> expected = ids(rows);
+
+        Assertions.assertEquals(expected, cells(execute(database, sql)));
+
+        // A budget this small holds a few dozen keys, so the sort has to merge many runs from spill files.
+        database.setSettings(database.getSettings().withSortMemory(2 * 1024));
+        Assertions.assertTrue(explain(database, sql).contains("Sort (label ASC, id ASC)"));
+        Assertions.assertEquals(expected, cells(execute(database, sql)));
+
+        // Spilled runs are merged the same way when only the first rows are wanted.
+        Assertions.assertEquals(expected.subList(0, 2000), cells(execute(database, "SELECT id FROM numbers ORDER BY label ASC, id ASC LIMIT 2000;")));
+    }
+
+    @Test
+    public void multiColumnOrder() {
+        Database database = new Database();
+        execute(database, """
+            CREATE TABLE people (id int, age int, name varchar(30),);
+            INSERT INTO people VALUES (1, 2147483647, 'alexander the great'), (3, 0, 'bo'), (4, 2147483647, 'alexander the younger');
+            INSERT INTO people (id, age) VALUES (6, 0);
+            INSERT INTO people (id, name) VALUES (7, 'bo');
+        """);
+        // SQL has no negative literals, but parameters can be negative.
+        PreparedQuery insert = database.prepare("INSERT INTO people VALUES (?, ?, ?);");
+        insert.execute(2, -2147483647, "alexander the younger");
+        insert.execute(5, -2147483647, "al");
+
+        // Extreme ages must not overflow when compared, names only differ past the first eight bytes, and nulls come
+        // first in ascending order and last in descending order.
+        Assertions.assertEquals(
+            List.of(List.of("7"), List.of("2"), List.of("5"), List.of("3"), List.of("6"), List.of("4"), List.of("1")),
+            cells(execute(database, "SELECT id FROM people ORDER BY age ASC, name DESC;"))
+        );
+        Assertions.assertEquals(
+            List.of(List.of("6"), List.of("5"), List.of("1"), List.of("4"), List.of("2"), List.of("7"), List.of("3")),
+            cells(execute(database, "SELECT id FROM people ORDER BY name, id DESC;"))
+        );
+        Assertions.assertEquals(
+            List.of(List.of("4"), List.of("1"), List.of("3"), List.of("6")),
+            cells(execute(database, "SELECT id FROM people ORDER BY age DESC, name DESC LIMIT 4;"))
+        );
+    }
+
+    @Test
+    public void topNMatchesFullSort() {
+        Database database = new Database();
+        List<Row> rows = new ArrayList<>(numbers(database));
+
+        rows.sort(Comparator.comparing(Row::label).reversed().thenComparingInt(Row::id));
+        List<List<String>> expected = ids(rows);
+
+        String sql = "SELECT id FROM numbers ORDER BY label DESC, id ASC LIMIT 25 OFFSET 40;";
+        Assertions.assertTrue(explain(database, sql).contains("TopN (label DESC, id ASC, 65 rows)"));
+        Assertions.assertEquals(expected.subList(40, 65), cells(execute(database, sql)));
+
+        // Limits past the end of the table keep every row there is.
+        Assertions.assertEquals(expected.subList(SORTED_ROWS - 10, SORTED_ROWS), cells(execute(database, String.format("SELECT id FROM numbers ORDER BY label DESC, id ASC LIMIT 100 OFFSET %d;", SORTED_ROWS - 10))));
+        Assertions.assertEquals(List.of(), cells(execute(database, "SELECT id FROM numbers ORDER BY label DESC LIMIT 0;")));
+    }
+
+    @Test
+    public void hugeLimits() {
+        Database database = new Database();
+        execute(database, """
+            CREATE TABLE items (id int, name varchar(20),);
+            CREATE TABLE orders (oid int, item int,);
+            INSERT INTO items VALUES (3, 'cap'), (1, 'pen'), (2, 'ink');
+            INSERT INTO orders VALUES (10, 2), (11, 3), (12, 2);
+        """);
+        List<List<String>> sorted = List.of(List.of("1", "pen"), List.of("2", "ink"), List.of("3", "cap"));
+
+        // A heap for that many rows would not fit into memory, and is no use for a handful of rows anyway.
+        for (String limit : List.of("2147483647", "300000000", "300000000 OFFSET 1")) {
+            String sql = String.format("SELECT id, name FROM items ORDER BY id LIMIT %s;", limit);
+
+            Assertions.assertFalse(explain(database, sql).contains("TopN"), limit);
+            Assertions.assertEquals(limit.contains("OFFSET") ? sorted.subList(1, 3) : sorted, cells(execute(database, sql)), limit);
+        }
+
+        String join = "SELECT oid, name FROM orders JOIN items ON item = id ORDER BY oid LIMIT 2147483647;";
+        Assertions.assertFalse(explain(database, join).contains("TopN"));
+        Assertions.assertEquals(
+            List.of(List.of("10", "ink"), List.of("11", "cap"), List.of("12", "ink")),
+            cells(execute(database, join))
+        );
+    }
+
+    @Test
+    public void groupedAggregates() {
+        Database database = new Database();
+        execute(database, """
+            CREATE TABLE sales (region varchar(10), amount int,);
+            INSERT INTO sales VALUES ('east', 10), ('east', 20), ('west', 5), ('north', 2147483647), ('north', 2147483647);
+            INSERT INTO sales (region) VALUES ('west');
+            INSERT INTO sales (amount) VALUES (7);
+        """);
+
+        // Nulls form a group of their own but are skipped by aggregates over a column, and sums may outgrow a 32-bit
+        // integer.
+        Assertions.assertEquals(
+            List.of(
+                List.of("NULL", "1", "1", "7", "7", "7", "7"),
+                List.of("east", "2", "2", "30", "10", "20", "15"),
+                List.of("north", "2", "2", "4294967294", "2147483647", "2147483647", "2147483647"),
+                List.of("west", "2", "1", "5", "5", "5", "5")
+            ),
+            cells(execute(database, "SELECT region, COUNT(*), COUNT(amount), SUM(amount), MIN(amount), MAX(amount), AVG(amount) FROM sales GROUP BY region ORDER BY region;"))
+        );
+        Assertions.assertEquals(
+            List.of(List.of("west", "2"), List.of("north", "2")),
+            cells(execute(database, "SELECT region, COUNT(*) FROM sales WHERE amount < 10 OR amount > 100 OR region == 'west' GROUP BY region ORDER BY region DESC LIMIT 2;"))
+        );
+
+        // Without groups, the whole table is one group, which exists even if no row matches.
+        Assertions.assertEquals(List.of(List.of("7", "4294967336")), cells(execute(database, "SELECT COUNT(*), SUM(amount) FROM sales;")));
+        Assertions.assertEquals(List.of(List.of("0", "NULL")), cells(execute(database, "SELECT COUNT(*), SUM(amount) FROM sales WHERE region == 'south';")));
+
+        // Answered from an index, which has to agree with reading the rows.
+        execute(database, "CREATE INDEX amounts ON sales USING BTREE (amount);");
+        Assertions.assertTrue(explain(database, "SELECT MIN(amount), MAX(amount) FROM sales;").contains("MetadataAggregate"));
+        Assertions.assertEquals(List.of(List.of("5", "2147483647")), cells(execute(database, "SELECT MIN(amount), MAX(amount) FROM sales;")));
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> execute(database, "SELECT region, amount FROM sales GROUP BY region;"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> execute(database, "SELECT region, COUNT(*) FROM sales GROUP BY region ORDER BY amount;"));
+    }
+
+    @Test
+    public void parallelismPerSession() {
+        Database database = new Database();
+        database.setSettings(database.getSettings().withParallelism(1));
+        execute(database, "CREATE TABLE events (id int, kind int,);");
+
+        // Enough rows for a scan to be split into several morsels.
+        for (int batch = 0; batch < 7; batch++) {
+            List<String> values = new ArrayList<>();
+            for (int id = batch * 10_000; id < (batch + 1) * 10_000; id++) {
+                values.add(String.format("(%d, %d)", id, id % 7));
+            }
+            execute(database, String.format("INSERT INTO events VALUES %s;", String.join(", ", values)));
+        }
+
+        Session analytics = new Session(database);
+        Session other = new Session(database);
+        analytics.setSettings(database.getSettings().withParallelism(4));
+        String sql = "SELECT id FROM events WHERE kind == 3 ORDER BY id;";
+
+        // Only the session that asked for more threads gets them.
+        Assertions.assertTrue(explain(analytics, sql).contains("ParallelScan on events (4 workers"));
+        Assertions.assertFalse(explain(other, sql).contains("ParallelScan"));
+        Assertions.assertFalse(explain(database, sql).contains("ParallelScan"));
+
+        List<List<String>> expected = cells(execute(other, sql));
+        Assertions.assertEquals(10_000, expected.size());
+        Assertions.assertEquals(expected, cells(execute(analytics, sql)));
+
+        // Changes scan in parallel too, both on their own and in a transaction.
+        execute(analytics, "UPDATE events SET kind = 8 WHERE kind == 3;");
+        Assertions.assertEquals(10_000, analytics.getAffectedRows());
+        execute(analytics, "BEGIN; DELETE FROM events WHERE kind == 8; INSERT INTO events SELECT id, kind FROM events WHERE id < 3; COMMIT;");
+        Assertions.assertEquals(List.of(List.of("0")), cells(execute(other, "SELECT COUNT(*) FROM events WHERE kind == 8;")));
+        Assertions.assertEquals(List.of(List.of("60003")), cells(execute(other, "SELECT COUNT(*) FROM events;")));
+
+        // Without settings of its own, the session follows the database again.
+        analytics.setSettings(null);
+        Assertions.assertFalse(explain(analytics, sql).contains("ParallelScan"));
+        database.setSettings(database.getSettings().withParallelism(2));
+        Assertions.assertTrue(explain(analytics, sql).contains("ParallelScan on events (2 workers"));
+    }
+
+    /**
+     * Creates two tables whose join keys match many rows on either side, and some rows of the left table without a key.
+     * @param indexes script that creates indexes, which decide the join algorithm
+     * @return every pair of { left id, right id } that the join should produce
+     */
+    private static List<int[]> joined(Database database, String indexes) {
+        Random random = new Random(2);
+        int[] leftKeys = new int[LEFT_ROWS];
+        int[] rightKeys = new int[RIGHT_ROWS];
+        List<String> values = new ArrayList<>();
+
+        for (int id = 0; id < LEFT_ROWS; id++) {
+            leftKeys[id] = random.nextInt(KEYS);
+            values.add(String.format("(%d, %d)", id, leftKeys[id]));
+        }
+
+        execute(database, "CREATE TABLE lefts (id int, lkey int,); CREATE TABLE rights (rid int, rkey int,);");
+        execute(database, String.format("INSERT INTO lefts VALUES %s;", String.join(", ", values)));
+        // Null keys never match anything.
+        execute(database, String.format("INSERT INTO lefts (id) VALUES (%d), (%d);", LEFT_ROWS, LEFT_ROWS + 1));
+
+        values.clear();
+        for (int rid = 0; rid < RIGHT_ROWS; rid++) {
+            rightKeys[rid] = random.nextInt(KEYS);
+            values.add(String.format("(%d, %d)", rid, rightKeys[rid]));
+        }
+
+        execute(database, String.format("INSERT INTO rights VALUES %s;", String.join(", ", values)));
+        if (!indexes.isEmpty()) {
+            execute(database, indexes);
+        }
+
+        List<int[]> pairs = new ArrayList<>();
+        for (int id = 0; id < LEFT_ROWS; id++) {
+            for (int rid = 0; rid < RIGHT_ROWS; rid++) {
+                if (leftKeys[id] == rightKeys[rid]) {
+                    pairs.add(new int[] { id, rid });
+                }
+            }
+        }
+
+        return pairs;
+    }
+
+    private static List<List<String>> pairs(List<int[]> pairs) {
+        return pairs.stream().map((pair) -> List.of(String.valueOf(pair[0]), String.valueOf(pair[1]))).toList();
+    }
+
+    @Test
+    public void joinAlgorithmsAgree() {
+        String all = "SELECT id, rid FROM lefts JOIN rights ON lkey = rkey ORDER BY id ASC, rid ASC;";
+        String some = "SELECT id, rid FROM lefts JOIN rights ON lkey = rkey WHERE id < 50 ORDER BY rid DESC, id ASC LIMIT 30 OFFSET 10;";
+
+        // { indexes, join memory in bytes, operator expected for all rows, operator expected for some rows }
+        String[][] setups = {
+            { "", "67108864", "HashJoin", "HashJoin" },
+            { "", "1024", "HashJoin", "HashJoin" },
+            { "CREATE INDEX lkeys ON lefts USING BTREE (lkey); CREATE INDEX rkeys ON rights USING BTREE (rkey);", "67108864", "SortMergeJoin", "IndexNestedLoopJoin" },
+            { "CREATE INDEX rkeys ON rights USING HASH (rkey);", "67108864", "HashJoin", "IndexNestedLoopJoin" },
+        };
+
+        for (String[] setup : setups) {
+            Database database = new Database();
+            List<int[]> expected = joined(database, setup[0]);
+            database.setSettings(database.getSettings().withJoinMemory(Long.parseLong(setup[1])));
+
+            expected.sort(Comparator.<int[]>comparingInt((pair) -> pair[0]).thenComparingInt((pair) -> pair[1]));
+            Assertions.assertTrue(explain(database, all).contains(setup[2]), setup[0]);
+            Assertions.assertEquals(pairs(expected), cells(execute(database, all)), setup[0]);
+
+            List<int[]> filtered = new ArrayList<>(expected.stream().filter((pair) -> pair[0] < 50).toList());
+            filtered.sort(Comparator.<int[]>comparingInt((pair) -> -pair[1]).thenComparingInt((pair) -> pair[0]));
+            Assertions.assertTrue(explain(database, some).contains(setup[3]), setup[0]);
+            Assertions.assertEquals(pairs(filtered.subList(10, 40)), cells(execute(database, some)), setup[0]);
+        }
+    }
+}
@@ -4,6 +4,8 @@ import engine.sql.*;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import java.io.StringReader;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
@@ -73,11 +75,13 @@ public class ParserTests {
                     new Query.InsertInto(
                         new Token.Identifier("test"),
                         null,
-                        Arrays.asList(
-                            new Token.Literal.Integer(1),
-                            new Token.Literal.Boolean(true),
-                            new Token.Literal.String("Michael"),
-                            new Token.Literal.String("Romashov")
+                        List.of(
+                            Arrays.asList(
+                                new Token.Literal.Integer(1),
+                                new Token.Literal.Boolean(true),
+                                new Token.Literal.String("Michael"),
+                                new Token.Literal.String("Romashov")
+                            )
                         )
                     )
                 )
@@ -102,11 +106,106 @@ public class ParserTests {
                             new Token.Identifier("first_name"),
                             new Token.Identifier("last_name")
                         ),
+                        List.of(
+                            Arrays.asList(
+                                new Token.Literal.Integer(1),
+                                new Token.Literal.Boolean(true),
+                                new Token.Literal.String("Michael"),
+                                new Token.Literal.String("Romashov")
+                            )
+                        )
+                    )
+                )
+            )
+        );
+    }
+
+    @Test
+    public void parseInsertIntoRows() {
+        Assertions.assertDoesNotThrow(
+            () -> Assertions.assertIterableEquals(
+                Parser.parse("""
+                    INSERT INTO test (id, last_name)
+                    VALUES (1, 'Romashov'), (2, 'Smith'),
+                           (3, 'Jones');
+                """),
+                List.of(
+                    new Query.InsertInto(
+                        new Token.Identifier("test"),
                         Arrays.asList(
-                            new Token.Literal.Integer(1),
-                            new Token.Literal.Boolean(true),
-                            new Token.Literal.String("Michael"),
-                            new Token.Literal.String("Romashov")
+                            new Token.Identifier("id"),
+                            new Token.Identifier("last_name")
+                        ),
+                        List.of(
+                            Arrays.asList(
+                                new Token.Literal.Integer(1),
+                                new Token.Literal.String("Romashov")
+                            ),
+                            Arrays.asList(
+                                new Token.Literal.Integer(2),
+                                new Token.Literal.String("Smith")
+                            ),
+                            Arrays.asList(
+                                new Token.Literal.Integer(3),
+                                new Token.Literal.String("Jones")
+                            )
+                        )
+                    )
+                )
+            )
+        );
+    }
+
+    @Test
+    public void parseInsertEmptyRow() {
+        Assertions.assertDoesNotThrow(
+            () -> Assertions.assertIterableEquals(
+                Parser.parse("INSERT INTO test () VALUES (), ();"),
+                List.of(
+                    new Query.InsertInto(
+                        new Token.Identifier("test"),
+                        List.of(),
+                        List.of(List.of(), List.of())
+                    )
+                )
+            )
+        );
+
+        // Only lists that are empty as a whole, not ones with a trailing comma.
+        Assertions.assertThrows(IllegalArgumentException.class, () -> Parser.parse("INSERT INTO test (id,) VALUES (1);"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> Parser.parse("INSERT INTO test VALUES (1,);"));
+    }
+
+    @Test
+    public void parseInsertSelect() {
+        Assertions.assertDoesNotThrow(
+            () -> Assertions.assertIterableEquals(
+                Parser.parse("""
+                    INSERT INTO archive (id, last_name)
+                    SELECT id, last_name FROM test WHERE id < 10;
+                """),
+                List.of(
+                    new Query.InsertSelect(
+                        new Token.Identifier("archive"),
+                        Arrays.asList(
+                            new Token.Identifier("id"),
+                            new Token.Identifier("last_name")
+                        ),
+                        new Query.Select(
+                            new Token.Identifier("test"),
+                            null,
+                            Arrays.asList(
+                                new Token.Identifier("id"),
+                                new Token.Identifier("last_name")
+                            ),
+                            new Expression.Comparison(
+                                new Token.Identifier("id"),
+                                new Token.Operator(Token.OperatorType.LESS),
+                                new Token.Literal.Integer(10)
+                            ),
+                            null,
+                            null,
+                            null
                         )
                     )
                 )
@@ -114,6 +213,40 @@ public class ParserTests {
         );
     }
 
+    @Test
+    public void parseSelectJoin() {
+        Assertions.assertDoesNotThrow(
+            () -> Assertions.assertIterableEquals(
+                Parser.parse("SELECT users.name, total FROM users JOIN orders ON users.id = orders.user_id WHERE total > 100;"),
+                List.of(
+                    new Query.Select(
+                        new Token.Identifier("users"),
+                        new Query.Join(
+                            new Token.Identifier("orders"),
+                            new Token.Identifier("users.id"),
+                            new Token.Identifier("orders.user_id")
+                        ),
+                        Arrays.asList(
+                            new Token.Identifier("users.name"),
+                            new Token.Identifier("total")
+                        ),
+                        new Expression.Comparison(
+                            new Token.Identifier("total"),
+                            new Token.Operator(Token.OperatorType.GREATER),
+                            new Token.Literal.Integer(100)
+                        ),
+                        null,
+                        null,
+                        null
+                    )
+                )
+            )
+        );
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> Parser.parse("SELECT * FROM users JOIN orders;"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> Parser.parse("SELECT * FROM users JOIN orders ON id < user_id;"));
+    }
+
     @Test
     public void parseSelect() {
         Assertions.assertDoesNotThrow(
@@ -125,6 +258,7 @@ public class ParserTests {
                 List.of(
                     new Query.Select(
                         new Token.Identifier("test"),
+                        null,
                         Arrays.asList(
                             new Token.Identifier("id"),
                             new Token.Identifier("active"),
@@ -132,6 +266,8 @@ public class ParserTests {
                             new Token.Identifier("last_name")
                         ),
                         null,
+                        null,
+                        null,
                         null
                     )
                 )
@@ -151,6 +287,7 @@ public class ParserTests {
                 List.of(
                     new Query.Select(
                         new Token.Identifier("test"),
+                        null,
                         Arrays.asList(
                             new Token.Identifier("id"),
                             new Token.Identifier("active"),
@@ -162,6 +299,8 @@ public class ParserTests {
                             new Token.Operator(Token.OperatorType.ASSIGN),
                             new Token.Literal.String("Romashov")
                         ),
+                        null,
+                        null,
                         null
                     )
                 )
@@ -182,6 +321,7 @@ public class ParserTests {
                 List.of(
                     new Query.Select(
                         new Token.Identifier("test"),
+                        null,
                         Arrays.asList(
                             new Token.Identifier("id"),
                             new Token.Identifier("active"),
@@ -193,9 +333,156 @@ public class ParserTests {
                             new Token.Operator(Token.OperatorType.ASSIGN),
                             new Token.Literal.String("Romashov")
                         ),
-                        new Query.OrderBy(
-                            new Token.Identifier("first_name"),
-                            new Token.SortOrder(Token.SortOrderType.DESC)
+                        null,
+                        List.of(
+                            new Query.OrderBy(
+                                new Token.Identifier("first_name"),
+                                new Token.SortOrder(Token.SortOrderType.DESC)
+                            )
+                        ),
+                        null
+                    )
+                )
+            )
+        );
+    }
+
+    @Test
+    public void parseSelectOrderByColumns() {
+        Assertions.assertDoesNotThrow(
+            () -> Assertions.assertIterableEquals(
+                Parser.parse("""
+                    SELECT * FROM test ORDER BY last_name, first_name DESC, id ASC;
+                """),
+                List.of(
+                    new Query.Select(
+                        new Token.Identifier("test"),
+                        null,
+                        List.of(
+                            new Token.Identifier("*")
+                        ),
+                        null,
+                        null,
+                        List.of(
+                            new Query.OrderBy(
+                                new Token.Identifier("last_name"),
+                                new Token.SortOrder(Token.SortOrderType.ASC)
+                            ),
+                            new Query.OrderBy(
+                                new Token.Identifier("first_name"),
+                                new Token.SortOrder(Token.SortOrderType.DESC)
+                            ),
+                            new Query.OrderBy(
+                                new Token.Identifier("id"),
+                                new Token.SortOrder(Token.SortOrderType.ASC)
+                            )
+                        ),
+                        null
+                    )
+                )
+            )
+        );
+    }
+
+    @Test
+    public void parseSelectAggregateGroupBy() {
+        Assertions.assertDoesNotThrow(
+            () -> Assertions.assertIterableEquals(
+                Parser.parse("""
+                    SELECT active, count(*), SUM(id), Max(last_name)
+                    FROM test
+                    WHERE id > 1
+                    GROUP BY active
+                    ORDER BY active DESC;
+                """),
+                List.of(
+                    new Query.Select(
+                        new Token.Identifier("test"),
+                        null,
+                        List.of(
+                            new Token.Identifier("active"),
+                            new Query.Aggregate(Query.AggregateFunction.COUNT, new Token.Identifier("*")),
+                            new Query.Aggregate(Query.AggregateFunction.SUM, new Token.Identifier("id")),
+                            new Query.Aggregate(Query.AggregateFunction.MAX, new Token.Identifier("last_name"))
+                        ),
+                        new Expression.Comparison(
+                            new Token.Identifier("id"),
+                            new Token.Operator(Token.OperatorType.GREATER),
+                            new Token.Literal.Integer(1)
+                        ),
+                        List.of(
+                            new Token.Identifier("active")
+                        ),
+                        List.of(
+                            new Query.OrderBy(
+                                new Token.Identifier("active"),
+                                new Token.SortOrder(Token.SortOrderType.DESC)
+                            )
+                        ),
+                        null
+                    )
+                )
+            )
+        );
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> Parser.parse("SELECT SUM(*) FROM test;"));
+    }
+
+    @Test
+    public void parseSelectLimitOffset() {
+        Assertions.assertDoesNotThrow(
+            () -> Assertions.assertIterableEquals(
+                Parser.parse("""
+                    SELECT * FROM test ORDER BY id LIMIT 10 OFFSET 20;
+                    SELECT * FROM test LIMIT ?;
+                    SELECT * FROM test OFFSET 5;
+                """),
+                List.of(
+                    new Query.Select(
+                        new Token.Identifier("test"),
+                        null,
+                        List.of(
+                            new Token.Identifier("*")
+                        ),
+                        null,
+                        null,
+                        List.of(
+                            new Query.OrderBy(
+                                new Token.Identifier("id"),
+                                new Token.SortOrder(Token.SortOrderType.ASC)
+                            )
+                        ),
+                        new Query.Limit(
+                            new Token.Literal.Integer(10),
+                            new Token.Literal.Integer(20)
+                        )
+                    ),
+                    new Query.Select(
+                        new Token.Identifier("test"),
+                        null,
+                        List.of(
+                            new Token.Identifier("*")
+                        ),
+                        null,
+                        null,
+                        null,
+                        new Query.Limit(
+                            new Token.Parameter(1),
+                            null
+                        )
+                    ),
+                    new Query.Select(
+                        new Token.Identifier("test"),
+                        null,
+                        List.of(
+                            new Token.Identifier("*")
+                        ),
+                        null,
+                        null,
+                        null,
+                        new Query.Limit(
+                            null,
+                            new Token.Literal.Integer(5)
                         )
                     )
                 )
@@ -254,6 +541,133 @@ public class ParserTests {
         );
     }
 
+    @Test
+    public void parseCreateIndex() {
+        Assertions.assertDoesNotThrow(
+            () -> Assertions.assertIterableEquals(
+                Parser.parse("""
+                    CREATE INDEX test_id ON test (id);
+                    CREATE INDEX test_name ON test USING HASH (last_name);
+                """),
+                List.of(
+                    new Query.CreateIndex(
+                        new Token.Identifier("test_id"),
+                        new Token.Identifier("test"),
+                        new Token.IndexType(Token.IndexTypeType.BTREE),
+                        new Token.Identifier("id")
+                    ),
+                    new Query.CreateIndex(
+                        new Token.Identifier("test_name"),
+                        new Token.Identifier("test"),
+                        new Token.IndexType(Token.IndexTypeType.HASH),
+                        new Token.Identifier("last_name")
+                    )
+                )
+            )
+        );
+    }
+
+    @Test
+    public void parseDropIndex() {
+        Assertions.assertDoesNotThrow(
+            () -> Assertions.assertIterableEquals(
+                Parser.parse("DROP INDEX test_id;"),
+                List.of(
+                    new Query.DropIndex(
+                        new Token.Identifier("test_id")
+                    )
+                )
+            )
+        );
+    }
+
+    @Test
+    public void parseExplain() {
+        Assertions.assertDoesNotThrow(
+            () -> Assertions.assertIterableEquals(
+                Parser.parse("EXPLAIN SELECT * FROM test WHERE id > 1;"),
+                List.of(
+                    new Query.Explain(
+                        new Query.Select(
+                            new Token.Identifier("test"),
+                            null,
+                            List.of(
+                                new Token.Identifier("*")
+                            ),
+                            new Expression.Comparison(
+                                new Token.Identifier("id"),
+                                new Token.Operator(Token.OperatorType.GREATER),
+                                new Token.Literal.Integer(1)
+                            ),
+                            null,
+                            null,
+                            null
+                        )
+                    )
+                )
+            )
+        );
+    }
+
+    @Test
+    public void parseParameters() {
+        Assertions.assertDoesNotThrow(
+            () -> Assertions.assertIterableEquals(
+                Parser.parse("INSERT INTO test VALUES (?, ?); SELECT * FROM test WHERE id = $1;"),
+                List.of(
+                    new Query.InsertInto(
+                        new Token.Identifier("test"),
+                        null,
+                        List.of(
+                            List.of(
+                                new Token.Parameter(1),
+                                new Token.Parameter(2)
+                            )
+                        )
+                    ),
+                    new Query.Select(
+                        new Token.Identifier("test"),
+                        null,
+                        List.of(
+                            new Token.Identifier("*")
+                        ),
+                        new Expression.Comparison(
+                            new Token.Identifier("id"),
+                            new Token.Operator(Token.OperatorType.ASSIGN),
+                            new Token.Parameter(1)
+                        ),
+                        null,
+                        null,
+                        null
+                    )
+                )
+            )
+        );
+    }
+
+    @Test
+    public void parseTransaction() {
+        Assertions.assertDoesNotThrow(
+            () -> Assertions.assertIterableEquals(
+                Parser.parse("BEGIN; DELETE FROM test WHERE id = 1; COMMIT; BEGIN; ROLLBACK;"),
+                List.of(
+                    new Query.Begin(),
+                    new Query.DeleteFrom(
+                        new Token.Identifier("test"),
+                        new Expression.Comparison(
+                            new Token.Identifier("id"),
+                            new Token.Operator(Token.OperatorType.ASSIGN),
+                            new Token.Literal.Integer(1)
+                        )
+                    ),
+                    new Query.Commit(),
+                    new Query.Begin(),
+                    new Query.Rollback()
+                )
+            )
+        );
+    }
+
     @Test
     public void parseMultipleQueries() {
         Assertions.assertDoesNotThrow(
@@ -282,14 +696,57 @@ public class ParserTests {
                     ),
                     new Query.Select(
                         new Token.Identifier("test"),
+                        null,
                         List.of(
                             new Token.Identifier("*")
                         ),
                         null,
+                        null,
+                        null,
                         null
                     )
                 )
             )
         );
     }
+
+    @Test
+    public void parseScriptReader() {
+        String script = """
+            -- semicolons; inside of comments and strings do not end a statement
+            UPDATE test
+            SET first_name = 'Mi;chael'
+            WHERE last_name = 'Romashov';
+
+            SELECT * FROM test;
+        """;
+
+        Assertions.assertDoesNotThrow(() -> {
+            List<Query> queries = new ArrayList<>();
+            new ScriptReader(new StringReader(script)).forEachRemaining(queries::add);
+
+            Assertions.assertIterableEquals(queries, Parser.parse(script));
+        });
+    }
+
+    @Test
+    public void parseSplitScript() {
+        String script = """
+            -- semicolons; inside of comments and strings do not end a statement
+            UPDATE test
+            SET first_name = 'Mi;chael'
+            WHERE last_name = 'Romashov';
+
+            SELECT * FROM test;
+        """;
+
+        List<String> statements = ScriptReader.split(script);
+
+        Assertions.assertEquals(2, statements.size());
+        Assertions.assertEquals("SELECT * FROM test;", statements.get(1).strip());
+        Assertions.assertIterableEquals(
+            statements.stream().flatMap((statement) -> Parser.parse(statement).stream()).toList(),
+            Parser.parse(script)
+        );
+    }
 }
@@ -0,0 +1,346 @@
+package tests;
+
+import engine.db.Database;
+import engine.db.ResultSet;
+import engine.sql.Parser;
+import engine.sql.Query;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import server.PgServer;
+
+import javax.swing.table.TableModel;
+import java.io.*;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+public class PgServerTests {
+    private static final int PROTOCOL_VERSION = 196608;
+
+    private static TableModel execute(Database database, String sql) {
+        TableModel result = null;
+        for (Query query : Parser.parse(sql)) {
+            result = database.executeQuery(query);
+        }
+        return result;
+    }
+
+    private static List<List<String>> cells(TableModel result) {
+        List<List<String>> rows = new ArrayList<>();
+        for (int row = 0; row < result.getRowCount(); row++) {
+            List<String> values = new ArrayList<>();
+            for (int column = 0; column < result.getColumnCount(); column++) {
+                values.add(String.valueOf(result.getValueAt(row, column)));
+            }
+            rows.add(values);
+        }
+        if (result instanceof ResultSet resultSet) {
+            resultSet.close();
+        }
+        return rows;
+    }
+
+    /**
+     * Message sent by the server, with the type byte and length taken off.
+     */
+    private record Message(char type, byte[] body) {
+        DataInputStream read() {
+            return new DataInputStream(new ByteArrayInputStream(body));
+        }
+
+        /**
+         * Returns the tag of a CommandComplete message.
+         */
+        String tag() {
+            return new String(body, 0, body.length - 1, StandardCharsets.UTF_8);
+        }
+
+        /**
+         * Returns the values of a DataRow message, sent as text.
+         */
+        List<String> values() throws IOException {
+            DataInputStream in = read();
+            List<String> values = new ArrayList<>();
+
+            for (int i = in.readShort(); i > 0; i--) {
+                int length = in.readInt();
+                values.add(length < 0 ? null : new String(in.readNBytes(length), StandardCharsets.UTF_8));
+            }
+
+            return values;
+        }
+    }
+
+    /**
+     * Just enough of a frontend to talk both query protocols with the server.
+     */
+    private static final class Client implements Closeable {
+        private final Socket socket;
+        private final DataInputStream in;
+        private final DataOutputStream out;
+
+        Client(InetSocketAddress address) throws IOException {
+            this.socket = new Socket(address.getAddress(), address.getPort());
+            this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+
+            ByteArrayOutputStream startup = new ByteArrayOutputStream();
+            DataOutputStream body = new DataOutputStream(startup);
+            body.writeInt(PROTOCOL_VERSION);
+            body.write(cString("user"));
+            body.write(cString("tests"));
+            body.write(0);
+
+            out.writeInt(startup.size() + 4);
+            out.write(startup.toByteArray());
+            out.flush();
+        }
+
+        void send(char type, byte[]... parts) throws IOException {
+            int length = 4;
+            for (byte[] part : parts) {
+                length += part.length;
+            }
+
+            out.writeByte(type);
+            out.writeInt(length);
+            for (byte[] part : parts) {
+                out.write(part);
+            }
+        }
+
+        /**
+         * Flushes what has been sent, and reads every message up to and including the next ReadyForQuery.
+         */
+        List<Message> untilReady() throws IOException {
+            out.flush();
+            List<Message> messages = new ArrayList<>();
+
+            while (true) {
+                char type = (char) in.readByte();
+                byte[] body = in.readNBytes(in.readInt() - 4);
+                messages.add(new Message(type, body));
+
+                if (type == 'Z') {
+                    return messages;
+                }
+            }
+        }
+
+        List<Message> query(String sql) throws IOException {
+            send('Q', cString(sql));
+            return untilReady();
+        }
+
+        @Override
+        public void close() throws IOException {
+            send('X');
+            out.flush();
+            socket.close();
+        }
+    }
+
+    private static byte[] cString(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        byte[] terminated = new byte[bytes.length + 1];
+        System.arraycopy(bytes, 0, terminated, 0, bytes.length);
+        return terminated;
+    }
+
+    private static byte[] shorts(int... values) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        for (int value : values) {
+            bytes.write(value >>> 8);
+            bytes.write(value);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] text(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        byte[] framed = new byte[bytes.length + 4];
+        framed[0] = (byte) (bytes.length >>> 24);
+        framed[1] = (byte) (bytes.length >>> 16);
+        framed[2] = (byte) (bytes.length >>> 8);
+        framed[3] = (byte) bytes.length;
+        System.arraycopy(bytes, 0, framed, 4, bytes.length);
+        return framed;
+    }
+
+    private static String types(List<Message> messages) {
+        StringBuilder types = new StringBuilder();
+        for (Message message : messages) {
+            types.append(message.type());
+        }
+        return types.toString();
+    }
+
+    private static List<String> tags(List<Message> messages) {
+        return messages.stream().filter((message) -> message.type() == 'C').map(Message::tag).toList();
+    }
+
+    private static List<List<String>> rows(List<Message> messages) throws IOException {
+        List<List<String>> rows = new ArrayList<>();
+        for (Message message : messages) {
+            if (message.type() == 'D') {
+                rows.add(message.values());
+            }
+        }
+        return rows;
+    }
+
+    private static PgServer start(Database database) throws IOException {
+        return new PgServer(database, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 4);
+    }
+
+    @Test
+    public void simpleProtocol() throws IOException {
+        try (PgServer server = start(new Database()); Client client = new Client(server.getAddress())) {
+            List<Message> startup = client.untilReady();
+            Assertions.assertEquals('R', startup.getFirst().type());
+            Assertions.assertTrue(types(startup).endsWith("KZ"));
+
+            List<Message> script = client.query("""
+                CREATE TABLE people (id int, name varchar(20),);
+                INSERT INTO people VALUES (1, 'Ann'), (2, 'Bob'), (3, 'Cat');
+                UPDATE people SET name = 'Dan' WHERE id >= 2;
+                DELETE FROM people WHERE id == 3;
+                SELECT id, name FROM people ORDER BY id;
+            """);
+
+            Assertions.assertEquals(List.of("CREATE TABLE", "INSERT 0 3", "UPDATE 2", "DELETE 1", "SELECT 2"), tags(script));
+            Assertions.assertEquals(List.of(List.of("1", "Ann"), List.of("2", "Dan")), rows(script));
+            Assertions.assertEquals('I', (char) script.getLast().body()[0]);
+
+            // A failed statement stops the script, and the connection stays usable.
+            List<Message> failed = client.query("SELECT * FROM missing; SELECT id FROM people;");
+            Assertions.assertEquals("EZ", types(failed));
+
+            // Changes in a transaction only run on commit, so they cannot count their rows before then.
+            List<Message> transaction = client.query("BEGIN; INSERT INTO people SELECT id, name FROM people;");
+            Assertions.assertEquals(List.of("BEGIN", "INSERT 0 0"), tags(transaction));
+            Assertions.assertEquals('T', (char) transaction.getLast().body()[0]);
+
+            List<Message> committed = client.query("COMMIT; INSERT INTO people SELECT id, name FROM people WHERE id == 1;");
+            Assertions.assertEquals(List.of("COMMIT", "INSERT 0 2"), tags(committed));
+            Assertions.assertEquals('I', (char) committed.getLast().body()[0]);
+        }
+    }
+
+    @Test
+    public void extendedProtocol() throws IOException {
+        Database database = new Database();
+        execute(database, "CREATE TABLE people (id int, name varchar(20),); INSERT INTO people VALUES (1, 'Ann'), (2, 'Bob'), (3, 'Cat');");
+
+        try (PgServer server = start(database); Client client = new Client(server.getAddress())) {
+            client.untilReady();
+
+            // Parse, bind and run a query with a parameter in one batch, like a driver does.
+            client.send('P', cString("names"), cString("SELECT name FROM people WHERE id >= $1 ORDER BY id"), shorts(0));
+            client.send('B', cString(""), cString("names"), shorts(0), shorts(1), text("2"), shorts(0));
+            client.send('D', new byte[] { 'P' }, cString(""));
+            client.send('E', cString(""), new byte[4]);
+            client.send('S');
+
+            List<Message> select = client.untilReady();
+            Assertions.assertEquals("12TDDCZ", types(select));
+            Assertions.assertEquals(List.of(List.of("Bob"), List.of("Cat")), rows(select));
+            Assertions.assertEquals(List.of("SELECT 2"), tags(select));
+
+            // A portal can be run a few rows at a time; it is suspended until its last row has been sent.
+            client.send('B', cString("paged"), cString("names"), shorts(0), shorts(1), text("1"), shorts(0));
+            client.send('E', cString("paged"), new byte[] { 0, 0, 0, 2 });
+            client.send('E', cString("paged"), new byte[] { 0, 0, 0, 2 });
+            client.send('S');
+
+            List<Message> paged = client.untilReady();
+            Assertions.assertEquals("2DDsDCZ", types(paged));
+            Assertions.assertEquals(List.of(List.of("Ann"), List.of("Bob"), List.of("Cat")), rows(paged));
+
+            client.send('P', cString(""), cString("UPDATE people SET name = $1 WHERE id <= $2"), shorts(0));
+            client.send('B', cString(""), cString(""), shorts(0), shorts(2), text("Eve"), text("2"), shorts(0));
+            client.send('E', cString(""), new byte[4]);
+            client.send('S');
+
+            List<Message> update = client.untilReady();
+            Assertions.assertEquals("12CZ", types(update));
+            Assertions.assertEquals(List.of("UPDATE 2"), tags(update));
+
+            // After an error, the rest of the batch is skipped until the next Sync.
+            client.send('P', cString(""), cString("SELECT * FROM missing"), shorts(0));
+            client.send('B', cString(""), cString(""), shorts(0), shorts(0), shorts(0));
+            client.send('E', cString(""), new byte[4]);
+            client.send('S');
+            Assertions.assertEquals("EZ", types(client.untilReady()));
+        }
+
+        Assertions.assertEquals(List.of(List.of("Eve"), List.of("Eve"), List.of("Cat")), cells(execute(database, "SELECT name FROM people ORDER BY id;")));
+    }
+
+    /**
+     * Connects without ever starting a session, and fails instead of waiting forever for the server to hang up.
+     */
+    private static Socket idle(InetSocketAddress address) throws IOException {
+        Socket socket = new Socket(address.getAddress(), address.getPort());
+        socket.setSoTimeout(5_000);
+        return socket;
+    }
+
+    @Test
+    public void connectionLimits() throws Exception {
+        try (PgServer server = new PgServer(new Database(), new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 2)) {
+            InetSocketAddress address = server.getAddress();
+
+            // Connections that have not started their session count against a limit of their own, past which the
+            // server hangs up right away.
+            try (Socket first = idle(address); Socket second = idle(address); Socket third = idle(address)) {
+                Assertions.assertEquals(-1, third.getInputStream().read());
+            }
+
+            // Once they are gone, clients get in up to the limit on sessions, and the one after that is told why not.
+            long deadline = System.currentTimeMillis() + 5_000;
+            Client first = null;
+
+            while (first == null) {
+                Client client = new Client(address);
+
+                try {
+                    client.untilReady();
+                    first = client;
+                } catch (EOFException | SocketException err) {
+                    // The server has not noticed yet that the idle connections are gone.
+                    client.socket.close();
+                    Assertions.assertTrue(System.currentTimeMillis() < deadline);
+                    Thread.sleep(20);
+                }
+            }
+
+            try (Client a = first; Client b = new Client(address)) {
+                Assertions.assertEquals('Z', b.untilReady().getLast().type());
+
+                Client c = new Client(address);
+                Assertions.assertEquals('E', (char) c.in.readByte());
+                c.socket.close();
+            }
+        }
+    }
+
+    @Test
+    public void startupTimeout() throws IOException {
+        try (PgServer server = new PgServer(new Database(), new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1, 200)) {
+            // A client that never starts its session is let go of, which makes room for another one.
+            try (Socket socket = idle(server.getAddress())) {
+                Assertions.assertEquals(-1, socket.getInputStream().read());
+            }
+
+            try (Client client = new Client(server.getAddress())) {
+                client.untilReady();
+                Assertions.assertEquals(List.of("CREATE TABLE"), tags(client.query("CREATE TABLE people (id int,);")));
+            }
+        }
+    }
+}
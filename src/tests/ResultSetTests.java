@@ -0,0 +1,110 @@
+package tests;
+
+import engine.db.Database;
+import engine.db.ResultSet;
+import engine.sql.Parser;
+import engine.sql.Query;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import javax.swing.table.TableModel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringJoiner;
+
+public class ResultSetTests {
+    private static final int ROWS = 2000;
+
+    private static TableModel execute(Database database, String sql) {
+        TableModel result = null;
+        for (Query query : Parser.parse(sql)) {
+            result = database.executeQuery(query);
+        }
+        return result;
+    }
+
+    private static List<String> row(TableModel result, int row) {
+        List<String> values = new ArrayList<>();
+        for (int column = 0; column < result.getColumnCount(); column++) {
+            values.add(String.valueOf(result.getValueAt(row, column)));
+        }
+        return values;
+    }
+
+    /**
+     * Creates a table whose scores are a permutation of its ids, so that sorting by score puts the rows in another
+     * order than they were inserted in.
+     */
+    private static Database scores() {
+        Database database = new Database();
+        StringJoiner values = new StringJoiner(", ", "INSERT INTO scores VALUES ", ";");
+
+        for (int id = 0; id < ROWS; id++) {
+            values.add(String.format("(%d, %d)", id, id * 7919 % ROWS));
+        }
+
+        execute(database, "CREATE TABLE scores (id int, score int,);");
+        execute(database, values.toString());
+        return database;
+    }
+
+    /**
+     * Returns the id of the row with the given score.
+     */
+    private static int idOf(int score) {
+        for (int id = 0; ; id++) {
+            if (id * 7919 % ROWS == score) {
+                return id;
+            }
+        }
+    }
+
+    @Test
+    public void pagesInAnyOrder() {
+        Database database = scores();
+
+        try (ResultSet result = (ResultSet) execute(database, "SELECT id, score FROM scores ORDER BY score;")) {
+            Assertions.assertFalse(result.isComplete());
+            Assertions.assertEquals(ROWS, result.getRowCount());
+
+            // Backwards, so that every page is read after the ones following it.
+            for (int row = ROWS - 1; row >= 0; row--) {
+                Assertions.assertEquals(List.of(String.valueOf(idOf(row)), String.valueOf(row)), row(result, row));
+            }
+            Assertions.assertEquals(List.of(String.valueOf(idOf(0)), "0"), row(result, 0));
+        }
+    }
+
+    @Test
+    public void pagesAfterVacuum() {
+        Database database = scores();
+
+        // Deleted before the result is read, so vacuum may reclaim the rows and renumber the ones the result selects.
+        execute(database, "DELETE FROM scores WHERE id < 1000;");
+
+        try (ResultSet result = (ResultSet) execute(database, "SELECT id, score FROM scores ORDER BY id;")) {
+            Assertions.assertEquals(ROWS - 1000, result.getRowCount());
+            Assertions.assertEquals(List.of("1000", String.valueOf(1000 * 7919 % ROWS)), row(result, 0));
+
+            Assertions.assertEquals(1000, database.vacuum());
+
+            for (int row = result.getRowCount() - 1; row >= 0; row--) {
+                int id = 1000 + row;
+                Assertions.assertEquals(List.of(String.valueOf(id), String.valueOf(id * 7919 % ROWS)), row(result, row));
+            }
+        }
+    }
+
+    @Test
+    public void closedResult() {
+        Database database = scores();
+        ResultSet result = (ResultSet) execute(database, "SELECT id FROM scores;");
+
+        Assertions.assertEquals("0", String.valueOf(result.getValueAt(0, 0)));
+        result.close();
+
+        // Pages that were already read stay readable, the others cannot be read any more.
+        Assertions.assertEquals("0", String.valueOf(result.getValueAt(0, 0)));
+        Assertions.assertThrows(IllegalStateException.class, () -> result.getValueAt(ROWS - 1, 0));
+    }
+}
@@ -0,0 +1,110 @@
+package tests;
+
+import engine.db.Database;
+import engine.db.ResultSet;
+import engine.io.Serde;
+import engine.sql.Parser;
+import engine.sql.Query;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import javax.swing.table.TableModel;
+import java.io.BufferedWriter;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringJoiner;
+
+public class SerdeTests {
+    private static TableModel execute(Database database, String sql) {
+        TableModel result = null;
+        for (Query query : Parser.parse(sql)) {
+            result = database.executeQuery(query);
+        }
+        return result;
+    }
+
+    private static List<List<String>> cells(TableModel result) {
+        List<List<String>> rows = new ArrayList<>();
+        for (int row = 0; row < result.getRowCount(); row++) {
+            List<String> values = new ArrayList<>();
+            for (int column = 0; column < result.getColumnCount(); column++) {
+                values.add(String.valueOf(result.getValueAt(row, column)));
+            }
+            rows.add(values);
+        }
+        if (result instanceof ResultSet resultSet) {
+            resultSet.close();
+        }
+        return rows;
+    }
+
+    private static String dump(Database database) throws Exception {
+        StringWriter out = new StringWriter();
+        try (BufferedWriter writer = new BufferedWriter(out)) {
+            Serde.serialize(writer, database);
+        }
+        return out.toString();
+    }
+
+    @Test
+    public void dumpRoundTrip() throws Exception {
+        Database database = new Database();
+        execute(database, """
+            CREATE TABLE users (id int, name varchar(20), active boolean,);
+            INSERT INTO users VALUES (1, 'ann', true), (2, 'bob', false);
+            INSERT INTO users (id, name) VALUES (3, 'cy');
+            INSERT INTO users (id) VALUES (4);
+            INSERT INTO users (name, active) VALUES ('dee', true);
+            INSERT INTO users VALUES (6, 'eve', true);
+            INSERT INTO users () VALUES ();
+            CREATE INDEX names ON users USING BTREE (name);
+        """);
+
+        // More rows than fit into one INSERT of the dump.
+        StringJoiner values = new StringJoiner(", ", "INSERT INTO users VALUES ", ";");
+        for (int id = 100; id < 2600; id++) {
+            values.add(String.format("(%d, 'user', false)", id));
+        }
+        execute(database, values.toString());
+
+        String sql = "SELECT id, name, active FROM users;";
+        Database loaded = Serde.deserialize(dump(database));
+
+        List<List<String>> rows = cells(execute(loaded, sql));
+
+        Assertions.assertEquals(cells(execute(database, sql)), rows);
+        Assertions.assertEquals(List.of("NULL", "NULL", "NULL"), rows.get(6));
+
+        // Indexes are built once the rows are loaded, and find the rows loaded before them.
+        String seek = "SELECT id FROM users WHERE name == 'dee';";
+        Assertions.assertTrue(cells(execute(loaded, "EXPLAIN " + seek)).toString().contains("IndexSeek on users using names"));
+        Assertions.assertEquals(List.of(List.of("NULL")), cells(execute(loaded, seek)));
+
+        // Dumping the loaded database gives the same script again.
+        Assertions.assertEquals(dump(database), dump(loaded));
+    }
+
+    @Test
+    public void multiRowInsert() {
+        Database database = new Database();
+        execute(database, """
+            CREATE TABLE users (id int, name varchar(5),);
+            CREATE TABLE archive (id int, name varchar(5),);
+            INSERT INTO users VALUES (1, 'ann'), (2, 'bob'), (3, 'cy');
+        """);
+
+        // One row that does not fit keeps every row of the statement out.
+        Assertions.assertThrows(IllegalArgumentException.class, () -> execute(database, "INSERT INTO users VALUES (4, 'dee'), (5, 'eleanor');"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> execute(database, "INSERT INTO users (id, name) VALUES (4, 'dee'), (5);"));
+        Assertions.assertEquals(List.of(List.of("3")), cells(execute(database, "SELECT COUNT(*) FROM users;")));
+
+        execute(database, "INSERT INTO archive (name, id) SELECT name, id FROM users WHERE id > 1;");
+        execute(database, "INSERT INTO archive SELECT id, name FROM archive;");
+
+        Assertions.assertEquals(
+            List.of(List.of("2", "bob"), List.of("3", "cy"), List.of("2", "bob"), List.of("3", "cy")),
+            cells(execute(database, "SELECT id, name FROM archive;"))
+        );
+    }
+}
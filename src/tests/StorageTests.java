@@ -0,0 +1,205 @@
+package tests;
+
+import engine.db.Database;
+import engine.db.Session;
+import engine.io.Snapshot;
+import engine.io.Storage;
+import engine.io.WriteAheadLog;
+import engine.sql.Parser;
+import engine.sql.Query;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.swing.table.TableModel;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+public class StorageTests {
+    private static TableModel execute(Database database, String sql) {
+        TableModel result = null;
+        for (Query query : Parser.parse(sql)) {
+            result = database.executeQuery(query);
+        }
+        return result;
+    }
+
+    private static TableModel execute(Session session, String sql) {
+        TableModel result = null;
+        for (Query query : Parser.parse(sql)) {
+            result = session.executeQuery(query);
+        }
+        return result;
+    }
+
+    private static List<List<String>> cells(TableModel result) {
+        List<List<String>> rows = new ArrayList<>();
+        for (int row = 0; row < result.getRowCount(); row++) {
+            List<String> values = new ArrayList<>();
+            for (int column = 0; column < result.getColumnCount(); column++) {
+                values.add(String.valueOf(result.getValueAt(row, column)));
+            }
+            rows.add(values);
+        }
+        return rows;
+    }
+
+    @Test
+    public void snapshotRoundTrip(@TempDir Path directory) throws IOException {
+        Database database = new Database();
+        execute(database, """
+            CREATE TABLE people (id int, name varchar(20), active bool,);
+            INSERT INTO people VALUES (1, 'Ann', true), (2, 'Bob', false), (3, 'Cat', true);
+            INSERT INTO people (id) VALUES (4);
+            CREATE INDEX people_id ON people USING BTREE (id);
+            DELETE FROM people WHERE id == 2;
+            UPDATE people SET name = 'Dan' WHERE id == 3;
+        """);
+
+        Path path = directory.resolve("database.snap");
+        Snapshot.write(path, database);
+        Database copy = Snapshot.read(path);
+
+        // Only the latest version of each row is written, and indexes are rebuilt on load.
+        Assertions.assertEquals(
+            List.of(List.of("1", "Ann", "true"), List.of("3", "Dan", "true"), List.of("4", "NULL", "NULL")),
+            cells(execute(copy, "SELECT * FROM people ORDER BY id;"))
+        );
+        Assertions.assertTrue(cells(execute(copy, "EXPLAIN SELECT * FROM people WHERE id == 3;")).toString().contains("IndexSeek on people using people_id"));
+
+        // The copy is a database of its own.
+        execute(copy, "INSERT INTO people VALUES (5, 'Eve', false);");
+        Assertions.assertEquals(List.of(List.of("4")), cells(execute(copy, "SELECT COUNT(*) FROM people;")));
+        Assertions.assertEquals(List.of(List.of("3")), cells(execute(database, "SELECT COUNT(*) FROM people;")));
+    }
+
+    @Test
+    public void replayWriteAheadLog(@TempDir Path directory) throws IOException {
+        try (Storage storage = Storage.open(directory, WriteAheadLog.SyncMode.EVERY_COMMIT, 0)) {
+            execute(storage.getDatabase(), """
+                CREATE TABLE people (id int, name varchar(20), active bool,);
+                INSERT INTO people VALUES (1, 'Ann', true), (2, 'Bob', false), (3, 'Cat', true);
+                INSERT INTO people (id) VALUES (4);
+                CREATE INDEX people_id ON people USING BTREE (id);
+                DELETE FROM people WHERE id == 2;
+                UPDATE people SET name = 'Dan' WHERE id == 3;
+            """);
+        }
+
+        try (Storage storage = Storage.open(directory, WriteAheadLog.SyncMode.EVERY_COMMIT, 0)) {
+            Assertions.assertEquals(
+                List.of(List.of("1", "Ann", "true"), List.of("3", "Dan", "true"), List.of("4", "NULL", "NULL")),
+                cells(execute(storage.getDatabase(), "SELECT * FROM people ORDER BY id;"))
+            );
+            Assertions.assertTrue(cells(execute(storage.getDatabase(), "EXPLAIN SELECT * FROM people WHERE id == 3;")).toString().contains("IndexSeek"));
+
+            // A checkpoint moves everything into the snapshot, and the log only replays what came after it.
+            storage.checkpoint();
+            execute(storage.getDatabase(), "DELETE FROM people WHERE id == 1;");
+        }
+
+        try (Storage storage = Storage.open(directory, WriteAheadLog.SyncMode.EVERY_COMMIT, 0)) {
+            Assertions.assertEquals(List.of(List.of("3"), List.of("4")), cells(execute(storage.getDatabase(), "SELECT id FROM people ORDER BY id;")));
+        }
+    }
+
+    @Test
+    public void truncateTornLogTail(@TempDir Path directory) throws IOException {
+        try (Storage storage = Storage.open(directory, WriteAheadLog.SyncMode.EVERY_COMMIT, 0)) {
+            execute(storage.getDatabase(), """
+                CREATE TABLE people (id int, name varchar(20),);
+                INSERT INTO people VALUES (1, 'Ann'), (2, 'Bob');
+            """);
+        }
+
+        Path log = directory.resolve("database.wal");
+        long size = Files.size(log);
+
+        // The start of a record that was cut off by a crash: its length, and only part of what follows.
+        Files.write(log, new byte[] { 0, 0, 0, 64, 0, 0, 0, 0, 0, 0, 0, 42, 7, 7 }, StandardOpenOption.APPEND);
+
+        try (Storage storage = Storage.open(directory, WriteAheadLog.SyncMode.EVERY_COMMIT, 0)) {
+            Assertions.assertEquals(List.of(List.of("1", "Ann"), List.of("2", "Bob")), cells(execute(storage.getDatabase(), "SELECT * FROM people ORDER BY id;")));
+            Assertions.assertEquals(size, Files.size(log));
+
+            // Records appended after the torn one was cut off are replayed like any other.
+            execute(storage.getDatabase(), "INSERT INTO people VALUES (3, 'Cat');");
+        }
+
+        try (Storage storage = Storage.open(directory, WriteAheadLog.SyncMode.EVERY_COMMIT, 0)) {
+            Assertions.assertEquals(List.of(List.of("1"), List.of("2"), List.of("3")), cells(execute(storage.getDatabase(), "SELECT id FROM people ORDER BY id;")));
+        }
+    }
+
+    @Test
+    public void checkpointOnLogSize(@TempDir Path directory) throws IOException {
+        Path log = directory.resolve("database.wal");
+
+        try (Storage storage = Storage.open(directory, WriteAheadLog.SyncMode.OS, 0)) {
+            storage.setCheckpointSize(4096);
+            execute(storage.getDatabase(), "CREATE TABLE events (id int, name varchar(20),);");
+
+            for (int id = 0; id < 1000; id++) {
+                execute(storage.getDatabase(), String.format("INSERT INTO events VALUES (%d, 'event');", id));
+                // The writer that pushes the log past the checkpoint size empties it again.
+                Assertions.assertTrue(Files.size(log) < 4096, "log was not checkpointed");
+            }
+        }
+
+        // So a restart loads the snapshot, and only replays the few records written since the last checkpoint.
+        Assertions.assertTrue(Files.exists(directory.resolve("database.snap")));
+        try (Storage storage = Storage.open(directory, WriteAheadLog.SyncMode.OS, 0)) {
+            Assertions.assertEquals(List.of(List.of("1000", "999")), cells(execute(storage.getDatabase(), "SELECT COUNT(*), MAX(id) FROM events;")));
+
+            storage.checkpoint();
+            Assertions.assertTrue(Files.size(log) < 16);
+        }
+    }
+
+    @Test
+    public void replayTransactions(@TempDir Path directory) throws IOException {
+        List<List<String>> committed;
+
+        try (Storage storage = Storage.open(directory, WriteAheadLog.SyncMode.EVERY_COMMIT, 0)) {
+            Database database = storage.getDatabase();
+            execute(database, """
+                CREATE TABLE items (id int, name varchar(20),);
+                INSERT INTO items VALUES (1, 'pen'), (2, 'ink'), (2, 'ink');
+                INSERT INTO items (id) VALUES (3);
+            """);
+
+            Session first = new Session(database);
+            Session second = new Session(database);
+            execute(first, "BEGIN; SELECT * FROM items;");
+
+            // Rows committed after the transaction began are not part of its snapshot, so its changes leave them alone,
+            // even though replaying its queries against the latest state would not.
+            execute(database, "INSERT INTO items VALUES (5, 'cap'), (2, 'ink');");
+            execute(first, """
+                DELETE FROM items WHERE id == 5;
+                UPDATE items SET name = 'nib' WHERE id == 2;
+                DELETE FROM items WHERE id == 3;
+                INSERT INTO items VALUES (6, 'mug');
+                COMMIT;
+            """);
+
+            // Neither are transactions that only commit later.
+            execute(second, "BEGIN; UPDATE items SET name = 'tip' WHERE id >= 6; INSERT INTO items VALUES (7, 'box'); COMMIT;");
+            execute(second, "BEGIN; INSERT INTO items VALUES (8, 'bag'); ROLLBACK;");
+
+            committed = cells(execute(database, "SELECT id, name FROM items ORDER BY id ASC, name ASC;"));
+            Assertions.assertEquals(
+                List.of(List.of("1", "pen"), List.of("2", "ink"), List.of("2", "nib"), List.of("2", "nib"), List.of("5", "cap"), List.of("6", "tip"), List.of("7", "box")),
+                committed
+            );
+        }
+
+        try (Storage storage = Storage.open(directory, WriteAheadLog.SyncMode.EVERY_COMMIT, 0)) {
+            Assertions.assertEquals(committed, cells(execute(storage.getDatabase(), "SELECT id, name FROM items ORDER BY id ASC, name ASC;")));
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package tests;
+
+import engine.db.Column;
+import engine.db.Database;
+import engine.db.Session;
+import engine.db.Table;
+import engine.sql.Parser;
+import engine.sql.Query;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import javax.swing.table.TableModel;
+import java.util.ArrayList;
+import java.util.List;
+
+public class TableTests {
+    private static TableModel execute(Database database, String sql) {
+        TableModel result = null;
+        for (Query query : Parser.parse(sql)) {
+            result = database.executeQuery(query);
+        }
+        return result;
+    }
+
+    private static TableModel execute(Session session, String sql) {
+        TableModel result = null;
+        for (Query query : Parser.parse(sql)) {
+            result = session.executeQuery(query);
+        }
+        return result;
+    }
+
+    private static List<List<String>> cells(TableModel result) {
+        List<List<String>> rows = new ArrayList<>();
+        for (int row = 0; row < result.getRowCount(); row++) {
+            List<String> values = new ArrayList<>();
+            for (int column = 0; column < result.getColumnCount(); column++) {
+                values.add(String.valueOf(result.getValueAt(row, column)));
+            }
+            rows.add(values);
+        }
+        return rows;
+    }
+
+    private static Table table(Database database, String name) {
+        return database.getTables().stream().filter((table) -> table.getName().equals(name)).findFirst().orElseThrow();
+    }
+
+    @Test
+    public void columnStorage() {
+        Database database = new Database();
+        execute(database, """
+            CREATE TABLE people (id int, name varchar(20), active bool,);
+            INSERT INTO people VALUES (1, 'Ann', true), (2, 'Bob', false);
+            INSERT INTO people (id) VALUES (3);
+            INSERT INTO people (name, id) VALUES ('Cat', 4);
+        """);
+        Table people = table(database, "people");
+
+        Assertions.assertInstanceOf(Column.IntegerColumn.class, people.getColumn(0));
+        Assertions.assertInstanceOf(Column.VarCharColumn.class, people.getColumn(1));
+        Assertions.assertInstanceOf(Column.BooleanColumn.class, people.getColumn(2));
+
+        // Columns left out of an insert are null, and compare to nothing.
+        Assertions.assertTrue(people.getColumn(1).isNull(2));
+        Assertions.assertTrue(people.getColumn(2).isNull(3));
+        Assertions.assertFalse(people.getColumn(0).isNull(3));
+        Assertions.assertEquals(
+            List.of(List.of("1", "Ann", "true"), List.of("2", "Bob", "false"), List.of("3", "NULL", "NULL"), List.of("4", "Cat", "NULL")),
+            cells(execute(database, "SELECT * FROM people ORDER BY id;"))
+        );
+        Assertions.assertEquals(List.of(List.of("2")), cells(execute(database, "SELECT id FROM people WHERE active == false;")));
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> execute(database, "INSERT INTO people VALUES (5, 7, true);"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> execute(database, "INSERT INTO people VALUES (5, 'Much too long for the column', true);"));
+        Assertions.assertEquals(4, people.getLiveRowCount());
+    }
+
+    @Test
+    public void varCharEncoding() {
+        Database database = new Database();
+        execute(database, "CREATE TABLE labels (id int, label varchar(20),);");
+
+        List<String> values = new ArrayList<>();
+        for (int id = 0; id < 2000; id++) {
+            values.add(String.format("(%d, 'label %d')", id, id));
+        }
+        execute(database, String.format("INSERT INTO labels VALUES %s;", String.join(", ", values)));
+
+        // Nearly every string is distinct, so vacuum moves them out of the dictionary and stores them inline.
+        Table labels = table(database, "labels");
+        Assertions.assertTrue(labels.needsCompaction());
+
+        database.vacuum();
+        Column.VarCharColumn column = (Column.VarCharColumn) labels.getColumn(1);
+        Assertions.assertFalse(column.isDictionaryEncoded());
+        Assertions.assertEquals(List.of(List.of("1234")), cells(execute(database, "SELECT id FROM labels WHERE label == 'label 1234';")));
+        Assertions.assertEquals(List.of(List.of("label 999")), cells(execute(database, "SELECT label FROM labels WHERE id == 999;")));
+
+        // Once only a few distinct strings are left, they go back into a dictionary.
+        execute(database, "UPDATE labels SET label = 'even' WHERE id >= 0; UPDATE labels SET label = 'odd' WHERE id < 1000;");
+        database.vacuum();
+        column = (Column.VarCharColumn) labels.getColumn(1);
+        Assertions.assertTrue(column.isDictionaryEncoded());
+        Assertions.assertEquals(2, column.getDictionarySize());
+        Assertions.assertEquals(
+            List.of(List.of("odd", "1000"), List.of("even", "1000")),
+            cells(execute(database, "SELECT label, COUNT(*) FROM labels GROUP BY label ORDER BY label DESC;"))
+        );
+    }
+
+    @Test
+    public void snapshotIsolation() {
+        Database database = new Database();
+        execute(database, """
+            CREATE TABLE accounts (id int, balance int,);
+            INSERT INTO accounts VALUES (1, 100), (2, 200), (3, 300);
+        """);
+
+        Session reader = new Session(database);
+        execute(reader, "BEGIN;");
+        execute(database, """
+            UPDATE accounts SET balance = 0 WHERE id == 1;
+            DELETE FROM accounts WHERE id == 2;
+            INSERT INTO accounts VALUES (4, 400);
+        """);
+
+        // The reader keeps seeing the rows as they were when it began, while everyone else sees the changes.
+        Assertions.assertEquals(
+            List.of(List.of("1", "100"), List.of("2", "200"), List.of("3", "300")),
+            cells(execute(reader, "SELECT id, balance FROM accounts ORDER BY id;"))
+        );
+        Assertions.assertEquals(
+            List.of(List.of("1", "0"), List.of("3", "300"), List.of("4", "400")),
+            cells(execute(database, "SELECT id, balance FROM accounts ORDER BY id;"))
+        );
+
+        execute(reader, "COMMIT;");
+        Assertions.assertEquals(
+            List.of(List.of("1", "0"), List.of("3", "300"), List.of("4", "400")),
+            cells(execute(reader, "SELECT id, balance FROM accounts ORDER BY id;"))
+        );
+    }
+
+    @Test
+    public void vacuumCompaction() {
+        Database database = new Database();
+        execute(database, """
+            CREATE TABLE accounts (id int, balance int,);
+            INSERT INTO accounts VALUES (1, 100), (2, 200), (3, 300), (4, 400), (5, 500);
+        """);
+        Table accounts = table(database, "accounts");
+
+        // Dead versions are kept for as long as a snapshot that can see them is open, even once enough have piled up
+        // for vacuum to bother with the table.
+        Session reader = new Session(database);
+        execute(reader, "BEGIN;");
+
+        for (int i = 0; i < 300; i++) {
+            execute(database, String.format("UPDATE accounts SET balance = %d WHERE id != 3;", i));
+        }
+        execute(database, "DELETE FROM accounts WHERE id == 3;");
+
+        Assertions.assertEquals(1205, accounts.getRowCount());
+        Assertions.assertEquals(1201, accounts.getDeadRowCount());
+        Assertions.assertEquals(0, database.vacuum());
+        Assertions.assertEquals(List.of(List.of("300")), cells(execute(reader, "SELECT balance FROM accounts WHERE id == 3;")));
+
+        execute(reader, "COMMIT;");
+        Assertions.assertEquals(1201, database.vacuum());
+        Assertions.assertEquals(4, accounts.getRowCount());
+        Assertions.assertEquals(0, accounts.getDeadRowCount());
+        Assertions.assertEquals(
+            List.of(List.of("1", "299"), List.of("2", "299"), List.of("4", "299"), List.of("5", "299")),
+            cells(execute(database, "SELECT id, balance FROM accounts ORDER BY id;"))
+        );
+    }
+}
@@ -112,4 +112,88 @@ public class TokenizerTests {
             () -> Tokenizer.tokenize("SELECT 'test;")
         );
     }
+
+    @Test
+    public void tokenizeKeywordPrefixedIdentifier() {
+        Assertions.assertDoesNotThrow(
+            () -> Assertions.assertIterableEquals(
+                Tokenizer.tokenize("SELECT order_id FROM orders;"),
+                List.of(
+                    new Token.Statement(Token.StatementType.SELECT),
+                    new Token.Identifier("order_id"),
+                    new Token.Statement(Token.StatementType.FROM),
+                    new Token.Identifier("orders"),
+                    new Token.Punctuation(Token.PunctuationType.SEMICOLON)
+                )
+            )
+        );
+    }
+
+    @Test
+    public void tokenizeParameters() {
+        Assertions.assertDoesNotThrow(
+            () -> Assertions.assertIterableEquals(
+                Tokenizer.tokenize("WHERE id = ? OR id = ?; WHERE name = ? OR id = ?"),
+                List.of(
+                    new Token.Statement(Token.StatementType.WHERE),
+                    new Token.Identifier("id"),
+                    new Token.Operator(Token.OperatorType.ASSIGN),
+                    new Token.Parameter(1),
+                    new Token.BinaryOperator(Token.BinaryOperatorType.OR),
+                    new Token.Identifier("id"),
+                    new Token.Operator(Token.OperatorType.ASSIGN),
+                    new Token.Parameter(2),
+                    new Token.Punctuation(Token.PunctuationType.SEMICOLON),
+                    new Token.Statement(Token.StatementType.WHERE),
+                    new Token.Identifier("name"),
+                    new Token.Operator(Token.OperatorType.ASSIGN),
+                    new Token.Parameter(1),
+                    new Token.BinaryOperator(Token.BinaryOperatorType.OR),
+                    new Token.Identifier("id"),
+                    new Token.Operator(Token.OperatorType.ASSIGN),
+                    new Token.Parameter(2)
+                )
+            )
+        );
+
+        Assertions.assertDoesNotThrow(() -> Tokenizer.tokenize("WHERE name = $2 OR id = $1;"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> Tokenizer.tokenize("WHERE id = $0"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> Tokenizer.tokenize("WHERE id = $"));
+    }
+
+    @Test
+    public void mixedParameterStyles() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> Tokenizer.tokenize("WHERE id = ? AND name = $2"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> Tokenizer.tokenize("WHERE id = $1 AND name = ?"));
+        Assertions.assertDoesNotThrow(() -> Tokenizer.tokenize("WHERE id = $1; WHERE name = ?;"));
+    }
+
+    @Test
+    public void tokenizeQualifiedIdentifiers() {
+        Assertions.assertDoesNotThrow(
+            () -> Assertions.assertIterableEquals(
+                Tokenizer.tokenize("FROM users JOIN orders ON users.id = orders.user_id"),
+                List.of(
+                    new Token.Statement(Token.StatementType.FROM),
+                    new Token.Identifier("users"),
+                    new Token.Statement(Token.StatementType.JOIN),
+                    new Token.Identifier("orders"),
+                    new Token.Statement(Token.StatementType.ON),
+                    new Token.Identifier("users.id"),
+                    new Token.Operator(Token.OperatorType.ASSIGN),
+                    new Token.Identifier("orders.user_id")
+                )
+            )
+        );
+    }
+
+    @Test
+    public void invalidTokenPosition() {
+        IllegalArgumentException err = Assertions.assertThrows(
+            IllegalArgumentException.class,
+            () -> Tokenizer.tokenize("SELECT *\nFROM test WHERE id # 1;")
+        );
+
+        Assertions.assertTrue(err.getMessage().contains("line 2, column 20"));
+    }
 }
@@ -0,0 +1,140 @@
+package tests;
+
+import engine.db.Database;
+import engine.db.Session;
+import engine.sql.Parser;
+import engine.sql.Query;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import javax.swing.table.TableModel;
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.List;
+
+public class TransactionTests {
+    private static TableModel execute(Session session, String sql) {
+        TableModel result = null;
+        for (Query query : Parser.parse(sql)) {
+            result = session.executeQuery(query);
+        }
+        return result;
+    }
+
+    private static List<List<String>> cells(TableModel result) {
+        List<List<String>> rows = new ArrayList<>();
+        for (int row = 0; row < result.getRowCount(); row++) {
+            List<String> values = new ArrayList<>();
+            for (int column = 0; column < result.getColumnCount(); column++) {
+                values.add(String.valueOf(result.getValueAt(row, column)));
+            }
+            rows.add(values);
+        }
+        return rows;
+    }
+
+    @Test
+    public void commitAndRollback() {
+        Database database = new Database();
+        Session session = new Session(database);
+        Session other = new Session(database);
+        execute(session, """
+            CREATE TABLE accounts (id int, balance int,);
+            INSERT INTO accounts VALUES (1, 100), (2, 200), (3, 300);
+            BEGIN;
+            UPDATE accounts SET balance = 50 WHERE id == 1;
+            INSERT INTO accounts VALUES (4, 400);
+        """);
+
+        // Buffered changes are invisible to everyone else until they are committed.
+        Assertions.assertTrue(session.inTransaction());
+        Assertions.assertEquals(3, cells(execute(other, "SELECT * FROM accounts;")).size());
+
+        execute(session, "COMMIT;");
+        Assertions.assertFalse(session.inTransaction());
+        Assertions.assertEquals(
+            List.of(List.of("1", "50"), List.of("2", "200"), List.of("3", "300"), List.of("4", "400")),
+            cells(execute(other, "SELECT id, balance FROM accounts ORDER BY id;"))
+        );
+
+        execute(session, "BEGIN; DELETE FROM accounts WHERE id > 0; ROLLBACK;");
+        Assertions.assertFalse(session.inTransaction());
+        Assertions.assertEquals(4, cells(execute(other, "SELECT * FROM accounts;")).size());
+
+        Assertions.assertThrows(IllegalStateException.class, () -> execute(session, "COMMIT;"));
+        Assertions.assertThrows(IllegalStateException.class, () -> execute(session, "BEGIN; DROP TABLE accounts;"));
+        execute(session, "ROLLBACK;");
+    }
+
+    @Test
+    public void atomicBatchFailure() {
+        Database database = new Database();
+        Session session = new Session(database);
+        execute(session, """
+            CREATE TABLE accounts (id int, balance int,);
+            INSERT INTO accounts VALUES (1, 100), (2, 200), (3, 300);
+        """);
+
+        // The last change only fails once the batch is applied, after the others have already been.
+        execute(session, """
+            BEGIN;
+            INSERT INTO accounts VALUES (4, 400);
+            UPDATE accounts SET balance = 0 WHERE id == 1;
+            DELETE FROM accounts WHERE id == 2;
+            INSERT INTO accounts VALUES (5, 'five hundred');
+        """);
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> execute(session, "COMMIT;"));
+        Assertions.assertFalse(session.inTransaction());
+        Assertions.assertEquals(
+            List.of(List.of("1", "100"), List.of("2", "200"), List.of("3", "300")),
+            cells(execute(session, "SELECT id, balance FROM accounts ORDER BY id;"))
+        );
+    }
+
+    @Test
+    public void conflictingCommit() {
+        Database database = new Database();
+        Session first = new Session(database);
+        Session second = new Session(database);
+        execute(first, """
+            CREATE TABLE accounts (id int, balance int,);
+            INSERT INTO accounts VALUES (1, 100), (2, 200), (3, 300);
+        """);
+
+        execute(first, "BEGIN; UPDATE accounts SET balance = 1 WHERE id == 1;");
+        execute(second, "BEGIN; UPDATE accounts SET balance = 2 WHERE id == 1; UPDATE accounts SET balance = 3 WHERE id == 3;");
+
+        execute(first, "COMMIT;");
+        Assertions.assertThrows(ConcurrentModificationException.class, () -> execute(second, "COMMIT;"));
+
+        // Nothing of the transaction that lost is applied, not even its change to a row nobody else touched.
+        Assertions.assertEquals(
+            List.of(List.of("1", "1"), List.of("2", "200"), List.of("3", "300")),
+            cells(execute(second, "SELECT id, balance FROM accounts ORDER BY id;"))
+        );
+    }
+
+    @Test
+    public void selectAfterChange() {
+        Database database = new Database();
+        Session session = new Session(database);
+        execute(session, """
+            CREATE TABLE accounts (id int, balance int,);
+            INSERT INTO accounts VALUES (1, 100), (2, 200);
+            BEGIN;
+        """);
+
+        // Reads before the first change see the snapshot, which is all the transaction has seen so far.
+        Assertions.assertEquals(List.of(List.of("100")), cells(execute(session, "SELECT balance FROM accounts WHERE id == 1;")));
+        execute(session, "UPDATE accounts SET balance = 0 WHERE id == 1;");
+
+        // Afterwards, the snapshot would no longer show what the transaction is about to commit.
+        IllegalStateException error = Assertions.assertThrows(IllegalStateException.class, () -> execute(session, "SELECT balance FROM accounts WHERE id == 1;"));
+        Assertions.assertTrue(error.getMessage().contains("COMMIT"));
+        Assertions.assertTrue(session.inTransaction());
+
+        execute(session, "COMMIT;");
+        Assertions.assertEquals(List.of(List.of("0")), cells(execute(session, "SELECT balance FROM accounts WHERE id == 1;")));
+    }
+}